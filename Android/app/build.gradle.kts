@@ -102,5 +102,6 @@ dependencies {
     api(project(":imkit:conversationkit-ui"))
     implementation("com.github.bumptech.glide:glide:4.13.1")
     annotationProcessor("com.github.bumptech.glide:compiler:4.13.1")
+    testImplementation("junit:junit:4.13.2")
 
 }
\ No newline at end of file
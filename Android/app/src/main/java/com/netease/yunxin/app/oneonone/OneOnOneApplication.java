@@ -5,9 +5,14 @@
 package com.netease.yunxin.app.oneonone;
 
 import android.app.Application;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.MemoryCategory;
 import com.faceunity.nama.FURenderer;
+import com.faceunity.nama.utils.FuDeviceProfileService;
 import com.netease.yunxin.app.oneonone.config.AppConfig;
 import com.netease.yunxin.app.oneonone.config.NimSDKOptionConfig;
+import com.netease.yunxin.app.oneonone.startup.StartupPipeline;
+import com.netease.yunxin.app.oneonone.startup.StartupTask;
 import com.netease.yunxin.app.oneonone.ui.utils.IMUIKitUtil;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.entertainment.common.AppStatusManager;
@@ -17,14 +22,56 @@ public class OneOnOneApplication extends Application {
 
   private static final String TAG = "OneOnOneApplication";
 
+  private static final String TASK_LOG = "log";
+  private static final String TASK_CONFIG = "config";
+  private static final String TASK_APP_STATUS = "appStatus";
+  private static final String TASK_IM = "im";
+  private static final String TASK_ICON_FONT = "iconFont";
+  private static final String TASK_BEAUTY = "beauty";
+
   @Override
   public void onCreate() {
     super.onCreate();
-    ALog.init(this, ALog.LEVEL_ALL);
-    AppConfig.init(this);
-    AppStatusManager.init(this);
-    IconFontUtil.getInstance().init(this);
+    // 美颜只在通话时使用，鉴权和 AI 模型加载放到后台，通话页面首次使用时也会确保初始化
+    new StartupPipeline()
+        .add(
+            StartupTask.of(
+                TASK_LOG, StartupTask.ThreadMode.MAIN, () -> ALog.init(this, ALog.LEVEL_ALL)))
+        .add(StartupTask.of(TASK_CONFIG, StartupTask.ThreadMode.MAIN, () -> AppConfig.init(this)))
+        .add(
+            StartupTask.of(
+                TASK_APP_STATUS, StartupTask.ThreadMode.MAIN, () -> AppStatusManager.init(this)))
+        .add(
+            StartupTask.of(
+                TASK_IM,
+                StartupTask.ThreadMode.MAIN,
+                () ->
+                    IMUIKitUtil.initIMUIKit(
+                        this, NimSDKOptionConfig.getSDKOptions(this, AppConfig.getAppKey())),
+                TASK_LOG,
+                TASK_CONFIG,
+                TASK_APP_STATUS))
+        .add(
+            StartupTask.of(
+                TASK_ICON_FONT,
+                StartupTask.ThreadMode.BACKGROUND,
+                () -> IconFontUtil.getInstance().init(this)))
+        .add(
+            StartupTask.of(
+                TASK_BEAUTY, StartupTask.ThreadMode.BACKGROUND, this::initBeauty, TASK_LOG))
+        .setListener(trace -> ALog.i(TAG, "startup trace:\n" + trace))
+        .start();
+  }
+
+  private void initBeauty() {
     FURenderer.getInstance().init(this);
-    IMUIKitUtil.initIMUIKit(this, NimSDKOptionConfig.getSDKOptions(this, AppConfig.getAppKey()));
+    FuDeviceProfileService.getInstance()
+        .addListener(
+            profile -> {
+              // 低端机减小图片内存缓存
+              if (profile.isLowEnd()) {
+                Glide.get(this).setMemoryCategory(MemoryCategory.LOW);
+              }
+            });
   }
 }
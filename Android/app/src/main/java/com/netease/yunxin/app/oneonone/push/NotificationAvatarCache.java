@@ -0,0 +1,246 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.push;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.RequestOptions;
+import com.netease.nimlib.sdk.NIMClient;
+import com.netease.nimlib.sdk.Observer;
+import com.netease.nimlib.sdk.RequestCallbackWrapper;
+import com.netease.nimlib.sdk.msg.MsgService;
+import com.netease.nimlib.sdk.msg.MsgServiceObserve;
+import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
+import com.netease.nimlib.sdk.msg.model.RecentContact;
+import com.netease.nimlib.sdk.nos.NosService;
+import com.netease.nimlib.sdk.team.TeamServiceObserve;
+import com.netease.nimlib.sdk.team.model.Team;
+import com.netease.nimlib.sdk.uinfo.UserServiceObserve;
+import com.netease.nimlib.sdk.uinfo.model.NimUserInfo;
+import com.netease.nimlib.sdk.uinfo.model.UserInfo;
+import com.netease.yunxin.app.oneonone.R;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.corekit.im.provider.TeamProvider;
+import com.netease.yunxin.kit.corekit.im.provider.UserInfoProvider;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知栏头像缓存
+ *
+ * <p>短链对应的原始地址和 48dp 头像在后台解析、下载，通知栏只从内存读取，不阻塞通知。
+ * 未命中时返回 null 使用默认头像，同时在后台加载，下一条通知即可使用。
+ *
+ * <p>登录后根据最近会话预加载，用户、群信息更新时刷新。
+ */
+public class NotificationAvatarCache {
+  private static final String TAG = "NotificationAvatarCache";
+
+  /** 登录后预加载的最近会话数 */
+  private static final int WARM_CONTACT_COUNT = 20;
+
+  private static final int URL_CACHE_SIZE = 500;
+  private static final int BITMAP_CACHE_BYTES = 4 * 1024 * 1024;
+  private static final long LOAD_TIMEOUT_SECONDS = 10;
+
+  private static volatile NotificationAvatarCache instance;
+
+  private final Context context;
+  private final int imageSize;
+
+  // 短链 -> 原始地址
+  private final LruCache<String, String> originUrlCache = new LruCache<>(URL_CACHE_SIZE);
+  // 原始地址 -> 头像
+  private final LruCache<String, Bitmap> bitmapCache =
+      new LruCache<String, Bitmap>(BITMAP_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+          return value.getByteCount();
+        }
+      };
+  // 加载中的地址，避免重复加载
+  private final Set<String> loadingUrls = new HashSet<>();
+
+  private final ExecutorService loadExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "notification-avatar");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  private boolean started = false;
+
+  private final Observer<List<RecentContact>> recentContactObserver = this::warmContacts;
+
+  private final Observer<List<NimUserInfo>> userInfoObserver =
+      userInfoList -> {
+        for (NimUserInfo userInfo : userInfoList) {
+          warm(userInfo.getAvatar());
+        }
+      };
+
+  private final Observer<List<Team>> teamObserver =
+      teamList -> {
+        for (Team team : teamList) {
+          warm(team.getIcon());
+        }
+      };
+
+  public static NotificationAvatarCache getInstance(Context context) {
+    if (instance == null) {
+      synchronized (NotificationAvatarCache.class) {
+        if (instance == null) {
+          instance = new NotificationAvatarCache(context.getApplicationContext());
+        }
+      }
+    }
+    return instance;
+  }
+
+  private NotificationAvatarCache(Context context) {
+    this.context = context;
+    this.imageSize = (int) context.getResources().getDimension(R.dimen.dimen_48_dp);
+  }
+
+  /** 登录成功后调用，预加载最近会话头像并监听用户、群信息更新 */
+  public void start() {
+    if (!started) {
+      started = true;
+      NIMClient.getService(MsgServiceObserve.class)
+          .observeRecentContact(recentContactObserver, true);
+      NIMClient.getService(UserServiceObserve.class).observeUserInfoUpdate(userInfoObserver, true);
+      NIMClient.getService(TeamServiceObserve.class).observeTeamUpdate(teamObserver, true);
+    }
+    NIMClient.getService(MsgService.class)
+        .queryRecentContacts()
+        .setCallback(
+            new RequestCallbackWrapper<List<RecentContact>>() {
+              @Override
+              public void onResult(int code, List<RecentContact> result, Throwable exception) {
+                if (result != null) {
+                  warmContacts(result.subList(0, Math.min(result.size(), WARM_CONTACT_COUNT)));
+                }
+              }
+            });
+  }
+
+  /**
+   * 获取头像，只读内存
+   *
+   * @param url 头像地址，可以是短链
+   * @return 未缓存时返回 null，并在后台加载
+   */
+  @Nullable
+  public Bitmap get(String url) {
+    if (TextUtils.isEmpty(url)) {
+      return null;
+    }
+    String originUrl = originUrlCache.get(url);
+    Bitmap bitmap = originUrl == null ? null : bitmapCache.get(originUrl);
+    if (bitmap == null) {
+      warm(url);
+    }
+    return bitmap;
+  }
+
+  /** 后台解析短链并下载头像 */
+  public void warm(String url) {
+    if (TextUtils.isEmpty(url)) {
+      return;
+    }
+    String originUrl = originUrlCache.get(url);
+    if (originUrl != null) {
+      if (bitmapCache.get(originUrl) == null) {
+        loadBitmap(originUrl);
+      }
+      return;
+    }
+    synchronized (loadingUrls) {
+      if (!loadingUrls.add(url)) {
+        return;
+      }
+    }
+    NIMClient.getService(NosService.class)
+        .getOriginUrlFromShortUrl(url)
+        .setCallback(
+            new RequestCallbackWrapper<String>() {
+              @Override
+              public void onResult(int code, String result, Throwable exception) {
+                synchronized (loadingUrls) {
+                  loadingUrls.remove(url);
+                }
+                String origin = TextUtils.isEmpty(result) ? url : result;
+                originUrlCache.put(url, origin);
+                if (bitmapCache.get(origin) == null) {
+                  loadBitmap(origin);
+                }
+              }
+            });
+  }
+
+  private void loadBitmap(String originUrl) {
+    synchronized (loadingUrls) {
+      if (!loadingUrls.add(originUrl)) {
+        return;
+      }
+    }
+    loadExecutor.execute(
+        () -> {
+          try {
+            Bitmap bitmap =
+                Glide.with(context)
+                    .asBitmap()
+                    .load(originUrl)
+                    .apply(new RequestOptions().centerCrop().override(imageSize, imageSize))
+                    .submit()
+                    .get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (bitmap != null) {
+              bitmapCache.put(originUrl, bitmap);
+            }
+          } catch (Exception e) {
+            ALog.e(TAG, "loadBitmap failed,e:" + e);
+          } finally {
+            synchronized (loadingUrls) {
+              loadingUrls.remove(originUrl);
+            }
+          }
+        });
+  }
+
+  // 最近会话头像需要查询本地用户、群信息，在后台线程执行
+  private void warmContacts(List<RecentContact> contacts) {
+    if (contacts == null || contacts.isEmpty()) {
+      return;
+    }
+    loadExecutor.execute(
+        () -> {
+          for (RecentContact contact : contacts) {
+            warm(getAvatarUrl(contact.getSessionType(), contact.getContactId()));
+          }
+        });
+  }
+
+  /** 会话头像地址，单聊为用户头像，群聊为群头像 */
+  @Nullable
+  public static String getAvatarUrl(SessionTypeEnum sessionType, String sessionId) {
+    if (SessionTypeEnum.P2P == sessionType) {
+      UserInfo user = UserInfoProvider.getUserInfoLocal(sessionId);
+      return user != null ? user.getAvatar() : null;
+    } else if (SessionTypeEnum.Team == sessionType) {
+      Team team = TeamProvider.INSTANCE.getTeamById(sessionId);
+      return team != null ? team.getIcon() : null;
+    }
+    return null;
+  }
+}
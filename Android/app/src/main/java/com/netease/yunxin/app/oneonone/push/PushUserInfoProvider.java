@@ -8,21 +8,11 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.text.TextUtils;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.RequestOptions;
-import com.netease.nimlib.sdk.NIMClient;
-import com.netease.nimlib.sdk.RequestCallbackWrapper;
 import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
 import com.netease.nimlib.sdk.msg.model.IMMessage;
-import com.netease.nimlib.sdk.nos.NosService;
-import com.netease.nimlib.sdk.team.model.Team;
 import com.netease.nimlib.sdk.uinfo.UserInfoProvider;
 import com.netease.nimlib.sdk.uinfo.model.UserInfo;
 import com.netease.yunxin.app.oneonone.R;
-import com.netease.yunxin.kit.corekit.im.provider.TeamProvider;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 public class PushUserInfoProvider implements UserInfoProvider {
 
@@ -45,41 +35,11 @@ public class PushUserInfoProvider implements UserInfoProvider {
 
   @Override
   public Bitmap getAvatarForMessageNotifier(SessionTypeEnum sessionType, String sessionId) {
-    /*
-     * get from cache
-     */
-    Bitmap bm = null;
-    int defResId = R.drawable.ic_notification_avatar_default;
-    CountDownLatch countDownLatch = new CountDownLatch(1);
-    final String[] originUrl = new String[1];
-    if (SessionTypeEnum.P2P == sessionType) {
-      UserInfo user = getUserInfo(sessionId);
-      originUrl[0] = user != null ? user.getAvatar() : null;
-    } else if (SessionTypeEnum.Team == sessionType) {
-      Team team = TeamProvider.INSTANCE.getTeamById(sessionId);
-      originUrl[0] = team != null ? team.getIcon() : null;
-    }
-    NIMClient.getService(NosService.class)
-        .getOriginUrlFromShortUrl(originUrl[0])
-        .setCallback(
-            new RequestCallbackWrapper<String>() {
-
-              @Override
-              public void onResult(int code, String result, Throwable exception) {
-                originUrl[0] = result;
-                countDownLatch.countDown();
-              }
-            });
-    try {
-      countDownLatch.await(200, TimeUnit.MILLISECONDS);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
-
-    if (!TextUtils.isEmpty(originUrl[0])) {
-      bm = getNotificationBitmapFromCache(originUrl[0]);
-    }
+    // 只读内存缓存，未命中时使用默认头像，头像在后台加载后供下一条通知使用
+    String url = NotificationAvatarCache.getAvatarUrl(sessionType, sessionId);
+    Bitmap bm = getNotificationBitmapFromCache(url);
     if (bm == null) {
+      int defResId = R.drawable.ic_notification_avatar_default;
       if (SessionTypeEnum.Team == sessionType || SessionTypeEnum.SUPER_TEAM == sessionType) {
         defResId = R.drawable.ic_notification_avatar_group;
       }
@@ -97,23 +57,6 @@ public class PushUserInfoProvider implements UserInfoProvider {
   }
 
   public Bitmap getNotificationBitmapFromCache(String url) {
-    if (TextUtils.isEmpty(url)) {
-      return null;
-    }
-    final int imageSize = (int) context.getResources().getDimension(R.dimen.dimen_48_dp);
-    Bitmap cachedBitmap = null;
-    try {
-      cachedBitmap =
-          Glide.with(context)
-              .asBitmap()
-              .load(url)
-              .apply(new RequestOptions().centerCrop().override(imageSize, imageSize))
-              .submit()
-              .get(200, TimeUnit.MILLISECONDS) // 最大等待200ms
-      ;
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
-    return cachedBitmap;
+    return NotificationAvatarCache.getInstance(context).get(url);
   }
 }
@@ -0,0 +1,283 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.startup;
+
+import android.os.SystemClock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动任务调度
+ *
+ * <p>{@link #start()} 在主线程按依赖顺序同步执行主线程任务，后台任务在依赖完成后提交到后台线程，懒加载任务在首次 {@link
+ * #require(String)} 时执行。每个任务的线程和耗时记录在 {@link StartupTrace}。
+ *
+ * <p>任务名重复、依赖不存在、循环依赖或主线程任务依赖非主线程任务时，{@link #start()} 抛出 {@link
+ * IllegalStateException}。
+ */
+public class StartupPipeline {
+
+  public interface Clock {
+    long now();
+  }
+
+  /** 主线程和后台任务全部完成，在最后完成任务的线程回调 */
+  public interface Listener {
+    void onFinished(StartupTrace trace);
+  }
+
+  private static class Node {
+    final StartupTask task;
+    final List<Node> dependents = new ArrayList<>();
+    final AtomicInteger pending = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(1);
+    boolean claimed = false;
+
+    Node(StartupTask task) {
+      this.task = task;
+    }
+
+    boolean isMode(StartupTask.ThreadMode mode) {
+      return task.getThreadMode() == mode;
+    }
+  }
+
+  private final Executor executor;
+  private final Clock clock;
+  private final StartupTrace trace = new StartupTrace();
+  private final Map<String, Node> nodes = new LinkedHashMap<>();
+  private final AtomicInteger eagerRemaining = new AtomicInteger();
+  private Listener listener;
+  private volatile boolean started = false;
+  private long startTime;
+
+  public StartupPipeline() {
+    this(
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "startup-background");
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            }),
+        SystemClock::uptimeMillis);
+  }
+
+  public StartupPipeline(Executor executor, Clock clock) {
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  public StartupPipeline add(StartupTask task) {
+    if (started) {
+      throw new IllegalStateException("add after start:" + task.getName());
+    }
+    if (nodes.containsKey(task.getName())) {
+      throw new IllegalStateException("duplicate task:" + task.getName());
+    }
+    nodes.put(task.getName(), new Node(task));
+    return this;
+  }
+
+  public StartupPipeline setListener(Listener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  public StartupTrace getTrace() {
+    return trace;
+  }
+
+  /** 在主线程调用，主线程任务执行完后返回 */
+  public void start() {
+    if (started) {
+      return;
+    }
+    List<Node> order = sort();
+    int eager = 0;
+    for (Node node : order) {
+      node.pending.set(node.task.getDependencies().size());
+      if (!node.isMode(StartupTask.ThreadMode.LAZY)) {
+        eager++;
+      }
+    }
+    eagerRemaining.set(eager);
+    startTime = clock.now();
+    started = true;
+    if (eager == 0) {
+      notifyFinished();
+      return;
+    }
+    for (Node node : order) {
+      if (node.isMode(StartupTask.ThreadMode.BACKGROUND) && node.pending.get() == 0) {
+        dispatch(node);
+      }
+    }
+    for (Node node : order) {
+      if (node.isMode(StartupTask.ThreadMode.MAIN)) {
+        execute(node);
+      }
+    }
+  }
+
+  /**
+   * 确保任务已完成，懒加载任务和它的依赖在调用线程执行，后台任务未完成时等待
+   *
+   * @param name 任务名
+   */
+  public void require(String name) {
+    Node node = nodes.get(name);
+    if (node == null) {
+      throw new IllegalArgumentException("unknown task:" + name);
+    }
+    if (!started) {
+      throw new IllegalStateException("require before start:" + name);
+    }
+    if (node.isMode(StartupTask.ThreadMode.LAZY)) {
+      for (String dependency : node.task.getDependencies()) {
+        require(dependency);
+      }
+      execute(node);
+    }
+    await(node);
+  }
+
+  private void dispatch(Node node) {
+    executor.execute(() -> execute(node));
+  }
+
+  private void execute(Node node) {
+    synchronized (node) {
+      if (node.claimed) {
+        return;
+      }
+      node.claimed = true;
+    }
+    long begin = clock.now();
+    Throwable error = null;
+    try {
+      node.task.run();
+    } catch (Throwable e) {
+      error = e;
+    }
+    trace.add(
+        new StartupTrace.Record(
+            node.task.getName(),
+            node.task.getThreadMode(),
+            Thread.currentThread().getName(),
+            begin - startTime,
+            clock.now() - begin,
+            error == null));
+    node.done.countDown();
+    for (Node dependent : node.dependents) {
+      if (dependent.isMode(StartupTask.ThreadMode.BACKGROUND)
+          && dependent.pending.decrementAndGet() == 0) {
+        dispatch(dependent);
+      }
+    }
+    if (!node.isMode(StartupTask.ThreadMode.LAZY) && eagerRemaining.decrementAndGet() == 0) {
+      notifyFinished();
+    }
+    // 主线程任务失败和原来一样直接抛出，其他任务失败只记录
+    if (error != null && node.isMode(StartupTask.ThreadMode.MAIN)) {
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      }
+      if (error instanceof Error) {
+        throw (Error) error;
+      }
+      throw new IllegalStateException(node.task.getName() + " failed", error);
+    }
+  }
+
+  private void notifyFinished() {
+    if (listener != null) {
+      listener.onFinished(trace);
+    }
+  }
+
+  private static void await(Node node) {
+    boolean interrupted = false;
+    while (node.done.getCount() > 0) {
+      try {
+        node.done.await();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // 按依赖排序，同时检查依赖关系
+  private List<Node> sort() {
+    for (Node node : nodes.values()) {
+      for (String name : node.task.getDependencies()) {
+        Node dependency = nodes.get(name);
+        if (dependency == null) {
+          throw new IllegalStateException(node.task.getName() + " depends on unknown " + name);
+        }
+        checkMode(node, dependency);
+        dependency.dependents.add(node);
+      }
+    }
+    List<Node> order = new ArrayList<>();
+    // 0 未访问，1 访问中，2 已完成
+    Map<Node, Integer> states = new HashMap<>();
+    for (Node node : nodes.values()) {
+      visit(node, states, order);
+    }
+    return order;
+  }
+
+  private void visit(Node node, Map<Node, Integer> states, List<Node> order) {
+    Integer state = states.get(node);
+    if (state != null && state == 2) {
+      return;
+    }
+    if (state != null && state == 1) {
+      throw new IllegalStateException("cyclic dependency:" + node.task.getName());
+    }
+    states.put(node, 1);
+    for (String name : node.task.getDependencies()) {
+      visit(nodes.get(name), states, order);
+    }
+    states.put(node, 2);
+    order.add(node);
+  }
+
+  private static void checkMode(Node node, Node dependency) {
+    boolean valid;
+    switch (node.task.getThreadMode()) {
+      case MAIN:
+        valid = dependency.isMode(StartupTask.ThreadMode.MAIN);
+        break;
+      case BACKGROUND:
+        valid = !dependency.isMode(StartupTask.ThreadMode.LAZY);
+        break;
+      default:
+        valid = true;
+        break;
+    }
+    if (!valid) {
+      throw new IllegalStateException(
+          node.task.getName()
+              + "("
+              + node.task.getThreadMode()
+              + ") can not depend on "
+              + dependency.task.getName()
+              + "("
+              + dependency.task.getThreadMode()
+              + ")");
+    }
+  }
+}
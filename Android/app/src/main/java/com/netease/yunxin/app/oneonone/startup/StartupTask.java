@@ -0,0 +1,61 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.startup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** 启动任务，声明依赖的任务名和执行线程 */
+public abstract class StartupTask {
+
+  public enum ThreadMode {
+    /** 启动时在主线程同步执行，只能依赖主线程任务 */
+    MAIN,
+    /** 依赖完成后在后台线程执行，不能依赖懒加载任务 */
+    BACKGROUND,
+    /** 首次 {@link StartupPipeline#require(String)} 时在调用线程执行 */
+    LAZY
+  }
+
+  private final String name;
+  private final ThreadMode threadMode;
+  private final List<String> dependencies;
+
+  public StartupTask(String name, ThreadMode threadMode, String... dependencies) {
+    this.name = name;
+    this.threadMode = threadMode;
+    this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public ThreadMode getThreadMode() {
+    return threadMode;
+  }
+
+  public List<String> getDependencies() {
+    return dependencies;
+  }
+
+  public abstract void run() throws Exception;
+
+  /** 使用 lambda 创建任务 */
+  public static StartupTask of(
+      String name, ThreadMode threadMode, Action action, String... dependencies) {
+    return new StartupTask(name, threadMode, dependencies) {
+      @Override
+      public void run() throws Exception {
+        action.run();
+      }
+    };
+  }
+
+  public interface Action {
+    void run() throws Exception;
+  }
+}
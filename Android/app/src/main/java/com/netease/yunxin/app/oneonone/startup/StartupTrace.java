@@ -0,0 +1,83 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.startup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** 启动耗时记录，时间为相对启动开始的毫秒数 */
+public class StartupTrace {
+
+  public static class Record {
+    public final String name;
+    public final StartupTask.ThreadMode threadMode;
+    public final String thread;
+    public final long start;
+    public final long duration;
+    public final boolean success;
+
+    Record(
+        String name,
+        StartupTask.ThreadMode threadMode,
+        String thread,
+        long start,
+        long duration,
+        boolean success) {
+      this.name = name;
+      this.threadMode = threadMode;
+      this.thread = thread;
+      this.start = start;
+      this.duration = duration;
+      this.success = success;
+    }
+
+    @Override
+    public String toString() {
+      return name
+          + "["
+          + threadMode
+          + ","
+          + thread
+          + "] start:"
+          + start
+          + ",cost:"
+          + duration
+          + (success ? "" : ",failed");
+    }
+  }
+
+  private final List<Record> records = new ArrayList<>();
+
+  synchronized void add(Record record) {
+    records.add(record);
+  }
+
+  /** 按完成顺序排列 */
+  public synchronized List<Record> getRecords() {
+    return new ArrayList<>(records);
+  }
+
+  /** 指定任务的记录，未执行时返回 null */
+  public synchronized Record get(String name) {
+    for (Record record : records) {
+      if (record.name.equals(name)) {
+        return record;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Record record : records) {
+      if (builder.length() > 0) {
+        builder.append('\n');
+      }
+      builder.append(record);
+    }
+    return builder.toString();
+  }
+}
@@ -8,6 +8,7 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import com.netease.nimlib.sdk.auth.LoginInfo;
 import com.netease.yunxin.app.oneonone.config.AppConfig;
+import com.netease.yunxin.app.oneonone.push.NotificationAvatarCache;
 import com.netease.yunxin.app.oneonone.ui.OneOnOneUI;
 import com.netease.yunxin.app.oneonone.ui.http.HttpService;
 import com.netease.yunxin.app.oneonone.ui.model.ModelResponse;
@@ -106,6 +107,7 @@ public class LoginUtil {
                 nemoAccount.icon,
                 nemoAccount.mobile);
             UserInfoManager.saveUserInfoToSp(nemoAccount);
+            NotificationAvatarCache.getInstance(IMKitClient.getApplicationContext()).start();
             if (oneOnOneCallback != null) {
               oneOnOneCallback.onSuccess();
             }
@@ -0,0 +1,188 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+/** Runs background tasks on a manual queue to check ordering without threads. */
+public class StartupPipelineTest {
+
+  private final List<Runnable> background = new ArrayList<>();
+  private final Executor executor = background::add;
+  private long now = 0;
+  private final List<String> log = new ArrayList<>();
+
+  private StartupPipeline newPipeline() {
+    return new StartupPipeline(executor, () -> now);
+  }
+
+  private StartupTask task(String name, StartupTask.ThreadMode mode, String... dependencies) {
+    return StartupTask.of(
+        name,
+        mode,
+        () -> {
+          log.add(name);
+          now += 10;
+        },
+        dependencies);
+  }
+
+  private void runBackground() {
+    while (!background.isEmpty()) {
+      background.remove(0).run();
+    }
+  }
+
+  @Test
+  public void mainTasksRunInDependencyOrderBeforeStartReturns() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("im", StartupTask.ThreadMode.MAIN, "log", "config"))
+            .add(task("config", StartupTask.ThreadMode.MAIN, "log"))
+            .add(task("log", StartupTask.ThreadMode.MAIN))
+            .add(task("beauty", StartupTask.ThreadMode.BACKGROUND, "log"));
+
+    pipeline.start();
+
+    assertEquals(Arrays.asList("log", "config", "im"), log);
+    assertEquals(1, background.size());
+    runBackground();
+    assertEquals(Arrays.asList("log", "config", "im", "beauty"), log);
+  }
+
+  @Test
+  public void backgroundTaskWaitsForAllDependencies() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("a", StartupTask.ThreadMode.BACKGROUND))
+            .add(task("b", StartupTask.ThreadMode.BACKGROUND, "a", "m"))
+            .add(task("m", StartupTask.ThreadMode.MAIN));
+
+    pipeline.start();
+    // a was queued before m ran, b needs both
+    assertEquals(Arrays.asList("m"), log);
+    assertEquals(1, background.size());
+    runBackground();
+    assertEquals(Arrays.asList("m", "a", "b"), log);
+  }
+
+  @Test
+  public void lazyTaskRunsOnceOnRequire() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("log", StartupTask.ThreadMode.MAIN))
+            .add(task("model", StartupTask.ThreadMode.LAZY, "log"))
+            .add(task("beauty", StartupTask.ThreadMode.LAZY, "model"));
+
+    pipeline.start();
+    assertEquals(Arrays.asList("log"), log);
+
+    pipeline.require("beauty");
+    pipeline.require("beauty");
+    pipeline.require("model");
+
+    assertEquals(Arrays.asList("log", "model", "beauty"), log);
+    assertTrue(background.isEmpty());
+  }
+
+  @Test
+  public void traceRecordsTiming() {
+    List<StartupTrace> finished = new ArrayList<>();
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("log", StartupTask.ThreadMode.MAIN))
+            .add(task("beauty", StartupTask.ThreadMode.BACKGROUND, "log"))
+            .add(task("lazy", StartupTask.ThreadMode.LAZY))
+            .setListener(finished::add);
+
+    now = 100;
+    pipeline.start();
+    assertTrue(finished.isEmpty());
+    runBackground();
+    assertEquals(1, finished.size());
+
+    StartupTrace trace = pipeline.getTrace();
+    StartupTrace.Record main = trace.get("log");
+    assertNotNull(main);
+    assertEquals(0, main.start);
+    assertEquals(10, main.duration);
+    StartupTrace.Record beauty = trace.get("beauty");
+    assertNotNull(beauty);
+    assertEquals(StartupTask.ThreadMode.BACKGROUND, beauty.threadMode);
+    assertEquals(10, beauty.start);
+    assertTrue(beauty.success);
+    assertNull(trace.get("lazy"));
+  }
+
+  @Test
+  public void backgroundFailureIsRecordedAndDependentsStillRun() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(
+                StartupTask.of(
+                    "broken",
+                    StartupTask.ThreadMode.BACKGROUND,
+                    () -> {
+                      throw new IllegalStateException("auth failed");
+                    }))
+            .add(task("after", StartupTask.ThreadMode.BACKGROUND, "broken"));
+
+    pipeline.start();
+    runBackground();
+
+    assertFalse(pipeline.getTrace().get("broken").success);
+    assertEquals(Arrays.asList("after"), log);
+  }
+
+  @Test
+  public void mainTaskCannotDependOnBackgroundTask() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("beauty", StartupTask.ThreadMode.BACKGROUND))
+            .add(task("im", StartupTask.ThreadMode.MAIN, "beauty"));
+    try {
+      pipeline.start();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertTrue(log.isEmpty());
+    }
+  }
+
+  @Test
+  public void cyclicDependencyIsRejected() {
+    StartupPipeline pipeline =
+        newPipeline()
+            .add(task("a", StartupTask.ThreadMode.MAIN, "b"))
+            .add(task("b", StartupTask.ThreadMode.MAIN, "a"));
+    try {
+      pipeline.start();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertTrue(log.isEmpty());
+    }
+  }
+
+  @Test
+  public void unknownDependencyIsRejected() {
+    StartupPipeline pipeline = newPipeline().add(task("a", StartupTask.ThreadMode.MAIN, "b"));
+    try {
+      pipeline.start();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertTrue(log.isEmpty());
+    }
+  }
+}
@@ -25,4 +25,5 @@ dependencies {
     implementation(project(":entertainment:entertainment-common"))
     api("com.faceunity:core:8.6.0")
     api("com.faceunity:model:8.6.0")
+    testImplementation("junit:junit:4.13.2")
 }
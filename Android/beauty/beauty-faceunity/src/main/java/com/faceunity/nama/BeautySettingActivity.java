@@ -24,6 +24,7 @@ import com.faceunity.core.utils.CameraUtils;
 import com.faceunity.nama.data.FaceUnityDataFactory;
 import com.faceunity.nama.databinding.ActivityBeautySettingBinding;
 import com.faceunity.nama.listener.FURendererListener;
+import com.faceunity.nama.repo.FaceBeautySource;
 import com.netease.lava.api.IVideoRender;
 import com.netease.lava.nertc.sdk.NERtcEx;
 import com.netease.lava.nertc.sdk.video.NERtcVideoFrame;
@@ -87,6 +88,7 @@ public class BeautySettingActivity extends BaseActivity implements SensorEventLi
 
   private void setupFaceUnity() {
     mFURendererManager = FURenderer.getInstance();
+    mFURendererManager.init(this);
     mFURendererManager.setMarkFPSEnable(true);
     mFURendererManager.setInputTextureType(FUInputTextureEnum.FU_ADM_FLAG_EXTERNAL_OES_TEXTURE);
     mFURendererManager.setCameraFacing(CameraFacingEnum.CAMERA_FRONT);
@@ -215,6 +217,12 @@ public class BeautySettingActivity extends BaseActivity implements SensorEventLi
     }
   }
 
+  @Override
+  protected void onStop() {
+    super.onStop();
+    FaceBeautySource.flushParams();
+  }
+
   @Override
   protected void onDestroy() {
     if (mSensorManager != null) {
@@ -7,6 +7,6 @@ package com.faceunity.nama;
 import com.faceunity.nama.utils.FuDeviceUtils;
 
 public class FUConfig {
-  //设备等级默认为中级
-  public static int DEVICE_LEVEL = FuDeviceUtils.DEVICE_LEVEL_MID;
+  //设备等级默认为中级，FuDeviceProfileService 计算完成后更新
+  public static volatile int DEVICE_LEVEL = FuDeviceUtils.DEVICE_LEVEL_MID;
 }
@@ -0,0 +1,131 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DESC：GL 线程任务队列，多生产者单消费者的无锁环形队列
+ *
+ * <p>任意线程可投递任务，GL 线程每帧一次性取出执行，空队列时不产生对象分配。环形队列满时投递到溢出队列，溢出队列非空时后续任务也进入溢出队列，
+ * 保证同一线程投递的任务按顺序执行。
+ */
+final class FUEventQueue {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<Runnable> ring;
+  private final AtomicLong producerIndex = new AtomicLong();
+  /* 只由持有消费权的线程修改 */
+  private volatile long consumerIndex = 0;
+  private final ConcurrentLinkedQueue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+  /* 消费权，保证同一时间只有一个线程取任务 */
+  private final AtomicBoolean consuming = new AtomicBoolean(false);
+  /* 溢出次数 */
+  private final AtomicLong overflowCount = new AtomicLong();
+
+  /** @param capacity 环形队列容量，会向上取 2 的幂 */
+  FUEventQueue(int capacity) {
+    int size = 1;
+    while (size < capacity) {
+      size <<= 1;
+    }
+    this.capacity = size;
+    this.mask = size - 1;
+    this.ring = new AtomicReferenceArray<>(size);
+  }
+
+  /** 投递任务，任意线程调用 */
+  void offer(Runnable runnable) {
+    if (!overflow.isEmpty() || !offerRing(runnable)) {
+      overflowCount.incrementAndGet();
+      overflow.offer(runnable);
+    }
+  }
+
+  private boolean offerRing(Runnable runnable) {
+    while (true) {
+      long index = producerIndex.get();
+      if (index - consumerIndex >= capacity) {
+        return false;
+      }
+      if (producerIndex.compareAndSet(index, index + 1)) {
+        ring.lazySet((int) (index & mask), runnable);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * 一次性执行队列中的任务，其他线程正在取任务时直接返回
+   *
+   * @param stopFlag 执行过程中检查，返回 true 时停止
+   * @return 执行的任务数
+   */
+  int drain(StopFlag stopFlag) {
+    if (!consuming.compareAndSet(false, true)) {
+      return 0;
+    }
+    int count = 0;
+    try {
+      Runnable runnable;
+      while (!stopFlag.shouldStop() && (runnable = pollRing()) != null) {
+        runnable.run();
+        count++;
+      }
+      while (!stopFlag.shouldStop() && (runnable = overflow.poll()) != null) {
+        runnable.run();
+        count++;
+      }
+    } finally {
+      consuming.set(false);
+    }
+    return count;
+  }
+
+  /** 丢弃所有任务，等待正在执行的取任务结束 */
+  void clear() {
+    while (!consuming.compareAndSet(false, true)) {
+      Thread.yield();
+    }
+    try {
+      long target = producerIndex.get();
+      while (consumerIndex < target) {
+        // 生产者已占位但未写入时等待写入后丢弃
+        if (pollRing() == null) {
+          Thread.yield();
+        }
+      }
+      overflow.clear();
+    } finally {
+      consuming.set(false);
+    }
+  }
+
+  long getOverflowCount() {
+    return overflowCount.get();
+  }
+
+  // 只由持有消费权的线程调用
+  private Runnable pollRing() {
+    long index = consumerIndex;
+    int offset = (int) (index & mask);
+    Runnable runnable = ring.get(offset);
+    if (runnable == null) {
+      // 队列为空，或生产者已占位但未写入，下次再取
+      return null;
+    }
+    ring.lazySet(offset, null);
+    consumerIndex = index + 1;
+    return runnable;
+  }
+
+  interface StopFlag {
+    boolean shouldStop();
+  }
+}
@@ -5,18 +5,22 @@
 package com.faceunity.nama;
 
 import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
 import com.faceunity.core.callback.OperateCallback;
 import com.faceunity.core.entity.FURenderInputData;
 import com.faceunity.core.entity.FURenderOutputData;
 import com.faceunity.core.enumeration.FUAIProcessorEnum;
 import com.faceunity.core.enumeration.FUAITypeEnum;
+import com.faceunity.core.enumeration.FUInputBufferEnum;
+import com.faceunity.core.enumeration.FUInputTextureEnum;
 import com.faceunity.core.faceunity.FURenderConfig;
 import com.faceunity.core.faceunity.FURenderKit;
 import com.faceunity.core.faceunity.FURenderManager;
 import com.faceunity.core.utils.FULogger;
 import com.faceunity.nama.listener.FURendererListener;
+import com.faceunity.nama.utils.FuDeviceProfileService;
 import java.io.File;
-import java.util.ArrayList;
 import org.jetbrains.annotations.NotNull;
 
 public class FURenderer extends IFURenderer {
@@ -49,53 +53,88 @@ public class FURenderer extends IFURenderer {
 
   /* GL 线程 ID */
   private Long mGlThreadId = 0L;
-  /* 任务队列 */
-  private ArrayList<Runnable> mEventQueue = new ArrayList<>(16);
-  private final Object queueLock = new Object();
+  /* 任务队列，无锁，GL 线程每帧一次性执行 */
+  private final FUEventQueue mEventQueue = new FUEventQueue(EVENT_QUEUE_CAPACITY);
   /* 渲染开关标识 */
   private volatile boolean mRendererSwitch = false;
   /* 清除队列标识 */
   private volatile boolean mClearQueue = false;
+  /* 复用的停止判断，避免每帧创建 lambda */
+  private final FUEventQueue.StopFlag mClearQueueFlag = () -> mClearQueue;
 
   /*检测类型*/
   private FUAIProcessorEnum aIProcess = FUAIProcessorEnum.FACE_PROCESSOR;
   /*检测标识*/
-  private int aIProcessTrackStatus = -1;
+  private volatile int aIProcessTrackStatus = -1;
+  /*检测间隔帧数*/
+  private volatile int trackStatusInterval = DEFAULT_TRACK_STATUS_INTERVAL;
+  /*距上次检测的帧数*/
+  private int trackStatusFrameCount;
+
+  /* 复用的渲染输入，分辨率变化时重新创建 */
+  private final FrameInputPool mDualInputPool = new FrameInputPool();
+  private final FrameInputPool mReturnInputPool = new FrameInputPool();
+
+  private static final int EVENT_QUEUE_CAPACITY = 256;
+  private static final int DEFAULT_TRACK_STATUS_INTERVAL = 5;
 
   private boolean isCreateEGLContext;
 
+  /* 是否已初始化，鉴权成功后才置为 true，失败时下次调用 init 会重试 */
+  private volatile boolean initialized = false;
+  /* 鉴权进行中，避免重复注册 */
+  private boolean initializing = false;
+
   public String getVersion() {
     return mFURenderKit.getVersion();
   }
 
   /**
-   * 初始化鉴权
+   * 初始化鉴权，已初始化或鉴权进行中时调用无效，鉴权失败后再次调用会重新初始化
    *
    * @param context
    */
   @Override
-  public void init(Context context) {
-    FURenderManager.setKitDebug(FULogger.LogLevel.OFF);
-    FURenderManager.setCoreDebug(FULogger.LogLevel.OFF);
-    FURenderManager.registerFURender(
-        context,
-        authpack.A(),
-        new OperateCallback() {
-          @Override
-          public void onSuccess(int i, @NotNull String s) {
-            if (i == FURenderConfig.OPERATE_SUCCESS_AUTH) {
-              mFURenderKit
-                  .getFUAIController()
-                  .loadAIProcessor(BUNDLE_AI_FACE, FUAITypeEnum.FUAITYPE_FACEPROCESSOR);
-              mFURenderKit
-                  .getFUAIController()
-                  .loadAIProcessor(BUNDLE_AI_HUMAN, FUAITypeEnum.FUAITYPE_HUMAN_PROCESSOR);
+  public synchronized void init(Context context) {
+    if (initialized || initializing) {
+      return;
+    }
+    initializing = true;
+    try {
+      FuDeviceProfileService.getInstance().init(context);
+      FURenderManager.setKitDebug(FULogger.LogLevel.OFF);
+      FURenderManager.setCoreDebug(FULogger.LogLevel.OFF);
+      FURenderManager.registerFURender(
+          context,
+          authpack.A(),
+          new OperateCallback() {
+            @Override
+            public void onSuccess(int i, @NotNull String s) {
+              if (i == FURenderConfig.OPERATE_SUCCESS_AUTH) {
+                mFURenderKit
+                    .getFUAIController()
+                    .loadAIProcessor(BUNDLE_AI_FACE, FUAITypeEnum.FUAITYPE_FACEPROCESSOR);
+                mFURenderKit
+                    .getFUAIController()
+                    .loadAIProcessor(BUNDLE_AI_HUMAN, FUAITypeEnum.FUAITYPE_HUMAN_PROCESSOR);
+                onInitFinish(true);
+              }
+            }
+
+            @Override
+            public void onFail(int i, @NotNull String s) {
+              onInitFinish(false);
             }
-          }
+          });
+    } catch (RuntimeException e) {
+      initializing = false;
+      throw e;
+    }
+  }
 
-          @Override
-          public void onFail(int i, @NotNull String s) {}
-        });
+  private synchronized void onInitFinish(boolean success) {
+    initializing = false;
+    initialized = success;
   }
 
   /** 开启合成状态 */
@@ -127,13 +166,8 @@ public class FURenderer extends IFURenderer {
     if (!mRendererSwitch) {
       return texId;
     }
-    FURenderInputData inputData = new FURenderInputData(width, height);
-    if (img != null) {
-      inputData.setImageBuffer(new FURenderInputData.FUImageBuffer(inputBufferType, img));
-    }
-    if (texId != -1) {
-      inputData.setTexture(new FURenderInputData.FUTexture(inputTextureType, texId));
-    }
+    FURenderInputData inputData =
+        mDualInputPool.obtain(width, height, inputBufferType, img, inputTextureType, texId);
     FURenderInputData.FURenderConfig config = inputData.getRenderConfig();
     config.setExternalInputType(externalInputType);
     config.setInputOrientation(inputOrientation);
@@ -144,7 +178,7 @@ public class FURenderer extends IFURenderer {
     config.setOutputMatrix(outputMatrix);
     mCallStartTime = System.nanoTime();
     FURenderOutputData outputData = mFURenderKit.renderWithInput(inputData);
-    mSumCallTime += System.nanoTime() - mCallStartTime;
+    recordFrameTime(System.nanoTime() - mCallStartTime);
     if (outputData.getTexture() != null && outputData.getTexture().getTexId() > 0) {
       return outputData.getTexture().getTexId();
     }
@@ -161,9 +195,8 @@ public class FURenderer extends IFURenderer {
     if (!mRendererSwitch) {
       return null;
     }
-    FURenderInputData inputData = new FURenderInputData(width, height);
-    inputData.setImageBuffer(new FURenderInputData.FUImageBuffer(inputBufferType, img));
-    inputData.setTexture(new FURenderInputData.FUTexture(inputTextureType, texId));
+    FURenderInputData inputData =
+        mReturnInputPool.obtain(width, height, inputBufferType, img, inputTextureType, texId);
     FURenderInputData.FURenderConfig config = inputData.getRenderConfig();
     config.setExternalInputType(externalInputType);
     config.setInputOrientation(inputOrientation);
@@ -175,7 +208,7 @@ public class FURenderer extends IFURenderer {
     config.setNeedBufferReturn(true);
     mCallStartTime = System.nanoTime();
     FURenderOutputData outputData = mFURenderKit.renderWithInput(inputData);
-    mSumCallTime += System.nanoTime() - mCallStartTime;
+    recordFrameTime(System.nanoTime() - mCallStartTime);
     return outputData;
   }
 
@@ -196,9 +229,7 @@ public class FURenderer extends IFURenderer {
     if (mGlThreadId == Thread.currentThread().getId()) {
       runnable.run();
     } else {
-      synchronized (queueLock) {
-        mEventQueue.add(runnable);
-      }
+      mEventQueue.offer(runnable);
     }
   }
 
@@ -208,15 +239,16 @@ public class FURenderer extends IFURenderer {
     mRendererSwitch = false;
     mClearQueue = true;
     mGlThreadId = 0L;
-    synchronized (queueLock) {
-      mEventQueue.clear();
-      mClearQueue = false;
-      mFURenderKit.release();
-      aIProcessTrackStatus = -1;
-      if (mFURendererListener != null) {
-        mFURendererListener.onRelease();
-        mFURendererListener = null;
-      }
+    // 等待 GL 线程当前的任务执行结束后清空
+    mEventQueue.clear();
+    mClearQueue = false;
+    mFURenderKit.release();
+    aIProcessTrackStatus = -1;
+    mDualInputPool.release();
+    mReturnInputPool.release();
+    if (mFURendererListener != null) {
+      mFURendererListener.onRelease();
+      mFURendererListener = null;
     }
     if (isCreateEGLContext) {
       mFURenderKit.releaseEGLContext();
@@ -232,13 +264,12 @@ public class FURenderer extends IFURenderer {
     benchmarkFPS();
 
     // 执行任务队列中的任务
-    synchronized (queueLock) {
-      while (!mEventQueue.isEmpty() && !mClearQueue) {
-        mEventQueue.remove(0).run();
-      }
+    mEventQueue.drain(mClearQueueFlag);
+    // AI检测，按间隔采样
+    if (aIProcessTrackStatus == -1 || ++trackStatusFrameCount >= trackStatusInterval) {
+      trackStatusFrameCount = 0;
+      trackStatus();
     }
-    // AI检测
-    trackStatus();
   }
 
   /**
@@ -262,6 +293,15 @@ public class FURenderer extends IFURenderer {
     mIsRunBenchmark = enable;
   }
 
+  /**
+   * 设置AI识别数目检测间隔，默认每 {@value #DEFAULT_TRACK_STATUS_INTERVAL} 帧检测一次
+   *
+   * @param frames 间隔帧数，1 为每帧检测
+   */
+  public void setTrackStatusInterval(int frames) {
+    trackStatusInterval = Math.max(1, frames);
+  }
+
   @Override
   public void setDeviceOrientation(int deviceOrientation) {
     super.setDeviceOrientation(deviceOrientation);
@@ -269,6 +309,7 @@ public class FURenderer extends IFURenderer {
 
   /** AI识别数目检测 */
   private void trackStatus() {
+    mTrackSampleCount++;
     int trackCount;
     if (aIProcess == FUAIProcessorEnum.HAND_GESTURE_PROCESSOR) {
       trackCount = mFURenderKit.getFUAIController().handProcessorGetNumResults();
@@ -317,4 +358,200 @@ public class FURenderer extends IFURenderer {
       }
     }
   }
+
+  //------------------------------渲染统计------------------------------------
+
+  /* 超过该耗时的帧计为慢帧，约 30fps 的帧间隔 */
+  private static final long SLOW_FRAME_NANO = 33 * (long) NANO_IN_ONE_MILLI_SECOND;
+  private volatile long mFrameCount;
+  private volatile long mTotalFrameNanos;
+  private volatile long mMaxFrameNanos;
+  private volatile long mSlowFrameCount;
+  private volatile long mTrackSampleCount;
+  private long mStatsStartGcCount = getGcCount();
+
+  private void recordFrameTime(long nanos) {
+    mSumCallTime += nanos;
+    mFrameCount++;
+    mTotalFrameNanos += nanos;
+    if (nanos > mMaxFrameNanos) {
+      mMaxFrameNanos = nanos;
+    }
+    if (nanos > SLOW_FRAME_NANO) {
+      mSlowFrameCount++;
+    }
+  }
+
+  /**
+   * 获取渲染统计，用于观察美颜通话中的分配和 GC 情况
+   *
+   * @return 自上次 {@link #resetRenderStats()} 起的统计
+   */
+  public RenderStats getRenderStats() {
+    long gcCount = getGcCount();
+    return new RenderStats(
+        mFrameCount,
+        mTotalFrameNanos,
+        mMaxFrameNanos,
+        mSlowFrameCount,
+        mDualInputPool.allocationCount + mReturnInputPool.allocationCount,
+        mEventQueue.getOverflowCount(),
+        mTrackSampleCount,
+        gcCount < 0 ? -1 : gcCount - mStatsStartGcCount);
+  }
+
+  /** 重置渲染统计 */
+  public void resetRenderStats() {
+    mFrameCount = 0;
+    mTotalFrameNanos = 0;
+    mMaxFrameNanos = 0;
+    mSlowFrameCount = 0;
+    mTrackSampleCount = 0;
+    mDualInputPool.allocationCount = 0;
+    mReturnInputPool.allocationCount = 0;
+    mStatsStartGcCount = getGcCount();
+  }
+
+  /** 进程 GC 次数，系统不支持时返回 -1 */
+  private static long getGcCount() {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(Debug.getRuntimeStat("art.gc.gc-count"));
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  /** 渲染统计 */
+  public static class RenderStats {
+    /* 渲染帧数 */
+    public final long frameCount;
+    /* 渲染总耗时，纳秒 */
+    public final long totalFrameNanos;
+    /* 单帧最大耗时，纳秒 */
+    public final long maxFrameNanos;
+    /* 慢帧数 */
+    public final long slowFrameCount;
+    /* 渲染输入对象创建次数，分辨率不变时应保持不变 */
+    public final long inputAllocationCount;
+    /* 任务队列溢出次数 */
+    public final long eventOverflowCount;
+    /* AI识别数目检测次数 */
+    public final long trackSampleCount;
+    /* 统计期间的 GC 次数，系统不支持时为 -1 */
+    public final long gcCount;
+
+    RenderStats(
+        long frameCount,
+        long totalFrameNanos,
+        long maxFrameNanos,
+        long slowFrameCount,
+        long inputAllocationCount,
+        long eventOverflowCount,
+        long trackSampleCount,
+        long gcCount) {
+      this.frameCount = frameCount;
+      this.totalFrameNanos = totalFrameNanos;
+      this.maxFrameNanos = maxFrameNanos;
+      this.slowFrameCount = slowFrameCount;
+      this.inputAllocationCount = inputAllocationCount;
+      this.eventOverflowCount = eventOverflowCount;
+      this.trackSampleCount = trackSampleCount;
+      this.gcCount = gcCount;
+    }
+
+    /** 平均单帧耗时，毫秒 */
+    public double getAverageFrameMillis() {
+      return frameCount == 0
+          ? 0
+          : (double) totalFrameNanos / frameCount / NANO_IN_ONE_MILLI_SECOND;
+    }
+
+    @Override
+    public String toString() {
+      return "RenderStats{"
+          + "frameCount="
+          + frameCount
+          + ", averageFrameMillis="
+          + getAverageFrameMillis()
+          + ", maxFrameMillis="
+          + (double) maxFrameNanos / NANO_IN_ONE_MILLI_SECOND
+          + ", slowFrameCount="
+          + slowFrameCount
+          + ", inputAllocationCount="
+          + inputAllocationCount
+          + ", eventOverflowCount="
+          + eventOverflowCount
+          + ", trackSampleCount="
+          + trackSampleCount
+          + ", gcCount="
+          + gcCount
+          + '}';
+    }
+  }
+
+  /** 渲染输入复用池，只在 GL 线程使用，分辨率不变时每帧不创建对象 */
+  private static final class FrameInputPool {
+    private FURenderInputData inputData;
+    private FURenderInputData.FUImageBuffer imageBuffer;
+    private FURenderInputData.FUTexture texture;
+    private int width;
+    private int height;
+    /* 创建对象次数 */
+    volatile long allocationCount;
+    /* 释放标识，可能在其他线程设置，在 GL 线程下次取用时清空 */
+    private volatile boolean released;
+
+    FURenderInputData obtain(
+        int width,
+        int height,
+        FUInputBufferEnum bufferType,
+        byte[] img,
+        FUInputTextureEnum textureType,
+        int texId) {
+      if (released) {
+        released = false;
+        inputData = null;
+      }
+      if (inputData == null || this.width != width || this.height != height) {
+        inputData = new FURenderInputData(width, height);
+        imageBuffer = null;
+        texture = null;
+        this.width = width;
+        this.height = height;
+        allocationCount++;
+      }
+      if (img == null) {
+        inputData.setImageBuffer(null);
+      } else {
+        if (imageBuffer == null) {
+          imageBuffer = new FURenderInputData.FUImageBuffer(bufferType, img);
+          allocationCount++;
+        } else {
+          imageBuffer.setInputBufferType(bufferType);
+          imageBuffer.setBuffer(img);
+        }
+        inputData.setImageBuffer(imageBuffer);
+      }
+      if (texId == -1) {
+        inputData.setTexture(null);
+      } else {
+        if (texture == null) {
+          texture = new FURenderInputData.FUTexture(textureType, texId);
+          allocationCount++;
+        } else {
+          texture.setInputTextureType(textureType);
+          texture.setTexId(texId);
+        }
+        inputData.setTexture(texture);
+      }
+      return inputData;
+    }
+
+    void release() {
+      released = true;
+    }
+  }
 }
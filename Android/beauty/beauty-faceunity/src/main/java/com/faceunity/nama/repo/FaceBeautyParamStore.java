@@ -0,0 +1,241 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.repo;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.faceunity.nama.BeautyLog;
+import com.netease.yunxin.kit.common.utils.SPUtils;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * DESC：美颜参数内存快照与延迟写入
+ *
+ * <p>参数首次读取时从一个序列化 key 加载到内存，之后的读写只操作内存。修改后等待 {@link #FLUSH_DELAY_MS}
+ * 无新修改再合并写入一次，页面退到后台时调用 {@link #flush()} 立即写入。
+ *
+ * <p>快照中没有的 key 按旧版本分 key 保存的数据读取一次，并在下次写入时合并到快照中。旧数据不删除，
+ * 升级后未读取过的 key 在之后的读取中仍能取到旧值。
+ *
+ * <p>序列化格式：{@code 版本|当前滤镜|key=value;key=value}
+ */
+final class FaceBeautyParamStore {
+
+  private static final String TAG = "FaceBeautyParamStore";
+  private static final String SP_KEY_SNAPSHOT = "faceBeautyParamSnapshot";
+  private static final String SP_KEY_CURRENT_FILTER_NAME = "currentFilterName";
+  private static final int VERSION = 1;
+  private static final long FLUSH_DELAY_MS = 500;
+
+  private static final char FIELD_SEPARATOR = '|';
+  private static final char ENTRY_SEPARATOR = ';';
+  private static final char VALUE_SEPARATOR = '=';
+
+  /** 持久化存储 */
+  interface Storage {
+    String getString(String key);
+
+    /** @return defaultValue if key not exists */
+    float getFloat(String key, float defaultValue);
+
+    void putString(String key, String value);
+  }
+
+  interface Scheduler {
+    void postDelayed(Runnable runnable, long delay);
+
+    void remove(Runnable runnable);
+  }
+
+  private static final class Holder {
+    static final FaceBeautyParamStore INSTANCE =
+        new FaceBeautyParamStore(new SPStorage(), new HandlerScheduler());
+  }
+
+  private final Storage storage;
+  private final Scheduler scheduler;
+  private final Map<String, Float> values = new HashMap<>();
+  /* 已查找过旧版本数据的 key */
+  private final Set<String> legacyChecked = new HashSet<>();
+  private final Runnable flushRunnable = this::flush;
+  private String currentFilterName;
+  private boolean loaded = false;
+  private boolean dirty = false;
+
+  FaceBeautyParamStore(Storage storage, Scheduler scheduler) {
+    this.storage = storage;
+    this.scheduler = scheduler;
+  }
+
+  static FaceBeautyParamStore getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  synchronized float getFloat(String key, float defaultValue) {
+    ensureLoaded();
+    Float value = values.get(key);
+    if (value == null && legacyChecked.add(key)) {
+      // NaN 表示旧版本没有保存该 key
+      float legacyValue = storage.getFloat(key, Float.NaN);
+      if (!Float.isNaN(legacyValue)) {
+        value = legacyValue;
+        values.put(key, value);
+        markDirty();
+      }
+    }
+    return value == null ? defaultValue : value;
+  }
+
+  synchronized void putFloat(String key, float value) {
+    ensureLoaded();
+    Float old = values.put(key, value);
+    if (old == null || old != value) {
+      markDirty();
+    }
+  }
+
+  synchronized String getCurrentFilterName(String defaultValue) {
+    ensureLoaded();
+    return isEmpty(currentFilterName) ? defaultValue : currentFilterName;
+  }
+
+  synchronized void putCurrentFilterName(String name) {
+    ensureLoaded();
+    if (!Objects.equals(currentFilterName, name)) {
+      currentFilterName = name;
+      markDirty();
+    }
+  }
+
+  /** 立即写入未保存的修改 */
+  void flush() {
+    scheduler.remove(flushRunnable);
+    String snapshot;
+    synchronized (this) {
+      if (!dirty) {
+        return;
+      }
+      dirty = false;
+      snapshot = encode();
+    }
+    storage.putString(SP_KEY_SNAPSHOT, snapshot);
+  }
+
+  // 修改后重新计时，无新修改时再写入
+  private void markDirty() {
+    dirty = true;
+    scheduler.remove(flushRunnable);
+    scheduler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    if (!decode(storage.getString(SP_KEY_SNAPSHOT))) {
+      currentFilterName = storage.getString(SP_KEY_CURRENT_FILTER_NAME);
+    }
+  }
+
+  private String encode() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(VERSION).append(FIELD_SEPARATOR);
+    if (currentFilterName != null) {
+      builder.append(currentFilterName);
+    }
+    builder.append(FIELD_SEPARATOR);
+    boolean first = true;
+    for (Map.Entry<String, Float> entry : values.entrySet()) {
+      if (!first) {
+        builder.append(ENTRY_SEPARATOR);
+      }
+      first = false;
+      builder.append(entry.getKey()).append(VALUE_SEPARATOR).append(entry.getValue());
+    }
+    return builder.toString();
+  }
+
+  // 版本不匹配或解析失败时返回 false，按旧版本数据读取
+  private boolean decode(String snapshot) {
+    if (isEmpty(snapshot)) {
+      return false;
+    }
+    int versionEnd = snapshot.indexOf(FIELD_SEPARATOR);
+    int filterEnd = versionEnd < 0 ? -1 : snapshot.indexOf(FIELD_SEPARATOR, versionEnd + 1);
+    if (filterEnd < 0) {
+      return false;
+    }
+    try {
+      if (Integer.parseInt(snapshot.substring(0, versionEnd)) != VERSION) {
+        return false;
+      }
+      Map<String, Float> decoded = new HashMap<>();
+      int start = filterEnd + 1;
+      while (start < snapshot.length()) {
+        int end = snapshot.indexOf(ENTRY_SEPARATOR, start);
+        if (end < 0) {
+          end = snapshot.length();
+        }
+        int separator = snapshot.lastIndexOf(VALUE_SEPARATOR, end - 1);
+        if (separator < start) {
+          return false;
+        }
+        decoded.put(
+            snapshot.substring(start, separator),
+            Float.parseFloat(snapshot.substring(separator + 1, end)));
+        start = end + 1;
+      }
+      String filterName = snapshot.substring(versionEnd + 1, filterEnd);
+      currentFilterName = filterName.isEmpty() ? null : filterName;
+      values.putAll(decoded);
+      return true;
+    } catch (NumberFormatException e) {
+      BeautyLog.e(TAG, "decode snapshot error:" + e.getMessage());
+      return false;
+    }
+  }
+
+  // 不依赖 android.text.TextUtils，单元测试可直接在 JVM 运行
+  private static boolean isEmpty(String text) {
+    return text == null || text.isEmpty();
+  }
+
+  private static final class SPStorage implements Storage {
+    @Override
+    public String getString(String key) {
+      return SPUtils.getInstance().getString(key, null);
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+      return SPUtils.getInstance().getFloat(key, defaultValue);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+      SPUtils.getInstance().put(key, value);
+    }
+  }
+
+  /** 在主线程执行 */
+  private static final class HandlerScheduler implements Scheduler {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void postDelayed(Runnable runnable, long delay) {
+      handler.postDelayed(runnable, delay);
+    }
+
+    @Override
+    public void remove(Runnable runnable) {
+      handler.removeCallbacks(runnable);
+    }
+  }
+}
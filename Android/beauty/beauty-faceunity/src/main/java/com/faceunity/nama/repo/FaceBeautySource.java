@@ -17,7 +17,6 @@ import com.faceunity.nama.entity.FaceBeautyBean;
 import com.faceunity.nama.entity.FaceBeautyFilterBean;
 import com.faceunity.nama.entity.ModelAttributeData;
 import com.faceunity.nama.utils.FuDeviceUtils;
-import com.netease.yunxin.kit.common.utils.SPUtils;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -27,7 +26,6 @@ public class FaceBeautySource {
 
   public static String BUNDLE_FACE_BEAUTIFICATION =
       "graphics" + File.separator + "face_beautification.bundle";
-  private static final String SP_KEY_CURRENT_FILTER_NAME = "currentFilterName";
 
   /**
    * 获取默认推荐美颜模型
@@ -36,8 +34,9 @@ public class FaceBeautySource {
    */
   public static FaceBeauty getDefaultFaceBeauty() {
     FaceBeauty recommendFaceBeauty = new FaceBeauty(new FUBundleData(BUNDLE_FACE_BEAUTIFICATION));
-    recommendFaceBeauty.setFilterName(getCurrentFilterName());
-    recommendFaceBeauty.setFilterIntensity(getFilterIntensity(getCurrentFilterName(), 0.4f));
+    String filterName = getCurrentFilterName();
+    recommendFaceBeauty.setFilterName(filterName);
+    recommendFaceBeauty.setFilterIntensity(getFilterIntensity(filterName, 0.4f));
     /** *** 美肤 **** */
     // 精细磨皮
     recommendFaceBeauty.setBlurType(FaceBeautyBlurTypeEnum.FineSkin);
@@ -447,27 +446,31 @@ public class FaceBeautySource {
   }
 
   public static void saveParamIntensity(String key, float value) {
-    SPUtils.getInstance().put(key, value);
+    FaceBeautyParamStore.getInstance().putFloat(key, value);
   }
 
   public static float getParamIntensity(String key, float defaultValue) {
-    return SPUtils.getInstance().getFloat(key, (float) defaultValue);
+    return FaceBeautyParamStore.getInstance().getFloat(key, defaultValue);
   }
 
   public static void saveFilterIntensity(String name, float intensity) {
-    SPUtils.getInstance().put(name, intensity);
+    FaceBeautyParamStore.getInstance().putFloat(name, intensity);
   }
 
   public static float getFilterIntensity(String name, float defaultValue) {
-    return SPUtils.getInstance().getFloat(name, defaultValue);
+    return FaceBeautyParamStore.getInstance().getFloat(name, defaultValue);
   }
 
   public static void saveCurrentFilterName(String name) {
-    SPUtils.getInstance().put(SP_KEY_CURRENT_FILTER_NAME, name);
+    FaceBeautyParamStore.getInstance().putCurrentFilterName(name);
   }
 
   public static String getCurrentFilterName() {
-    return SPUtils.getInstance()
-        .getString(SP_KEY_CURRENT_FILTER_NAME, FaceBeautyFilterEnum.ZIRAN_1);
+    return FaceBeautyParamStore.getInstance().getCurrentFilterName(FaceBeautyFilterEnum.ZIRAN_1);
+  }
+
+  /** 立即保存未写入的美颜参数，页面退到后台时调用 */
+  public static void flushParams() {
+    FaceBeautyParamStore.getInstance().flush();
   }
 }
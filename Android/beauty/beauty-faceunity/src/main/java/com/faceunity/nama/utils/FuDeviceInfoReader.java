@@ -0,0 +1,172 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * 从根目录下的 {@code /proc} 和 {@code /sys} 读取 CPU 与内存信息
+ *
+ * <p>读取规则与 {@link FuDeviceUtils} 相同，路径相对于根目录解析，便于测试时伪造文件。每次调用都会重新读取，调用方需自行缓存结果
+ */
+class FuDeviceInfoReader {
+
+  private static final String PATH_CPU = "sys/devices/system/cpu";
+  private static final String PATH_CPU_INFO = "proc/cpuinfo";
+  private static final String PATH_MEM_INFO = "proc/meminfo";
+
+  private static final FileFilter CPU_FILTER =
+      pathname -> {
+        String name = pathname.getName();
+        if (!name.startsWith("cpu") || name.length() == 3) {
+          return false;
+        }
+        for (int i = 3; i < name.length(); i++) {
+          if (!Character.isDigit(name.charAt(i))) {
+            return false;
+          }
+        }
+        return true;
+      };
+
+  private final File root;
+
+  FuDeviceInfoReader(File root) {
+    this.root = root;
+  }
+
+  /** 设备根目录 {@code "/"} */
+  static FuDeviceInfoReader system() {
+    return new FuDeviceInfoReader(new File("/"));
+  }
+
+  /**
+   * CPU 核心数，依次从 {@code possible}、{@code present} 和 cpu 目录读取
+   *
+   * @return 核心数，读取失败返回 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN}
+   */
+  int readCoreCount() {
+    int cores = parseCoreRange(readFirstLine(new File(root, PATH_CPU + "/possible")));
+    if (cores == FuDeviceUtils.DEVICEINFO_UNKNOWN) {
+      cores = parseCoreRange(readFirstLine(new File(root, PATH_CPU + "/present")));
+    }
+    if (cores == FuDeviceUtils.DEVICEINFO_UNKNOWN) {
+      File[] cpuDirs = new File(root, PATH_CPU).listFiles(CPU_FILTER);
+      if (cpuDirs != null && cpuDirs.length > 0) {
+        cores = cpuDirs.length;
+      }
+    }
+    return cores;
+  }
+
+  /**
+   * 所有核心中的最高频率，读取 {@code cpuinfo_max_freq}，失败时使用 {@code /proc/cpuinfo} 中的 {@code cpu MHz}
+   *
+   * @return 频率，单位 kHz，读取失败返回 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN}
+   */
+  int readMaxFreqKHz(int cores) {
+    int maxFreq = FuDeviceUtils.DEVICEINFO_UNKNOWN;
+    for (int i = 0; i < cores; i++) {
+      String value =
+          readFirstLine(new File(root, PATH_CPU + "/cpu" + i + "/cpufreq/cpuinfo_max_freq"));
+      int freq = parseLeadingInt(value);
+      if (freq > maxFreq) {
+        maxFreq = freq;
+      }
+    }
+    if (maxFreq == FuDeviceUtils.DEVICEINFO_UNKNOWN) {
+      int freqMHz = parseLeadingInt(findValue(new File(root, PATH_CPU_INFO), "cpu MHz"));
+      if (freqMHz > 0) {
+        maxFreq = freqMHz * 1024; //MHz -> kHz
+      }
+    }
+    return maxFreq;
+  }
+
+  /**
+   * 总内存，读取 {@code /proc/meminfo} 中的 {@code MemTotal}
+   *
+   * @return 字节数，读取失败返回 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN}
+   */
+  long readTotalMemory() {
+    int memKB = parseLeadingInt(findValue(new File(root, PATH_MEM_INFO), "MemTotal"));
+    return memKB > 0 ? memKB * 1024L : FuDeviceUtils.DEVICEINFO_UNKNOWN;
+  }
+
+  /**
+   * CPU 硬件名称，读取 {@code /proc/cpuinfo} 中的 {@code Hardware}
+   *
+   * @return 硬件名称，读取失败返回 null
+   */
+  String readHardware() {
+    return findValue(new File(root, PATH_CPU_INFO), "Hardware");
+  }
+
+  // "0-N" -> N + 1
+  static int parseCoreRange(String str) {
+    if (str == null || !str.matches("0-[\\d]+$")) {
+      return FuDeviceUtils.DEVICEINFO_UNKNOWN;
+    }
+    return Integer.parseInt(str.substring(2)) + 1;
+  }
+
+  // 字符串中的第一段数字，"2400.000" -> 2400
+  static int parseLeadingInt(String str) {
+    if (str == null) {
+      return FuDeviceUtils.DEVICEINFO_UNKNOWN;
+    }
+    int start = 0;
+    while (start < str.length() && !Character.isDigit(str.charAt(start))) {
+      start++;
+    }
+    int end = start;
+    while (end < str.length() && Character.isDigit(str.charAt(end))) {
+      end++;
+    }
+    if (start == end) {
+      return FuDeviceUtils.DEVICEINFO_UNKNOWN;
+    }
+    try {
+      return Integer.parseInt(str.substring(start, end));
+    } catch (NumberFormatException e) {
+      return FuDeviceUtils.DEVICEINFO_UNKNOWN;
+    }
+  }
+
+  private static String readFirstLine(File file) {
+    if (!file.canRead()) {
+      return null;
+    }
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line = reader.readLine();
+      return line == null ? null : line.trim();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  // 第一个以 key 开头的行中 ':' 之后的值
+  private static String findValue(File file, String key) {
+    if (!file.canRead()) {
+      return null;
+    }
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(key)) {
+          int index = line.indexOf(':');
+          return index < 0 ? null : line.substring(index + 1).trim();
+        }
+      }
+    } catch (IOException e) {
+      // 读取失败，返回 null
+    }
+    return null;
+  }
+}
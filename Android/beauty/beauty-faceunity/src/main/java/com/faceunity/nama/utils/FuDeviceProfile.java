@@ -0,0 +1,172 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.utils;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 设备性能信息，由 {@link FuDeviceProfileService} 计算并缓存
+ *
+ * <p>上层可根据 {@link #getLevel()}、{@link #getRamClass()} 等选择美颜模式、渲染分辨率、图片缓存大小等档位。
+ */
+public final class FuDeviceProfile {
+
+  public static final int RAM_CLASS_LOW = 0;
+  public static final int RAM_CLASS_MID = 1;
+  public static final int RAM_CLASS_HIGH = 2;
+
+  private static final int VERSION = 1;
+  private static final String SEPARATOR = "|";
+  private static final int FIELD_COUNT = 8;
+
+  private final int level;
+  private final int coreCount;
+  private final int maxFreqKHz;
+  private final long totalMemory;
+  private final int glEsVersion;
+  private final String hardware;
+
+  FuDeviceProfile(
+      int level,
+      int coreCount,
+      int maxFreqKHz,
+      long totalMemory,
+      int glEsVersion,
+      @Nullable String hardware) {
+    this.level = level;
+    this.coreCount = coreCount;
+    this.maxFreqKHz = maxFreqKHz;
+    this.totalMemory = totalMemory;
+    this.glEsVersion = glEsVersion;
+    this.hardware = hardware;
+  }
+
+  /**
+   * 读取系统文件计算设备信息，耗时操作，不要在主线程调用
+   *
+   * @param reader 系统文件读取
+   * @param deviceName 机型，用于特殊机型判定
+   * @param totalMemory 总内存，单位 byte，小于等于 0 时从 meminfo 读取
+   * @param glEsVersion OpenGL ES 版本，高 16 位为主版本号，低 16 位为次版本号
+   */
+  static FuDeviceProfile create(
+      FuDeviceInfoReader reader, String deviceName, long totalMemory, int glEsVersion) {
+    int cores = reader.readCoreCount();
+    int maxFreqKHz = reader.readMaxFreqKHz(cores);
+    if (totalMemory <= 0) {
+      totalMemory = reader.readTotalMemory();
+    }
+    String hardware = reader.readHardware();
+    int level = FuDeviceUtils.judgeDeviceLevel(deviceName, totalMemory, hardware, maxFreqKHz);
+    return new FuDeviceProfile(level, cores, maxFreqKHz, totalMemory, glEsVersion, hardware);
+  }
+
+  /** 设备等级，{@link FuDeviceUtils#DEVICE_LEVEL_LOW} ~ {@link FuDeviceUtils#DEVICE_LEVEL_HIGH} */
+  public int getLevel() {
+    return level;
+  }
+
+  /** CPU 核心数，未知时为 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN} */
+  public int getCoreCount() {
+    return coreCount;
+  }
+
+  /** CPU 最高频率，单位 kHz，未知时为 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN} */
+  public int getMaxFreqKHz() {
+    return maxFreqKHz;
+  }
+
+  /** 总内存，单位 byte，未知时为 {@link FuDeviceUtils#DEVICEINFO_UNKNOWN} */
+  public long getTotalMemory() {
+    return totalMemory;
+  }
+
+  /** 内存档位，3G 及以下为低，6G 及以下为中 */
+  public int getRamClass() {
+    int memoryLevel = FuDeviceUtils.judgeMemory(totalMemory);
+    if (memoryLevel <= 1) {
+      return RAM_CLASS_LOW;
+    } else if (memoryLevel <= 3) {
+      return RAM_CLASS_MID;
+    }
+    return RAM_CLASS_HIGH;
+  }
+
+  /** OpenGL ES 版本，如 0x00030002 表示 3.2，未知时为 0 */
+  public int getGlEsVersion() {
+    return glEsVersion;
+  }
+
+  @Nullable
+  public String getHardware() {
+    return hardware;
+  }
+
+  public boolean isLowEnd() {
+    return level == FuDeviceUtils.DEVICE_LEVEL_LOW || getRamClass() == RAM_CLASS_LOW;
+  }
+
+  // 版本|系统指纹|等级|核心数|频率|内存|GL 版本|硬件
+  String encode(String fingerprint) {
+    return VERSION
+        + SEPARATOR
+        + fingerprint
+        + SEPARATOR
+        + level
+        + SEPARATOR
+        + coreCount
+        + SEPARATOR
+        + maxFreqKHz
+        + SEPARATOR
+        + totalMemory
+        + SEPARATOR
+        + glEsVersion
+        + SEPARATOR
+        + (hardware == null ? "" : hardware);
+  }
+
+  /** 版本或系统指纹不一致时返回 null，需要重新计算 */
+  @Nullable
+  static FuDeviceProfile decode(@Nullable String value, String fingerprint) {
+    if (value == null) {
+      return null;
+    }
+    String[] fields = value.split("\\" + SEPARATOR, FIELD_COUNT);
+    if (fields.length != FIELD_COUNT
+        || !String.valueOf(VERSION).equals(fields[0])
+        || !fields[1].equals(fingerprint)) {
+      return null;
+    }
+    try {
+      return new FuDeviceProfile(
+          Integer.parseInt(fields[2]),
+          Integer.parseInt(fields[3]),
+          Integer.parseInt(fields[4]),
+          Long.parseLong(fields[5]),
+          Integer.parseInt(fields[6]),
+          fields[7].isEmpty() ? null : fields[7]);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FuDeviceProfile{"
+        + "level="
+        + level
+        + ", coreCount="
+        + coreCount
+        + ", maxFreqKHz="
+        + maxFreqKHz
+        + ", totalMemory="
+        + totalMemory
+        + ", glEsVersion="
+        + Integer.toHexString(glEsVersion)
+        + ", hardware="
+        + hardware
+        + '}';
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import com.faceunity.nama.BeautyLog;
+import com.faceunity.nama.FUConfig;
+import com.netease.yunxin.kit.common.utils.SPUtils;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * DESC：设备性能信息服务
+ *
+ * <p>启动时在后台线程计算一次设备信息，按系统指纹保存，系统升级或刷机后重新计算。计算完成后更新 {@link
+ * FUConfig#DEVICE_LEVEL} 并在主线程通知监听。
+ */
+public class FuDeviceProfileService {
+
+  private static final String TAG = "FuDeviceProfileService";
+  private static final String SP_KEY_DEVICE_PROFILE = "fuDeviceProfile";
+
+  private static volatile FuDeviceProfileService mInstance;
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final CopyOnWriteArrayList<OnProfileReadyListener> listeners =
+      new CopyOnWriteArrayList<>();
+  private volatile FuDeviceProfile profile;
+  private boolean started = false;
+
+  /** 设备信息计算完成监听，主线程回调 */
+  public interface OnProfileReadyListener {
+    void onProfileReady(FuDeviceProfile profile);
+  }
+
+  private FuDeviceProfileService() {}
+
+  public static FuDeviceProfileService getInstance() {
+    if (mInstance == null) {
+      synchronized (FuDeviceProfileService.class) {
+        if (mInstance == null) {
+          mInstance = new FuDeviceProfileService();
+        }
+      }
+    }
+    return mInstance;
+  }
+
+  /**
+   * 在后台线程加载或计算设备信息，重复调用无效
+   *
+   * @param context
+   */
+  public void init(Context context) {
+    synchronized (this) {
+      if (started) {
+        return;
+      }
+      started = true;
+    }
+    Context appContext = context.getApplicationContext();
+    Thread thread = new Thread(() -> load(appContext), "fu-device-profile");
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * 获取设备信息
+   *
+   * @return 未计算完成时返回 null
+   */
+  @Nullable
+  public FuDeviceProfile getProfile() {
+    return profile;
+  }
+
+  /** 添加监听，设备信息已计算完成时立即回调 */
+  public void addListener(OnProfileReadyListener listener) {
+    if (listener == null) {
+      return;
+    }
+    listeners.add(listener);
+    FuDeviceProfile current = profile;
+    if (current != null) {
+      mainHandler.post(
+          () -> {
+            if (listeners.contains(listener)) {
+              listener.onProfileReady(current);
+            }
+          });
+    }
+  }
+
+  public void removeListener(OnProfileReadyListener listener) {
+    listeners.remove(listener);
+  }
+
+  // 后台线程
+  private void load(Context context) {
+    String fingerprint = Build.FINGERPRINT == null ? "" : Build.FINGERPRINT;
+    FuDeviceProfile result =
+        FuDeviceProfile.decode(
+            SPUtils.getInstance().getString(SP_KEY_DEVICE_PROFILE, null), fingerprint);
+    if (result == null) {
+      long start = System.currentTimeMillis();
+      result =
+          FuDeviceProfile.create(
+              FuDeviceInfoReader.system(),
+              FuDeviceUtils.getDeviceName(),
+              FuDeviceUtils.getTotalMemory(context),
+              getGlEsVersion(context));
+      SPUtils.getInstance().put(SP_KEY_DEVICE_PROFILE, result.encode(fingerprint));
+      BeautyLog.i(
+          TAG, "create profile:" + result + ",cost:" + (System.currentTimeMillis() - start));
+    } else {
+      BeautyLog.i(TAG, "load profile:" + result);
+    }
+    profile = result;
+    FUConfig.DEVICE_LEVEL = result.getLevel();
+    FuDeviceProfile ready = result;
+    mainHandler.post(
+        () -> {
+          for (OnProfileReadyListener listener : listeners) {
+            listener.onProfileReady(ready);
+          }
+        });
+  }
+
+  private static int getGlEsVersion(Context context) {
+    ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    if (am == null || am.getDeviceConfigurationInfo() == null) {
+      return 0;
+    }
+    return am.getDeviceConfigurationInfo().reqGlEsVersion;
+  }
+}
@@ -8,7 +8,6 @@ import android.annotation.TargetApi;
 import android.app.ActivityManager;
 import android.content.Context;
 import android.os.Build;
-import android.text.TextUtils;
 import android.util.Log;
 import java.io.BufferedReader;
 import java.io.File;
@@ -331,17 +330,37 @@ public class FuDeviceUtils {
   /**
    * Level judgement based on current memory and CPU.
    *
+   * <p>Reads system files on every call, use {@link FuDeviceProfileService} for the cached level.
+   *
    * @param context - Context object.
    * @return
    */
   public static int judgeDeviceLevel(Context context) {
+    int level =
+        judgeDeviceLevel(
+            getDeviceName(), getTotalMemory(context), getHardWare(), getCPUMaxFreqKHz());
+    Log.d(TAG, "DeviceLevel: " + level);
+    return level;
+  }
+
+  /**
+   * Level judgement based on given device info, without reading system files.
+   *
+   * @param deviceName - Build.MODEL of the device.
+   * @param totalMemory - Total RAM in bytes.
+   * @param hardware - CPU hardware name.
+   * @param maxFreqKHz - Max CPU frequency in kHz.
+   * @return
+   */
+  public static int judgeDeviceLevel(
+      String deviceName, long totalMemory, String hardware, int maxFreqKHz) {
     int level;
     //有一些设备不符合下述的判断规则，则走一个机型判断模式
-    int specialDevice = judgeDeviceLevelInDeviceName();
+    int specialDevice = judgeDeviceLevelInDeviceName(deviceName);
     if (specialDevice >= 0) return specialDevice;
 
-    int ramLevel = judgeMemory(context);
-    int cpuLevel = judgeCPU();
+    int ramLevel = judgeMemory(totalMemory);
+    int cpuLevel = judgeCPU(hardware, maxFreqKHz);
     if (ramLevel == 0 || ramLevel == 1 || cpuLevel == 0) {
       level = DEVICE_LEVEL_LOW;
     } else {
@@ -351,7 +370,6 @@ public class FuDeviceUtils {
         level = DEVICE_LEVEL_MID;
       }
     }
-    Log.d(TAG, "DeviceLevel: " + level);
     return level;
   }
 
@@ -360,8 +378,7 @@ public class FuDeviceUtils {
    *
    * @return
    */
-  private static int judgeDeviceLevelInDeviceName() {
-    String currentDeviceName = getDeviceName();
+  private static int judgeDeviceLevelInDeviceName(String currentDeviceName) {
     for (String deviceName : upscaleDevice) {
       if (deviceName.equals(currentDeviceName)) {
         return DEVICE_LEVEL_HIGH;
@@ -391,10 +408,11 @@ public class FuDeviceUtils {
   /**
    * 评定内存的等级.
    *
-   * @return
+   * @param totalMemory 总内存，单位 byte
+   * @return 0 ~ 4
    */
-  private static int judgeMemory(Context context) {
-    long ramMB = getTotalMemory(context) / (1024 * 1024);
+  static int judgeMemory(long totalMemory) {
+    long ramMB = totalMemory / (1024 * 1024);
     int level = -1;
     if (ramMB <= 2000) { //2G或以下的最低档
       level = 0;
@@ -415,14 +433,13 @@ public class FuDeviceUtils {
    *
    * @return
    */
-  private static int judgeCPU() {
+  private static int judgeCPU(String cpuName, int maxFreqKHz) {
     int level = 0;
-    String cpuName = getHardWare();
-    int freqMHz = getCPUMaxFreqKHz() / 1024;
+    int freqMHz = maxFreqKHz / 1024;
 
     //一个不符合下述规律的高级白名单
     //如果可以获取到CPU型号名称 -> 根据不同的名称走不同判定策略
-    if (!TextUtils.isEmpty(cpuName)) {
+    if (cpuName != null && cpuName.length() > 0) {
       if (cpuName.contains("qcom") || cpuName.contains("Qualcomm")) { //高通骁龙
         return judgeQualcommCPU(cpuName, freqMHz);
       } else if (cpuName.contains("hi") || cpuName.contains("kirin")) { //海思麒麟
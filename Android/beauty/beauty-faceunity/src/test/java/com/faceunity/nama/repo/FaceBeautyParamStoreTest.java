@@ -0,0 +1,138 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.repo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/** Upgrades from per-key preferences and checks that no saved value is lost. */
+public class FaceBeautyParamStoreTest {
+
+  private static final float DELTA = 0.0001f;
+
+  @Test
+  public void legacyKeysSurviveFlushBeforeRead() {
+    MapStorage storage = new MapStorage();
+    storage.floats.put("blur_level", 5.5f);
+    storage.floats.put("color_level", 0.8f);
+    storage.floats.put("ziran1", 0.9f);
+    storage.strings.put("currentFilterName", "ziran1");
+    ManualScheduler scheduler = new ManualScheduler();
+
+    FaceBeautyParamStore store = new FaceBeautyParamStore(storage, scheduler);
+    assertEquals(5.5f, store.getFloat("blur_level", 4.2f), DELTA);
+    // snapshot is written before the other keys are read
+    scheduler.runAll();
+    assertNotNull(storage.strings.get("faceBeautyParamSnapshot"));
+
+    assertEquals(0.8f, store.getFloat("color_level", 0.3f), DELTA);
+    assertEquals(0.9f, store.getFloat("ziran1", 0.4f), DELTA);
+    assertEquals("ziran1", store.getCurrentFilterName("origin"));
+
+    // a new process only has the partial snapshot and the legacy keys
+    FaceBeautyParamStore reloaded = new FaceBeautyParamStore(storage, new ManualScheduler());
+    assertEquals(5.5f, reloaded.getFloat("blur_level", 4.2f), DELTA);
+    assertEquals(0.8f, reloaded.getFloat("color_level", 0.3f), DELTA);
+    assertEquals(0.9f, reloaded.getFloat("ziran1", 0.4f), DELTA);
+    assertEquals("ziran1", reloaded.getCurrentFilterName("origin"));
+  }
+
+  @Test
+  public void snapshotValueWinsOverLegacy() {
+    MapStorage storage = new MapStorage();
+    storage.floats.put("blur_level", 5.5f);
+    ManualScheduler scheduler = new ManualScheduler();
+
+    FaceBeautyParamStore store = new FaceBeautyParamStore(storage, scheduler);
+    store.putFloat("blur_level", 1.0f);
+    store.putCurrentFilterName("fennen1");
+    scheduler.runAll();
+
+    FaceBeautyParamStore reloaded = new FaceBeautyParamStore(storage, new ManualScheduler());
+    assertEquals(1.0f, reloaded.getFloat("blur_level", 4.2f), DELTA);
+    assertEquals("fennen1", reloaded.getCurrentFilterName("origin"));
+  }
+
+  @Test
+  public void missingKeyUsesDefaultAndIsNotWritten() {
+    MapStorage storage = new MapStorage();
+    ManualScheduler scheduler = new ManualScheduler();
+
+    FaceBeautyParamStore store = new FaceBeautyParamStore(storage, scheduler);
+    assertEquals(0.4f, store.getFloat("ziran2", 0.4f), DELTA);
+    assertEquals(0.6f, store.getFloat("ziran2", 0.6f), DELTA);
+    assertEquals(0, scheduler.pending.size());
+    assertNull(storage.strings.get("faceBeautyParamSnapshot"));
+  }
+
+  @Test
+  public void changesAreWrittenOnceAfterDelay() {
+    MapStorage storage = new MapStorage();
+    ManualScheduler scheduler = new ManualScheduler();
+
+    FaceBeautyParamStore store = new FaceBeautyParamStore(storage, scheduler);
+    for (int i = 0; i < 100; i++) {
+      store.putFloat("color_level", i / 100f);
+    }
+    assertEquals(1, scheduler.pending.size());
+    scheduler.runAll();
+    assertEquals(1, storage.writeCount);
+
+    store.flush();
+    assertEquals(1, storage.writeCount);
+  }
+
+  private static class MapStorage implements FaceBeautyParamStore.Storage {
+    final Map<String, String> strings = new HashMap<>();
+    final Map<String, Float> floats = new HashMap<>();
+    int writeCount = 0;
+
+    @Override
+    public String getString(String key) {
+      return strings.get(key);
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+      Float value = floats.get(key);
+      return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public void putString(String key, String value) {
+      strings.put(key, value);
+      writeCount++;
+    }
+  }
+
+  private static class ManualScheduler implements FaceBeautyParamStore.Scheduler {
+    final List<Runnable> pending = new ArrayList<>();
+
+    @Override
+    public void postDelayed(Runnable runnable, long delay) {
+      pending.add(runnable);
+    }
+
+    @Override
+    public void remove(Runnable runnable) {
+      pending.remove(runnable);
+    }
+
+    void runAll() {
+      List<Runnable> list = new ArrayList<>(pending);
+      pending.clear();
+      for (Runnable runnable : list) {
+        runnable.run();
+      }
+    }
+  }
+}
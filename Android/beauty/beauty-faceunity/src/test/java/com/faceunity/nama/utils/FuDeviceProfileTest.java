@@ -0,0 +1,115 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.faceunity.nama.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Feeds fake /proc and /sys files to check device classification. */
+public class FuDeviceProfileTest {
+
+  private static final long GB = 1024L * 1024 * 1024;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void highEndQualcomm() throws IOException {
+    File root = folder.getRoot();
+    write(root, "sys/devices/system/cpu/possible", "0-7\n");
+    for (int i = 0; i < 8; i++) {
+      write(
+          root,
+          "sys/devices/system/cpu/cpu" + i + "/cpufreq/cpuinfo_max_freq",
+          i < 4 ? "1804800\n" : "2841600\n");
+    }
+    write(root, "proc/cpuinfo", "processor\t: 0\nHardware\t: Qualcomm Technologies, Inc SM8150\n");
+    write(root, "proc/meminfo", "MemTotal:        7818880 kB\nMemFree:          181128 kB\n");
+
+    FuDeviceProfile profile = FuDeviceProfile.create(new FuDeviceInfoReader(root), "", 0, 0x30002);
+
+    assertEquals(8, profile.getCoreCount());
+    assertEquals(2841600, profile.getMaxFreqKHz());
+    assertEquals(7818880L * 1024, profile.getTotalMemory());
+    assertEquals(FuDeviceProfile.RAM_CLASS_HIGH, profile.getRamClass());
+    assertEquals(FuDeviceUtils.DEVICE_LEVEL_HIGH, profile.getLevel());
+  }
+
+  @Test
+  public void lowMemoryIsLowLevel() throws IOException {
+    File root = folder.getRoot();
+    write(root, "sys/devices/system/cpu/present", "0-3\n");
+    for (int i = 0; i < 4; i++) {
+      write(root, "sys/devices/system/cpu/cpu" + i + "/cpufreq/cpuinfo_max_freq", "2600000\n");
+    }
+    write(root, "proc/cpuinfo", "Hardware\t: MT6785\n");
+    write(root, "proc/meminfo", "MemTotal:        1887436 kB\n");
+
+    FuDeviceProfile profile = FuDeviceProfile.create(new FuDeviceInfoReader(root), "", 0, 0);
+
+    assertEquals(4, profile.getCoreCount());
+    assertEquals(FuDeviceProfile.RAM_CLASS_LOW, profile.getRamClass());
+    assertEquals(FuDeviceUtils.DEVICE_LEVEL_LOW, profile.getLevel());
+    assertTrue(profile.isLowEnd());
+  }
+
+  @Test
+  public void fallbackToCpuInfoFrequency() throws IOException {
+    File root = folder.getRoot();
+    new File(root, "sys/devices/system/cpu/cpu0").mkdirs();
+    new File(root, "sys/devices/system/cpu/cpu1").mkdirs();
+    new File(root, "sys/devices/system/cpu/cpufreq").mkdirs();
+    write(root, "proc/cpuinfo", "processor\t: 0\ncpu MHz\t\t: 1900.000\n");
+
+    FuDeviceProfile profile = FuDeviceProfile.create(new FuDeviceInfoReader(root), "", 4 * GB, 0);
+
+    assertEquals(2, profile.getCoreCount());
+    assertEquals(1900 * 1024, profile.getMaxFreqKHz());
+    assertNull(profile.getHardware());
+    // 未知芯片 1.9GHz 为低中端
+    assertEquals(FuDeviceUtils.DEVICE_LEVEL_MID, profile.getLevel());
+  }
+
+  @Test
+  public void specialDeviceName() throws IOException {
+    File root = folder.getRoot();
+    write(root, "proc/meminfo", "MemTotal:        1887436 kB\n");
+
+    FuDeviceProfile profile =
+        FuDeviceProfile.create(new FuDeviceInfoReader(root), "MHA-AL00", 0, 0);
+
+    assertEquals(FuDeviceUtils.DEVICEINFO_UNKNOWN, profile.getCoreCount());
+    assertEquals(FuDeviceUtils.DEVICE_LEVEL_HIGH, profile.getLevel());
+  }
+
+  @Test
+  public void encodeAndDecode() {
+    FuDeviceProfile profile =
+        new FuDeviceProfile(
+            FuDeviceUtils.DEVICE_LEVEL_MID, 8, 2400000, 6 * GB, 0x30002, "MT6877|V");
+    String value = profile.encode("brand/product:12/id:user");
+
+    FuDeviceProfile decoded = FuDeviceProfile.decode(value, "brand/product:12/id:user");
+    assertEquals(profile.toString(), decoded.toString());
+    assertNull(FuDeviceProfile.decode(value, "brand/product:13/id:user"));
+    assertNull(FuDeviceProfile.decode("0|" + value.substring(2), "brand/product:12/id:user"));
+    assertNull(FuDeviceProfile.decode(null, "brand/product:12/id:user"));
+  }
+
+  private static void write(File root, String path, String content) throws IOException {
+    File file = new File(root, path);
+    file.getParentFile().mkdirs();
+    try (FileWriter writer = new FileWriter(file)) {
+      writer.write(content);
+    }
+  }
+}
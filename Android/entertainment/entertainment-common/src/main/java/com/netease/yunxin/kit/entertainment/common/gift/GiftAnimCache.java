@@ -0,0 +1,83 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.entertainment.common.gift;
+
+import android.content.Context;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import com.airbnb.lottie.LottieComposition;
+import com.airbnb.lottie.LottieCompositionFactory;
+import com.airbnb.lottie.LottieResult;
+import com.netease.yunxin.kit.alog.ALog;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** 礼物动画缓存，进入房间时在后台线程解析礼物动画，播放时直接使用，避免主线程重复解析 */
+public class GiftAnimCache {
+  private static final String TAG = "GiftAnimCache";
+  private static final int CACHE_MAX_SIZE = 8;
+
+  private static final LruCache<Integer, LottieComposition> compositionCache =
+      new LruCache<>(CACHE_MAX_SIZE);
+
+  private static final ExecutorService parseExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "gift-anim-parse");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  /** 预加载所有礼物动画 */
+  public static void preloadGifts(Context context) {
+    List<Integer> resIds = new ArrayList<>();
+    for (GiftInfo giftInfo : GiftCache.getGiftList()) {
+      resIds.add(giftInfo.getDynamicIconResId());
+    }
+    preload(context, resIds);
+  }
+
+  /** 后台解析未缓存的动画 */
+  public static void preload(Context context, List<Integer> resIds) {
+    Context appContext = context.getApplicationContext();
+    for (Integer resId : resIds) {
+      if (resId == null || resId == 0 || compositionCache.get(resId) != null) {
+        continue;
+      }
+      parseExecutor.execute(() -> parse(appContext, resId));
+    }
+  }
+
+  /**
+   * 获取已解析的动画
+   *
+   * @return 未解析完成时返回 null
+   */
+  @Nullable
+  public static LottieComposition get(int resId) {
+    return compositionCache.get(resId);
+  }
+
+  public static void clear() {
+    compositionCache.evictAll();
+  }
+
+  private static void parse(Context context, int resId) {
+    if (compositionCache.get(resId) != null) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    LottieResult<LottieComposition> result =
+        LottieCompositionFactory.fromRawResSync(context, resId);
+    if (result.getValue() != null) {
+      compositionCache.put(resId, result.getValue());
+      ALog.d(TAG, "parse,resId:" + resId + ",cost:" + (System.currentTimeMillis() - start));
+    } else {
+      ALog.e(TAG, "parse failed,resId:" + resId + ",exception:" + result.getException());
+    }
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.entertainment.common.gift;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.content.ContextCompat;
+import com.netease.yunxin.kit.entertainment.common.R;
+
+/** 礼物连击数，显示在礼物动画下方，通过 {@link GiftRender#setComboListener} 更新 */
+public class GiftComboView extends AppCompatTextView implements GiftRender.OnComboListener {
+  private static final float COMBO_SCALE = 1.3f;
+  private static final long COMBO_SCALE_DURATION = 150;
+
+  public GiftComboView(Context context) {
+    super(context);
+    initView(context);
+  }
+
+  public GiftComboView(Context context, @Nullable AttributeSet attrs) {
+    super(context, attrs);
+    initView(context);
+  }
+
+  public GiftComboView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    initView(context);
+  }
+
+  private void initView(Context context) {
+    setTextColor(ContextCompat.getColor(context, R.color.white));
+    setTextSize(TypedValue.COMPLEX_UNIT_SP, 28);
+    setTypeface(Typeface.DEFAULT, Typeface.BOLD_ITALIC);
+    setShadowLayer(4, 0, 2, ContextCompat.getColor(context, R.color.color_80000000));
+    setVisibility(View.GONE);
+  }
+
+  /** 单个礼物不显示，连击数增加时放大一次 */
+  @Override
+  public void onCombo(int gitResId, String senderKey, int combo) {
+    if (combo <= 1) {
+      onComboEnd();
+      return;
+    }
+    setText(getContext().getString(R.string.gift_combo, combo));
+    setVisibility(View.VISIBLE);
+    animate().cancel();
+    setScaleX(COMBO_SCALE);
+    setScaleY(COMBO_SCALE);
+    animate().scaleX(1f).scaleY(1f).setDuration(COMBO_SCALE_DURATION).start();
+  }
+
+  @Override
+  public void onComboEnd() {
+    animate().cancel();
+    setVisibility(View.GONE);
+  }
+}
@@ -5,20 +5,63 @@
 package com.netease.yunxin.kit.entertainment.common.gift;
 
 import android.animation.Animator;
+import android.text.TextUtils;
 import android.view.View;
 import com.airbnb.lottie.LottieAnimationView;
+import com.airbnb.lottie.LottieComposition;
 import com.netease.yunxin.kit.alog.ALog;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 
+/**
+ * 礼物动画播放
+ *
+ * <p>礼物依次播放，同一发送者连续发送的相同礼物合并为一次动画，通过 {@link OnComboListener} 通知连击数。等待队列最多 {@link
+ * #MAX_QUEUE_SIZE} 个，队列满时丢弃价值最低的礼物。
+ */
 public class GiftRender {
   private static final String TAG = "GiftRender";
-  private final Queue<Integer> giftQueue = new LinkedList<>();
+  private static final int MAX_QUEUE_SIZE = 20;
+  private final ArrayDeque<GiftItem> giftQueue = new ArrayDeque<>();
   private LottieAnimationView animationView = null;
   private boolean isAnimating = false;
+  private GiftItem playingItem = null;
+  private OnComboListener comboListener;
+
+  /** 礼物连击数变化 */
+  public interface OnComboListener {
+    /**
+     * @param gitResId 动画资源
+     * @param senderKey 发送者
+     * @param combo 合并后的礼物数
+     */
+    void onCombo(int gitResId, String senderKey, int combo);
+
+    /** 所有礼物动画播放结束 */
+    void onComboEnd();
+  }
+
+  private static class GiftItem {
+    final int gitResId;
+    final String senderKey;
+    final long priority;
+    int combo;
+
+    GiftItem(int gitResId, String senderKey, long priority, int combo) {
+      this.gitResId = gitResId;
+      this.senderKey = senderKey;
+      this.priority = priority;
+      this.combo = combo;
+    }
+
+    boolean isSameGift(GiftItem item) {
+      return gitResId == item.gitResId && TextUtils.equals(senderKey, item.senderKey);
+    }
+  }
 
   public void init(LottieAnimationView animationView) {
     this.animationView = animationView;
+    GiftAnimCache.preloadGifts(animationView.getContext());
     this.animationView.addAnimatorListener(
         new Animator.AnimatorListener() {
 
@@ -31,10 +74,14 @@ public class GiftRender {
           public void onAnimationEnd(Animator animation) {
             ALog.d(TAG, "onAnimationEnd");
             animationView.setVisibility(View.GONE);
+            playingItem = null;
             if (!giftQueue.isEmpty()) {
               playAnim(giftQueue.poll());
             } else {
               isAnimating = false;
+              if (comboListener != null) {
+                comboListener.onComboEnd();
+              }
             }
           }
 
@@ -51,33 +98,115 @@ public class GiftRender {
         });
   }
 
+  /** 设置连击数监听，可使用 {@link GiftComboView} 显示 */
+  public void setComboListener(OnComboListener comboListener) {
+    this.comboListener = comboListener;
+  }
+
   public void addGift(int gitResId) {
-    ALog.d(TAG, "addGift,gitResId:" + gitResId);
-    giftQueue.add(gitResId);
+    addGift(gitResId, null, 0, 1);
+  }
+
+  /**
+   * 添加礼物动画
+   *
+   * @param giftInfo 礼物
+   * @param senderKey 发送者，相同发送者连续发送的相同礼物会合并
+   * @param count 礼物数
+   */
+  public void addGift(GiftInfo giftInfo, String senderKey, int count) {
+    if (giftInfo == null) {
+      return;
+    }
+    addGift(giftInfo.getDynamicIconResId(), senderKey, giftInfo.getCoinCount(), count);
+  }
+
+  private void addGift(int gitResId, String senderKey, long priority, int count) {
+    ALog.d(TAG, "addGift,gitResId:" + gitResId + ",senderKey:" + senderKey + ",count:" + count);
+    if (gitResId == 0) {
+      return;
+    }
+    GiftItem item = new GiftItem(gitResId, senderKey, priority, Math.max(count, 1));
+    // 与正在播放或队尾的相同礼物合并
+    GiftItem last = giftQueue.isEmpty() ? playingItem : giftQueue.peekLast();
+    if (isAnimating && last != null && senderKey != null && last.isSameGift(item)) {
+      last.combo += item.combo;
+      notifyCombo(last);
+      // 合并到正在播放的礼物时从头播放，连击期间动画不结束
+      if (last == playingItem && animationView != null) {
+        animationView.setProgress(0f);
+      }
+      return;
+    }
     if (!isAnimating) {
       isAnimating = true;
-      playAnim(giftQueue.poll());
+      playAnim(item);
+      return;
     }
+    if (giftQueue.size() >= MAX_QUEUE_SIZE && !dropLowestPriority(item)) {
+      ALog.d(TAG, "queue full,drop gitResId:" + gitResId);
+      return;
+    }
+    giftQueue.add(item);
   }
 
   public void release() {
     ALog.d(TAG, "release");
     giftQueue.clear();
+    playingItem = null;
+    if (comboListener != null) {
+      comboListener.onComboEnd();
+    }
     if (animationView != null) {
       animationView.cancelAnimation();
       animationView.setVisibility(View.GONE);
     }
   }
 
-  private void playAnim(int gitResId) {
-    if (gitResId == 0) {
+  // 丢弃队列中价值最低且低于新礼物的一个，没有可丢弃的返回 false
+  private boolean dropLowestPriority(GiftItem newItem) {
+    GiftItem lowest = null;
+    for (GiftItem item : giftQueue) {
+      if (lowest == null || item.priority < lowest.priority) {
+        lowest = item;
+      }
+    }
+    if (lowest == null || lowest.priority >= newItem.priority) {
+      return false;
+    }
+    Iterator<GiftItem> iterator = giftQueue.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() == lowest) {
+        iterator.remove();
+        break;
+      }
+    }
+    ALog.d(TAG, "queue full,drop gitResId:" + lowest.gitResId);
+    return true;
+  }
+
+  private void notifyCombo(GiftItem item) {
+    if (comboListener != null) {
+      comboListener.onCombo(item.gitResId, item.senderKey, item.combo);
+    }
+  }
+
+  private void playAnim(GiftItem item) {
+    if (item == null) {
       return;
     }
+    playingItem = item;
     if (animationView != null) {
       animationView.setVisibility(View.VISIBLE);
-      animationView.setAnimation(gitResId);
-      ALog.d(TAG, "playAnim,gitResId:" + gitResId);
+      LottieComposition composition = GiftAnimCache.get(item.gitResId);
+      if (composition != null) {
+        animationView.setComposition(composition);
+      } else {
+        animationView.setAnimation(item.gitResId);
+      }
+      ALog.d(TAG, "playAnim,gitResId:" + item.gitResId + ",cached:" + (composition != null));
       animationView.playAnimation();
+      notifyCombo(item);
     }
   }
 }
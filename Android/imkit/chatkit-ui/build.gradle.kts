@@ -31,6 +31,11 @@ android {
         viewBinding = true
     }
 
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+        unitTests.isIncludeAndroidResources = true
+    }
+
     sourceSets["main"].res.srcDirs("src/main/res","src/main/res-fun","src/main/res-normal")
 
     compileOptions {
@@ -50,5 +55,11 @@ dependencies {
     implementation("com.airbnb.android:lottie:5.0.3")
     implementation("com.github.bumptech.glide:glide:4.13.1")
 
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("org.json:json:20180813")
+    testImplementation("org.robolectric:robolectric:4.9")
+    testImplementation("androidx.test:core:1.4.0")
+    testImplementation("org.mockito:mockito-core:4.8.1")
+
 }
 
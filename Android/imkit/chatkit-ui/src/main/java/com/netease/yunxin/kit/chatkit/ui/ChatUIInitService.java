@@ -6,10 +6,18 @@ package com.netease.yunxin.kit.chatkit.ui;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import com.netease.nimlib.sdk.NIMClient;
 import com.netease.nimlib.sdk.Observer;
+import com.netease.nimlib.sdk.StatusCode;
+import com.netease.nimlib.sdk.auth.AuthServiceObserver;
 import com.netease.nimlib.sdk.msg.model.RevokeMsgNotification;
 import com.netease.yunxin.kit.chatkit.repo.ChatObserverRepo;
+import com.netease.yunxin.kit.chatkit.ui.common.ChatPinStore;
+import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.common.MessageTextRenderCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ReplyMessageCache;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamNotificationTextCache;
 import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.chatkit.ui.view.ait.AitService;
 import com.netease.yunxin.kit.corekit.im.IIMKitInitService;
@@ -19,6 +27,24 @@ public class ChatUIInitService implements IIMKitInitService {
   public void onInit(@NonNull Context context) {
     AitService.getInstance().init(context);
     registerForInsertLocalMsgWhenRevoke();
+    registerForClearUserCache();
+  }
+
+  private void registerForClearUserCache() {
+    // 用户信息缓存在聊天页面之间保留，账号登出时清空
+    NIMClient.getService(AuthServiceObserver.class)
+        .observeOnlineStatus(
+            (Observer<StatusCode>)
+                statusCode -> {
+                  if (statusCode == StatusCode.UNLOGIN || statusCode.wontAutoLogin()) {
+                    ChatUserCache.clear();
+                    MessageTextRenderCache.clear();
+                    ReplyMessageCache.clear();
+                    ChatPinStore.clear();
+                    TeamNotificationTextCache.clear();
+                  }
+                },
+            true);
   }
 
   private void registerForInsertLocalMsgWhenRevoke() {
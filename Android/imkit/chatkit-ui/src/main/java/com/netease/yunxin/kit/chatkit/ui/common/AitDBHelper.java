@@ -4,22 +4,32 @@
 
 package com.netease.yunxin.kit.chatkit.ui.common;
 
-import android.annotation.SuppressLint;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
 import com.netease.yunxin.kit.corekit.im.custom.AitInfo;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * @ message database
+ *
+ * <p>version 2 stores one row for each (account, session, message uuid), with index on session
+ * and account. Batch write is done in one transaction with compiled statement. All writes should
+ * be posted by {@link #execute(Runnable)}, which runs them in one writer thread.
+ */
 public class AitDBHelper extends SQLiteOpenHelper {
 
   private static final String TAG = "AitDBHelper";
@@ -31,7 +41,47 @@ public class AitDBHelper extends SQLiteOpenHelper {
   public static final String DB_COLUMN_ROW_ID = "_id";
   public static final String DB_COLUMN_MSG_ID = "msg_uuid";
   public static final String DB_COLUMN_USER_ID = "account_id";
-  public static int Version = 1;
+  public static int Version = 2;
+
+  private static final int VERSION_SPLIT_UUID = 2;
+
+  private static final String SQL_INSERT =
+      "INSERT OR IGNORE INTO "
+          + TABLE_NAME
+          + "("
+          + DB_COLUMN_SESSION
+          + ","
+          + DB_COLUMN_MSG_ID
+          + ","
+          + DB_COLUMN_USER_ID
+          + ") VALUES (?,?,?)";
+
+  private static final String SQL_DELETE_MSG =
+      "DELETE FROM "
+          + TABLE_NAME
+          + " WHERE "
+          + DB_COLUMN_SESSION
+          + "=? AND "
+          + DB_COLUMN_USER_ID
+          + "=? AND "
+          + DB_COLUMN_MSG_ID
+          + "=?";
+
+  private static final String SQL_DELETE_SESSION_ACCOUNT =
+      "DELETE FROM "
+          + TABLE_NAME
+          + " WHERE "
+          + DB_COLUMN_SESSION
+          + "=? AND "
+          + DB_COLUMN_USER_ID
+          + "=?";
+
+  private static final String SQL_DELETE_SESSION =
+      "DELETE FROM " + TABLE_NAME + " WHERE " + DB_COLUMN_SESSION + "=?";
+
+  // all database writes run in this thread
+  private final ExecutorService writeExecutor =
+      Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "ait-db-writer"));
 
   public AitDBHelper(Context context) {
     super(context, DB_NAME, null, Version);
@@ -45,32 +95,37 @@ public class AitDBHelper extends SQLiteOpenHelper {
     return getInstance(context, Version);
   }
 
-  public static AitDBHelper getInstance(Context context, int version) {
+  public static synchronized AitDBHelper getInstance(Context context, int version) {
     if (aitDBHelper == null && version > 0) {
-      aitDBHelper = new AitDBHelper(context, version);
+      aitDBHelper = new AitDBHelper(context.getApplicationContext(), version);
     } else if (aitDBHelper == null) {
-      aitDBHelper = new AitDBHelper(context);
+      aitDBHelper = new AitDBHelper(context.getApplicationContext());
     }
     return aitDBHelper;
   }
 
-  public SQLiteDatabase openWrite() {
+  /** run task in database writer thread */
+  public void execute(Runnable task) {
+    writeExecutor.execute(task);
+  }
+
+  public synchronized SQLiteDatabase openWrite() {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "openWrite");
     if (aitDatabase == null || !aitDatabase.isOpen()) {
-      aitDatabase = aitDBHelper.getWritableDatabase();
+      aitDatabase = getWritableDatabase();
     }
     return aitDatabase;
   }
 
-  public SQLiteDatabase openRead() {
+  public synchronized SQLiteDatabase openRead() {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "openRead");
     if (aitDatabase == null || !aitDatabase.isOpen()) {
-      aitDatabase = aitDBHelper.getReadableDatabase();
+      aitDatabase = getReadableDatabase();
     }
     return aitDatabase;
   }
 
-  public void closeDataBase() {
+  public synchronized void closeDataBase() {
     if (aitDatabase != null && aitDatabase.isOpen()) {
       aitDatabase.close();
       aitDatabase = null;
@@ -82,6 +137,10 @@ public class AitDBHelper extends SQLiteOpenHelper {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "onCreate");
     String drop_sql = "DROP TABLE IF EXISTS " + TABLE_NAME + ";";
     db.execSQL(drop_sql);
+    createTable(db);
+  }
+
+  private static void createTable(SQLiteDatabase db) {
     String create_sql =
         "CREATE TABLE IF NOT EXISTS "
             + TABLE_NAME
@@ -93,18 +152,86 @@ public class AitDBHelper extends SQLiteOpenHelper {
             + DB_COLUMN_MSG_ID
             + " VARCHAR NOT NULL,"
             + DB_COLUMN_USER_ID
-            + " VARCHAR NOT NULL"
+            + " VARCHAR NOT NULL,"
+            + "UNIQUE("
+            + DB_COLUMN_USER_ID
+            + ","
+            + DB_COLUMN_SESSION
+            + ","
+            + DB_COLUMN_MSG_ID
+            + ")"
             + ");";
     db.execSQL(create_sql);
+    db.execSQL(
+        "CREATE INDEX IF NOT EXISTS idx_ait_session ON "
+            + TABLE_NAME
+            + "("
+            + DB_COLUMN_SESSION
+            + ");");
+    db.execSQL(
+        "CREATE INDEX IF NOT EXISTS idx_ait_account ON "
+            + TABLE_NAME
+            + "("
+            + DB_COLUMN_USER_ID
+            + ");");
   }
 
   @Override
-  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "onUpgrade:" + oldVersion + "->" + newVersion);
+    if (oldVersion < VERSION_SPLIT_UUID) {
+      migrateSplitUuid(db);
+    }
+  }
+
+  // version 1 stored all uuid of a session in one row, joined by ','
+  private static void migrateSplitUuid(SQLiteDatabase db) {
+    String oldTable = TABLE_NAME + "_v1";
+    db.execSQL("DROP TABLE IF EXISTS " + oldTable + ";");
+    db.execSQL("ALTER TABLE " + TABLE_NAME + " RENAME TO " + oldTable + ";");
+    createTable(db);
+    SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+    try (Cursor cursor =
+        db.rawQuery(
+            "SELECT "
+                + DB_COLUMN_SESSION
+                + ","
+                + DB_COLUMN_MSG_ID
+                + ","
+                + DB_COLUMN_USER_ID
+                + " FROM "
+                + oldTable
+                + " ORDER BY "
+                + DB_COLUMN_ROW_ID,
+            null)) {
+      while (cursor.moveToNext()) {
+        String sessionId = cursor.getString(0);
+        String msgId = cursor.getString(1);
+        String accountId = cursor.getString(2);
+        if (TextUtils.isEmpty(sessionId) || TextUtils.isEmpty(msgId) || accountId == null) {
+          continue;
+        }
+        for (String uuid : msgId.split(",")) {
+          if (!TextUtils.isEmpty(uuid)) {
+            bindAndExecute(insert, sessionId, uuid, accountId);
+          }
+        }
+      }
+    } finally {
+      insert.close();
+    }
+    db.execSQL("DROP TABLE IF EXISTS " + oldTable + ";");
+  }
 
+  private SQLiteDatabase database() {
+    return openWrite();
+  }
+
+  @Deprecated
   public int delete(String condition) {
     // 执行删除记录动作，该语句返回删除记录的数目
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "delete:" + condition);
-    return aitDatabase.delete(TABLE_NAME, condition, null);
+    return database().delete(TABLE_NAME, condition, null);
   }
 
   public int deleteWithSessionId(String[] sessionId) {
@@ -113,19 +240,59 @@ public class AitDBHelper extends SQLiteOpenHelper {
     if (sessionId == null) {
       return -1;
     }
-    return aitDatabase.delete(
-        TABLE_NAME,
-        DB_COLUMN_SESSION
-            + " IN ("
-            + TextUtils.join(",", Collections.nCopies(sessionId.length, "?"))
-            + ")",
-        sessionId);
+    SQLiteDatabase db = database();
+    int count = 0;
+    db.beginTransaction();
+    SQLiteStatement statement = db.compileStatement(SQL_DELETE_SESSION);
+    try {
+      for (String id : sessionId) {
+        if (TextUtils.isEmpty(id)) {
+          continue;
+        }
+        statement.clearBindings();
+        statement.bindString(1, id);
+        count += statement.executeUpdateDelete();
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      statement.close();
+      db.endTransaction();
+    }
+    return count;
   }
 
   // 删除该表所有记录
   public int deleteAll() {
     // 执行删除记录动作，该语句返回删除记录的数目
-    return aitDatabase.delete(TABLE_NAME, "1=1", null);
+    return database().delete(TABLE_NAME, "1=1", null);
+  }
+
+  /** delete some messages of session */
+  public int deleteMsgUid(String sessionId, String accountId, Collection<String> uuidList) {
+    if (TextUtils.isEmpty(sessionId) || accountId == null || uuidList == null) {
+      return -1;
+    }
+    SQLiteDatabase db = database();
+    int count = 0;
+    db.beginTransaction();
+    SQLiteStatement statement = db.compileStatement(SQL_DELETE_MSG);
+    try {
+      for (String uuid : uuidList) {
+        if (TextUtils.isEmpty(uuid)) {
+          continue;
+        }
+        statement.clearBindings();
+        statement.bindString(1, sessionId);
+        statement.bindString(2, accountId);
+        statement.bindString(3, uuid);
+        count += statement.executeUpdateDelete();
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      statement.close();
+      db.endTransaction();
+    }
+    return count;
   }
 
   // 往该表添加一条记录
@@ -134,102 +301,201 @@ public class AitDBHelper extends SQLiteOpenHelper {
       return -1;
     }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "insert:" + info.getSessionId());
-    List<AitInfo> aitInfo = new ArrayList<>();
-    aitInfo.add(info);
-    return insert(aitInfo);
+    return insert(Collections.singletonList(info));
   }
 
-  // 往该表添加多条记录
+  // 往该表添加多条记录，返回最后插入的行号，失败返回-1
   public long insert(List<AitInfo> aitInfoList) {
     long result = -1;
     if (aitInfoList == null) {
       return result;
     }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "list insert:" + aitInfoList.size());
-    for (AitInfo aitInfo : aitInfoList) {
-      if (!TextUtils.isEmpty(aitInfo.getSessionId()) && aitInfo.getMsgUidList() != null) {
-        ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "list insert aitinfo:" + aitInfo.getSessionId());
-        ContentValues cv = new ContentValues();
-        cv.put(DB_COLUMN_SESSION, aitInfo.getSessionId());
-        cv.put(DB_COLUMN_MSG_ID, aitInfo.getMsgUidString());
-        cv.put(DB_COLUMN_USER_ID, aitInfo.getAccountId());
-        // 执行插入记录动作，该语句返回插入记录的行号
-        // 参数二：参数未设置为NULL,参数提供可空列名称的名称，以便在 cv 为空的情况下显式插入 NULL。
-        // 参数三：values 此映射包含行的初始列值。键应该是列名，值应该是列值
-        result = aitDatabase.insert(TABLE_NAME, "", cv);
-      }
-      // 添加成功则返回行号，添加失败则返回-1
-      if (result == -1) {
-        return result;
+    SQLiteDatabase db = database();
+    db.beginTransaction();
+    SQLiteStatement statement = db.compileStatement(SQL_INSERT);
+    try {
+      for (AitInfo aitInfo : aitInfoList) {
+        if (!isValid(aitInfo)) {
+          continue;
+        }
+        for (String uuid : aitInfo.getMsgUidList()) {
+          if (!TextUtils.isEmpty(uuid)) {
+            long rowId =
+                bindAndExecute(statement, aitInfo.getSessionId(), uuid, aitInfo.getAccountId());
+            if (rowId != -1) {
+              result = rowId;
+            }
+          }
+        }
       }
+      db.setTransactionSuccessful();
+    } finally {
+      statement.close();
+      db.endTransaction();
     }
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "list insert result:" + result);
     return result;
   }
 
   // 根据条件更新指定的表记录
+  @Deprecated
   public int update(AitInfo aitInfo, String condition) {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + condition);
-    if (aitInfo == null
-        || TextUtils.isEmpty(aitInfo.getSessionId())
-        || aitInfo.getMsgUidList() == null) {
+    if (!isValid(aitInfo)) {
       return -1;
     }
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + aitInfo.getSessionId());
-    ContentValues cv = new ContentValues();
-    cv.put(DB_COLUMN_SESSION, aitInfo.getSessionId());
-    cv.put(DB_COLUMN_MSG_ID, aitInfo.getMsgUidString());
-    cv.put(DB_COLUMN_USER_ID, aitInfo.getAccountId());
-    return aitDatabase.update(TABLE_NAME, cv, condition, null);
+    SQLiteDatabase db = database();
+    db.beginTransaction();
+    try {
+      db.delete(TABLE_NAME, condition, null);
+      insert(aitInfo);
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    return aitInfo.getMsgUidList().size();
   }
 
+  /** replace all records of the session with message list in aitInfo */
   public int update(AitInfo aitInfo) {
-    // 执行更新记录动作，该语句返回更新的记录数量
-    return update(aitInfo, DB_COLUMN_ROW_ID + "=" + aitInfo.getRowId());
+    if (aitInfo == null) {
+      return -1;
+    }
+    return update(Collections.singletonList(aitInfo));
+  }
+
+  /** replace all records of these sessions in one transaction */
+  public int update(List<AitInfo> aitInfoList) {
+    if (aitInfoList == null) {
+      return -1;
+    }
+    int count = 0;
+    SQLiteDatabase db = database();
+    db.beginTransaction();
+    SQLiteStatement delete = db.compileStatement(SQL_DELETE_SESSION_ACCOUNT);
+    SQLiteStatement insert = db.compileStatement(SQL_INSERT);
+    try {
+      for (AitInfo aitInfo : aitInfoList) {
+        if (!isValid(aitInfo)) {
+          continue;
+        }
+        delete.clearBindings();
+        delete.bindString(1, aitInfo.getSessionId());
+        delete.bindString(2, aitInfo.getAccountId());
+        delete.executeUpdateDelete();
+        for (String uuid : aitInfo.getMsgUidList()) {
+          if (!TextUtils.isEmpty(uuid)) {
+            bindAndExecute(insert, aitInfo.getSessionId(), uuid, aitInfo.getAccountId());
+          }
+        }
+        count++;
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      delete.close();
+      insert.close();
+      db.endTransaction();
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "update:" + count);
+    return count;
   }
 
-  @SuppressLint("Range")
   public List<AitInfo> queryAll() {
-    return query(DB_COLUMN_USER_ID + "='" + IMKitClient.account() + "'");
+    return query(DB_COLUMN_USER_ID + "=?", new String[] {IMKitClient.account()});
+  }
+
+  public List<AitInfo> queryWithSessionId(String sessionId) {
+    return query(
+        DB_COLUMN_USER_ID + "=? AND " + DB_COLUMN_SESSION + "=?",
+        new String[] {IMKitClient.account(), sessionId});
   }
 
-  @SuppressLint("Range")
+  /** session id list which has @ message of account, without loading message uuid */
+  public List<String> querySessionIds(String accountId) {
+    List<String> sessionList = new ArrayList<>();
+    if (accountId == null) {
+      return sessionList;
+    }
+    try (Cursor cursor =
+        database()
+            .query(
+                true,
+                TABLE_NAME,
+                new String[] {DB_COLUMN_SESSION},
+                DB_COLUMN_USER_ID + "=?",
+                new String[] {accountId},
+                null,
+                null,
+                null,
+                null)) {
+      while (cursor.moveToNext()) {
+        sessionList.add(cursor.getString(0));
+      }
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "querySessionIds result:" + sessionList.size());
+    return sessionList;
+  }
+
+  @Deprecated
   public List<AitInfo> query(String condition) {
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query:" + condition);
-    String sql =
-        String.format(
-            "select "
-                + DB_COLUMN_ROW_ID
-                + ","
-                + DB_COLUMN_SESSION
-                + ","
-                + DB_COLUMN_MSG_ID
-                + ","
-                + DB_COLUMN_USER_ID
-                + " from %s where %s;",
-            TABLE_NAME,
-            condition);
-    List<AitInfo> infoList = new ArrayList<>();
+    return query(condition, null);
+  }
+
+  /** query records, one AitInfo for each session and account */
+  public List<AitInfo> query(String selection, String[] selectionArgs) {
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query:" + selection);
+    Map<String, AitInfo> infoMap = new LinkedHashMap<>();
     // 执行记录查询动作，该语句返回结果集的游标
-    Cursor cursor = aitDatabase.rawQuery(sql, null);
-    // 循环取出游标指向的每条记录
-    while (cursor.moveToNext()) {
-      AitInfo aitInfo = new AitInfo();
-      aitInfo.setSessionId(cursor.getString(cursor.getColumnIndex(DB_COLUMN_SESSION)));
-      aitInfo.setRowId(cursor.getInt(cursor.getColumnIndex(DB_COLUMN_ROW_ID)));
-      String msgId = cursor.getString(cursor.getColumnIndex(DB_COLUMN_MSG_ID));
-      String accountID = cursor.getString(cursor.getColumnIndex(DB_COLUMN_USER_ID));
-      if (!TextUtils.isEmpty(msgId)) {
-        String[] idStrings = msgId.split(",");
-        aitInfo.addMsgUid(Arrays.asList(idStrings));
+    try (Cursor cursor =
+        database()
+            .query(
+                TABLE_NAME,
+                new String[] {
+                  DB_COLUMN_ROW_ID, DB_COLUMN_SESSION, DB_COLUMN_MSG_ID, DB_COLUMN_USER_ID
+                },
+                selection,
+                selectionArgs,
+                null,
+                null,
+                DB_COLUMN_ROW_ID)) {
+      // 循环取出游标指向的每条记录
+      while (cursor.moveToNext()) {
+        int rowId = cursor.getInt(0);
+        String sessionId = cursor.getString(1);
+        String msgId = cursor.getString(2);
+        String accountId = cursor.getString(3);
+        String key = accountId + "/" + sessionId;
+        AitInfo aitInfo = infoMap.get(key);
+        if (aitInfo == null) {
+          aitInfo = new AitInfo();
+          aitInfo.setSessionId(sessionId);
+          aitInfo.setAccountId(accountId);
+          aitInfo.setRowId(rowId);
+          infoMap.put(key, aitInfo);
+        }
+        if (!TextUtils.isEmpty(msgId)) {
+          aitInfo.getMsgUidList().add(msgId);
+        }
       }
-      aitInfo.setAccountId(accountID);
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query AitInfo:" + aitInfo.getSessionId());
-      infoList.add(aitInfo);
-    }
-    // 查询完毕，关闭数据库游标
-    cursor.close();
-    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query result:" + infoList.size());
-    return infoList;
+    }
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "query result:" + infoMap.size());
+    return new ArrayList<>(infoMap.values());
+  }
+
+  private static boolean isValid(AitInfo aitInfo) {
+    return aitInfo != null
+        && !TextUtils.isEmpty(aitInfo.getSessionId())
+        && aitInfo.getAccountId() != null
+        && aitInfo.getMsgUidList() != null;
+  }
+
+  private static long bindAndExecute(
+      SQLiteStatement statement, String sessionId, String uuid, String accountId) {
+    statement.clearBindings();
+    statement.bindString(1, sessionId);
+    statement.bindString(2, uuid);
+    statement.bindString(3, accountId);
+    return statement.executeInsert();
   }
 }
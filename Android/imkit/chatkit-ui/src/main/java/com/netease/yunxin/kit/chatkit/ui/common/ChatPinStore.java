@@ -0,0 +1,305 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
+import com.netease.nimlib.sdk.msg.model.MsgPinOption;
+import com.netease.nimlib.sdk.msg.model.MsgPinSyncResponseOption;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.corekit.im.IMKitClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * pinned messages of chat sessions, shared by chat page and pin page
+ *
+ * <p>pin options are kept by uuid for O(1) lookup when messages are converted for binding. pinned
+ * messages are loaded once for pin page and kept newest first by inserting at the searched
+ * position. pin observers, local pin events and pin info sync update the store in place. If a pin
+ * is added without its message, the message list is loaded again on next open.
+ *
+ * <p>all methods are in main thread.
+ */
+public class ChatPinStore {
+
+  private static final int MAX_SESSION_SIZE = 8;
+
+  private static final LruCache<String, SessionPins> sessions = new LruCache<>(MAX_SESSION_SIZE);
+
+  private static class SessionPins {
+    // uuid -> pin option
+    final Map<String, MsgPinOption> options = new HashMap<>();
+    // pinned messages newest first, null if not loaded
+    List<ChatMessageBean> messages;
+    // uuid pinned after messages loaded, message not known yet
+    final Set<String> missing = new HashSet<>();
+  }
+
+  @Nullable
+  public static MsgPinOption getPinOption(String sessionId, SessionTypeEnum type, String uuid) {
+    SessionPins pins = get(sessionId, type);
+    return pins == null || uuid == null ? null : pins.options.get(uuid);
+  }
+
+  /** read only view of uuid -> pin option of session, empty if unknown */
+  @NonNull
+  public static Map<String, MsgPinOption> getPinOptions(String sessionId, SessionTypeEnum type) {
+    SessionPins pins = get(sessionId, type);
+    return pins == null
+        ? Collections.<String, MsgPinOption>emptyMap()
+        : Collections.unmodifiableMap(pins.options);
+  }
+
+  /**
+   * replace pin options with the synced pin list
+   *
+   * @return true if pinned messages or pin accounts changed
+   */
+  public static boolean setPinInfo(
+      String sessionId, SessionTypeEnum type, List<MsgPinSyncResponseOption> pinList) {
+    SessionPins pins = getOrCreate(sessionId, type);
+    if (pins == null) {
+      return false;
+    }
+    Map<String, MsgPinOption> options = new HashMap<>();
+    if (pinList != null) {
+      for (MsgPinSyncResponseOption option : pinList) {
+        options.put(option.getKey().getUuid(), option.getPinOption());
+      }
+    }
+    boolean changed = options.size() != pins.options.size();
+    for (Map.Entry<String, MsgPinOption> entry : options.entrySet()) {
+      if (changed) {
+        break;
+      }
+      MsgPinOption old = pins.options.get(entry.getKey());
+      changed = old == null || !TextUtils.equals(old.getAccount(), getAccount(entry.getValue()));
+    }
+    pins.options.clear();
+    pins.options.putAll(options);
+    if (pins.messages != null) {
+      for (int index = pins.messages.size() - 1; index >= 0; index--) {
+        ChatMessageBean bean = pins.messages.get(index);
+        MsgPinOption option = options.remove(getUuid(bean));
+        if (option == null) {
+          pins.messages.remove(index);
+        } else {
+          bean.setPinAccid(option);
+        }
+      }
+      // messages of new pins are unknown
+      pins.missing.clear();
+      pins.missing.addAll(options.keySet());
+    }
+    return changed;
+  }
+
+  /**
+   * pinned messages newest first
+   *
+   * @return null if not loaded, or some pinned messages are unknown
+   */
+  @Nullable
+  public static List<ChatMessageBean> getMessages(String sessionId, SessionTypeEnum type) {
+    SessionPins pins = get(sessionId, type);
+    if (pins == null || pins.messages == null || !pins.missing.isEmpty()) {
+      return null;
+    }
+    return new ArrayList<>(pins.messages);
+  }
+
+  /** set all pinned messages loaded from server */
+  public static void setMessages(
+      String sessionId, SessionTypeEnum type, List<IMMessageInfo> messageList) {
+    SessionPins pins = getOrCreate(sessionId, type);
+    if (pins == null) {
+      return;
+    }
+    pins.messages = new ArrayList<>(messageList == null ? 0 : messageList.size());
+    pins.missing.clear();
+    if (messageList != null) {
+      for (IMMessageInfo message : messageList) {
+        insert(pins, message);
+      }
+    }
+  }
+
+  /**
+   * pin added
+   *
+   * @param message pinned message, null if unknown
+   * @return bean of the message, null if message is null or already in loaded messages
+   */
+  @Nullable
+  public static ChatMessageBean addPin(
+      String sessionId,
+      SessionTypeEnum type,
+      String uuid,
+      MsgPinOption option,
+      @Nullable IMMessageInfo message) {
+    SessionPins pins = getOrCreate(sessionId, type);
+    if (pins == null || TextUtils.isEmpty(uuid)) {
+      return null;
+    }
+    pins.options.put(uuid, option);
+    if (message != null) {
+      message.setPinOption(option);
+    }
+    if (pins.messages == null) {
+      return message == null ? null : new ChatMessageBean(message);
+    }
+    ChatMessageBean exist = find(pins.messages, uuid);
+    if (exist != null) {
+      exist.setPinAccid(option);
+      return null;
+    }
+    if (message == null) {
+      pins.missing.add(uuid);
+      return null;
+    }
+    pins.missing.remove(uuid);
+    return insert(pins, message);
+  }
+
+  /** pin added by observer, session is taken from option */
+  @Nullable
+  public static ChatMessageBean addPin(
+      MsgPinSyncResponseOption option, @Nullable IMMessageInfo message) {
+    if (option == null) {
+      return null;
+    }
+    return addPin(
+        getSessionId(option),
+        option.getKey().getSessionType(),
+        option.getKey().getUuid(),
+        option.getPinOption(),
+        message);
+  }
+
+  /**
+   * pin removed
+   *
+   * @return true if it was in store
+   */
+  public static boolean removePin(String sessionId, SessionTypeEnum type, String uuid) {
+    SessionPins pins = get(sessionId, type);
+    if (pins == null || TextUtils.isEmpty(uuid)) {
+      return false;
+    }
+    boolean removed = pins.options.remove(uuid) != null;
+    pins.missing.remove(uuid);
+    if (pins.messages != null) {
+      for (int index = 0; index < pins.messages.size(); index++) {
+        if (TextUtils.equals(getUuid(pins.messages.get(index)), uuid)) {
+          pins.messages.remove(index);
+          return true;
+        }
+      }
+    }
+    return removed;
+  }
+
+  /** pin removed by observer, session is taken from option */
+  public static boolean removePin(MsgPinSyncResponseOption option) {
+    if (option == null) {
+      return false;
+    }
+    return removePin(
+        getSessionId(option), option.getKey().getSessionType(), option.getKey().getUuid());
+  }
+
+  public static void clear() {
+    sessions.evictAll();
+  }
+
+  /** session id of pin option, the other account for P2P */
+  @Nullable
+  public static String getSessionId(MsgPinSyncResponseOption option) {
+    if (option.getKey().getSessionType() == SessionTypeEnum.P2P
+        && TextUtils.equals(IMKitClient.account(), option.getKey().getToAccount())) {
+      return option.getKey().getFromAccount();
+    }
+    return option.getKey().getToAccount();
+  }
+
+  // insert by message time, newest first
+  private static ChatMessageBean insert(SessionPins pins, IMMessageInfo message) {
+    if (message.getPinOption() != null) {
+      pins.options.put(message.getMessage().getUuid(), message.getPinOption());
+    } else {
+      message.setPinOption(pins.options.get(message.getMessage().getUuid()));
+    }
+    long time = message.getMessage().getTime();
+    List<ChatMessageBean> messages = pins.messages;
+    int low = 0;
+    int high = messages.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (messages.get(mid).getMessageData().getMessage().getTime() >= time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    ChatMessageBean bean = new ChatMessageBean(message);
+    messages.add(low, bean);
+    return bean;
+  }
+
+  @Nullable
+  private static ChatMessageBean find(List<ChatMessageBean> messages, String uuid) {
+    for (ChatMessageBean bean : messages) {
+      if (TextUtils.equals(getUuid(bean), uuid)) {
+        return bean;
+      }
+    }
+    return null;
+  }
+
+  private static String getUuid(ChatMessageBean bean) {
+    return bean.getMessageData().getMessage().getUuid();
+  }
+
+  @Nullable
+  private static String getAccount(MsgPinOption option) {
+    return option == null ? null : option.getAccount();
+  }
+
+  @Nullable
+  private static SessionPins get(String sessionId, SessionTypeEnum type) {
+    if (TextUtils.isEmpty(sessionId) || type == null) {
+      return null;
+    }
+    return sessions.get(getKey(sessionId, type));
+  }
+
+  @Nullable
+  private static SessionPins getOrCreate(String sessionId, SessionTypeEnum type) {
+    if (TextUtils.isEmpty(sessionId) || type == null) {
+      return null;
+    }
+    String key = getKey(sessionId, type);
+    SessionPins pins = sessions.get(key);
+    if (pins == null) {
+      pins = new SessionPins();
+      sessions.put(key, pins);
+    }
+    return pins;
+  }
+
+  private static String getKey(String sessionId, SessionTypeEnum type) {
+    return type.getValue() + "|" + sessionId;
+  }
+}
@@ -6,81 +6,158 @@ package com.netease.yunxin.kit.chatkit.ui.common;
 
 import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
 import com.netease.nimlib.sdk.team.model.TeamMember;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.model.UserInfoWithTeam;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
+import com.netease.yunxin.kit.chatkit.repo.ContactRepo;
+import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import com.netease.yunxin.kit.corekit.im.model.FriendInfo;
 import com.netease.yunxin.kit.corekit.im.model.UserInfo;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * user, friend and team member cache for chat page
+ *
+ * <p>entries are kept in size bounded LRU and retained across chat pages. A miss on main thread
+ * never goes to repo, the account is queued and loaded in background with other misses, then
+ * {@link UserCacheListener} is notified so that the list can refresh user info. Unknown users are
+ * cached for a short time to avoid reloading them, an account which is not a friend is cached as
+ * long as a loaded friend.
+ */
 public class ChatUserCache {
 
-  private static final Map<String, TeamMember> teamMemberMap = new HashMap<>();
-  private static final Map<String, FriendInfo> friendInfoMap = new HashMap<>();
-  private static final Map<String, UserInfo> userInfoMap = new HashMap<>();
+  private static final String TAG = "ChatUserCache";
+
+  private static final int MAX_TEAM_MEMBER_SIZE = 2000;
+  private static final int MAX_FRIEND_SIZE = 1000;
+  private static final int MAX_USER_SIZE = 2000;
+
+  // empty result will be reloaded after this time
+  private static final long NEGATIVE_TTL = 30 * 1000;
+  // loaded entry will be refreshed in background after this time
+  private static final long POSITIVE_TTL = 10 * 60 * 1000;
+  // collect misses in this delay and load them in one batch
+  private static final long BATCH_DELAY = 50;
+
+  private static final LruCache<String, Entry<TeamMember>> teamMemberMap =
+      new LruCache<>(MAX_TEAM_MEMBER_SIZE);
+  private static final LruCache<String, Entry<FriendInfo>> friendInfoMap =
+      new LruCache<>(MAX_FRIEND_SIZE);
+  private static final LruCache<String, Entry<UserInfo>> userInfoMap =
+      new LruCache<>(MAX_USER_SIZE);
+
+  private static final AtomicLong hitCount = new AtomicLong();
+  private static final AtomicLong missCount = new AtomicLong();
+
+  // team member key -> account waiting to be loaded, p2p account has empty team id
+  private static final Map<String, PendingAccount> pendingAccounts = new HashMap<>();
+  private static boolean loadScheduled = false;
+
+  private static final Executor loadExecutor = Executors.newSingleThreadExecutor();
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private static final List<UserCacheListener> listeners = new CopyOnWriteArrayList<>();
 
   public static void addTeamMember(List<TeamMember> teamMemberList) {
+    List<String> accounts = new ArrayList<>(teamMemberList.size());
     for (TeamMember teamMember : teamMemberList) {
-      teamMemberMap.put(teamMember.getAccount(), teamMember);
+      putTeamMember(teamMember.getTid(), teamMember.getAccount(), teamMember);
+      accounts.add(teamMember.getAccount());
     }
+    TeamNotificationTextCache.onNameChanged(accounts);
   }
 
   public static void addUserCache(List<UserInfoWithTeam> userList) {
     if (userList != null) {
+      List<String> accounts = new ArrayList<>(userList.size());
       for (UserInfoWithTeam user : userList) {
         String account = user.getTeamInfo().getAccount();
-        teamMemberMap.put(account, user.getTeamInfo());
+        accounts.add(account);
+        putTeamMember(user.getTeamInfo().getTid(), account, user.getTeamInfo());
         if (user.getFriendInfo() != null) {
-          friendInfoMap.put(account, user.getFriendInfo());
+          friendInfoMap.put(account, new Entry<>(user.getFriendInfo()));
         }
         if (user.getUserInfo() != null) {
-          userInfoMap.put(account, user.getUserInfo());
+          userInfoMap.put(account, new Entry<>(user.getUserInfo()));
         }
       }
+      TeamNotificationTextCache.onNameChanged(accounts);
     }
   }
 
-  public static TeamMember getTeamMember(String account) {
-    return teamMemberMap.get(account);
+  public static TeamMember getTeamMember(String tid, String account) {
+    Entry<TeamMember> entry = teamMemberMap.get(teamMemberKey(tid, account));
+    return entry == null ? null : entry.value;
   }
 
   public static void addUserInfo(List<UserInfo> userInfoList) {
+    List<String> accounts = new ArrayList<>(userInfoList.size());
     for (UserInfo userInfo : userInfoList) {
-      userInfoMap.put(userInfo.getAccount(), userInfo);
-      FriendInfo friendInfo = friendInfoMap.get(userInfo.getAccount());
-      if (friendInfo != null) {
-        friendInfo.setUserInfo(userInfo);
+      accounts.add(userInfo.getAccount());
+      userInfoMap.put(userInfo.getAccount(), new Entry<>(userInfo));
+      Entry<FriendInfo> friendEntry = friendInfoMap.get(userInfo.getAccount());
+      if (friendEntry != null && friendEntry.value != null) {
+        friendEntry.value.setUserInfo(userInfo);
       }
     }
+    TeamNotificationTextCache.onNameChanged(accounts);
   }
 
   public static UserInfo getUserInfo(String account) {
-    return userInfoMap.get(account);
+    Entry<UserInfo> entry = userInfoMap.get(account);
+    if (entry != null && !entry.isExpired()) {
+      hitCount.incrementAndGet();
+      return entry.value;
+    }
+    missCount.incrementAndGet();
+    prefetch(null, account);
+    return entry == null ? null : entry.value;
   }
 
   public static void addFriendInfo(List<FriendInfo> friendInfoList) {
+    List<String> accounts = new ArrayList<>(friendInfoList.size());
     for (FriendInfo friendInfo : friendInfoList) {
       if (friendInfo != null) {
-        friendInfoMap.put(friendInfo.getAccount(), friendInfo);
-        if (userInfoMap.get(friendInfo.getAccount()) == null || friendInfo.getUserInfo() != null) {
-          userInfoMap.put(friendInfo.getAccount(), friendInfo.getUserInfo());
+        accounts.add(friendInfo.getAccount());
+        friendInfoMap.put(friendInfo.getAccount(), new Entry<>(friendInfo));
+        if (friendInfo.getUserInfo() != null) {
+          userInfoMap.put(friendInfo.getAccount(), new Entry<>(friendInfo.getUserInfo()));
         }
       }
     }
+    TeamNotificationTextCache.onNameChanged(accounts);
   }
 
   public static FriendInfo getFriendInfo(String account) {
-    return friendInfoMap.get(account);
+    Entry<FriendInfo> entry = friendInfoMap.get(account);
+    return entry == null ? null : entry.value;
   }
 
+  /** drop all cached entries, cache is retained across chat pages so call this on logout */
   public static void clear() {
-    teamMemberMap.clear();
-    friendInfoMap.clear();
-    userInfoMap.clear();
+    teamMemberMap.evictAll();
+    friendInfoMap.evictAll();
+    userInfoMap.evictAll();
+    TeamRosterCache.clear();
+    synchronized (pendingAccounts) {
+      pendingAccounts.clear();
+    }
   }
 
   public static String getName(UserInfoWithTeam withTeam) {
@@ -90,37 +167,25 @@ public class ChatUserCache {
     }
     String account = withTeam.getUserInfo().getAccount();
     if (!TextUtils.isEmpty(account)) {
-      FriendInfo friendInfo = friendInfoMap.get(account);
+      String tid = withTeam.getTeamInfo().getTid();
+      FriendInfo friendInfo = loadFriendInfo(tid, account);
       if (friendInfo == null) {
         friendInfo = withTeam.getFriendInfo();
       }
-      if (friendInfo == null) {
-        friendInfo = ChatRepo.getFriendInfo(account);
-        friendInfoMap.put(account, friendInfo);
-      }
       if (friendInfo != null && !TextUtils.isEmpty(friendInfo.getAlias())) {
         return friendInfo.getAlias();
       }
-      TeamMember teamMember = teamMemberMap.get(account);
+      TeamMember teamMember = getTeamMember(tid, account);
       if (teamMember == null) {
         teamMember = withTeam.getTeamInfo();
       }
-      String tid = withTeam.getTeamInfo().getTid();
-      if (!TextUtils.isEmpty(teamMember.getTeamNick()) && TextUtils.isEmpty(tid)) {
-        teamMember = ChatRepo.getTeamMember(tid, account);
-        teamMemberMap.put(account, teamMember);
-      }
       if (teamMember != null && !TextUtils.isEmpty(teamMember.getTeamNick())) {
         return teamMember.getTeamNick();
       }
-      UserInfo userInfo = userInfoMap.get(account);
+      UserInfo userInfo = loadUserInfo(tid, account);
       if (userInfo == null) {
         userInfo = withTeam.getUserInfo();
       }
-      if (userInfo == null) {
-        userInfo = ChatRepo.getUserInfo(account);
-        userInfoMap.put(account, userInfo);
-      }
       if (userInfo != null && !TextUtils.isEmpty(userInfo.getName())) {
         return userInfo.getName();
       }
@@ -136,33 +201,19 @@ public class ChatUserCache {
   public static String getName(String teamId, String account) {
 
     if (!TextUtils.isEmpty(account)) {
-      FriendInfo friendInfo = friendInfoMap.get(account);
-      if (friendInfo == null) {
-        friendInfo = ChatRepo.getFriendInfo(account);
-        friendInfoMap.put(account, friendInfo);
-      }
+      FriendInfo friendInfo = loadFriendInfo(teamId, account);
       if (friendInfo != null && !TextUtils.isEmpty(friendInfo.getAlias())) {
         return friendInfo.getAlias();
       }
 
       if (!TextUtils.isEmpty(teamId)) {
-        TeamMember teamMember = teamMemberMap.get(account);
-        if (teamMember == null) {
-          teamMember = ChatRepo.getTeamMember(teamId, account);
-          teamMemberMap.put(account, teamMember);
-        }
-        if (teamMember != null
-            && !TextUtils.isEmpty(teamMember.getTeamNick())
-            && TextUtils.equals(teamId, teamMember.getTid())) {
-          return teamMember.getTeamNick();
+        String teamNick = getTeamNick(teamId, account);
+        if (!TextUtils.isEmpty(teamNick)) {
+          return teamNick;
         }
       }
 
-      UserInfo userInfo = userInfoMap.get(account);
-      if (userInfo == null) {
-        userInfo = ChatRepo.getUserInfo(account);
-        userInfoMap.put(account, userInfo);
-      }
+      UserInfo userInfo = loadUserInfo(teamId, account);
       if (userInfo != null && !TextUtils.isEmpty(userInfo.getName())) {
         return userInfo.getName();
       }
@@ -177,26 +228,18 @@ public class ChatUserCache {
     }
     String account = withTeam.getUserInfo().getAccount();
     if (!TextUtils.isEmpty(account)) {
-      TeamMember teamMember = teamMemberMap.get(account);
+      String tid = withTeam.getTeamInfo().getTid();
+      TeamMember teamMember = getTeamMember(tid, account);
       if (teamMember == null) {
         teamMember = withTeam.getTeamInfo();
       }
-      String tid = withTeam.getTeamInfo().getTid();
-      if (!TextUtils.isEmpty(teamMember.getTeamNick()) && TextUtils.isEmpty(tid)) {
-        teamMember = ChatRepo.getTeamMember(tid, account);
-        teamMemberMap.put(account, teamMember);
-      }
       if (teamMember != null && !TextUtils.isEmpty(teamMember.getTeamNick())) {
         return teamMember.getTeamNick();
       }
-      UserInfo userInfo = userInfoMap.get(account);
+      UserInfo userInfo = loadUserInfo(tid, account);
       if (userInfo == null) {
         userInfo = withTeam.getUserInfo();
       }
-      if (userInfo == null) {
-        userInfo = ChatRepo.getUserInfo(account);
-        userInfoMap.put(account, userInfo);
-      }
       if (userInfo != null && !TextUtils.isEmpty(userInfo.getName())) {
         return userInfo.getName();
       }
@@ -208,22 +251,12 @@ public class ChatUserCache {
   public static String getAitName(String tid, String account) {
     if (!TextUtils.isEmpty(account)) {
       if (!TextUtils.isEmpty(tid)) {
-        TeamMember teamMember = teamMemberMap.get(account);
-        if (teamMember == null) {
-          teamMember = ChatRepo.getTeamMember(tid, account);
-          teamMemberMap.put(account, teamMember);
-        }
-        if (teamMember != null
-            && !TextUtils.isEmpty(teamMember.getTeamNick())
-            && TextUtils.equals(tid, teamMember.getTid())) {
-          return teamMember.getTeamNick();
+        String teamNick = getTeamNick(tid, account);
+        if (!TextUtils.isEmpty(teamNick)) {
+          return teamNick;
         }
       }
-      UserInfo userInfo = userInfoMap.get(account);
-      if (userInfo == null) {
-        userInfo = ChatRepo.getUserInfo(account);
-        userInfoMap.put(account, userInfo);
-      }
+      UserInfo userInfo = loadUserInfo(tid, account);
       if (userInfo != null && !TextUtils.isEmpty(userInfo.getName())) {
         return userInfo.getName();
       }
@@ -238,11 +271,7 @@ public class ChatUserCache {
 
     String account = withTeam.getUserInfo().getAccount();
     if (!TextUtils.isEmpty(account)) {
-      UserInfo userInfo = userInfoMap.get(account);
-      if (userInfo == null) {
-        userInfo = ChatRepo.getUserInfo(account);
-        userInfoMap.put(account, userInfo);
-      }
+      UserInfo userInfo = loadUserInfo(withTeam.getTeamInfo().getTid(), account);
       if (userInfo == null) {
         userInfo = withTeam.getUserInfo();
       }
@@ -251,4 +280,306 @@ public class ChatUserCache {
 
     return null;
   }
+
+  /**
+   * load accounts which are not cached in background, all misses collected in a short delay are
+   * loaded in one batch
+   *
+   * @param tid team id, null for p2p
+   * @param accounts accounts to load
+   */
+  public static void prefetch(@Nullable String tid, Collection<String> accounts) {
+    if (accounts == null || accounts.isEmpty()) {
+      return;
+    }
+    synchronized (pendingAccounts) {
+      for (String account : accounts) {
+        if (TextUtils.isEmpty(account) || !needLoad(tid, account)) {
+          continue;
+        }
+        pendingAccounts.put(teamMemberKey(tid, account), new PendingAccount(tid, account));
+      }
+      if (pendingAccounts.isEmpty() || loadScheduled) {
+        return;
+      }
+      loadScheduled = true;
+    }
+    mainHandler.postDelayed(ChatUserCache::loadPending, BATCH_DELAY);
+  }
+
+  public static void prefetch(@Nullable String tid, String account) {
+    List<String> accounts = new ArrayList<>(1);
+    accounts.add(account);
+    prefetch(tid, accounts);
+  }
+
+  public static void addListener(UserCacheListener listener) {
+    if (listener != null && !listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  public static void removeListener(UserCacheListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** lookups answered from cache */
+  public static long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** lookups not answered from cache, or answered with an expired entry */
+  public static long getMissCount() {
+    return missCount.get();
+  }
+
+  // team nick from cached member, or from team roster before member is loaded
+  private static String getTeamNick(String tid, String account) {
+    TeamMember teamMember = loadTeamMember(tid, account);
+    if (teamMember != null && TextUtils.equals(tid, teamMember.getTid())) {
+      return teamMember.getTeamNick();
+    }
+    return TeamRosterCache.getTeamNick(tid, account);
+  }
+
+  private static FriendInfo loadFriendInfo(String tid, String account) {
+    Entry<FriendInfo> entry = friendInfoMap.get(account);
+    if (entry != null && !entry.isExpired()) {
+      hitCount.incrementAndGet();
+      return entry.value;
+    }
+    missCount.incrementAndGet();
+    if (isMainThread()) {
+      prefetch(tid, account);
+      return entry == null ? null : entry.value;
+    }
+    FriendInfo friendInfo = ChatRepo.getFriendInfo(account);
+    putFriendInfo(account, friendInfo);
+    return friendInfo;
+  }
+
+  private static TeamMember loadTeamMember(String tid, String account) {
+    Entry<TeamMember> entry = teamMemberMap.get(teamMemberKey(tid, account));
+    if (entry != null && !entry.isExpired()) {
+      hitCount.incrementAndGet();
+      return entry.value;
+    }
+    missCount.incrementAndGet();
+    if (isMainThread()) {
+      prefetch(tid, account);
+      return entry == null ? null : entry.value;
+    }
+    TeamMember teamMember = ChatRepo.getTeamMember(tid, account);
+    putTeamMember(tid, account, teamMember);
+    return teamMember;
+  }
+
+  private static UserInfo loadUserInfo(String tid, String account) {
+    Entry<UserInfo> entry = userInfoMap.get(account);
+    if (entry != null && !entry.isExpired()) {
+      hitCount.incrementAndGet();
+      return entry.value;
+    }
+    missCount.incrementAndGet();
+    if (isMainThread()) {
+      prefetch(tid, account);
+      return entry == null ? null : entry.value;
+    }
+    UserInfo userInfo = ChatRepo.getUserInfo(account);
+    userInfoMap.put(account, new Entry<>(userInfo));
+    return userInfo;
+  }
+
+  // in main thread, user and friend info are loaded in batch. Team members are taken from loaded
+  // rosters, the rest is read one by one in background, repo has no member query by account list
+  private static void loadPending() {
+    List<PendingAccount> pendingList;
+    synchronized (pendingAccounts) {
+      pendingList = new ArrayList<>(pendingAccounts.values());
+      pendingAccounts.clear();
+      loadScheduled = false;
+    }
+    if (pendingList.isEmpty()) {
+      return;
+    }
+    Set<String> accountSet = new LinkedHashSet<>();
+    List<PendingAccount> memberList = new ArrayList<>();
+    for (PendingAccount pending : pendingList) {
+      accountSet.add(pending.account);
+      if (TextUtils.isEmpty(pending.tid)) {
+        continue;
+      }
+      // member in a loaded team roster is used directly, only missing ones are queried one by one
+      UserInfoWithTeam member = TeamRosterCache.getMember(pending.tid, pending.account);
+      if (member != null && member.getTeamInfo() != null) {
+        putTeamMember(pending.tid, pending.account, member.getTeamInfo());
+      } else {
+        memberList.add(pending);
+      }
+    }
+    List<String> accounts = new ArrayList<>(accountSet);
+    ALog.d(LIB_TAG, TAG, "loadPending:" + accounts.size() + "," + memberList.size());
+    LoadBatch batch = new LoadBatch(accounts, memberList.isEmpty() ? 2 : 3);
+    ContactRepo.getUserInfo(
+        accounts,
+        new FetchCallback<List<UserInfo>>() {
+          @Override
+          public void onSuccess(@Nullable List<UserInfo> param) {
+            Map<String, UserInfo> userMap = new HashMap<>();
+            if (param != null) {
+              for (UserInfo userInfo : param) {
+                userMap.put(userInfo.getAccount(), userInfo);
+              }
+            }
+            for (String account : accounts) {
+              userInfoMap.put(account, new Entry<>(userMap.get(account)));
+            }
+            batch.finish();
+          }
+
+          @Override
+          public void onFailed(int code) {
+            ALog.e(LIB_TAG, TAG, "loadPending,getUserInfo,onFailed:" + code);
+            batch.finish();
+          }
+
+          @Override
+          public void onException(@Nullable Throwable exception) {
+            ALog.e(LIB_TAG, TAG, "loadPending,getUserInfo,onException");
+            batch.finish();
+          }
+        });
+    ContactRepo.getFriendList(
+        accounts,
+        new FetchCallback<List<FriendInfo>>() {
+          @Override
+          public void onSuccess(@Nullable List<FriendInfo> param) {
+            Map<String, FriendInfo> friendMap = new HashMap<>();
+            if (param != null) {
+              for (FriendInfo friendInfo : param) {
+                friendMap.put(friendInfo.getAccount(), friendInfo);
+              }
+            }
+            for (String account : accounts) {
+              putFriendInfo(account, friendMap.get(account));
+            }
+            batch.finish();
+          }
+
+          @Override
+          public void onFailed(int code) {
+            ALog.e(LIB_TAG, TAG, "loadPending,getFriendList,onFailed:" + code);
+            batch.finish();
+          }
+
+          @Override
+          public void onException(@Nullable Throwable exception) {
+            ALog.e(LIB_TAG, TAG, "loadPending,getFriendList,onException");
+            batch.finish();
+          }
+        });
+    if (!memberList.isEmpty()) {
+      loadExecutor.execute(
+          () -> {
+            for (PendingAccount pending : memberList) {
+              try {
+                putTeamMember(
+                    pending.tid,
+                    pending.account,
+                    ChatRepo.getTeamMember(pending.tid, pending.account));
+              } catch (Exception e) {
+                ALog.e(LIB_TAG, TAG, "loadPending error:" + pending.account);
+              }
+            }
+            mainHandler.post(batch::finish);
+          });
+    }
+  }
+
+  private static boolean needLoad(String tid, String account) {
+    Entry<UserInfo> userEntry = userInfoMap.get(account);
+    if (userEntry == null || userEntry.isExpired()) {
+      return true;
+    }
+    Entry<FriendInfo> friendEntry = friendInfoMap.get(account);
+    if (friendEntry == null || friendEntry.isExpired()) {
+      return true;
+    }
+    if (!TextUtils.isEmpty(tid)) {
+      Entry<TeamMember> memberEntry = teamMemberMap.get(teamMemberKey(tid, account));
+      return memberEntry == null || memberEntry.isExpired();
+    }
+    return false;
+  }
+
+  // an account which is not a friend is a loaded result, it is not reloaded before POSITIVE_TTL
+  private static void putFriendInfo(String account, @Nullable FriendInfo friendInfo) {
+    friendInfoMap.put(account, new Entry<>(friendInfo, POSITIVE_TTL));
+  }
+
+  private static void putTeamMember(String tid, String account, TeamMember teamMember) {
+    teamMemberMap.put(teamMemberKey(tid, account), new Entry<>(teamMember));
+  }
+
+  private static String teamMemberKey(String tid, String account) {
+    return (tid == null ? "" : tid) + "/" + account;
+  }
+
+  private static boolean isMainThread() {
+    return Looper.myLooper() == Looper.getMainLooper();
+  }
+
+  /** notified on main thread when accounts are loaded into cache */
+  public interface UserCacheListener {
+    void onUserCacheLoaded(List<String> accounts);
+  }
+
+  private static class PendingAccount {
+    final String tid;
+    final String account;
+
+    PendingAccount(@Nullable String tid, String account) {
+      this.tid = tid;
+      this.account = account;
+    }
+  }
+
+  // accounts of one loadPending, listeners are notified after all parts finish
+  private static class LoadBatch {
+    final List<String> accounts;
+    int remaining;
+
+    LoadBatch(List<String> accounts, int partCount) {
+      this.accounts = accounts;
+      this.remaining = partCount;
+    }
+
+    void finish() {
+      if (--remaining > 0) {
+        return;
+      }
+      TeamNotificationTextCache.onNameChanged(accounts);
+      for (UserCacheListener listener : listeners) {
+        listener.onUserCacheLoaded(accounts);
+      }
+    }
+  }
+
+  private static class Entry<T> {
+    final T value;
+    final long expireTime;
+
+    Entry(T value) {
+      this(value, value == null ? NEGATIVE_TTL : POSITIVE_TTL);
+    }
+
+    Entry(T value, long ttl) {
+      this.value = value;
+      this.expireTime = SystemClock.elapsedRealtime() + ttl;
+    }
+
+    boolean isExpired() {
+      return SystemClock.elapsedRealtime() > expireTime;
+    }
+  }
 }
@@ -23,6 +23,7 @@ import android.text.style.ForegroundColorSpan;
 import android.text.style.ImageSpan;
 import android.view.View;
 import android.widget.TextView;
+import androidx.annotation.Nullable;
 import com.netease.nimlib.sdk.msg.MessageBuilder;
 import com.netease.nimlib.sdk.msg.constant.MsgDirectionEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
@@ -30,6 +31,7 @@ import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
 import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
 import com.netease.nimlib.sdk.msg.model.CustomMessageConfig;
 import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.nimlib.sdk.msg.model.MsgThreadOption;
 import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.model.IMMessageRecord;
@@ -48,6 +50,7 @@ import com.netease.yunxin.kit.corekit.im.model.UserInfo;
 import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import com.netease.yunxin.kit.corekit.im.utils.RouterConstant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -184,10 +187,52 @@ public class MessageHelper {
   public static void getReplyMessageInfo(String uuid, FetchCallback<List<IMMessageInfo>> callback) {
     if (TextUtils.isEmpty(uuid)) {
       callback.onSuccess(null);
+      return;
+    }
+    if (ReplyMessageCache.contains(uuid)) {
+      IMMessageInfo cached = ReplyMessageCache.get(uuid);
+      callback.onSuccess(cached == null ? null : Collections.singletonList(cached));
+      return;
     }
     List<String> uuidList = new ArrayList<>(1);
     uuidList.add(uuid);
-    ChatRepo.queryMessageListByUuid(uuidList, callback);
+    ChatRepo.queryMessageListByUuid(
+        uuidList,
+        new FetchCallback<List<IMMessageInfo>>() {
+          @Override
+          public void onSuccess(@Nullable List<IMMessageInfo> param) {
+            if (param != null && param.size() > 0) {
+              ReplyMessageCache.put(param.get(0));
+            }
+            callback.onSuccess(param);
+          }
+
+          @Override
+          public void onFailed(int code) {
+            callback.onFailed(code);
+          }
+
+          @Override
+          public void onException(@Nullable Throwable exception) {
+            callback.onException(exception);
+          }
+        });
+  }
+
+  /** uuid of the message replied to, by reply extension or thread option */
+  @Nullable
+  public static String getReplyUuid(ChatMessageBean message) {
+    if (message == null || message.getMessageData() == null) {
+      return null;
+    }
+    String replyUuid = message.getReplyUUid();
+    if (TextUtils.isEmpty(replyUuid)) {
+      MsgThreadOption threadOption = message.getMessageData().getMessage().getThreadOption();
+      if (threadOption != null) {
+        replyUuid = threadOption.getReplyMsgIdClient();
+      }
+    }
+    return TextUtils.isEmpty(replyUuid) ? null : replyUuid;
   }
 
   public static String getReplyContent(IMMessageInfo messageInfo) {
@@ -231,21 +276,33 @@ public class MessageHelper {
   public static void identifyExpression(
       Context context, View textView, int color, IMMessage message) {
     if (message != null && textView != null) {
-      SpannableString spannableString =
-          replaceEmoticons(context, message.getContent(), DEF_SCALE, ImageSpan.ALIGN_BOTTOM);
-      identifyAitExpression(context, spannableString, color, message);
-      viewSetText(textView, spannableString);
+      viewSetText(textView, getMessageSpannable(context, color, message));
     }
   }
 
   public static void identifyExpression(Context context, View textView, IMMessage message) {
     if (message != null && textView != null) {
-      SpannableString spannableString =
+      viewSetText(textView, getMessageSpannable(context, message));
+    }
+  }
+
+  /** rendered message text with emoji and @ spans, default @ color */
+  public static SpannableString getMessageSpannable(Context context, IMMessage message) {
+    int color = context.getResources().getColor(R.color.color_007aff);
+    return getMessageSpannable(context, color, message);
+  }
+
+  /** rendered message text with emoji and @ spans, result is cached by message */
+  public static SpannableString getMessageSpannable(
+      Context context, int color, IMMessage message) {
+    SpannableString spannableString = MessageTextRenderCache.get(message, DEF_SCALE, color);
+    if (spannableString == null) {
+      spannableString =
           replaceEmoticons(context, message.getContent(), DEF_SCALE, ImageSpan.ALIGN_BOTTOM);
-      int color = context.getResources().getColor(R.color.color_007aff);
       identifyAitExpression(context, spannableString, color, message);
-      viewSetText(textView, spannableString);
+      MessageTextRenderCache.put(message, DEF_SCALE, color, spannableString);
     }
+    return spannableString;
   }
 
   public static void identifyAitExpression(
@@ -0,0 +1,149 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.content.Context;
+import android.text.SpannableString;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import com.netease.yunxin.kit.chatkit.ui.view.emoji.EmojiManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * cache of rendered text message content, include emoji and @ spans
+ *
+ * <p>key is message uuid, content hash, @ data hash, emoji scale and highlight color. So a message
+ * which content or @ data is changed will not hit the old value. Values are rendered in background
+ * when message list is loaded, and binding only need to look up the cache.
+ */
+public class MessageTextRenderCache {
+
+  // max cached chars
+  private static final int CACHE_MAX_SIZE = 256 * 1024;
+
+  private static final LruCache<String, Entry> renderCache =
+      new LruCache<String, Entry>(CACHE_MAX_SIZE) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+          return value.text.length() + 1;
+        }
+      };
+
+  private static final ExecutorService renderExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "chat-text-render");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  private static class Entry {
+    final String renderKey;
+    final SpannableString text;
+
+    Entry(String renderKey, SpannableString text) {
+      this.renderKey = renderKey;
+      this.text = text;
+    }
+  }
+
+  /**
+   * get rendered text of message
+   *
+   * @return null if not rendered or message is changed
+   */
+  @Nullable
+  public static SpannableString get(IMMessage message, float scale, int color) {
+    String uuid = getUuid(message);
+    if (uuid == null) {
+      return null;
+    }
+    Entry entry = renderCache.get(uuid);
+    if (entry != null && TextUtils.equals(entry.renderKey, renderKey(message, scale, color))) {
+      return entry.text;
+    }
+    return null;
+  }
+
+  public static void put(IMMessage message, float scale, int color, SpannableString text) {
+    String uuid = getUuid(message);
+    if (uuid == null || text == null) {
+      return;
+    }
+    renderCache.put(uuid, new Entry(renderKey(message, scale, color), text));
+  }
+
+  /** remove rendered text, call when message is revoked, deleted or edited */
+  public static void remove(String uuid) {
+    if (!TextUtils.isEmpty(uuid)) {
+      renderCache.remove(uuid);
+    }
+  }
+
+  public static void clear() {
+    renderCache.evictAll();
+  }
+
+  /** render text messages in background, with default scale and color */
+  public static void prefetch(@NonNull Context context, Collection<IMMessage> messages) {
+    if (messages == null || messages.isEmpty() || EmojiManager.getPattern() == null) {
+      return;
+    }
+    List<IMMessage> textList = new ArrayList<>();
+    for (IMMessage message : messages) {
+      if (message != null
+          && message.getMsgType() == MsgTypeEnum.text
+          && !TextUtils.isEmpty(message.getContent())) {
+        textList.add(message);
+      }
+    }
+    if (textList.isEmpty()) {
+      return;
+    }
+    Context appContext = context.getApplicationContext();
+    renderExecutor.execute(
+        () -> {
+          for (IMMessage message : textList) {
+            MessageHelper.getMessageSpannable(appContext, message);
+          }
+        });
+  }
+
+  private static String renderKey(IMMessage message, float scale, int color) {
+    String content = message.getContent();
+    Object aitData = null;
+    Map<String, Object> remoteExt = message.getRemoteExtension();
+    if (remoteExt != null) {
+      aitData = remoteExt.get(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
+    }
+    return (content == null ? 0 : content.hashCode())
+        + "|"
+        + (content == null ? 0 : content.length())
+        + "|"
+        + (aitData == null ? 0 : aitData.hashCode())
+        + "|"
+        + Float.floatToIntBits(scale)
+        + "|"
+        + color;
+  }
+
+  @Nullable
+  private static String getUuid(IMMessage message) {
+    if (message == null || TextUtils.isEmpty(message.getUuid())) {
+      return null;
+    }
+    return message.getUuid();
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * aggregate progress updates of attachments
+ *
+ * <p>only the latest progress of each key is kept, and all pending progress is dispatched in one
+ * batch at most once per frame. So concurrent uploads or downloads refresh the message list once a
+ * frame instead of once for every progress callback.
+ *
+ * @param <T> progress type
+ */
+public class ProgressAggregator<T> {
+
+  /** receive a batch of progress, in main thread by default, the list is owned by the listener */
+  public interface BatchListener<T> {
+    void onBatch(@NonNull List<T> progressList);
+  }
+
+  /** schedule a dispatch, default is next frame of main thread */
+  public interface FrameScheduler {
+    void schedule(Runnable runnable);
+  }
+
+  /** get key of progress, the latest progress of the same key replaces the older one */
+  public interface KeyProvider<T> {
+    String getKey(T progress);
+  }
+
+  private final Object lock = new Object();
+  private final KeyProvider<T> keyProvider;
+  private final FrameScheduler scheduler;
+  private final BatchListener<T> listener;
+  private final Runnable dispatchRunnable = this::dispatch;
+
+  private LinkedHashMap<String, T> pending = new LinkedHashMap<>();
+  private LinkedHashMap<String, T> spare = new LinkedHashMap<>();
+  private boolean scheduled = false;
+  private boolean released = false;
+
+  private long offerCount = 0;
+  private long dispatchCount = 0;
+
+  public ProgressAggregator(KeyProvider<T> keyProvider, BatchListener<T> listener) {
+    this(keyProvider, new ChoreographerScheduler(), listener);
+  }
+
+  public ProgressAggregator(
+      KeyProvider<T> keyProvider, FrameScheduler scheduler, BatchListener<T> listener) {
+    this.keyProvider = keyProvider;
+    this.scheduler = scheduler;
+    this.listener = listener;
+  }
+
+  /** add progress, can be called in any thread */
+  public void offer(T progress) {
+    if (progress == null) {
+      return;
+    }
+    boolean needSchedule;
+    synchronized (lock) {
+      if (released) {
+        return;
+      }
+      offerCount++;
+      pending.put(keyProvider.getKey(progress), progress);
+      needSchedule = !scheduled;
+      scheduled = true;
+    }
+    if (needSchedule) {
+      scheduler.schedule(dispatchRunnable);
+    }
+  }
+
+  /** drop pending progress and stop dispatching */
+  public void release() {
+    synchronized (lock) {
+      released = true;
+      pending.clear();
+    }
+  }
+
+  /** progress count offered */
+  public long getOfferCount() {
+    synchronized (lock) {
+      return offerCount;
+    }
+  }
+
+  /** batch count dispatched to listener */
+  public long getDispatchCount() {
+    synchronized (lock) {
+      return dispatchCount;
+    }
+  }
+
+  // swap pending map, so producers are not blocked while dispatching
+  private void dispatch() {
+    LinkedHashMap<String, T> current;
+    synchronized (lock) {
+      scheduled = false;
+      if (released || pending.isEmpty()) {
+        return;
+      }
+      current = pending;
+      pending = spare;
+      spare = current;
+      dispatchCount++;
+    }
+    // a new list for each batch, listener may keep it, e.g. as LiveData value
+    List<T> batch = new ArrayList<>(current.values());
+    current.clear();
+    listener.onBatch(batch);
+  }
+
+  /** dispatch in next frame of main thread */
+  public static class ChoreographerScheduler implements FrameScheduler {
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void schedule(Runnable runnable) {
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> runnable.run());
+      } else {
+        mainHandler.post(
+            () -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> runnable.run()));
+      }
+    }
+  }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * collect messages shown on screen and send read receipts in windows
+ *
+ * <p>P2P: a receipt of the newest message covers all older ones, so only the newest message in a
+ * window is sent. team: each message needs its own receipt, messages in a window are sent in
+ * batches of batch size, and messages already acked are skipped.
+ *
+ * <p>all methods are in main thread.
+ */
+public class ReceiptScheduler {
+
+  /** messages acked are remembered for de-duplication, oldest are dropped when full */
+  private static final int ACKED_MAX_SIZE = 1000;
+
+  public interface Sender {
+    /** send receipts, P2P has only one message */
+    void send(List<IMMessage> messages);
+  }
+
+  public interface Scheduler {
+    void postDelayed(Runnable runnable, long delay);
+
+    void remove(Runnable runnable);
+  }
+
+  private final boolean newestOnly;
+  private final long window;
+  private final int batchSize;
+  private final Scheduler scheduler;
+  private final Sender sender;
+  private final Runnable flushRunnable = this::flush;
+
+  // P2P
+  private IMMessage newest;
+  private long sentTime = 0;
+
+  // team, uuid -> message
+  private final LinkedHashMap<String, IMMessage> pending = new LinkedHashMap<>();
+  private final LinkedHashMap<String, Boolean> acked =
+      new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+          return size() > ACKED_MAX_SIZE;
+        }
+      };
+
+  private boolean scheduled = false;
+  private long sentCount = 0;
+  private long suppressedCount = 0;
+
+  /** P2P scheduler, only the newest message in a window is sent */
+  public static ReceiptScheduler newestOnly(long window, Sender sender) {
+    return new ReceiptScheduler(true, window, 1, new HandlerScheduler(), sender);
+  }
+
+  /** team scheduler, messages are sent in batches */
+  public static ReceiptScheduler batched(long window, int batchSize, Sender sender) {
+    return new ReceiptScheduler(false, window, batchSize, new HandlerScheduler(), sender);
+  }
+
+  public ReceiptScheduler(
+      boolean newestOnly, long window, int batchSize, Scheduler scheduler, Sender sender) {
+    this.newestOnly = newestOnly;
+    this.window = window;
+    this.batchSize = Math.max(batchSize, 1);
+    this.scheduler = scheduler;
+    this.sender = sender;
+  }
+
+  /** message shown, receipt is sent in next window */
+  public void offer(IMMessage message) {
+    if (message == null) {
+      return;
+    }
+    if (newestOnly) {
+      if (message.getTime() <= sentTime
+          || (newest != null && message.getTime() <= newest.getTime())) {
+        suppressedCount++;
+        return;
+      }
+      if (newest != null) {
+        suppressedCount++;
+      }
+      newest = message;
+    } else {
+      String uuid = message.getUuid();
+      if (acked.containsKey(uuid) || pending.containsKey(uuid)) {
+        suppressedCount++;
+        return;
+      }
+      pending.put(uuid, message);
+    }
+    schedule();
+  }
+
+  /** send all pending receipts now */
+  public void flushAll() {
+    cancel();
+    while (hasPending()) {
+      sendPending();
+    }
+  }
+
+  /** send pending receipts and stop */
+  public void release() {
+    flushAll();
+  }
+
+  /** receipts sent */
+  public long getSentCount() {
+    return sentCount;
+  }
+
+  /** receipts not sent because they were covered by a newer one or already acked */
+  public long getSuppressedCount() {
+    return suppressedCount;
+  }
+
+  private void flush() {
+    scheduled = false;
+    sendPending();
+    if (hasPending()) {
+      schedule();
+    }
+  }
+
+  private boolean hasPending() {
+    return newestOnly ? newest != null : !pending.isEmpty();
+  }
+
+  private void sendPending() {
+    List<IMMessage> batch = new ArrayList<>();
+    if (newestOnly) {
+      if (newest == null) {
+        return;
+      }
+      sentTime = newest.getTime();
+      batch.add(newest);
+      newest = null;
+    } else {
+      Iterator<Map.Entry<String, IMMessage>> iterator = pending.entrySet().iterator();
+      while (iterator.hasNext() && batch.size() < batchSize) {
+        Map.Entry<String, IMMessage> entry = iterator.next();
+        iterator.remove();
+        acked.put(entry.getKey(), Boolean.TRUE);
+        batch.add(entry.getValue());
+      }
+    }
+    if (!batch.isEmpty()) {
+      sentCount += batch.size();
+      sender.send(batch);
+    }
+  }
+
+  private void schedule() {
+    if (!scheduled) {
+      scheduled = true;
+      scheduler.postDelayed(flushRunnable, window);
+    }
+  }
+
+  private void cancel() {
+    if (scheduled) {
+      scheduled = false;
+      scheduler.remove(flushRunnable);
+    }
+  }
+
+  /** run in main thread */
+  public static class HandlerScheduler implements Scheduler {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void postDelayed(Runnable runnable, long delay) {
+      handler.postDelayed(runnable, delay);
+    }
+
+    @Override
+    public void remove(Runnable runnable) {
+      handler.removeCallbacks(runnable);
+    }
+  }
+}
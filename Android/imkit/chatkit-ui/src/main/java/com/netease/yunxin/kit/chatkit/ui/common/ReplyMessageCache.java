@@ -0,0 +1,226 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
+import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * cache of replied messages, used to show reply quote in message list
+ *
+ * <p>uuid of replied messages are collected when a page is loaded and queried in one batch. A
+ * replied message which is not found is cached as null. View shows a placeholder when a message
+ * is not cached and is bound again when {@link ReplyCacheListener} is notified.
+ *
+ * <p>uuid of a failed query is recorded and not queried again in {@link #FAILED_RETRY_INTERVAL},
+ * listeners are notified too so view can hide the quote.
+ */
+public class ReplyMessageCache {
+
+  private static final String TAG = "ReplyMessageCache";
+
+  private static final int CACHE_MAX_SIZE = 500;
+
+  // max uuid count of one query
+  private static final int BATCH_MAX_SIZE = 100;
+
+  // a failed uuid is not queried again in this interval
+  private static final long FAILED_RETRY_INTERVAL = 30 * 1000;
+
+  private static final LruCache<String, Entry> replyCache = new LruCache<>(CACHE_MAX_SIZE);
+
+  // uuid -> time of the failed query
+  private static final LruCache<String, Long> failedCache = new LruCache<>(CACHE_MAX_SIZE);
+
+  // uuid in query, to avoid query the same message again
+  private static final Set<String> loadingSet = new HashSet<>();
+
+  private static final Set<String> pendingSet = new LinkedHashSet<>();
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private static final CopyOnWriteArrayList<ReplyCacheListener> listeners =
+      new CopyOnWriteArrayList<>();
+
+  private static boolean scheduled = false;
+
+  private static class Entry {
+    final IMMessageInfo message;
+
+    Entry(IMMessageInfo message) {
+      this.message = message;
+    }
+  }
+
+  /** replied message loaded, or failed to load */
+  public interface ReplyCacheListener {
+    void onReplyLoaded(List<String> uuidList);
+  }
+
+  public static void addListener(ReplyCacheListener listener) {
+    if (listener != null && !listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  public static void removeListener(ReplyCacheListener listener) {
+    listeners.remove(listener);
+  }
+
+  /** whether the message is cached, the cached message may be null if it is not found */
+  public static boolean contains(String uuid) {
+    return !TextUtils.isEmpty(uuid) && replyCache.get(uuid) != null;
+  }
+
+  /** whether the query of the message failed recently, view should not show the quote */
+  public static boolean isFailed(String uuid) {
+    if (TextUtils.isEmpty(uuid)) {
+      return false;
+    }
+    Long failedTime = failedCache.get(uuid);
+    if (failedTime == null) {
+      return false;
+    }
+    if (SystemClock.elapsedRealtime() - failedTime > FAILED_RETRY_INTERVAL) {
+      failedCache.remove(uuid);
+      return false;
+    }
+    return true;
+  }
+
+  @Nullable
+  public static IMMessageInfo get(String uuid) {
+    if (TextUtils.isEmpty(uuid)) {
+      return null;
+    }
+    Entry entry = replyCache.get(uuid);
+    return entry == null ? null : entry.message;
+  }
+
+  public static void put(IMMessageInfo message) {
+    if (message != null && !TextUtils.isEmpty(message.getMessage().getUuid())) {
+      replyCache.put(message.getMessage().getUuid(), new Entry(message));
+      failedCache.remove(message.getMessage().getUuid());
+    }
+  }
+
+  /** remove message, call when it is revoked or deleted */
+  public static void remove(String uuid) {
+    if (!TextUtils.isEmpty(uuid)) {
+      replyCache.remove(uuid);
+    }
+  }
+
+  public static void clear() {
+    replyCache.evictAll();
+    failedCache.evictAll();
+  }
+
+  /** load messages which are not cached, in batch */
+  public static void prefetch(Collection<String> uuidList) {
+    if (uuidList == null || uuidList.isEmpty()) {
+      return;
+    }
+    synchronized (pendingSet) {
+      for (String uuid : uuidList) {
+        if (!TextUtils.isEmpty(uuid)
+            && !contains(uuid)
+            && !isFailed(uuid)
+            && !loadingSet.contains(uuid)) {
+          pendingSet.add(uuid);
+        }
+      }
+      if (pendingSet.isEmpty() || scheduled) {
+        return;
+      }
+      scheduled = true;
+    }
+    // 合并同一帧内的请求
+    mainHandler.post(ReplyMessageCache::loadPending);
+  }
+
+  private static void loadPending() {
+    List<String> batch;
+    synchronized (pendingSet) {
+      scheduled = false;
+      batch = new ArrayList<>(pendingSet);
+      pendingSet.clear();
+      loadingSet.addAll(batch);
+    }
+    for (int start = 0; start < batch.size(); start += BATCH_MAX_SIZE) {
+      query(new ArrayList<>(batch.subList(start, Math.min(batch.size(), start + BATCH_MAX_SIZE))));
+    }
+  }
+
+  private static void query(List<String> uuidList) {
+    ALog.d(LIB_TAG, TAG, "query:" + uuidList.size());
+    ChatRepo.queryMessageListByUuid(
+        uuidList,
+        new FetchCallback<List<IMMessageInfo>>() {
+          @Override
+          public void onSuccess(@Nullable List<IMMessageInfo> param) {
+            Set<String> notFound = new HashSet<>(uuidList);
+            if (param != null) {
+              for (IMMessageInfo messageInfo : param) {
+                put(messageInfo);
+                notFound.remove(messageInfo.getMessage().getUuid());
+              }
+            }
+            for (String uuid : notFound) {
+              replyCache.put(uuid, new Entry(null));
+            }
+            onQueryFinish(uuidList, true);
+          }
+
+          @Override
+          public void onFailed(int code) {
+            ALog.d(LIB_TAG, TAG, "query,onFailed:" + code);
+            onQueryFinish(uuidList, false);
+          }
+
+          @Override
+          public void onException(@Nullable Throwable exception) {
+            ALog.d(LIB_TAG, TAG, "query,onException");
+            onQueryFinish(uuidList, false);
+          }
+        });
+  }
+
+  private static void onQueryFinish(List<String> uuidList, boolean success) {
+    if (!success) {
+      long now = SystemClock.elapsedRealtime();
+      for (String uuid : uuidList) {
+        failedCache.put(uuid, now);
+      }
+    }
+    synchronized (pendingSet) {
+      loadingSet.removeAll(uuidList);
+    }
+    // 失败时也通知，view 不再显示占位
+    mainHandler.post(
+        () -> {
+          for (ReplyCacheListener listener : listeners) {
+            listener.onReplyLoaded(uuidList);
+          }
+        });
+  }
+}
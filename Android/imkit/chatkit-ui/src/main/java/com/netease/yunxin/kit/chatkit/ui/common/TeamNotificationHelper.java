@@ -20,20 +20,51 @@ import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
 import com.netease.yunxin.kit.chatkit.ui.R;
+import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
 import com.netease.yunxin.kit.corekit.im.model.UserInfo;
 import com.netease.yunxin.kit.corekit.im.utils.IMKitUtils;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class TeamNotificationHelper {
 
-  // TODO DB
+  /** text of team notification, rendered again only when names in it are changed */
   public static String getTeamNotificationText(IMMessageInfo message) {
-    return buildNotification(
-        message.getMessage().getSessionId(),
-        message.getFromUser(),
-        (NotificationAttachment) message.getMessage().getAttachment());
+    String uuid = message.getMessage().getUuid();
+    String text = TeamNotificationTextCache.get(uuid);
+    if (text != null) {
+      return text;
+    }
+    long version = TeamNotificationTextCache.getVersion();
+    NotificationAttachment attachment =
+        (NotificationAttachment) message.getMessage().getAttachment();
+    text =
+        buildNotification(message.getMessage().getSessionId(), message.getFromUser(), attachment);
+    TeamNotificationTextCache.put(
+        uuid, getNamedAccounts(message.getMessage().getFromAccount(), attachment), text, version);
+    return text;
+  }
+
+  // accounts may be named in text, targets beyond member limit are not shown
+  private static Set<String> getNamedAccounts(
+      String fromAccount, NotificationAttachment attachment) {
+    Set<String> accounts = new HashSet<>();
+    if (fromAccount != null) {
+      accounts.add(fromAccount);
+    }
+    if (attachment instanceof MemberChangeAttachment) {
+      List<String> targets = ((MemberChangeAttachment) attachment).getTargets();
+      if (targets != null) {
+        int limit = ChatConfigManager.teamNotificationMemberLimit;
+        // one more in case sender is skipped in member list
+        int count = limit > 0 ? Math.min(targets.size(), limit + 1) : targets.size();
+        accounts.addAll(targets.subList(0, count));
+      }
+    }
+    return accounts;
   }
 
   private static String buildNotification(
@@ -100,16 +131,30 @@ public class TeamNotificationHelper {
     return MessageHelper.getTeamMemberDisplayName(tid, userInfo);
   }
 
+  // names of at most member limit accounts, then total count if there are more
   private static String buildMemberListString(String tid, List<String> members, UserInfo fromUser) {
     StringBuilder sb = new StringBuilder();
+    int limit = ChatConfigManager.teamNotificationMemberLimit;
+    int total = 0;
     for (String account : members) {
       if (fromUser != null && TextUtils.equals(account, fromUser.getAccount())) {
         continue;
       }
-      sb.append(getTeamMemberDisplayName(tid, account));
-      sb.append(",");
+      total++;
+      if (limit <= 0 || total <= limit) {
+        sb.append(getTeamMemberDisplayName(tid, account));
+        sb.append(",");
+      }
+    }
+    if (sb.length() > 0) {
+      sb.deleteCharAt(sb.length() - 1);
+    }
+    if (limit > 0 && total > limit) {
+      sb.append(
+          String.format(
+              IMKitClient.getApplicationContext().getString(R.string.chat_team_member_more),
+              total));
     }
-    sb.deleteCharAt(sb.length() - 1);
 
     return sb.toString();
   }
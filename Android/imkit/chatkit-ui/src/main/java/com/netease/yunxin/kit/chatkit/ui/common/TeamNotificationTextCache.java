@@ -0,0 +1,177 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.msg.attachment.NotificationAttachment;
+import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * cache of team notification text, keyed by message uuid
+ *
+ * <p>each text keeps the accounts whose names are in it, and the name version it was rendered in.
+ * When names of accounts change, the version is increased and recorded for these accounts, so only
+ * texts naming them are rendered again. Texts are rendered in background when message list is
+ * loaded, and binding only need to look up the cache.
+ *
+ * <p>methods may be called in any thread.
+ */
+public class TeamNotificationTextCache {
+
+  private static final int CACHE_MAX_SIZE = 500;
+  static final int CHANGED_MAX_SIZE = 2000;
+
+  private static final LruCache<String, Entry> textCache = new LruCache<>(CACHE_MAX_SIZE);
+
+  // account -> name version of last change
+  private static final LruCache<String, Long> changedVersions =
+      new LruCache<String, Long>(CHANGED_MAX_SIZE) {
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Long oldValue, Long newValue) {
+          if (evicted) {
+            evictedVersion = Math.max(evictedVersion, oldValue);
+          }
+        }
+      };
+
+  private static final ExecutorService renderExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "chat-team-notification");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  private static long version = 0;
+  // accounts not in changedVersions may be changed up to this version
+  private static long evictedVersion = 0;
+
+  private static class Entry {
+    final String text;
+    final String[] accounts;
+    final long version;
+
+    Entry(String text, String[] accounts, long version) {
+      this.text = text;
+      this.accounts = accounts;
+      this.version = version;
+    }
+  }
+
+  /** current name version, get it before rendering and put the text with it */
+  public static synchronized long getVersion() {
+    return version;
+  }
+
+  /**
+   * get notification text
+   *
+   * @return null if not rendered or any named account is changed after rendering
+   */
+  @Nullable
+  public static synchronized String get(String uuid) {
+    if (TextUtils.isEmpty(uuid)) {
+      return null;
+    }
+    Entry entry = textCache.get(uuid);
+    return entry != null && isValid(entry) ? entry.text : null;
+  }
+
+  /**
+   * @param accounts accounts whose names are in the text
+   * @param renderVersion name version got before rendering
+   */
+  public static synchronized void put(
+      String uuid, Collection<String> accounts, String text, long renderVersion) {
+    if (TextUtils.isEmpty(uuid) || text == null) {
+      return;
+    }
+    textCache.put(uuid, new Entry(text, accounts.toArray(new String[0]), renderVersion));
+  }
+
+  /** names of accounts changed, texts naming them will be rendered again */
+  public static synchronized void onNameChanged(Collection<String> accounts) {
+    if (accounts == null || accounts.isEmpty()) {
+      return;
+    }
+    version++;
+    for (String account : accounts) {
+      if (account != null) {
+        changedVersions.put(account, version);
+      }
+    }
+  }
+
+  /**
+   * whether text of the message names any of the accounts, rendered or not valid
+   *
+   * <p>only members within the member limit are recorded for a text, members beyond it are
+   * counted in "(N in total)" without names. So name changes of those members intentionally do
+   * not rebind the notification.
+   */
+  public static synchronized boolean isNamed(String uuid, Set<String> accounts) {
+    Entry entry = TextUtils.isEmpty(uuid) ? null : textCache.get(uuid);
+    if (entry == null) {
+      return false;
+    }
+    for (String account : entry.accounts) {
+      if (accounts.contains(account)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static synchronized void clear() {
+    textCache.evictAll();
+    changedVersions.evictAll();
+    version = 0;
+    evictedVersion = 0;
+  }
+
+  /** render notification text of team messages in background */
+  public static void prefetch(Collection<IMMessageInfo> messages) {
+    if (messages == null || messages.isEmpty()) {
+      return;
+    }
+    List<IMMessageInfo> notificationList = new ArrayList<>();
+    for (IMMessageInfo message : messages) {
+      if (message != null
+          && message.getMessage().getSessionType() == SessionTypeEnum.Team
+          && message.getMessage().getAttachment() instanceof NotificationAttachment
+          && get(message.getMessage().getUuid()) == null) {
+        notificationList.add(message);
+      }
+    }
+    if (notificationList.isEmpty()) {
+      return;
+    }
+    renderExecutor.execute(
+        () -> {
+          for (IMMessageInfo message : notificationList) {
+            TeamNotificationHelper.getTeamNotificationText(message);
+          }
+        });
+  }
+
+  private static boolean isValid(Entry entry) {
+    for (String account : entry.accounts) {
+      Long changed = changedVersions.get(account);
+      if ((changed == null ? evictedVersion : changed) > entry.version) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * read receipt state of team messages in one session
+ *
+ * <p>keep ack/unack count of each message with the version it was updated in. messages are
+ * refreshed from server only when the state is unknown, or not all read and not refreshed within
+ * refresh interval. receipt events update the counts and report whether anything changed, so only
+ * changed messages are rebind.
+ *
+ * <p>all methods are in main thread.
+ */
+public class TeamReceiptStore {
+
+  public static final long DEFAULT_REFRESH_INTERVAL = 30 * 1000;
+
+  private static final int MAX_SIZE = 2000;
+
+  private final long refreshInterval;
+
+  private final LinkedHashMap<String, ReceiptState> states =
+      new LinkedHashMap<String, ReceiptState>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReceiptState> eldest) {
+          return size() > MAX_SIZE;
+        }
+      };
+
+  private long version = 0;
+
+  public TeamReceiptStore() {
+    this(DEFAULT_REFRESH_INTERVAL);
+  }
+
+  public TeamReceiptStore(long refreshInterval) {
+    this.refreshInterval = refreshInterval;
+  }
+
+  /** receipt state of one message */
+  public static class ReceiptState {
+    int ackCount = -1;
+    int unAckCount = -1;
+    /** version of last count change */
+    long version;
+    /** time of last refresh request, 0 means never */
+    long refreshTime;
+
+    public int getAckCount() {
+      return ackCount;
+    }
+
+    public int getUnAckCount() {
+      return unAckCount;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    boolean isKnown() {
+      return ackCount >= 0;
+    }
+
+    boolean isAllRead() {
+      return isKnown() && unAckCount == 0;
+    }
+  }
+
+  /**
+   * whether the message should be refreshed from server, and mark it refreshed if so
+   *
+   * @param now current time in milliseconds
+   */
+  public boolean markRefreshIfNeed(String uuid, long now) {
+    if (uuid == null) {
+      return false;
+    }
+    ReceiptState state = states.get(uuid);
+    if (state == null) {
+      state = new ReceiptState();
+      states.put(uuid, state);
+    } else if (state.isAllRead()
+        || (state.refreshTime > 0 && now - state.refreshTime < refreshInterval)) {
+      return false;
+    }
+    state.refreshTime = now;
+    return true;
+  }
+
+  /**
+   * apply a receipt event
+   *
+   * @return true if count changed and the message should be rebind
+   */
+  public boolean apply(String uuid, int ackCount, int unAckCount) {
+    if (uuid == null) {
+      return false;
+    }
+    ReceiptState state = states.get(uuid);
+    if (state == null) {
+      state = new ReceiptState();
+      states.put(uuid, state);
+    }
+    if (state.ackCount == ackCount && state.unAckCount == unAckCount) {
+      return false;
+    }
+    state.ackCount = ackCount;
+    state.unAckCount = unAckCount;
+    state.version = ++version;
+    return true;
+  }
+
+  public ReceiptState get(String uuid) {
+    return states.get(uuid);
+  }
+
+  /** current version, increased on every count change */
+  public long getVersion() {
+    return version;
+  }
+
+  /** refresh times are dropped, e.g. after network reconnected, counts are kept */
+  public void invalidate() {
+    for (ReceiptState state : states.values()) {
+      state.refreshTime = 0;
+    }
+  }
+
+  public void clear() {
+    states.clear();
+  }
+}
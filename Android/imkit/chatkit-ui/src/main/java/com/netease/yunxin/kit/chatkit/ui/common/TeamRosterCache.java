@@ -0,0 +1,327 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.team.model.TeamMember;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.model.UserInfoWithTeam;
+import com.netease.yunxin.kit.corekit.im.IMKitClient;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * team member roster cache, keyed by team id
+ *
+ * <p>opening a team chat does not load the whole member list. Team nicks are read from a compact
+ * file in background for name display, and full members are loaded only when needed, e.g. by the
+ * ait picker. Member updates are applied in place and increase the roster version, the file is
+ * rewritten after a short delay.
+ *
+ * <p>file format: first line "format\tversion", then one "account\tteamNick" line for each member.
+ *
+ * <p>all methods are in main thread.
+ */
+public class TeamRosterCache {
+
+  private static final String TAG = "TeamRosterCache";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final int MAX_TEAM_SIZE = 8;
+  private static final long WRITE_DELAY = 1000;
+  private static final String DIR_NAME = "nim_kit_team_roster";
+
+  private static final LruCache<String, Roster> rosters = new LruCache<>(MAX_TEAM_SIZE);
+
+  private static final ExecutorService diskExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "chat-team-roster");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // team id waiting to be written to disk
+  private static final Set<String> dirtyTeams = new HashSet<>();
+  private static final Runnable writeRunnable = TeamRosterCache::writeDirty;
+
+  // team id in reading from disk
+  private static final Set<String> readingTeams = new HashSet<>();
+
+  private static class Roster {
+    final String tid;
+    long version = 0;
+    // account -> team nick, from disk or members, may be read in name loading thread
+    final Map<String, String> nicks = new ConcurrentHashMap<>();
+    // account -> member, null if members are not loaded
+    LinkedHashMap<String, UserInfoWithTeam> members;
+
+    Roster(String tid) {
+      this.tid = tid;
+    }
+  }
+
+  /** read team nicks from disk in background if roster is not in memory */
+  public static void preload(String tid) {
+    if (TextUtils.isEmpty(tid) || rosters.get(tid) != null || !readingTeams.add(tid)) {
+      return;
+    }
+    File file = getFile(tid);
+    diskExecutor.execute(
+        () -> {
+          Roster diskRoster = read(tid, file);
+          mainHandler.post(
+              () -> {
+                readingTeams.remove(tid);
+                // members loaded while reading are newer
+                if (diskRoster != null && rosters.get(tid) == null) {
+                  rosters.put(tid, diskRoster);
+                }
+              });
+        });
+  }
+
+  /**
+   * team nick of member
+   *
+   * @return null if unknown, empty if member has no team nick
+   */
+  @Nullable
+  public static String getTeamNick(String tid, String account) {
+    if (TextUtils.isEmpty(tid) || TextUtils.isEmpty(account)) {
+      return null;
+    }
+    Roster roster = rosters.get(tid);
+    return roster == null ? null : roster.nicks.get(account);
+  }
+
+  /**
+   * members of team
+   *
+   * @return null if members are not loaded
+   */
+  @Nullable
+  public static List<UserInfoWithTeam> getMembers(String tid) {
+    Roster roster = TextUtils.isEmpty(tid) ? null : rosters.get(tid);
+    if (roster == null || roster.members == null) {
+      return null;
+    }
+    return new ArrayList<>(roster.members.values());
+  }
+
+  /**
+   * member of team from the loaded member list
+   *
+   * @return null if members are not loaded or account is not in team
+   */
+  @Nullable
+  public static UserInfoWithTeam getMember(String tid, String account) {
+    Roster roster = TextUtils.isEmpty(tid) ? null : rosters.get(tid);
+    if (roster == null || roster.members == null) {
+      return null;
+    }
+    return roster.members.get(account);
+  }
+
+  /** roster version, increased on every change, 0 if unknown */
+  public static long getVersion(String tid) {
+    Roster roster = TextUtils.isEmpty(tid) ? null : rosters.get(tid);
+    return roster == null ? 0 : roster.version;
+  }
+
+  /** replace members with full member list */
+  public static void setMembers(String tid, List<UserInfoWithTeam> memberList) {
+    if (TextUtils.isEmpty(tid) || memberList == null) {
+      return;
+    }
+    Roster roster = getOrCreate(tid);
+    roster.members = new LinkedHashMap<>();
+    roster.nicks.clear();
+    for (UserInfoWithTeam member : memberList) {
+      putMember(roster, member);
+    }
+    roster.version++;
+    markDirty(tid);
+  }
+
+  /**
+   * apply member updates in place, members no longer in team are removed
+   *
+   * @return accounts changed
+   */
+  public static List<String> applyUpdate(List<UserInfoWithTeam> memberList) {
+    List<String> changed = new ArrayList<>();
+    if (memberList == null) {
+      return changed;
+    }
+    for (UserInfoWithTeam member : memberList) {
+      TeamMember teamMember = member.getTeamInfo();
+      if (teamMember == null) {
+        continue;
+      }
+      Roster roster = rosters.get(teamMember.getTid());
+      if (roster == null) {
+        continue;
+      }
+      if (teamMember.isInTeam()) {
+        putMember(roster, member);
+      } else {
+        roster.nicks.remove(teamMember.getAccount());
+        if (roster.members != null) {
+          roster.members.remove(teamMember.getAccount());
+        }
+      }
+      roster.version++;
+      markDirty(roster.tid);
+      changed.add(teamMember.getAccount());
+    }
+    return changed;
+  }
+
+  public static void clear() {
+    rosters.evictAll();
+    dirtyTeams.clear();
+    mainHandler.removeCallbacks(writeRunnable);
+  }
+
+  private static Roster getOrCreate(String tid) {
+    Roster roster = rosters.get(tid);
+    if (roster == null) {
+      roster = new Roster(tid);
+      rosters.put(tid, roster);
+    }
+    return roster;
+  }
+
+  private static void putMember(Roster roster, UserInfoWithTeam member) {
+    TeamMember teamMember = member.getTeamInfo();
+    if (teamMember == null || TextUtils.isEmpty(teamMember.getAccount())) {
+      return;
+    }
+    String nick = teamMember.getTeamNick();
+    roster.nicks.put(teamMember.getAccount(), nick == null ? "" : nick);
+    if (roster.members != null) {
+      roster.members.put(teamMember.getAccount(), member);
+    }
+  }
+
+  private static void markDirty(String tid) {
+    dirtyTeams.add(tid);
+    mainHandler.removeCallbacks(writeRunnable);
+    mainHandler.postDelayed(writeRunnable, WRITE_DELAY);
+  }
+
+  private static void writeDirty() {
+    for (String tid : dirtyTeams) {
+      Roster roster = rosters.get(tid);
+      if (roster == null) {
+        continue;
+      }
+      long version = roster.version;
+      Map<String, String> nicks = new HashMap<>(roster.nicks);
+      File file = getFile(tid);
+      diskExecutor.execute(() -> write(file, version, nicks));
+    }
+    dirtyTeams.clear();
+  }
+
+  private static File getFile(String tid) {
+    return new File(new File(IMKitClient.getApplicationContext().getCacheDir(), DIR_NAME), tid);
+  }
+
+  @Nullable
+  private static Roster read(String tid, File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String[] header = splitLine(reader.readLine());
+      if (header == null || Integer.parseInt(header[0]) != FORMAT_VERSION) {
+        return null;
+      }
+      Roster roster = new Roster(tid);
+      roster.version = Long.parseLong(header[1]);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] item = splitLine(line);
+        if (item != null) {
+          roster.nicks.put(item[0], item[1]);
+        }
+      }
+      ALog.d(LIB_TAG, TAG, "read:" + tid + ",size:" + roster.nicks.size());
+      return roster;
+    } catch (Exception e) {
+      ALog.e(LIB_TAG, TAG, "read error:" + tid + "," + e);
+      return null;
+    }
+  }
+
+  private static void write(File file, long version, Map<String, String> nicks) {
+    File dir = file.getParentFile();
+    if (dir == null || (!dir.exists() && !dir.mkdirs())) {
+      return;
+    }
+    File tmp = new File(dir, file.getName() + ".tmp");
+    try (BufferedWriter writer =
+        new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+      writer.write(FORMAT_VERSION + "\t" + version);
+      writer.newLine();
+      for (Map.Entry<String, String> entry : nicks.entrySet()) {
+        writer.write(entry.getKey() + "\t" + escape(entry.getValue()));
+        writer.newLine();
+      }
+    } catch (Exception e) {
+      ALog.e(LIB_TAG, TAG, "write error:" + file.getName() + "," + e);
+      return;
+    }
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+    }
+  }
+
+  @Nullable
+  private static String[] splitLine(String line) {
+    if (line == null) {
+      return null;
+    }
+    int index = line.indexOf('\t');
+    if (index <= 0) {
+      return null;
+    }
+    return new String[] {line.substring(0, index), line.substring(index + 1)};
+  }
+
+  // nick is one line and has no tab
+  private static String escape(String nick) {
+    return nick.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
+}
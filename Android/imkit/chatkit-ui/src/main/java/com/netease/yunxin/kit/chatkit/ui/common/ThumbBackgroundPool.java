@@ -0,0 +1,70 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import androidx.core.content.ContextCompat;
+import com.netease.yunxin.kit.chatkit.ui.R;
+import com.netease.yunxin.kit.common.ui.widgets.ShapeDrawable;
+import java.util.Arrays;
+
+/**
+ * shared background of image/video thumb
+ *
+ * <p>backgrounds only differ in corners and whether filled, drawables with the same key are
+ * created from one shared constant state instead of being built on every bind.
+ */
+public class ThumbBackgroundPool {
+
+  private static final int POOL_MAX_SIZE = 16;
+
+  private static final LruCache<String, Drawable.ConstantState> statePool =
+      new LruCache<>(POOL_MAX_SIZE);
+
+  /** key of background, holders can compare it to skip setting the same background */
+  public static String getKey(float[] corners, boolean solid) {
+    return Arrays.toString(corners) + solid;
+  }
+
+  /**
+   * get thumb background
+   *
+   * @param corners [leftTop, rightTop, leftBottom, rightBottom]
+   * @param solid fill black when thumb is not loaded
+   */
+  public static Drawable get(Context context, float[] corners, boolean solid) {
+    String key = getKey(corners, solid);
+    Drawable.ConstantState state = statePool.get(key);
+    if (state != null) {
+      return state.newDrawable(context.getResources());
+    }
+    ShapeDrawable.Builder shapeBuilder =
+        new ShapeDrawable.Builder()
+            .setStroke(1, ContextCompat.getColor(context, R.color.color_e2e5e8))
+            .setRadii(
+                new float[] {
+                  corners[0],
+                  corners[0],
+                  corners[1],
+                  corners[1],
+                  corners[2],
+                  corners[2],
+                  corners[3],
+                  corners[3]
+                });
+    if (solid) {
+      shapeBuilder.setSolid(Color.BLACK);
+    }
+    Drawable drawable = shapeBuilder.build();
+    // drawable without constant state can not be shared, build it every time
+    if (drawable.getConstantState() != null) {
+      statePool.put(key, drawable.getConstantState());
+    }
+    return drawable;
+  }
+}
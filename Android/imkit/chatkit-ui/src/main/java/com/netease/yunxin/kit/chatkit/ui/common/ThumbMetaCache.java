@@ -0,0 +1,285 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+
+import android.content.Context;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.msg.attachment.FileAttachment;
+import com.netease.nimlib.sdk.msg.attachment.ImageAttachment;
+import com.netease.nimlib.sdk.msg.attachment.VideoAttachment;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.yunxin.kit.alog.ALog;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * cache of image/video thumb meta, width, height, orientation and duration
+ *
+ * <p>meta is taken from attachment when it has size, which needs no disk io. Otherwise it is read
+ * from database or decoded from local thumb file in background, and {@link ThumbMetaListener} is
+ * notified. So binding image and video messages only look up the cache.
+ */
+public class ThumbMetaCache {
+
+  private static final String TAG = "ThumbMetaCache";
+
+  private static final int CACHE_MAX_SIZE = 1000;
+
+  private static final LruCache<String, Meta> metaCache = new LruCache<>(CACHE_MAX_SIZE);
+
+  private static final ExecutorService resolveExecutor =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "chat-thumb-meta");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+          });
+
+  // uuid in resolving, to avoid resolve the same message again
+  private static final Set<String> resolvingSet = new HashSet<>();
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private static final CopyOnWriteArrayList<ThumbMetaListener> listeners =
+      new CopyOnWriteArrayList<>();
+
+  /** thumb meta, orientation is in degrees */
+  public static class Meta {
+    public final int width;
+    public final int height;
+    public final int orientation;
+    public final long duration;
+
+    public Meta(int width, int height, int orientation, long duration) {
+      this.width = width;
+      this.height = height;
+      this.orientation = orientation;
+      this.duration = duration;
+    }
+
+    /** width after rotated by orientation */
+    public int getDisplayWidth() {
+      return isRotated() ? height : width;
+    }
+
+    /** height after rotated by orientation */
+    public int getDisplayHeight() {
+      return isRotated() ? width : height;
+    }
+
+    private boolean isRotated() {
+      return orientation == 90 || orientation == 270;
+    }
+  }
+
+  /** meta of messages resolved in background */
+  public interface ThumbMetaListener {
+    void onMetaResolved(List<String> uuidList);
+  }
+
+  public static void addListener(ThumbMetaListener listener) {
+    if (listener != null && !listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  public static void removeListener(ThumbMetaListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * get meta of image or video message without disk io
+   *
+   * @return null if meta is not resolved, call {@link #prefetch(Context, Collection)} to resolve
+   */
+  @Nullable
+  public static Meta get(IMMessage message) {
+    if (!isThumbMessage(message)) {
+      return null;
+    }
+    Meta meta = metaCache.get(message.getUuid());
+    if (meta == null) {
+      meta = fromAttachment(message);
+      if (meta != null) {
+        metaCache.put(message.getUuid(), meta);
+      }
+    }
+    return meta;
+  }
+
+  public static void remove(String uuid) {
+    if (!TextUtils.isEmpty(uuid)) {
+      metaCache.remove(uuid);
+    }
+  }
+
+  public static void clear() {
+    metaCache.evictAll();
+  }
+
+  /** resolve meta of image and video messages which are not cached, in background */
+  public static void prefetch(@NonNull Context context, Collection<IMMessage> messages) {
+    if (messages == null || messages.isEmpty()) {
+      return;
+    }
+    // attachment parsing in get() is done before taking the lock
+    List<IMMessage> candidateList = new ArrayList<>();
+    for (IMMessage message : messages) {
+      if (isThumbMessage(message) && get(message) == null) {
+        candidateList.add(message);
+      }
+    }
+    if (candidateList.isEmpty()) {
+      return;
+    }
+    List<IMMessage> missList = new ArrayList<>(candidateList.size());
+    synchronized (resolvingSet) {
+      for (IMMessage message : candidateList) {
+        if (resolvingSet.add(message.getUuid())) {
+          missList.add(message);
+        }
+      }
+    }
+    if (missList.isEmpty()) {
+      return;
+    }
+    Context appContext = context.getApplicationContext();
+    resolveExecutor.execute(() -> resolve(appContext, missList));
+  }
+
+  // run in resolve thread
+  private static void resolve(Context context, List<IMMessage> messages) {
+    List<String> uuidList = new ArrayList<>(messages.size());
+    for (IMMessage message : messages) {
+      uuidList.add(message.getUuid());
+    }
+    ThumbMetaDBHelper dbHelper = ThumbMetaDBHelper.getInstance(context);
+    Map<String, Meta> storedMap = dbHelper.query(uuidList);
+    Map<String, Meta> decodedMap = new HashMap<>();
+    List<String> resolvedList = new ArrayList<>();
+    for (IMMessage message : messages) {
+      String uuid = message.getUuid();
+      Meta meta = storedMap.get(uuid);
+      if (meta == null) {
+        meta = decode(message);
+        if (meta != null) {
+          decodedMap.put(uuid, meta);
+        }
+      }
+      if (meta != null) {
+        metaCache.put(uuid, meta);
+        resolvedList.add(uuid);
+      }
+    }
+    dbHelper.insert(decodedMap);
+    synchronized (resolvingSet) {
+      resolvingSet.removeAll(uuidList);
+    }
+    ALog.d(
+        LIB_TAG,
+        TAG,
+        "resolve:"
+            + messages.size()
+            + ",stored:"
+            + storedMap.size()
+            + ",decoded:"
+            + decodedMap.size());
+    if (!resolvedList.isEmpty()) {
+      mainHandler.post(
+          () -> {
+            for (ThumbMetaListener listener : listeners) {
+              listener.onMetaResolved(resolvedList);
+            }
+          });
+    }
+  }
+
+  @Nullable
+  private static Meta fromAttachment(IMMessage message) {
+    if (message.getAttachment() instanceof ImageAttachment) {
+      ImageAttachment attachment = (ImageAttachment) message.getAttachment();
+      if (attachment.getWidth() > 0 && attachment.getHeight() > 0) {
+        return new Meta(attachment.getWidth(), attachment.getHeight(), 0, 0);
+      }
+    } else if (message.getAttachment() instanceof VideoAttachment) {
+      VideoAttachment attachment = (VideoAttachment) message.getAttachment();
+      if (attachment.getWidth() > 0 && attachment.getHeight() > 0) {
+        return new Meta(attachment.getWidth(), attachment.getHeight(), 0, attachment.getDuration());
+      }
+    }
+    return null;
+  }
+
+  // decode size from local thumb file, and orientation for image
+  @Nullable
+  private static Meta decode(IMMessage message) {
+    FileAttachment attachment = (FileAttachment) message.getAttachment();
+    boolean isImage = attachment instanceof ImageAttachment;
+    String path = attachment.getThumbPath();
+    if (TextUtils.isEmpty(path) && isImage) {
+      path = attachment.getPath();
+    }
+    if (TextUtils.isEmpty(path)) {
+      return null;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(path, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return null;
+    }
+    int orientation = isImage ? readOrientation(path) : 0;
+    long duration =
+        attachment instanceof VideoAttachment ? ((VideoAttachment) attachment).getDuration() : 0;
+    return new Meta(options.outWidth, options.outHeight, orientation, duration);
+  }
+
+  private static int readOrientation(String path) {
+    try {
+      int orientation =
+          new ExifInterface(path)
+              .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+      switch (orientation) {
+        case ExifInterface.ORIENTATION_ROTATE_90:
+        case ExifInterface.ORIENTATION_TRANSPOSE:
+          return 90;
+        case ExifInterface.ORIENTATION_ROTATE_180:
+          return 180;
+        case ExifInterface.ORIENTATION_ROTATE_270:
+        case ExifInterface.ORIENTATION_TRANSVERSE:
+          return 270;
+        default:
+          return 0;
+      }
+    } catch (Exception e) {
+      return 0;
+    }
+  }
+
+  private static boolean isThumbMessage(IMMessage message) {
+    return message != null
+        && !TextUtils.isEmpty(message.getUuid())
+        && (message.getMsgType() == MsgTypeEnum.image || message.getMsgType() == MsgTypeEnum.video)
+        && message.getAttachment() instanceof FileAttachment;
+  }
+}
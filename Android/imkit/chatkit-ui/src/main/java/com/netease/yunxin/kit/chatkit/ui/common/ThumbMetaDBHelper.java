@@ -0,0 +1,201 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * image/video thumb meta database, used by {@link ThumbMetaCache}
+ *
+ * <p>one row for each message uuid. Rows over {@link #MAX_ROW_COUNT} are trimmed by update time.
+ * Methods should be called in background thread.
+ */
+public class ThumbMetaDBHelper extends SQLiteOpenHelper {
+
+  private static final String TAG = "ThumbMetaDBHelper";
+  private static ThumbMetaDBHelper instance = null;
+  public static final String DB_NAME = "nim_kit_thumb_meta.db";
+  public static final String TABLE_NAME = "thumb_meta";
+  public static final String DB_COLUMN_MSG_ID = "msg_uuid";
+  public static final String DB_COLUMN_WIDTH = "width";
+  public static final String DB_COLUMN_HEIGHT = "height";
+  public static final String DB_COLUMN_ORIENTATION = "orientation";
+  public static final String DB_COLUMN_DURATION = "duration";
+  public static final String DB_COLUMN_TIME = "update_time";
+  public static final int VERSION = 1;
+
+  private static final int MAX_ROW_COUNT = 5000;
+
+  // max uuid count of one query, below sqlite variable limit
+  private static final int QUERY_MAX_SIZE = 500;
+
+  private static final String SQL_INSERT =
+      "INSERT OR REPLACE INTO "
+          + TABLE_NAME
+          + "("
+          + DB_COLUMN_MSG_ID
+          + ","
+          + DB_COLUMN_WIDTH
+          + ","
+          + DB_COLUMN_HEIGHT
+          + ","
+          + DB_COLUMN_ORIENTATION
+          + ","
+          + DB_COLUMN_DURATION
+          + ","
+          + DB_COLUMN_TIME
+          + ") VALUES (?,?,?,?,?,?)";
+
+  private static final String SQL_TRIM =
+      "DELETE FROM "
+          + TABLE_NAME
+          + " WHERE "
+          + DB_COLUMN_MSG_ID
+          + " IN (SELECT "
+          + DB_COLUMN_MSG_ID
+          + " FROM "
+          + TABLE_NAME
+          + " ORDER BY "
+          + DB_COLUMN_TIME
+          + " DESC LIMIT -1 OFFSET "
+          + MAX_ROW_COUNT
+          + ")";
+
+  private ThumbMetaDBHelper(Context context) {
+    super(context, DB_NAME, null, VERSION);
+  }
+
+  public static synchronized ThumbMetaDBHelper getInstance(Context context) {
+    if (instance == null) {
+      instance = new ThumbMetaDBHelper(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  @Override
+  public void onCreate(SQLiteDatabase db) {
+    ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "onCreate");
+    db.execSQL(
+        "CREATE TABLE IF NOT EXISTS "
+            + TABLE_NAME
+            + "("
+            + DB_COLUMN_MSG_ID
+            + " TEXT PRIMARY KEY,"
+            + DB_COLUMN_WIDTH
+            + " INTEGER,"
+            + DB_COLUMN_HEIGHT
+            + " INTEGER,"
+            + DB_COLUMN_ORIENTATION
+            + " INTEGER,"
+            + DB_COLUMN_DURATION
+            + " INTEGER,"
+            + DB_COLUMN_TIME
+            + " INTEGER)");
+    db.execSQL(
+        "CREATE INDEX IF NOT EXISTS idx_thumb_time ON " + TABLE_NAME + "(" + DB_COLUMN_TIME + ")");
+  }
+
+  @Override
+  public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    onCreate(db);
+  }
+
+  /** query meta of messages, messages not stored are not in the result */
+  public Map<String, ThumbMetaCache.Meta> query(Collection<String> uuidList) {
+    Map<String, ThumbMetaCache.Meta> result = new HashMap<>();
+    if (uuidList == null || uuidList.isEmpty()) {
+      return result;
+    }
+    List<String> uuidArray = new ArrayList<>(uuidList);
+    try {
+      SQLiteDatabase db = getReadableDatabase();
+      for (int start = 0; start < uuidArray.size(); start += QUERY_MAX_SIZE) {
+        List<String> batch =
+            uuidArray.subList(start, Math.min(uuidArray.size(), start + QUERY_MAX_SIZE));
+        StringBuilder selection = new StringBuilder(DB_COLUMN_MSG_ID).append(" IN (");
+        for (int index = 0; index < batch.size(); index++) {
+          selection.append(index == 0 ? "?" : ",?");
+        }
+        selection.append(")");
+        try (Cursor cursor =
+            db.query(
+                TABLE_NAME,
+                null,
+                selection.toString(),
+                batch.toArray(new String[0]),
+                null,
+                null,
+                null)) {
+          int msgIdIndex = cursor.getColumnIndexOrThrow(DB_COLUMN_MSG_ID);
+          int widthIndex = cursor.getColumnIndexOrThrow(DB_COLUMN_WIDTH);
+          int heightIndex = cursor.getColumnIndexOrThrow(DB_COLUMN_HEIGHT);
+          int orientationIndex = cursor.getColumnIndexOrThrow(DB_COLUMN_ORIENTATION);
+          int durationIndex = cursor.getColumnIndexOrThrow(DB_COLUMN_DURATION);
+          while (cursor.moveToNext()) {
+            result.put(
+                cursor.getString(msgIdIndex),
+                new ThumbMetaCache.Meta(
+                    cursor.getInt(widthIndex),
+                    cursor.getInt(heightIndex),
+                    cursor.getInt(orientationIndex),
+                    cursor.getLong(durationIndex)));
+          }
+        }
+      }
+    } catch (Exception e) {
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "query error:" + e.getMessage());
+    }
+    return result;
+  }
+
+  /** insert or replace meta in one transaction, and trim old rows */
+  public void insert(Map<String, ThumbMetaCache.Meta> metaMap) {
+    if (metaMap == null || metaMap.isEmpty()) {
+      return;
+    }
+    SQLiteDatabase db;
+    try {
+      db = getWritableDatabase();
+    } catch (Exception e) {
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "open error:" + e.getMessage());
+      return;
+    }
+    long time = System.currentTimeMillis();
+    db.beginTransaction();
+    try {
+      SQLiteStatement statement = db.compileStatement(SQL_INSERT);
+      for (Map.Entry<String, ThumbMetaCache.Meta> entry : metaMap.entrySet()) {
+        ThumbMetaCache.Meta meta = entry.getValue();
+        statement.bindString(1, entry.getKey());
+        statement.bindLong(2, meta.width);
+        statement.bindLong(3, meta.height);
+        statement.bindLong(4, meta.orientation);
+        statement.bindLong(5, meta.duration);
+        statement.bindLong(6, time);
+        statement.executeInsert();
+        statement.clearBindings();
+      }
+      statement.close();
+      db.execSQL(SQL_TRIM);
+      db.setTransactionSuccessful();
+    } catch (Exception e) {
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "insert error:" + e.getMessage());
+    } finally {
+      db.endTransaction();
+    }
+  }
+}
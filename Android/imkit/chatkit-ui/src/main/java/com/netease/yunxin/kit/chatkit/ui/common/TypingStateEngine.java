@@ -0,0 +1,269 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * typing state of P2P chat, both local input and remote indicator
+ *
+ * <p>local: "typing" is sent at most once per send window while the user keeps typing, "stopped"
+ * is sent only when input is cleared or has been idle for idle timeout. remote: the indicator is
+ * shown on "typing" and hidden on "stopped", or when no "typing" arrives within expire time.
+ *
+ * <p>all methods and callbacks are in main thread by default, clock and scheduler can be replaced
+ * for test.
+ */
+public class TypingStateEngine {
+
+  public static final String KEY_TYPING = "typing";
+
+  /** pre-serialized payload, same json as before so other clients can still parse it */
+  public static final String PAYLOAD_TYPING = "{\"" + KEY_TYPING + "\":1}";
+
+  public static final String PAYLOAD_STOPPED = "{\"" + KEY_TYPING + "\":0}";
+
+  public static final long DEFAULT_SEND_WINDOW = 3000;
+
+  public static final long DEFAULT_IDLE_TIMEOUT = 3000;
+
+  /** longer than send window, so the indicator keeps showing while the peer keeps typing */
+  public static final long DEFAULT_REMOTE_EXPIRE = 5000;
+
+  public interface Clock {
+    long now();
+  }
+
+  public interface Scheduler {
+    void postDelayed(Runnable runnable, long delay);
+
+    void remove(Runnable runnable);
+  }
+
+  /** send typing state to peer */
+  public interface Sender {
+    void send(boolean isTyping, String payload);
+  }
+
+  /** remote typing state changed */
+  public interface RemoteListener {
+    void onRemoteTypingChanged(boolean isTyping);
+  }
+
+  private final long sendWindow;
+  private final long idleTimeout;
+  private final long remoteExpire;
+  private final Clock clock;
+  private final Scheduler scheduler;
+  private final Sender sender;
+  private final RemoteListener remoteListener;
+
+  private boolean localTyping = false;
+  private long lastSendTime = 0;
+  private long lastInputTime = 0;
+  private boolean idleScheduled = false;
+
+  private boolean remoteTyping = false;
+  private long remoteDeadline = 0;
+  private boolean expireScheduled = false;
+
+  private final Runnable idleRunnable = this::checkIdle;
+  private final Runnable expireRunnable = this::checkExpire;
+
+  public TypingStateEngine(Sender sender, RemoteListener remoteListener) {
+    this(
+        DEFAULT_SEND_WINDOW,
+        DEFAULT_IDLE_TIMEOUT,
+        DEFAULT_REMOTE_EXPIRE,
+        SystemClock::elapsedRealtime,
+        new HandlerScheduler(),
+        sender,
+        remoteListener);
+  }
+
+  public TypingStateEngine(
+      long sendWindow,
+      long idleTimeout,
+      long remoteExpire,
+      Clock clock,
+      Scheduler scheduler,
+      Sender sender,
+      RemoteListener remoteListener) {
+    this.sendWindow = sendWindow;
+    this.idleTimeout = idleTimeout;
+    this.remoteExpire = remoteExpire;
+    this.clock = clock;
+    this.scheduler = scheduler;
+    this.sender = sender;
+    this.remoteListener = remoteListener;
+  }
+
+  /**
+   * local input changed
+   *
+   * @param hasInput input is not empty and focused
+   */
+  public void onLocalInput(boolean hasInput) {
+    long now = clock.now();
+    if (!hasInput) {
+      stopLocal();
+      return;
+    }
+    lastInputTime = now;
+    if (!localTyping || now - lastSendTime >= sendWindow) {
+      localTyping = true;
+      lastSendTime = now;
+      sender.send(true, PAYLOAD_TYPING);
+    }
+    // input time is checked when idle runnable fires, no need to repost on every input
+    if (!idleScheduled) {
+      idleScheduled = true;
+      scheduler.postDelayed(idleRunnable, idleTimeout);
+    }
+  }
+
+  /**
+   * remote typing payload received
+   *
+   * @return false if payload is not typing state
+   */
+  public boolean onRemotePayload(@Nullable String payload) {
+    Boolean isTyping = parsePayload(payload);
+    if (isTyping == null) {
+      return false;
+    }
+    onRemoteState(isTyping);
+    return true;
+  }
+
+  public void onRemoteState(boolean isTyping) {
+    if (isTyping) {
+      remoteDeadline = clock.now() + remoteExpire;
+      if (!expireScheduled) {
+        expireScheduled = true;
+        scheduler.postDelayed(expireRunnable, remoteExpire);
+      }
+    } else {
+      cancelExpire();
+    }
+    setRemoteTyping(isTyping);
+  }
+
+  public boolean isLocalTyping() {
+    return localTyping;
+  }
+
+  public boolean isRemoteTyping() {
+    return remoteTyping;
+  }
+
+  /** stop timers, send "stopped" if "typing" has been sent */
+  public void release() {
+    stopLocal();
+    cancelExpire();
+    remoteTyping = false;
+  }
+
+  /**
+   * parse typing payload, pre-serialized payload is compared directly and json is parsed only for
+   * other formats
+   *
+   * @return null if payload is not typing state
+   */
+  @Nullable
+  public static Boolean parsePayload(@Nullable String payload) {
+    if (TextUtils.isEmpty(payload)) {
+      return null;
+    }
+    if (PAYLOAD_TYPING.equals(payload)) {
+      return true;
+    }
+    if (PAYLOAD_STOPPED.equals(payload)) {
+      return false;
+    }
+    if (!payload.contains(KEY_TYPING)) {
+      return null;
+    }
+    try {
+      return new JSONObject(payload).getInt(KEY_TYPING) == 1;
+    } catch (JSONException e) {
+      return null;
+    }
+  }
+
+  private void stopLocal() {
+    if (idleScheduled) {
+      idleScheduled = false;
+      scheduler.remove(idleRunnable);
+    }
+    if (localTyping) {
+      localTyping = false;
+      sender.send(false, PAYLOAD_STOPPED);
+    }
+  }
+
+  private void checkIdle() {
+    idleScheduled = false;
+    if (!localTyping) {
+      return;
+    }
+    long idle = clock.now() - lastInputTime;
+    if (idle >= idleTimeout) {
+      stopLocal();
+    } else {
+      idleScheduled = true;
+      scheduler.postDelayed(idleRunnable, idleTimeout - idle);
+    }
+  }
+
+  private void checkExpire() {
+    expireScheduled = false;
+    long remain = remoteDeadline - clock.now();
+    if (remain <= 0) {
+      setRemoteTyping(false);
+    } else {
+      expireScheduled = true;
+      scheduler.postDelayed(expireRunnable, remain);
+    }
+  }
+
+  private void cancelExpire() {
+    if (expireScheduled) {
+      expireScheduled = false;
+      scheduler.remove(expireRunnable);
+    }
+  }
+
+  private void setRemoteTyping(boolean isTyping) {
+    if (remoteTyping == isTyping) {
+      return;
+    }
+    remoteTyping = isTyping;
+    if (remoteListener != null) {
+      remoteListener.onRemoteTypingChanged(isTyping);
+    }
+  }
+
+  /** run in main thread */
+  public static class HandlerScheduler implements Scheduler {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void postDelayed(Runnable runnable, long delay) {
+      handler.postDelayed(runnable, delay);
+    }
+
+    @Override
+    public void remove(Runnable runnable) {
+      handler.removeCallbacks(runnable);
+    }
+  }
+}
@@ -8,4 +8,10 @@ public class ChatConfigManager {
   public static boolean showReadStatus = true;
   /** 收到撤销时是否能插入本地消息，默认插入 */
   public static boolean enableInsertLocalMsgWhenRevoke = true;
+  /** 已读回执发送间隔，单聊每个间隔只发送最新一条，群聊每个间隔批量发送，毫秒 */
+  public static long receiptWindow = 1000;
+  /** 群聊每个间隔最多发送的已读回执数 */
+  public static int teamReceiptBatchSize = 20;
+  /** 群通知中最多显示的成员名称数，超出部分显示为总人数，小于等于 0 时全部显示 */
+  public static int teamNotificationMemberLimit = 10;
 }
@@ -32,6 +32,7 @@ import com.netease.yunxin.kit.chatkit.ui.fun.view.MessageBottomLayout;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.page.viewmodel.ChatTeamViewModel;
 import com.netease.yunxin.kit.chatkit.ui.view.ait.AitManager;
+import com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
 import com.netease.yunxin.kit.common.ui.viewmodel.LoadStatus;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
@@ -147,29 +148,14 @@ public class FunChatTeamFragment extends FunChatFragment {
         listFetchResult -> {
           ALog.d(LIB_TAG, TAG, "TeamMessageReceiptLiveData,observer");
           if (listFetchResult == null || listFetchResult.getData() == null) return;
-          List<ChatMessageBean> messageList = new ArrayList<>();
+          List<String> uuidList = new ArrayList<>();
           for (IMTeamMessageReceiptInfo receiptInfo : listFetchResult.getData()) {
-            String msgId = receiptInfo.getTeamMessageReceipt().getMsgId();
-            ChatMessageBean msg = null;
-            for (ChatMessageBean messageBean : messageList) {
-              if (messageBean != null
-                  && messageBean.getMessageData() != null
-                  && TextUtils.equals(messageBean.getMessageData().getMessage().getUuid(), msgId)) {
-                msg = messageBean;
-                break;
-              }
-            }
-            if (msg == null) {
-              msg = chatView.getMessageListView().searchMessage(msgId);
-              if (msg != null) {
-                messageList.add(msg);
-              }
-            }
-          }
-          ALog.d(LIB_TAG, TAG, "TeamMessageReceiptLiveData,observer,msgList:" + messageList.size());
-          for (ChatMessageBean message : messageList) {
-            chatView.getMessageListView().updateMessageStatus(message);
+            uuidList.add(receiptInfo.getTeamMessageReceipt().getMsgId());
           }
+          ALog.d(LIB_TAG, TAG, "TeamMessageReceiptLiveData,observer,msgList:" + uuidList.size());
+          chatView
+              .getMessageListView()
+              .updateMessagePayload(uuidList, ActionConstants.PAYLOAD_STATUS);
         };
     ((ChatTeamViewModel) viewModel)
         .getTeamMessageReceiptLiveData()
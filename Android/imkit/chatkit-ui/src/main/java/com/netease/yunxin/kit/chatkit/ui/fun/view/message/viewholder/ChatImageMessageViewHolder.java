@@ -6,12 +6,10 @@ package com.netease.yunxin.kit.chatkit.ui.fun.view.message.viewholder;
 
 import android.view.View;
 import androidx.annotation.NonNull;
-import com.netease.nimlib.sdk.msg.attachment.ImageAttachment;
 import com.netease.nimlib.sdk.msg.constant.AttachStatusEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
-import com.netease.yunxin.kit.common.utils.ImageUtils;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
 
 public class ChatImageMessageViewHolder extends ChatThumbBaseViewHolder {
@@ -48,22 +46,14 @@ public class ChatImageMessageViewHolder extends ChatThumbBaseViewHolder {
     return path;
   }
 
-  @Override
-  protected int[] getBounds(String path) {
-    int[] bounds = null;
-    if (path != null) {
-      bounds = ImageUtils.getSize(path);
-    }
-    if (bounds == null || bounds[0] == 0) {
-      ImageAttachment attachment = (ImageAttachment) getMsgInternal().getAttachment();
-      bounds = new int[] {attachment.getWidth(), attachment.getHeight()};
-    }
-    return bounds;
-  }
-
   @Override
   protected float[] getCorners() {
     int corner = SizeUtils.dp2px(4);
     return new float[] {corner, corner, corner, corner};
   }
+
+  @Override
+  protected float[] getCorners(ChatMessageBean message) {
+    return getCorners();
+  }
 }
@@ -30,6 +30,11 @@ public class ChatTextMessageViewHolder extends FunChatBaseMessageViewHolder {
             LayoutInflater.from(parent.getContext()), getMessageContainer(), true);
   }
 
+  @Override
+  protected boolean isMessageContentReusable() {
+    return true;
+  }
+
   @Override
   public void bindData(ChatMessageBean message, ChatMessageBean lastMessage) {
     super.bindData(message, lastMessage);
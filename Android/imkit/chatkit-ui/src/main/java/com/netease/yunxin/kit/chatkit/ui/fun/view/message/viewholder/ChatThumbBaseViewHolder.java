@@ -4,31 +4,40 @@
 
 package com.netease.yunxin.kit.chatkit.ui.fun.view.message.viewholder;
 
-import android.graphics.Color;
+import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.widget.FrameLayout;
 import androidx.annotation.NonNull;
-import androidx.core.content.ContextCompat;
+import androidx.annotation.Nullable;
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.request.RequestOptions;
 import com.netease.nimlib.sdk.msg.attachment.FileAttachment;
+import com.netease.nimlib.sdk.msg.attachment.ImageAttachment;
 import com.netease.nimlib.sdk.msg.model.IMMessage;
 import com.netease.yunxin.kit.alog.ALog;
-import com.netease.yunxin.kit.chatkit.ui.R;
+import com.netease.yunxin.kit.chatkit.ui.common.ThumbBackgroundPool;
+import com.netease.yunxin.kit.chatkit.ui.common.ThumbMetaCache;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.databinding.FunChatMessageThumbnailViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.view.media.GranularRoundedCornersWithCenterCrop;
-import com.netease.yunxin.kit.common.ui.widgets.ShapeDrawable;
+import com.netease.yunxin.kit.chatkit.ui.view.message.ChatThumbPreloader;
 import com.netease.yunxin.kit.common.utils.ScreenUtils;
+import java.util.Collections;
 
 /** view holder to show image/video thumb */
-public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHolder {
+public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHolder
+    implements ChatThumbPreloader.ThumbHolder {
   private static final String TAG = "ChatThumbBaseViewHolder";
 
   FunChatMessageThumbnailViewHolderBinding binding;
 
+  // key of current background, to skip setting the same one
+  private String backgroundKey;
+
   public ChatThumbBaseViewHolder(@NonNull ChatBaseMessageViewHolderBinding parent, int viewType) {
     super(parent, viewType);
   }
@@ -44,6 +53,11 @@ public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHold
             LayoutInflater.from(parent.getContext()), getMessageContainer(), true);
   }
 
+  @Override
+  protected boolean isMessageContentReusable() {
+    return true;
+  }
+
   @Override
   public void bindData(ChatMessageBean message, ChatMessageBean lastMessage) {
     super.bindData(message, lastMessage);
@@ -57,6 +71,31 @@ public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHold
     load();
   }
 
+  @Override
+  protected void onThumbUpdate(ChatMessageBean data) {
+    super.onThumbUpdate(data);
+    load();
+  }
+
+  @Override
+  public void preloadThumb(@NonNull ChatMessageBean message) {
+    IMMessage msg = message.getMessageData().getMessage();
+    if (!(msg.getAttachment() instanceof FileAttachment)) {
+      return;
+    }
+    FileAttachment attachment = (FileAttachment) msg.getAttachment();
+    String path = attachment.getThumbPath();
+    if (TextUtils.isEmpty(path) && attachment instanceof ImageAttachment) {
+      path = attachment.getPath();
+    }
+    float[] corners = getCorners(message);
+    if (TextUtils.isEmpty(path) || corners == null) {
+      return;
+    }
+    int[] size = getThumbSize(msg);
+    buildThumbRequest(binding.thumbnail.getContext(), path, corners, size[0], size[1]).preload();
+  }
+
   private void load() {
     FileAttachment attachment = (FileAttachment) getMsgInternal().getAttachment();
     if (attachment == null) {
@@ -76,21 +115,29 @@ public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHold
   }
 
   private void loadThumbnailImage(String path) {
-    int[] bounds = getBounds(path);
+    int[] size = getThumbSize(getMsgInternal());
+    loadThumbnailInternal(path, size[0], size[1]);
+  }
+
+  /** size of thumb view, message which size is not resolved uses a square of min edge */
+  private int[] getThumbSize(IMMessage message) {
+    int[] bounds = getBounds(message);
+    int thumbMinEdge = getImageThumbMinEdge();
+    if (bounds == null || bounds[0] <= 0 || bounds[1] <= 0) {
+      return new int[] {thumbMinEdge, thumbMinEdge};
+    }
     int w = bounds[0];
     int h = bounds[1];
-    int thumbMinEdge = getImageThumbMinEdge();
     if (w < thumbMinEdge) {
       w = thumbMinEdge;
-      h = bounds[0] != 0 ? w * bounds[1] / bounds[0] : 0;
+      h = w * bounds[1] / bounds[0];
     }
     int thumbMaxEdge = getImageThumbMaxEdge();
     if (w > thumbMaxEdge) {
       w = thumbMaxEdge;
       h = w * bounds[1] / bounds[0];
     }
-
-    loadThumbnailInternal(path, w, h);
+    return new int[] {w, h};
   }
 
   private void loadThumbnailInternal(String path, int w, int h) {
@@ -102,39 +149,37 @@ public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHold
 
     // change container's background, stroke the thumbnail
     float[] corners = getCorners();
-    ShapeDrawable.Builder shapeBuilder =
-        new ShapeDrawable.Builder()
-            .setStroke(
-                1, ContextCompat.getColor(getMessageContainer().getContext(), R.color.color_e2e5e8))
-            .setRadii(
-                new float[] {
-                  corners[0],
-                  corners[0],
-                  corners[1],
-                  corners[1],
-                  corners[2],
-                  corners[2],
-                  corners[3],
-                  corners[3]
-                });
-    if (path == null) {
-      shapeBuilder.setSolid(Color.BLACK);
+    String key = ThumbBackgroundPool.getKey(corners, path == null);
+    if (!TextUtils.equals(key, backgroundKey)) {
+      backgroundKey = key;
+      binding
+          .getRoot()
+          .setBackground(
+              ThumbBackgroundPool.get(getMessageContainer().getContext(), corners, path == null));
     }
-    binding.getRoot().setBackground(shapeBuilder.build());
-
-    if (path != null) {
-      Glide.with(binding.thumbnail.getContext())
-          .load(path)
-          .apply(
-              new RequestOptions()
-                  .transform(
-                      new GranularRoundedCornersWithCenterCrop(
-                          corners[0], corners[1], corners[2], corners[3])))
-          .override(w, h)
+
+    if (path == null) {
+      // 复用布局时清除之前加载的缩略图
+      Glide.with(binding.thumbnail.getContext()).clear(binding.thumbnail);
+    } else {
+      buildThumbRequest(binding.thumbnail.getContext(), path, corners, w, h)
           .into(binding.thumbnail);
     }
   }
 
+  // preload and load use the same request, so they have the same cache key
+  private RequestBuilder<Drawable> buildThumbRequest(
+      Context context, String path, float[] corners, int w, int h) {
+    return Glide.with(context)
+        .load(path)
+        .apply(
+            new RequestOptions()
+                .transform(
+                    new GranularRoundedCornersWithCenterCrop(
+                        corners[0], corners[1], corners[2], corners[3])))
+        .override(w, h);
+  }
+
   private int getImageThumbMinEdge() {
     return (int) (111.0 / 375.0 * ScreenUtils.getDisplayWidth());
   }
@@ -145,9 +190,32 @@ public abstract class ChatThumbBaseViewHolder extends FunChatBaseMessageViewHold
 
   protected abstract String thumbFromSourceFile(String path);
 
-  /** @return [width, height] */
-  protected abstract int[] getBounds(String path);
+  /**
+   * size from cached meta, without disk io. Meta not resolved is resolved in background, and
+   * {@link #onThumbUpdate(ChatMessageBean)} is called when it is done.
+   *
+   * @return [width, height], null if not resolved
+   */
+  @Nullable
+  protected int[] getBounds(IMMessage message) {
+    ThumbMetaCache.Meta meta = ThumbMetaCache.get(message);
+    if (meta == null) {
+      ThumbMetaCache.prefetch(parent.getContext(), Collections.singletonList(message));
+      return null;
+    }
+    return new int[] {meta.getDisplayWidth(), meta.getDisplayHeight()};
+  }
 
   /** @return [leftTop, rightTop, leftBottom, rightBottom] */
   protected abstract float[] getCorners();
+
+  /**
+   * corners of message, used to preload thumb of message not bound to this holder
+   *
+   * @return [leftTop, rightTop, leftBottom, rightBottom], null if corners depend on bound message
+   */
+  @Nullable
+  protected float[] getCorners(ChatMessageBean message) {
+    return null;
+  }
 }
@@ -16,7 +16,6 @@ import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.common.ui.utils.ToastX;
-import com.netease.yunxin.kit.common.utils.ImageUtils;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
 import com.netease.yunxin.kit.common.utils.TimeUtils;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
@@ -101,22 +100,14 @@ public class ChatVideoMessageViewHolder extends ChatThumbBaseViewHolder {
     return BitmapDecoder.extractThumbnail(path, thumbPath) ? thumbPath : attachment.getThumbUrl();
   }
 
-  @Override
-  protected int[] getBounds(String path) {
-    int[] bounds = null;
-    if (path != null) {
-      bounds = ImageUtils.getSize(path);
-    }
-    if (bounds == null) {
-      VideoAttachment attachment = (VideoAttachment) getMsgInternal().getAttachment();
-      bounds = new int[] {attachment.getWidth(), attachment.getHeight()};
-    }
-    return bounds;
-  }
-
   @Override
   protected float[] getCorners() {
     float corner = SizeUtils.dp2px(4);
     return new float[] {corner, corner, corner, corner};
   }
+
+  @Override
+  protected float[] getCorners(ChatMessageBean message) {
+    return getCorners();
+  }
 }
@@ -11,11 +11,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import com.netease.nimlib.sdk.msg.model.MsgThreadOption;
 import com.netease.yunxin.kit.alog.ALog;
-import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.ui.ChatMessageType;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
@@ -31,10 +29,8 @@ import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.ReplayU
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.RevokeUIOption;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.SignalUIOption;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
-import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import com.netease.yunxin.kit.corekit.im.utils.RouterConstant;
 import com.netease.yunxin.kit.corekit.route.XKitRouter;
-import java.util.List;
 
 class FunChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
   private static final String TAG = "FunChatBaseMessageViewHolder";
@@ -255,37 +251,24 @@ class FunChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
     baseViewBinding.messageTopGroup.removeAllViews();
     ALog.w(TAG, TAG, "setReplyInfo, uuid=" + messageBean.getMessageData().getMessage().getUuid());
     if (messageBean.hasReply()) {
+      String replyUuid = messageBean.getReplyUUid();
+      if (isReplyLoadFailed(replyUuid)) {
+        removeReplayViewFromBottomGroup();
+        return;
+      }
       //自定义回复实现
       addReplayViewToBottomGroup();
-      String replyUuid = messageBean.getReplyUUid();
       if (!TextUtils.isEmpty(replyUuid)) {
-        MessageHelper.getReplyMessageInfo(
-            replyUuid,
-            new FetchCallback<List<IMMessageInfo>>() {
-              @Override
-              public void onSuccess(@Nullable List<IMMessageInfo> param) {
-                replyMessage = null;
-                if (param != null && param.size() > 0) {
-                  replyMessage = param.get(0);
-                }
-                String content = MessageHelper.getReplyContent(replyMessage);
-                MessageHelper.identifyFaceExpression(
-                    replayBinding.tvReply.getContext(),
-                    replayBinding.tvReply,
-                    content,
-                    ImageSpan.ALIGN_BOTTOM);
-              }
-
-              @Override
-              public void onFailed(int code) {
-                baseViewBinding.messageTopGroup.removeAllViews();
-              }
-
-              @Override
-              public void onException(@Nullable Throwable exception) {
-                baseViewBinding.messageTopGroup.removeAllViews();
-              }
-            });
+        // 回复消息从缓存读取，未缓存时先显示占位，加载后通过 PAYLOAD_REPLY 刷新
+        String content =
+            loadReplyMessage(replyUuid)
+                ? MessageHelper.getReplyContent(replyMessage)
+                : getReplyPlaceholder();
+        MessageHelper.identifyFaceExpression(
+            replayBinding.tvReply.getContext(),
+            replayBinding.tvReply,
+            content,
+            ImageSpan.ALIGN_BOTTOM);
       }
 
       if (itemClickListener != null) {
@@ -311,34 +294,18 @@ class FunChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
       baseViewBinding.messageTopGroup.removeAllViews();
       return;
     }
-    addReplayViewToBottomGroup();
     String replyUuid = threadOption.getReplyMsgIdClient();
-    MessageHelper.getReplyMessageInfo(
-        replyUuid,
-        new FetchCallback<List<IMMessageInfo>>() {
-          @Override
-          public void onSuccess(@Nullable List<IMMessageInfo> param) {
-            if (param != null && param.size() > 0) {
-              replyMessage = param.get(0);
-              String content = MessageHelper.getReplyContent(replyMessage);
-              MessageHelper.identifyFaceExpression(
-                  replayBinding.tvReply.getContext(),
-                  replayBinding.tvReply,
-                  content,
-                  ImageSpan.ALIGN_BOTTOM);
-            }
-          }
-
-          @Override
-          public void onFailed(int code) {
-            replayBinding.tvReply.setVisibility(View.GONE);
-          }
-
-          @Override
-          public void onException(@Nullable Throwable exception) {
-            replayBinding.tvReply.setVisibility(View.GONE);
-          }
-        });
+    if (isReplyLoadFailed(replyUuid)) {
+      removeReplayViewFromBottomGroup();
+      return;
+    }
+    addReplayViewToBottomGroup();
+    String content =
+        loadReplyMessage(replyUuid)
+            ? MessageHelper.getReplyContent(replyMessage)
+            : getReplyPlaceholder();
+    MessageHelper.identifyFaceExpression(
+        replayBinding.tvReply.getContext(), replayBinding.tvReply, content, ImageSpan.ALIGN_BOTTOM);
 
     if (itemClickListener != null) {
       replayBinding.tvReply.setOnClickListener(
@@ -348,12 +315,30 @@ class FunChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
 
   // 添加 normal 下的回复布局
   private void addReplayViewToBottomGroup() {
+    // 已创建过的回复布局直接复用
+    if (replayBinding != null && replayBinding.getRoot().getParent() == null) {
+      replayBinding.tvReply.setVisibility(View.VISIBLE);
+      baseViewBinding.messageBottomGroup.addView(replayBinding.getRoot());
+      return;
+    }
     replayBinding =
         FunChatMessageReplayViewBinding.inflate(
             LayoutInflater.from(parent.getContext()), baseViewBinding.messageBottomGroup, true);
   }
 
+  // 被回复消息查询失败时移除已显示占位的回复布局
+  private void removeReplayViewFromBottomGroup() {
+    if (replayBinding != null && replayBinding.getRoot().getParent() != null) {
+      baseViewBinding.messageBottomGroup.removeView(replayBinding.getRoot());
+    }
+  }
+
   private void addRevokeViewToMessageContainer() {
+    // 已创建过的撤回布局直接复用
+    if (revokedViewBinding != null && revokedViewBinding.getRoot().getParent() == null) {
+      baseViewBinding.messageContainer.addView(revokedViewBinding.getRoot());
+      return;
+    }
     revokedViewBinding =
         FunChatMessageRevokedViewBinding.inflate(
             LayoutInflater.from(parent.getContext()), baseViewBinding.messageContainer, true);
@@ -45,6 +45,16 @@ public interface IChatView {
 
   void updateProgress(AttachmentProgress progress);
 
+  /** update progress of several messages in one pass, default updates them one by one */
+  default void updateProgress(List<AttachmentProgress> progressList) {
+    if (progressList == null) {
+      return;
+    }
+    for (AttachmentProgress progress : progressList) {
+      updateProgress(progress);
+    }
+  }
+
   void setTypeState(boolean isTyping);
 
   void hideCurrentInput();
@@ -8,7 +8,6 @@ import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.text.TextUtils;
 import android.view.ViewTreeObserver;
 import androidx.lifecycle.Observer;
@@ -33,18 +32,12 @@ import com.netease.yunxin.kit.corekit.route.XKitRouter;
 public class ChatP2PFragment extends NormalChatFragment {
   private static final String TAG = "ChatP2PFragment";
 
-  private static final int TYPE_DELAY_TIME = 3000;
-
   public UserInfo userInfo;
 
   public FriendInfo friendInfo;
 
   public IMMessage anchorMessage;
 
-  private final Handler handler = new Handler();
-
-  private final Runnable stopTypingRunnable = () -> chatView.setTypeState(false);
-
   protected Observer<IMMessageReceiptInfo> p2pReceiptObserver;
 
   @Override
@@ -135,13 +128,7 @@ public class ChatP2PFragment extends NormalChatFragment {
         .getTypeStateLiveData()
         .observe(
             getViewLifecycleOwner(),
-            isTyping -> {
-              handler.removeCallbacks(stopTypingRunnable);
-              chatView.setTypeState(isTyping);
-              if (isTyping) {
-                handler.postDelayed(stopTypingRunnable, TYPE_DELAY_TIME);
-              }
-            });
+            isTyping -> chatView.setTypeState(isTyping));
     ((ChatP2PViewModel) viewModel)
         .getFriendInfoLiveData()
         .observe(
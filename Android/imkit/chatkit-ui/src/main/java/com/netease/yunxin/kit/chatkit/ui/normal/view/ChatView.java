@@ -191,6 +191,11 @@ public class ChatView extends LinearLayout implements IChatView {
     binding.messageView.updateAttachmentProgress(progress);
   }
 
+  @Override
+  public void updateProgress(List<AttachmentProgress> progressList) {
+    binding.messageView.updateAttachmentProgress(progressList);
+  }
+
   @Override
   public void hideCurrentInput() {
     binding.inputView.hideCurrentInput();
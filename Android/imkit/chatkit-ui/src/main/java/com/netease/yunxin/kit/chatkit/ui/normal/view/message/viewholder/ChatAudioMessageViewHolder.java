@@ -141,6 +141,7 @@ public class ChatAudioMessageViewHolder extends NormalChatBaseMessageViewHolder
         v -> {
           initPlayAnim();
           audioControl.setEarPhoneModeEnable(SettingRepo.getHandsetMode());
+          audioControl.setPlayNextIfUnread(getBindingAdapter(), message);
           audioControl.startPlayAudioDelay(
               CLICK_TO_PLAY_AUDIO_DELAY, message.getMessageData(), onPlayListener);
         });
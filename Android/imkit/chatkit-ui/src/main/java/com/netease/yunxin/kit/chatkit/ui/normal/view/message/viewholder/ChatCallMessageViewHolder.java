@@ -43,6 +43,11 @@ public class ChatCallMessageViewHolder extends NormalChatBaseMessageViewHolder {
             LayoutInflater.from(parent.getContext()), getMessageContainer(), true);
   }
 
+  @Override
+  protected boolean isMessageContentReusable() {
+    return true;
+  }
+
   @Override
   public void bindData(ChatMessageBean message, ChatMessageBean lastMessage) {
     super.bindData(message, lastMessage);
@@ -6,13 +6,11 @@ package com.netease.yunxin.kit.chatkit.ui.normal.view.message.viewholder;
 
 import android.view.View;
 import androidx.annotation.NonNull;
-import com.netease.nimlib.sdk.msg.attachment.ImageAttachment;
 import com.netease.nimlib.sdk.msg.constant.AttachStatusEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
-import com.netease.yunxin.kit.common.utils.ImageUtils;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
 
 public class ChatImageMessageViewHolder extends ChatThumbBaseViewHolder {
@@ -50,22 +48,14 @@ public class ChatImageMessageViewHolder extends ChatThumbBaseViewHolder {
   }
 
   @Override
-  protected int[] getBounds(String path) {
-    int[] bounds = null;
-    if (path != null) {
-      bounds = ImageUtils.getSize(path);
-    }
-    if (bounds == null || bounds[0] == 0) {
-      ImageAttachment attachment = (ImageAttachment) getMsgInternal().getAttachment();
-      bounds = new int[] {attachment.getWidth(), attachment.getHeight()};
-    }
-    return bounds;
+  protected float[] getCorners() {
+    return getCorners(currentMessage);
   }
 
   @Override
-  protected float[] getCorners() {
+  protected float[] getCorners(ChatMessageBean message) {
     int corner = SizeUtils.dp2px(12);
-    boolean msgIn = MessageHelper.isReceivedMessage(currentMessage);
+    boolean msgIn = MessageHelper.isReceivedMessage(message);
     float radiusTopLeft = msgIn ? 0 : corner;
     float radiusTopRight = msgIn ? corner : 0;
     return new float[] {radiusTopLeft, radiusTopRight, corner, corner};
@@ -31,6 +31,11 @@ public class ChatTextMessageViewHolder extends NormalChatBaseMessageViewHolder {
             LayoutInflater.from(parent.getContext()), getMessageContainer(), true);
   }
 
+  @Override
+  protected boolean isMessageContentReusable() {
+    return true;
+  }
+
   @Override
   public void bindData(ChatMessageBean message, ChatMessageBean lastMessage) {
     super.bindData(message, lastMessage);
@@ -9,11 +9,9 @@ import android.text.style.ImageSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import com.netease.nimlib.sdk.msg.model.MsgThreadOption;
 import com.netease.yunxin.kit.alog.ALog;
-import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.ui.ChatMessageType;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
@@ -27,10 +25,8 @@ import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.Message
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.ReplayUIOption;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.options.RevokeUIOption;
 import com.netease.yunxin.kit.common.utils.SizeUtils;
-import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import com.netease.yunxin.kit.corekit.im.utils.RouterConstant;
 import com.netease.yunxin.kit.corekit.route.XKitRouter;
-import java.util.List;
 
 public class NormalChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
   private static final String TAG = "NormalChatBaseMessageViewHolder";
@@ -202,38 +198,24 @@ public class NormalChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
     baseViewBinding.messageTopGroup.removeAllViews();
     ALog.w(TAG, TAG, "setReplyInfo, uuid=" + messageBean.getMessageData().getMessage().getUuid());
     if (messageBean.hasReply()) {
+      String replyUuid = messageBean.getReplyUUid();
+      if (isReplyLoadFailed(replyUuid)) {
+        return;
+      }
       //自定义回复实现
       addReplayViewToTopGroup();
-      String replyUuid = messageBean.getReplyUUid();
       if (!TextUtils.isEmpty(replyUuid)) {
-        MessageHelper.getReplyMessageInfo(
-            replyUuid,
-            new FetchCallback<List<IMMessageInfo>>() {
-              @Override
-              public void onSuccess(@Nullable List<IMMessageInfo> param) {
-                replyMessage = null;
-                if (param != null && param.size() > 0) {
-                  replyMessage = param.get(0);
-                }
-                String content = "| " + MessageHelper.getReplyContent(replyMessage);
-                MessageHelper.identifyFaceExpression(
-                    replayBinding.tvReply.getContext(),
-                    replayBinding.tvReply,
-                    content,
-                    ImageSpan.ALIGN_BOTTOM);
-                updateReplayInfoLayoutWidth(messageBean);
-              }
-
-              @Override
-              public void onFailed(int code) {
-                baseViewBinding.messageTopGroup.removeAllViews();
-              }
-
-              @Override
-              public void onException(@Nullable Throwable exception) {
-                baseViewBinding.messageTopGroup.removeAllViews();
-              }
-            });
+        // 回复消息从缓存读取，未缓存时先显示占位，加载后通过 PAYLOAD_REPLY 刷新
+        String content =
+            loadReplyMessage(replyUuid)
+                ? "| " + MessageHelper.getReplyContent(replyMessage)
+                : "| " + getReplyPlaceholder();
+        MessageHelper.identifyFaceExpression(
+            replayBinding.tvReply.getContext(),
+            replayBinding.tvReply,
+            content,
+            ImageSpan.ALIGN_BOTTOM);
+        updateReplayInfoLayoutWidth(messageBean);
       }
 
       if (itemClickListener != null) {
@@ -276,36 +258,20 @@ public class NormalChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
       baseViewBinding.messageTopGroup.removeAllViews();
       return;
     }
-    addReplayViewToTopGroup();
-
     String replyUuid = threadOption.getReplyMsgIdClient();
-    MessageHelper.getReplyMessageInfo(
-        replyUuid,
-        new FetchCallback<List<IMMessageInfo>>() {
-          @Override
-          public void onSuccess(@Nullable List<IMMessageInfo> param) {
-            if (param != null && param.size() > 0) {
-              replyMessage = param.get(0);
-              String content = "| " + MessageHelper.getReplyContent(replyMessage);
-              MessageHelper.identifyFaceExpression(
-                  replayBinding.tvReply.getContext(),
-                  replayBinding.tvReply,
-                  content,
-                  ImageSpan.ALIGN_BOTTOM);
-              updateReplayInfoLayoutWidth(messageBean);
-            }
-          }
-
-          @Override
-          public void onFailed(int code) {
-            replayBinding.tvReply.setVisibility(View.GONE);
-          }
+    if (isReplyLoadFailed(replyUuid)) {
+      baseViewBinding.messageTopGroup.removeAllViews();
+      return;
+    }
+    addReplayViewToTopGroup();
 
-          @Override
-          public void onException(@Nullable Throwable exception) {
-            replayBinding.tvReply.setVisibility(View.GONE);
-          }
-        });
+    String content =
+        loadReplyMessage(replyUuid)
+            ? "| " + MessageHelper.getReplyContent(replyMessage)
+            : "| " + getReplyPlaceholder();
+    MessageHelper.identifyFaceExpression(
+        replayBinding.tvReply.getContext(), replayBinding.tvReply, content, ImageSpan.ALIGN_BOTTOM);
+    updateReplayInfoLayoutWidth(messageBean);
 
     if (itemClickListener != null) {
       replayBinding.tvReply.setOnClickListener(
@@ -340,12 +306,23 @@ public class NormalChatBaseMessageViewHolder extends ChatBaseMessageViewHolder {
 
   // 添加 normal 下的回复布局
   private void addReplayViewToTopGroup() {
+    // 已创建过的回复布局直接复用
+    if (replayBinding != null && replayBinding.getRoot().getParent() == null) {
+      replayBinding.tvReply.setVisibility(View.VISIBLE);
+      baseViewBinding.messageTopGroup.addView(replayBinding.getRoot());
+      return;
+    }
     replayBinding =
         NormalChatMessageReplayNormalViewBinding.inflate(
             LayoutInflater.from(parent.getContext()), baseViewBinding.messageTopGroup, true);
   }
 
   private void addRevokeViewToMessageContainer() {
+    // 已创建过的撤回布局直接复用
+    if (revokedViewBinding != null && revokedViewBinding.getRoot().getParent() == null) {
+      baseViewBinding.messageContainer.addView(revokedViewBinding.getRoot());
+      return;
+    }
     revokedViewBinding =
         NormalChatMessageRevokedNormalViewBinding.inflate(
             LayoutInflater.from(parent.getContext()), baseViewBinding.messageContainer, true);
@@ -143,7 +143,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
   private Observer<FetchResult<List<ChatMessageBean>>> messageRecLiveDataObserver;
   private Observer<FetchResult<ChatMessageBean>> sendLiveDataObserver;
   private Observer<FetchResult<ChatMessageBean>> revokeLiveDataObserver;
-  private Observer<FetchResult<AttachmentProgress>> attachLiveDataObserver;
+  private Observer<FetchResult<List<AttachmentProgress>>> attachLiveDataObserver;
   private Observer<FetchResult<List<String>>> userInfoLiveDataObserver;
   private Observer<FetchResult<Map<String, MsgPinOption>>> msgPinLiveDataObserver;
   private Observer<Pair<String, MsgPinOption>> addPinLiveDataObserver;
@@ -1019,8 +1019,8 @@ public abstract class ChatBaseFragment extends BaseFragment {
     viewModel.getSendMessageLiveData().observeForever(sendLiveDataObserver);
 
     //附件下载监听，文件消息、视频消息等下载进度更新
-    attachLiveDataObserver = this::onAttachmentUpdateProgress;
-    viewModel.getAttachmentProgressMutableLiveData().observeForever(attachLiveDataObserver);
+    attachLiveDataObserver = this::onAttachmentUpdateProgressList;
+    viewModel.getAttachmentProgressListLiveData().observeForever(attachLiveDataObserver);
 
     //消息撤回监听，消息撤回（他人消息撤回或本人撤回成功）
     revokeLiveDataObserver = this::onRevokeMessage;
@@ -1147,10 +1147,21 @@ public abstract class ChatBaseFragment extends BaseFragment {
     }
   }
 
+  /**
+   * @deprecated progress is delivered in batch and this method is no longer called, override
+   *     {@link #onAttachmentUpdateProgressList(FetchResult)}
+   */
+  @Deprecated
   protected void onAttachmentUpdateProgress(FetchResult<AttachmentProgress> fetchResult) {
     chatView.updateProgress(fetchResult.getData());
   }
 
+  /** 附件进度更新，每帧最多一次，包含每条消息的最新进度 */
+  protected void onAttachmentUpdateProgressList(
+      FetchResult<List<AttachmentProgress>> fetchResult) {
+    chatView.updateProgress(fetchResult.getData());
+  }
+
   protected void onRevokeMessage(FetchResult<ChatMessageBean> fetchResult) {
     if (fetchResult.getLoadStatus() == LoadStatus.Success) {
       chatView.getMessageListView().revokeMessage(fetchResult.getData());
@@ -1338,7 +1349,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
       return;
     }
     ((ChatTeamViewModel) viewModel)
-        .refreshTeamMessageReceipt(messages.subList(firstVisible, lastVisible));
+        .refreshTeamMessageReceipt(messages.subList(firstVisible, lastVisible), true);
   }
 
   @Override
@@ -1361,7 +1372,7 @@ public abstract class ChatBaseFragment extends BaseFragment {
     viewModel.getRemovePinMessageLiveData().removeObserver(removePinLiveDataObserver);
     viewModel.getSendMessageLiveData().removeObserver(sendLiveDataObserver);
     viewModel.getRevokeMessageLiveData().removeObserver(revokeLiveDataObserver);
-    viewModel.getAttachmentProgressMutableLiveData().removeObserver(attachLiveDataObserver);
+    viewModel.getAttachmentProgressListLiveData().removeObserver(attachLiveDataObserver);
   }
 
   /** for custom layout for ChatView */
@@ -23,6 +23,7 @@ import com.netease.nimlib.sdk.msg.MessageBuilder;
 import com.netease.nimlib.sdk.msg.attachment.FileAttachment;
 import com.netease.nimlib.sdk.msg.attachment.MsgAttachment;
 import com.netease.nimlib.sdk.msg.attachment.NotificationAttachment;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
 import com.netease.nimlib.sdk.msg.constant.NotificationType;
 import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
 import com.netease.nimlib.sdk.msg.model.AttachmentProgress;
@@ -46,9 +47,15 @@ import com.netease.yunxin.kit.chatkit.repo.ContactObserverRepo;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatCallback;
+import com.netease.yunxin.kit.chatkit.ui.common.ChatPinStore;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUtils;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.common.MessageTextRenderCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ProgressAggregator;
+import com.netease.yunxin.kit.chatkit.ui.common.ReplyMessageCache;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamNotificationTextCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ThumbMetaCache;
 import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.chatkit.ui.model.AnchorScrollInfo;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
@@ -76,8 +83,10 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /** chat info view model fetch and send messages for chat page */
 public abstract class ChatBaseViewModel extends BaseViewModel {
@@ -107,6 +116,10 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
       new FetchResult<>(LoadStatus.Finish);
   private final MutableLiveData<FetchResult<AttachmentProgress>> attachmentProgressMutableLiveData =
       new MutableLiveData<>();
+  private final MutableLiveData<FetchResult<List<AttachmentProgress>>>
+      attachmentProgressListLiveData = new MutableLiveData<>();
+  private final FetchResult<List<AttachmentProgress>> attachmentProgressFetchResult =
+      new FetchResult<>(LoadStatus.Finish);
   private final MutableLiveData<FetchResult<ChatMessageBean>> revokeMessageLiveData =
       new MutableLiveData<>();
   private final MutableLiveData<FetchResult<ChatMessageBean>> deleteMessageLiveData =
@@ -166,21 +179,29 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
         }
       };
 
+  // 同一附件只保留最新进度，每帧最多通知一次
+  private final ProgressAggregator<AttachmentProgress> attachmentProgressAggregator =
+      new ProgressAggregator<>(
+          AttachmentProgress::getUuid,
+          progressList -> {
+            attachmentProgressFetchResult.setData(progressList);
+            attachmentProgressFetchResult.setType(FetchResult.FetchType.Update);
+            attachmentProgressFetchResult.setTypeIndex(-1);
+            attachmentProgressListLiveData.setValue(attachmentProgressFetchResult);
+            // 兼容单条进度的监听，没有监听时不创建
+            if (attachmentProgressMutableLiveData.hasObservers()) {
+              for (AttachmentProgress progress : progressList) {
+                FetchResult<AttachmentProgress> result = new FetchResult<>(LoadStatus.Finish);
+                result.setData(progress);
+                result.setType(FetchResult.FetchType.Update);
+                result.setTypeIndex(-1);
+                attachmentProgressMutableLiveData.setValue(result);
+              }
+            }
+          });
+
   private final Observer<AttachmentProgress> attachmentProgressObserver =
-      attachmentProgress -> {
-        ALog.d(
-            LIB_TAG,
-            TAG,
-            "attachment progress update -->> "
-                + attachmentProgress.getTransferred()
-                + "/"
-                + attachmentProgress.getTotal());
-        FetchResult<AttachmentProgress> result = new FetchResult<>(LoadStatus.Finish);
-        result.setData(attachmentProgress);
-        result.setType(FetchResult.FetchType.Update);
-        result.setTypeIndex(-1);
-        attachmentProgressMutableLiveData.setValue(result);
-      };
+      attachmentProgress -> attachmentProgressAggregator.offer(attachmentProgress);
 
   private final EventObserver<IMMessageInfo> deleteMsgObserver =
       new EventObserver<IMMessageInfo>() {
@@ -191,6 +212,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
               TAG,
               "msg delete -->> " + (event == null ? "null" : event.getMessage().getUuid()));
           if (event != null && TextUtils.equals(event.getMessage().getSessionId(), mSessionId)) {
+            MessageTextRenderCache.remove(event.getMessage().getUuid());
+            ReplyMessageCache.remove(event.getMessage().getUuid());
             ChatMessageBean messageBean =
                 new ChatMessageBean(new IMMessageInfo(event.getMessage()));
             FetchResult<ChatMessageBean> result = new FetchResult<>(LoadStatus.Success);
@@ -206,6 +229,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
   private final Observer<RevokeMsgNotification> revokeMsgObserver =
       revokeMsgNotification -> {
         ALog.d(LIB_TAG, TAG, "revokeMsgObserver");
+        MessageTextRenderCache.remove(revokeMsgNotification.getMessage().getUuid());
+        ReplyMessageCache.remove(revokeMsgNotification.getMessage().getUuid());
         ChatMessageBean messageBean =
             new ChatMessageBean(new IMMessageInfo(revokeMsgNotification.getMessage()));
         if (ChatConfigManager.enableInsertLocalMsgWhenRevoke) {
@@ -236,6 +261,16 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
         userInfoLiveData.setValue(userInfoFetchResult);
       };
 
+  // 用户信息后台加载完成后刷新消息列表中的用户信息
+  private final ChatUserCache.UserCacheListener userCacheListener =
+      accountList -> {
+        ALog.d(LIB_TAG, TAG, "userCacheListener:" + accountList.size());
+        userInfoFetchResult.setLoadStatus(LoadStatus.Finish);
+        userInfoFetchResult.setData(accountList);
+        userInfoFetchResult.setType(FetchResult.FetchType.Update);
+        userInfoLiveData.setValue(userInfoFetchResult);
+      };
+
   private final Observer<FriendChangedNotify> friendChangedObserver =
       friendChangedNotify -> {
         if (friendChangedNotify != null) {
@@ -272,6 +307,7 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
         public void onNotify(@NonNull PinEvent event) {
           ALog.d(LIB_TAG, TAG, "removeMsgPin,onSuccess" + event.msgUuid);
           if (event.isRemove) {
+            ChatPinStore.removePin(mSessionId, mSessionType, event.msgUuid);
             removePinMessageLiveData.setValue(event.msgUuid);
           }
         }
@@ -349,6 +385,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
   }
 
   private void doActionAfterDelete(ChatMessageBean messageBean) {
+    MessageTextRenderCache.remove(messageBean.getMessageData().getMessage().getUuid());
+    ReplyMessageCache.remove(messageBean.getMessageData().getMessage().getUuid());
     if (!TextUtils.isEmpty(messageBean.getPinAccid())) {
       ChatRepo.removeMessagePin(messageBean.getMessageData().getMessage(), null);
     }
@@ -370,6 +408,8 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
           new FetchCallback<Void>() {
             @Override
             public void onSuccess(@Nullable Void param) {
+              MessageTextRenderCache.remove(messageBean.getMessageData().getMessage().getUuid());
+              ReplyMessageCache.remove(messageBean.getMessageData().getMessage().getUuid());
               if (!TextUtils.isEmpty(messageBean.getPinAccid())) {
                 ChatRepo.removeMessagePin(messageBean.getMessageData().getMessage(), null);
               }
@@ -420,11 +460,22 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
     return sendMessageLiveData;
   }
 
-  /** message attachment load progress live data */
+  /**
+   * message attachment load progress live data
+   *
+   * @deprecated progress is aggregated, use {@link #getAttachmentProgressListLiveData()}
+   */
+  @Deprecated
   public MutableLiveData<FetchResult<AttachmentProgress>> getAttachmentProgressMutableLiveData() {
     return attachmentProgressMutableLiveData;
   }
 
+  /** message attachment load progress live data, latest progress of each message in one frame */
+  public MutableLiveData<FetchResult<List<AttachmentProgress>>>
+      getAttachmentProgressListLiveData() {
+    return attachmentProgressListLiveData;
+  }
+
   public void init(String sessionId, SessionTypeEnum sessionType) {
     ALog.d(LIB_TAG, TAG, "init sessionId:" + sessionId + " sessionType:" + sessionType);
     this.mSessionId = sessionId;
@@ -473,11 +524,12 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
     ContactObserverRepo.registerFriendInfoUpdateObserver(friendChangedObserver);
     ChatObserverRepo.registerDeleteMsgSelfObserve(deleteMsgObserver);
     EventCenter.registerEventNotify(localPin);
+    ChatUserCache.addListener(userCacheListener);
   }
 
   public void unregisterObservers() {
     ALog.d(LIB_TAG, TAG, "unregisterObservers ");
-    ChatUserCache.clear();
+    ChatUserCache.removeListener(userCacheListener);
     ChatObserverRepo.unregisterReceiveMessageObserve(mSessionId, receiveMessageObserver);
     ChatObserverRepo.unregisterMsgStatusObserve(msgStatusObserver);
     ChatObserverRepo.unregisterAttachmentProgressObserve(attachmentProgressObserver);
@@ -770,16 +822,14 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
                       + param.isChanged()
                       + ",size:"
                       + param.getMsgPinInfoList().size());
-              Map<String, MsgPinOption> pinInfoMap = new HashMap<>();
-              for (MsgPinSyncResponseOption option : param.getMsgPinInfoList()) {
-                pinInfoMap.put(option.getKey().getUuid(), option.getPinOption());
-                ALog.d(LIB_TAG, TAG, "initFetch:fetchPinInfo:onSuccess");
+              // 置顶信息按会话缓存，消息转换时已带上缓存的置顶信息，没有变化时不需要刷新列表
+              if (ChatPinStore.setPinInfo(
+                  mSessionId, mSessionType, param.getMsgPinInfoList())) {
+                msgPinFetchResult.setLoadStatus(LoadStatus.Finish);
+                msgPinFetchResult.setFetchType(FetchResult.FetchType.Update);
+                msgPinFetchResult.setData(ChatPinStore.getPinOptions(mSessionId, mSessionType));
+                msgPinLiveData.setValue(msgPinFetchResult);
               }
-
-              msgPinFetchResult.setLoadStatus(LoadStatus.Finish);
-              msgPinFetchResult.setFetchType(FetchResult.FetchType.Update);
-              msgPinFetchResult.setData(pinInfoMap);
-              msgPinLiveData.setValue(msgPinFetchResult);
             }
           }
 
@@ -897,7 +947,23 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
       return null;
     }
     ArrayList<ChatMessageBean> result = new ArrayList<>(messageList.size());
+    Set<String> accountSet = new HashSet<>();
+    List<IMMessage> textList = new ArrayList<>();
+    List<IMMessage> thumbList = new ArrayList<>();
+    List<IMMessageInfo> notificationList = new ArrayList<>();
+    Map<String, IMMessageInfo> pageMessages = new HashMap<>();
+    Set<String> replySet = new HashSet<>();
     for (IMMessageInfo message : messageList) {
+      accountSet.add(message.getMessage().getFromAccount());
+      pageMessages.put(message.getMessage().getUuid(), message);
+      if (message.getMessage().getMsgType() == MsgTypeEnum.text) {
+        textList.add(message.getMessage());
+      } else if (message.getMessage().getMsgType() == MsgTypeEnum.image
+          || message.getMessage().getMsgType() == MsgTypeEnum.video) {
+        thumbList.add(message.getMessage());
+      } else if (message.getMessage().getMsgType() == MsgTypeEnum.notification) {
+        notificationList.add(message);
+      }
       if (mIsTeamGroup && message.getMessage().getAttachment() instanceof NotificationAttachment) {
         NotificationAttachment attachment =
             (NotificationAttachment) message.getMessage().getAttachment();
@@ -905,8 +971,34 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
           continue;
         }
       }
-      result.add(new ChatMessageBean(message));
+      if (message.getPinOption() == null) {
+        message.setPinOption(
+            ChatPinStore.getPinOption(mSessionId, mSessionType, message.getMessage().getUuid()));
+      }
+      ChatMessageBean messageBean = new ChatMessageBean(message);
+      String replyUuid = MessageHelper.getReplyUuid(messageBean);
+      if (replyUuid != null) {
+        replySet.add(replyUuid);
+      }
+      result.add(messageBean);
     }
+    // 被回复消息在本页内的直接缓存，其余合并为一次批量查询
+    for (String replyUuid : replySet) {
+      IMMessageInfo replied = pageMessages.get(replyUuid);
+      if (replied != null) {
+        ReplyMessageCache.put(replied);
+      }
+    }
+    ReplyMessageCache.prefetch(replySet);
+    // 预加载本页消息发送者信息，避免列表绑定时查询
+    ChatUserCache.prefetch(
+        mSessionType == SessionTypeEnum.Team ? mSessionId : null, accountSet);
+    // 后台预渲染文本消息的表情和@高亮，列表绑定时直接使用
+    MessageTextRenderCache.prefetch(IMKitClient.getApplicationContext(), textList);
+    // 解析本页图片视频尺寸，列表绑定时不读取文件
+    ThumbMetaCache.prefetch(IMKitClient.getApplicationContext(), thumbList);
+    // 后台生成群通知文本，列表绑定时不查询成员名称和群信息
+    TeamNotificationTextCache.prefetch(notificationList);
     return result;
   }
 
@@ -977,6 +1069,7 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
 
   private final Observer<MsgPinSyncResponseOption> msgPinAddObserver =
       msgPinSyncResponseOption -> {
+        ChatPinStore.addPin(msgPinSyncResponseOption, null);
         Pair<String, MsgPinOption> pinInfo =
             new Pair<>(
                 msgPinSyncResponseOption.getKey().getUuid(),
@@ -985,7 +1078,10 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
       };
 
   private final Observer<MsgPinSyncResponseOption> msgPinRemoveObserver =
-      responseOption -> removePinMessageLiveData.setValue(responseOption.getKey().getUuid());
+      responseOption -> {
+        ChatPinStore.removePin(responseOption);
+        removePinMessageLiveData.setValue(responseOption.getKey().getUuid());
+      };
 
   public void addMessagePin(IMMessageInfo messageInfo, String ext) {
     if (messageInfo == null) {
@@ -1023,6 +1119,12 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
                     return System.currentTimeMillis();
                   }
                 };
+            ChatPinStore.addPin(
+                mSessionId,
+                mSessionType,
+                messageInfo.getMessage().getUuid(),
+                pinOption,
+                messageInfo);
             Pair<String, MsgPinOption> pinInfo =
                 new Pair<>(messageInfo.getMessage().getUuid(), pinOption);
             addPinMessageLiveData.setValue(pinInfo);
@@ -1042,6 +1144,7 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
           public void onSuccess(@Nullable Long param) {
             super.onSuccess(param);
             ALog.d(LIB_TAG, TAG, "removeMsgPin,onSuccess" + param);
+            ChatPinStore.removePin(mSessionId, mSessionType, messageInfo.getMessage().getUuid());
             removePinMessageLiveData.setValue(messageInfo.getMessage().getUuid());
           }
         });
@@ -1051,5 +1154,6 @@ public abstract class ChatBaseViewModel extends BaseViewModel {
   protected void onCleared() {
     super.onCleared();
     unregisterObservers();
+    attachmentProgressAggregator.release();
   }
 }
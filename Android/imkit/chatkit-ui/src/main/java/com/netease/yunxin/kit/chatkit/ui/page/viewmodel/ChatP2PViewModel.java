@@ -22,6 +22,9 @@ import com.netease.yunxin.kit.chatkit.repo.ChatObserverRepo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.repo.ContactRepo;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ReceiptScheduler;
+import com.netease.yunxin.kit.chatkit.ui.common.TypingStateEngine;
+import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
 import com.netease.yunxin.kit.common.ui.viewmodel.LoadStatus;
 import com.netease.yunxin.kit.corekit.im.model.EventObserver;
@@ -29,23 +32,29 @@ import com.netease.yunxin.kit.corekit.im.model.FriendInfo;
 import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import java.util.ArrayList;
 import java.util.List;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /** P2P chat info view model message receipt, type state for P2P chat page */
 public class ChatP2PViewModel extends ChatBaseViewModel {
 
   private static final String TAG = "ChatP2PViewModel";
 
-  private static final String TYPE_STATE = "typing";
-
   private long receiptTime = 0L;
 
   private final MutableLiveData<IMMessageReceiptInfo> messageReceiptLiveData =
       new MutableLiveData<>();
 
+  // 已读回执每个间隔只发送最新一条，最新的回执覆盖之前的消息
+  private final ReceiptScheduler receiptScheduler =
+      ReceiptScheduler.newestOnly(
+          ChatConfigManager.receiptWindow,
+          messages -> ChatRepo.markP2PMessageRead(mSessionId, messages.get(0)));
+
   private final MutableLiveData<Boolean> typeStateLiveData = new MutableLiveData<>();
 
+  // 输入状态，限制发送频率，对方输入状态超时自动取消
+  private final TypingStateEngine typingStateEngine =
+      new TypingStateEngine(this::sendTypingPayload, typeStateLiveData::postValue);
+
   //用户信息数据
   private final MutableLiveData<FetchResult<FriendInfo>> friendInfoLiveData =
       new MutableLiveData<>();
@@ -84,17 +93,8 @@ public class ChatP2PViewModel extends ChatBaseViewModel {
             || notification.getSessionType() != SessionTypeEnum.P2P) {
           return;
         }
-        String content = notification.getContent();
-        try {
-          JSONObject json = new JSONObject(content);
-          int id = json.getInt(TYPE_STATE);
-          if (id == 1) {
-            typeStateLiveData.postValue(true);
-          } else {
-            typeStateLiveData.postValue(false);
-          }
-        } catch (JSONException e) {
-          ALog.e(TAG, e.getMessage());
+        if (!typingStateEngine.onRemotePayload(notification.getContent())) {
+          ALog.d(LIB_TAG, TAG, "not typing notification");
         }
       };
 
@@ -145,6 +145,15 @@ public class ChatP2PViewModel extends ChatBaseViewModel {
   @Override
   public void unregisterObservers() {
     super.unregisterObservers();
+    typingStateEngine.release();
+    receiptScheduler.release();
+    ALog.d(
+        LIB_TAG,
+        TAG,
+        "receipt sent:"
+            + receiptScheduler.getSentCount()
+            + ",suppressed:"
+            + receiptScheduler.getSuppressedCount());
     ChatObserverRepo.unregisterMessageReceiptObserve(messageReceiptObserver);
     ChatObserverRepo.unregisterCustomNotificationObserve(customNotificationObserver);
   }
@@ -157,7 +166,7 @@ public class ChatP2PViewModel extends ChatBaseViewModel {
         "sendReceipt:" + (message == null ? "null" : message.getUuid() + message.needMsgAck()));
     if (message != null && message.needMsgAck() && showRead && message.getTime() > receiptTime) {
       receiptTime = message.getTime();
-      ChatRepo.markP2PMessageRead(mSessionId, message);
+      receiptScheduler.offer(message);
     }
   }
 
@@ -185,7 +194,15 @@ public class ChatP2PViewModel extends ChatBaseViewModel {
     }
   }
 
+  /**
+   * local input state changed, "typing" is sent at most once per window and "stopped" is sent when
+   * input is cleared or idle
+   */
   public void sendInputNotification(boolean isTyping) {
+    typingStateEngine.onLocalInput(isTyping);
+  }
+
+  private void sendTypingPayload(boolean isTyping, String payload) {
     ALog.d(LIB_TAG, TAG, "sendInputNotification:" + isTyping);
     CustomNotification command = new CustomNotification();
     command.setSessionId(getSessionId());
@@ -194,15 +211,7 @@ public class ChatP2PViewModel extends ChatBaseViewModel {
     config.enablePush = false;
     config.enableUnreadCount = false;
     command.setConfig(config);
-
-    try {
-      JSONObject json = new JSONObject();
-      json.put(TYPE_STATE, isTyping ? 1 : 0);
-      command.setContent(json.toString());
-    } catch (JSONException e) {
-      ALog.e(TAG, e.getMessage());
-    }
-
+    command.setContent(payload);
     ChatRepo.sendCustomNotification(command);
   }
 }
@@ -20,6 +20,7 @@ import com.netease.yunxin.kit.chatkit.repo.ChatObserverRepo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.chatkit.ui.R;
+import com.netease.yunxin.kit.chatkit.ui.common.ChatPinStore;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.model.PinEvent;
@@ -32,7 +33,6 @@ import com.netease.yunxin.kit.corekit.im.IMKitClient;
 import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import com.netease.yunxin.kit.corekit.im.repo.SettingRepo;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class ChatPinViewModel extends BaseViewModel {
@@ -81,15 +81,24 @@ public class ChatPinViewModel extends BaseViewModel {
   }
 
   public void fetchPinMsg() {
-
+    // pinned messages are kept current by pin events after first load
+    List<ChatMessageBean> cached = ChatPinStore.getMessages(mSessionId, mSessionType);
+    if (cached != null) {
+      ALog.d(LIB_TAG, TAG, "fetchPinMsg from store:" + cached.size());
+      messageFetchResult.setLoadStatus(LoadStatus.Success);
+      messageFetchResult.setData(cached);
+      messageLiveData.setValue(messageFetchResult);
+      return;
+    }
     ChatRepo.fetchPinMessage(
         mSessionId,
         mSessionType,
         new FetchCallback<List<IMMessageInfo>>() {
           @Override
           public void onSuccess(@Nullable List<IMMessageInfo> param) {
+            ChatPinStore.setMessages(mSessionId, mSessionType, param);
             messageFetchResult.setLoadStatus(LoadStatus.Success);
-            messageFetchResult.setData(convert(param));
+            messageFetchResult.setData(ChatPinStore.getMessages(mSessionId, mSessionType));
             messageLiveData.setValue(messageFetchResult);
           }
 
@@ -107,6 +116,7 @@ public class ChatPinViewModel extends BaseViewModel {
         new FetchCallback<Long>() {
           @Override
           public void onSuccess(@Nullable Long param) {
+            ChatPinStore.removePin(mSessionId, mSessionType, messageInfo.getMessage().getUuid());
             removePinResult.setLoadStatus(LoadStatus.Success);
             removePinResult.setData(messageInfo.getMessage().getUuid());
             removePinLiveData.setValue(removePinResult);
@@ -141,23 +151,6 @@ public class ChatPinViewModel extends BaseViewModel {
     ChatRepo.sendMessage(forwardMessage, true, null);
   }
 
-  private List<ChatMessageBean> convert(List<IMMessageInfo> messageList) {
-    if (messageList == null) {
-      return null;
-    }
-    Collections.sort(
-        messageList,
-        (o1, o2) -> {
-          long time = o1.getMessage().getTime() - o2.getMessage().getTime();
-          return time == 0L ? 0 : (time > 0 ? -1 : 1);
-        });
-    ArrayList<ChatMessageBean> result = new ArrayList<>(messageList.size());
-    for (IMMessageInfo message : messageList) {
-      result.add(new ChatMessageBean(message));
-    }
-    return result;
-  }
-
   private final Observer<MsgPinSyncResponseOption> addPinObserver = this::fillPinMessage;
 
   private final Observer<MsgPinSyncResponseOption> removePinObserver =
@@ -171,6 +164,7 @@ public class ChatPinViewModel extends BaseViewModel {
                   + "sessionID:"
                   + mSessionId);
           String uuid = msgPinOption.getKey().getUuid();
+          ChatPinStore.removePin(msgPinOption);
           if (!TextUtils.isEmpty(uuid)) {
             removePinResult.setData(uuid);
             removePinLiveData.setValue(removePinResult);
@@ -187,8 +181,18 @@ public class ChatPinViewModel extends BaseViewModel {
           new FetchCallback<List<IMMessageInfo>>() {
             @Override
             public void onSuccess(@Nullable List<IMMessageInfo> param) {
+              if (param == null || param.isEmpty()) {
+                return;
+              }
+              // inserted in time order, null if already shown
+              ChatMessageBean bean = ChatPinStore.addPin(option, param.get(0));
+              if (bean == null) {
+                return;
+              }
+              List<ChatMessageBean> added = new ArrayList<>(1);
+              added.add(bean);
               addFetchResult.setLoadStatus(LoadStatus.Success);
-              addFetchResult.setData(convert(param));
+              addFetchResult.setData(added);
               addLiveData.setValue(addFetchResult);
             }
 
@@ -201,6 +205,13 @@ public class ChatPinViewModel extends BaseViewModel {
     }
   }
 
+  @Override
+  protected void onCleared() {
+    super.onCleared();
+    ChatObserverRepo.unregisterAddMessagePinObserve(addPinObserver);
+    ChatObserverRepo.unregisterRemoveMessagePinObserve(removePinObserver);
+  }
+
   private boolean inSameSession(MsgPinSyncResponseOption option) {
     if (option == null
         || mSessionType == null
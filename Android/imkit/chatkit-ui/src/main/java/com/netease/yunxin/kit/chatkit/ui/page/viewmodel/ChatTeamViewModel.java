@@ -6,11 +6,13 @@ package com.netease.yunxin.kit.chatkit.ui.page.viewmodel;
 
 import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
 
+import android.os.SystemClock;
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.MutableLiveData;
 import com.netease.nimlib.sdk.Observer;
+import com.netease.nimlib.sdk.msg.constant.MsgDirectionEnum;
 import com.netease.nimlib.sdk.msg.model.IMMessage;
 import com.netease.nimlib.sdk.team.model.Team;
 import com.netease.nimlib.sdk.team.model.TeamMember;
@@ -22,6 +24,10 @@ import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.repo.TeamObserverRepo;
 import com.netease.yunxin.kit.chatkit.repo.TeamRepo;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ReceiptScheduler;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamReceiptStore;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamRosterCache;
+import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.common.ui.viewmodel.FetchResult;
 import com.netease.yunxin.kit.common.ui.viewmodel.LoadStatus;
@@ -31,7 +37,6 @@ import com.netease.yunxin.kit.corekit.im.custom.TeamEvent;
 import com.netease.yunxin.kit.corekit.im.custom.TeamEventAction;
 import com.netease.yunxin.kit.corekit.im.model.EventObserver;
 import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
-import com.netease.yunxin.kit.corekit.model.ErrorMsg;
 import com.netease.yunxin.kit.corekit.model.ResultInfo;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,14 +57,45 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
       new MutableLiveData<>();
   private boolean myDismiss = false;
 
+  // 群消息已读状态，只刷新未知或未全部已读的消息
+  private final TeamReceiptStore receiptStore = new TeamReceiptStore();
+
+  // 已读回执批量发送，已发送的消息不再重复发送
+  private final ReceiptScheduler receiptScheduler =
+      ReceiptScheduler.batched(
+          ChatConfigManager.receiptWindow,
+          ChatConfigManager.teamReceiptBatchSize,
+          messages -> {
+            for (IMMessage message : messages) {
+              ChatRepo.markTeamMessageRead(message);
+            }
+          });
+
   private final EventObserver<List<IMTeamMessageReceiptInfo>> teamMessageReceiptObserver =
       new EventObserver<List<IMTeamMessageReceiptInfo>>() {
         @Override
         public void onEvent(@Nullable List<IMTeamMessageReceiptInfo> event) {
           ALog.d(LIB_TAG, TAG, "messageReceipt:" + (event == null ? "null" : event.size()));
+          if (event == null) {
+            return;
+          }
+          // 只通知已读数变化的消息
+          List<IMTeamMessageReceiptInfo> changed = new ArrayList<>();
+          for (IMTeamMessageReceiptInfo receiptInfo : event) {
+            if (receiptInfo.getTeamMessageReceipt() != null
+                && receiptStore.apply(
+                    receiptInfo.getTeamMessageReceipt().getMsgId(),
+                    receiptInfo.getTeamMessageReceipt().getAckCount(),
+                    receiptInfo.getTeamMessageReceipt().getUnAckCount())) {
+              changed.add(receiptInfo);
+            }
+          }
+          if (changed.isEmpty()) {
+            return;
+          }
           FetchResult<List<IMTeamMessageReceiptInfo>> receiptResult =
               new FetchResult<>(LoadStatus.Finish);
-          receiptResult.setData(event);
+          receiptResult.setData(changed);
           receiptResult.setType(FetchResult.FetchType.Update);
           receiptResult.setTypeIndex(-1);
           teamMessageReceiptLiveData.setValue(receiptResult);
@@ -94,6 +130,7 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
               @Override
               public void onSuccess(@Nullable List<UserInfoWithTeam> param) {
                 ChatUserCache.addUserCache(param);
+                TeamRosterCache.applyUpdate(param);
                 ArrayList<String> accountList = new ArrayList<>();
                 for (TeamMember member : teamMemberList) {
                   accountList.add(member.getAccount());
@@ -153,15 +190,38 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   }
 
   public void refreshTeamMessageReceipt(List<ChatMessageBean> messageBeans) {
+    refreshTeamMessageReceipt(messageBeans, false);
+  }
+
+  /**
+   * refresh read receipt of own messages, messages all read or refreshed recently are skipped
+   *
+   * @param force refresh all messages not all read, e.g. after network reconnected
+   */
+  public void refreshTeamMessageReceipt(List<ChatMessageBean> messageBeans, boolean force) {
+    if (messageBeans == null) {
+      return;
+    }
+    if (force) {
+      receiptStore.invalidate();
+    }
+    long now = SystemClock.elapsedRealtime();
+    List<IMMessage> messages = new ArrayList<>();
+    for (ChatMessageBean messageBean : messageBeans) {
+      IMMessage message = messageBean.getMessageData().getMessage();
+      if (message.getDirect() == MsgDirectionEnum.Out
+          && message.needMsgAck()
+          && receiptStore.markRefreshIfNeed(message.getUuid(), now)) {
+        messages.add(message);
+      }
+    }
     ALog.d(
         LIB_TAG,
         TAG,
-        "refreshTeamMessageReceipt:" + (messageBeans == null ? "null" : messageBeans.size()));
-    List<IMMessage> messages = new ArrayList<>();
-    for (ChatMessageBean messageBean : messageBeans) {
-      messages.add(messageBean.getMessageData().getMessage());
+        "refreshTeamMessageReceipt:" + messageBeans.size() + ",refresh:" + messages.size());
+    if (!messages.isEmpty()) {
+      ChatRepo.refreshTeamMessageReceipt(messages);
     }
-    ChatRepo.refreshTeamMessageReceipt(messages);
   }
 
   /** team info change live data */
@@ -191,6 +251,14 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   @Override
   public void unregisterObservers() {
     super.unregisterObservers();
+    receiptScheduler.release();
+    ALog.d(
+        LIB_TAG,
+        TAG,
+        "receipt sent:"
+            + receiptScheduler.getSentCount()
+            + ",suppressed:"
+            + receiptScheduler.getSuppressedCount());
     ChatObserverRepo.unregisterTeamMessageReceiptObserve(teamMessageReceiptObserver);
     TeamObserverRepo.unregisterTeamUpdateObserver(teamObserver);
     TeamObserverRepo.unregisterTeamRemoveObserver(teamRemoveObserver);
@@ -202,7 +270,7 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
   public void sendReceipt(IMMessage message) {
     ALog.d(LIB_TAG, TAG, "sendReceipt:" + (message == null ? "null" : message.getUuid()));
     if (message != null && message.needMsgAck() && showRead) {
-      ChatRepo.markTeamMessageRead(message);
+      receiptScheduler.offer(message);
     }
   }
 
@@ -230,30 +298,19 @@ public class ChatTeamViewModel extends ChatBaseViewModel {
         });
   }
 
+  /**
+   * prepare team members for chat page, members are not loaded from repo here. Team nicks are read
+   * from roster cache, names of senders are loaded by {@link ChatUserCache} when shown, and full
+   * members are loaded by ait picker when needed. Members in memory are posted to member live data.
+   */
   public void requestTeamMembers(String teamId) {
     ALog.d(LIB_TAG, TAG, "requestTeamMembers:" + teamId);
-    TeamRepo.queryTeamMemberListWithUserInfo(
-        teamId,
-        new FetchCallback<List<UserInfoWithTeam>>() {
-          @Override
-          public void onSuccess(@Nullable List<UserInfoWithTeam> param) {
-            ALog.d(LIB_TAG, TAG, "requestTeamMembers,onSuccess:" + (param == null));
-            ChatUserCache.addUserCache(param);
-            teamMemberData.setValue(new ResultInfo<>(param));
-          }
-
-          @Override
-          public void onFailed(int code) {
-            ALog.d(LIB_TAG, TAG, "requestTeamMembers,onFailed:" + code);
-            teamMemberData.setValue(new ResultInfo<>(null, false, new ErrorMsg(code)));
-          }
-
-          @Override
-          public void onException(@Nullable Throwable exception) {
-            ALog.d(LIB_TAG, TAG, "requestTeamMembers,onException");
-            teamMemberData.setValue(new ResultInfo<>(null, false, new ErrorMsg(-1, "", exception)));
-          }
-        });
+    TeamRosterCache.preload(teamId);
+    List<UserInfoWithTeam> members = TeamRosterCache.getMembers(teamId);
+    if (members != null) {
+      ALog.d(LIB_TAG, TAG, "requestTeamMembers,cached:" + members.size());
+      teamMemberData.setValue(new ResultInfo<>(members));
+    }
   }
 
   public boolean hasLoadMessage() {
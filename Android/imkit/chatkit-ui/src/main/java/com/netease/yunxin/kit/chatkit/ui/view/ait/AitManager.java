@@ -13,6 +13,7 @@ import com.netease.yunxin.kit.chatkit.model.UserInfoWithTeam;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatUserCache;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamRosterCache;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AitBlock;
 import com.netease.yunxin.kit.chatkit.ui.model.ait.AitContactsModel;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
@@ -144,6 +145,10 @@ public class AitManager implements TextWatcher {
 
         AitContactSelectorDialog dialog = new AitContactSelectorDialog(mContext);
         dialog.setUIStyle(uiStyle);
+        List<UserInfoWithTeam> cachedMembers = TeamRosterCache.getMembers(tid);
+        if (teamMemberList.isEmpty() && cachedMembers != null) {
+          setTeamMembers(cachedMembers);
+        }
         dialog.setData(teamMemberList, false);
         dialog.setOnItemSelectListener(
             item -> {
@@ -163,7 +168,8 @@ public class AitManager implements TextWatcher {
               }
             });
         dialog.show();
-        if (fetchNewInfo) {
+        // members are loaded when picker is shown the first time, or refreshed if fetchNewInfo
+        if (fetchNewInfo || TeamRosterCache.getMembers(tid) == null) {
           ChatRepo.queryTeamMemberList(
               tid,
               true,
@@ -171,6 +177,7 @@ public class AitManager implements TextWatcher {
                 @Override
                 public void onSuccess(@Nullable List<UserInfoWithTeam> param) {
                   if (param != null) {
+                    TeamRosterCache.setMembers(tid, param);
                     setTeamMembers(param);
                   }
                   if (dialog.isShowing()) {
@@ -5,12 +5,16 @@
 package com.netease.yunxin.kit.chatkit.ui.view.ait;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import androidx.annotation.Nullable;
 import com.netease.nimlib.sdk.NIMClient;
 import com.netease.nimlib.sdk.Observer;
 import com.netease.nimlib.sdk.StatusCode;
 import com.netease.nimlib.sdk.auth.AuthServiceObserver;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
 import com.netease.nimlib.sdk.msg.model.RevokeMsgNotification;
 import com.netease.nimlib.sdk.util.NIMUtil;
 import com.netease.yunxin.kit.alog.ALog;
@@ -29,24 +33,43 @@ import com.netease.yunxin.kit.corekit.im.model.EventObserver;
 import com.netease.yunxin.kit.corekit.im.utils.CoroutineUtils;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * @ message service
+ *
+ * <p>keeps an index of session to @ message uuid. At login only session id list is loaded, and
+ * message uuid of a session is loaded when it is needed. Database writes go through {@link
+ * AitWriteQueue}, which merges operations and writes them in batch.
+ */
 public class AitService {
 
   private static final String TAG = "AitService";
   private static AitService instance;
-  private Map<String, AitInfo> aitInfoMapCache = new HashMap<>();
-  private CopyOnWriteArrayList<AitInfo> updateList = new CopyOnWriteArrayList<>();
-  private CopyOnWriteArrayList<AitInfo> insertList = new CopyOnWriteArrayList<>();
-  private CopyOnWriteArrayList<AitInfo> deleteList = new CopyOnWriteArrayList<>();
+  // session id -> @ message of session
+  private final Map<String, SessionAit> aitIndex = new ConcurrentHashMap<>();
+  private AitWriteQueue writeQueue;
   private Context mContext;
   private boolean hasRegister;
+  private String loadedAccount;
+
+  // @ message of one session, message uuid is loaded lazily
+  private static class SessionAit {
+    final Set<String> msgUidSet = new LinkedHashSet<>();
+    boolean loaded;
+
+    SessionAit(boolean loaded) {
+      this.loaded = loaded;
+    }
+  }
 
   private AitService() {}
 
-  public static AitService getInstance() {
+  public static synchronized AitService getInstance() {
     if (instance == null) {
       instance = new AitService();
     }
@@ -57,6 +80,7 @@ public class AitService {
     if (NIMUtil.isMainProcess(context)) {
       ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "init");
       mContext = context;
+      writeQueue = new AitWriteQueue(AitDBHelper.getInstance(context));
       NIMClient.getService(AuthServiceObserver.class)
           .observeOnlineStatus(
               (Observer<StatusCode>)
@@ -67,24 +91,23 @@ public class AitService {
                         hasRegister = true;
                       }
                       ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "AuthServiceObserver:LOGINED");
+                      String account = IMKitClient.account();
+                      if (!TextUtils.equals(loadedAccount, account)) {
+                        aitIndex.clear();
+                        loadedAccount = account;
+                      }
                       CoroutineUtils.run(
-                          new CoroutineUtils.CoroutineCallback<List<AitInfo>>() {
+                          new CoroutineUtils.CoroutineCallback<List<String>>() {
                             @Override
-                            public void runMain(List<AitInfo> params) {
-                              if (params != null) {
+                            public void runMain(List<String> params) {
+                              if (params != null && TextUtils.equals(loadedAccount, account)) {
                                 List<AitInfo> aitInfoList = new ArrayList<>();
-                                for (AitInfo aitInfo : params) {
-                                  if (TextUtils.equals(
-                                          aitInfo.getAccountId(), IMKitClient.account())
-                                      || TextUtils.equals(
-                                          AitContactsModel.ACCOUNT_ALL, aitInfo.getAccountId())) {
-                                    if (!aitInfoMapCache.containsKey(aitInfo.getSessionId())) {
-                                      aitInfoMapCache.put(aitInfo.getSessionId(), aitInfo);
-                                      ALog.d(TAG, "init,load,add cache:" + aitInfo.getSessionId());
-                                    }
-                                    aitInfoList.add(aitInfo);
-                                    ALog.d(TAG, "init,load:" + aitInfo.getSessionId());
+                                for (String sessionId : params) {
+                                  if (!aitIndex.containsKey(sessionId)) {
+                                    aitIndex.put(sessionId, new SessionAit(false));
+                                    ALog.d(TAG, "init,load,add cache:" + sessionId);
                                   }
+                                  aitInfoList.add(createAitInfo(sessionId));
                                 }
                                 if (aitInfoList.size() > 0) {
                                   sendAitEvent(aitInfoList, AitEvent.AitEventType.Load);
@@ -93,10 +116,8 @@ public class AitService {
                             }
 
                             @Override
-                            public List<AitInfo> runIO() {
-                              AitDBHelper.getInstance(context).openWrite();
-                              List<AitInfo> result = AitDBHelper.getInstance(context).queryAll();
-                              return result;
+                            public List<String> runIO() {
+                              return AitDBHelper.getInstance(context).querySessionIds(account);
                             }
                           });
                     }
@@ -107,20 +128,25 @@ public class AitService {
 
   public void clearAitInfo(String sessionId) {
     ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "clearAitInfo:" + sessionId);
-    AitInfo aitInfo = aitInfoMapCache.remove(sessionId);
-    if (aitInfo == null) {
-      aitInfo = new AitInfo();
-      aitInfo.setSessionId(sessionId);
+    SessionAit sessionAit = aitIndex.remove(sessionId);
+    AitInfo aitInfo = createAitInfo(sessionId);
+    if (sessionAit != null) {
+      aitInfo.addMsgUid(new ArrayList<>(sessionAit.msgUidSet));
     }
     List<AitInfo> aitInfoList = new ArrayList<>();
     aitInfoList.add(aitInfo);
     sendAitEvent(aitInfoList, AitEvent.AitEventType.Clear);
-    deleteList.add(aitInfo);
-    CoroutineUtils.runIO(deleteCoroutine);
+    if (writeQueue != null) {
+      writeQueue.clearSession(sessionId);
+    }
   }
 
   public void sendLocalAitEvent() {
-    sendAitEvent(new ArrayList<>(aitInfoMapCache.values()), AitEvent.AitEventType.Load);
+    List<AitInfo> aitInfoList = new ArrayList<>();
+    for (String sessionId : aitIndex.keySet()) {
+      aitInfoList.add(createAitInfo(sessionId));
+    }
+    sendAitEvent(aitInfoList, AitEvent.AitEventType.Load);
   }
 
   public void sendAitEvent(List<AitInfo> aitInfoList, AitEvent.AitEventType type) {
@@ -166,19 +192,23 @@ public class AitService {
 
     Map<String, AitInfo> aitInfoMap = new HashMap<>();
     for (IMMessageInfo messageInfo : msgList) {
-      if (TextUtils.equals(messageInfo.getMessage().getSessionId(), ChatRepo.getChattingAccount())
-          || TextUtils.equals(
-              messageInfo.getMessage().getFromAccount(), ChatRepo.getChattingAccount())) {
+      IMMessage message = messageInfo.getMessage();
+      if (TextUtils.equals(message.getSessionId(), ChatRepo.getChattingAccount())
+          || TextUtils.equals(message.getFromAccount(), ChatRepo.getChattingAccount())) {
         continue;
       }
-      AitContactsModel aitModel = MessageHelper.getAitBlock(messageInfo.getMessage());
+      // 先检查扩展字段中是否@了自己，避免对每条消息解析JSON
+      if (!mayAitMe(message)) {
+        continue;
+      }
+      AitContactsModel aitModel = MessageHelper.getAitBlock(message);
       if (aitModel != null) {
         List<String> aitAccount = aitModel.getAitTeamMember();
         for (String account : aitAccount) {
           if (TextUtils.equals(IMKitClient.account(), account)
               || TextUtils.equals(AitContactsModel.ACCOUNT_ALL, account)) {
-            String uuid = messageInfo.getMessage().getUuid();
-            String sessionId = messageInfo.getMessage().getSessionId();
+            String uuid = message.getUuid();
+            String sessionId = message.getSessionId();
             ALog.d(
                 ChatKitUIConstant.LIB_TAG,
                 TAG,
@@ -186,9 +216,7 @@ public class AitService {
 
             AitInfo aitInfo = aitInfoMap.get(sessionId);
             if (aitInfo == null) {
-              aitInfo = new AitInfo();
-              aitInfo.setSessionId(sessionId);
-              aitInfo.setAccountId(IMKitClient.account());
+              aitInfo = createAitInfo(sessionId);
             }
             aitInfo.getMsgUidList().add(uuid);
             aitInfoMap.put(sessionId, aitInfo);
@@ -199,30 +227,41 @@ public class AitService {
     return aitInfoMap;
   }
 
+  private static boolean mayAitMe(IMMessage message) {
+    if (message.getMsgType() != MsgTypeEnum.text) {
+      return false;
+    }
+    Map<String, Object> remoteExt = message.getRemoteExtension();
+    if (remoteExt == null) {
+      return false;
+    }
+    Object aitData = remoteExt.get(ChatKitUIConstant.AIT_REMOTE_EXTENSION_KEY);
+    if (!(aitData instanceof Map)) {
+      return false;
+    }
+    Map<?, ?> aitMap = (Map<?, ?>) aitData;
+    return aitMap.containsKey(IMKitClient.account())
+        || aitMap.containsKey(AitContactsModel.ACCOUNT_ALL);
+  }
+
   public void updateAitInfo(Map<String, AitInfo> aitInfoMap) {
     for (String sessionId : aitInfoMap.keySet()) {
       AitInfo newAitInfo = aitInfoMap.get(sessionId);
       if (newAitInfo == null) {
         continue;
       }
-      if (aitInfoMapCache.containsKey(sessionId)) {
-        AitInfo cacheAitInfo = aitInfoMapCache.get(sessionId);
-        if (cacheAitInfo != null) {
-          cacheAitInfo.addMsgUid(newAitInfo.getMsgUidList());
-          updateList.add(cacheAitInfo);
-          ALog.d(
-              ChatKitUIConstant.LIB_TAG,
-              TAG,
-              "updateAitInfo,updateList" + cacheAitInfo.getSessionId());
-        }
-      } else {
-        insertList.add(newAitInfo);
-        aitInfoMapCache.put(sessionId, newAitInfo);
-        ALog.d(
-            ChatKitUIConstant.LIB_TAG, TAG, "updateAitInfo,insertList" + newAitInfo.getSessionId());
+      SessionAit sessionAit = aitIndex.get(sessionId);
+      if (sessionAit == null) {
+        // 新会话，数据库中没有记录，无需加载
+        sessionAit = new SessionAit(true);
+        aitIndex.put(sessionId, sessionAit);
+      }
+      sessionAit.msgUidSet.addAll(newAitInfo.getMsgUidList());
+      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "updateAitInfo:" + sessionId);
+      if (writeQueue != null) {
+        writeQueue.insert(sessionId, newAitInfo.getAccountId(), newAitInfo.getMsgUidList());
       }
     }
-    CoroutineUtils.runIO(updateCoroutine);
   }
 
   public void removeAitInfo(Map<String, AitInfo> aitInfoMap) {
@@ -232,80 +271,64 @@ public class AitService {
       if (newAitInfo == null) {
         continue;
       }
-      if (aitInfoMapCache.containsKey(sessionId)) {
-        AitInfo cacheAitInfo = aitInfoMapCache.get(sessionId);
-        if (cacheAitInfo != null) {
-          cacheAitInfo.removeMsgUid(newAitInfo.getMsgUidList());
-          ALog.d(
-              ChatKitUIConstant.LIB_TAG,
-              TAG,
-              "removeAitInfo,updateList" + cacheAitInfo.getSessionId());
-          if (!cacheAitInfo.hasMsgUid()) {
-            deleteList.add(cacheAitInfo);
-            notifyDelete.add(cacheAitInfo);
-            aitInfoMapCache.remove(sessionId);
-          } else {
-            updateList.add(cacheAitInfo);
-          }
+      if (writeQueue != null) {
+        writeQueue.delete(sessionId, newAitInfo.getAccountId(), newAitInfo.getMsgUidList());
+      }
+      SessionAit sessionAit = aitIndex.get(sessionId);
+      if (sessionAit == null) {
+        notifyDelete.add(newAitInfo);
+        continue;
+      }
+      sessionAit.msgUidSet.removeAll(newAitInfo.getMsgUidList());
+      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "removeAitInfo:" + sessionId);
+      if (sessionAit.loaded) {
+        if (sessionAit.msgUidSet.isEmpty()) {
+          aitIndex.remove(sessionId);
+          notifyDelete.add(newAitInfo);
         }
       } else {
-        deleteList.add(newAitInfo);
-        notifyDelete.add(newAitInfo);
+        loadSession(sessionId);
       }
     }
     if (notifyDelete.size() > 0) {
       sendAitEvent(notifyDelete, AitEvent.AitEventType.Clear);
     }
-    CoroutineUtils.runIO(updateCoroutine);
-    CoroutineUtils.runIO(deleteCoroutine);
   }
 
-  private void deleteAit() {
-    AitDBHelper.getInstance(mContext).openWrite();
-    List<String> sessionList = new ArrayList<>();
-    for (AitInfo info : deleteList) {
-      sessionList.add(info.getSessionId());
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "deleteAit:" + info.getSessionId());
+  // 加载会话的@消息，加载前先写入队列中的修改
+  private void loadSession(String sessionId) {
+    if (writeQueue == null) {
+      return;
     }
-    AitDBHelper.getInstance(mContext).deleteWithSessionId(sessionList.toArray(new String[0]));
-    deleteList.clear();
+    writeQueue.runAfterFlush(
+        () -> {
+          List<AitInfo> result =
+              AitDBHelper.getInstance(mContext).queryWithSessionId(sessionId);
+          List<String> msgUidList =
+              result.isEmpty() ? new ArrayList<>() : result.get(0).getMsgUidList();
+          new Handler(Looper.getMainLooper()).post(() -> onSessionLoaded(sessionId, msgUidList));
+        });
   }
 
-  public void updateAit() {
-    AitDBHelper.getInstance(mContext).openWrite();
-    for (AitInfo info : updateList) {
-      long updateResult = AitDBHelper.getInstance(mContext).update(info);
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "updateAit,update:" + updateResult);
+  private void onSessionLoaded(String sessionId, List<String> msgUidList) {
+    SessionAit sessionAit = aitIndex.get(sessionId);
+    if (sessionAit == null || sessionAit.loaded) {
+      return;
     }
-    for (AitInfo insertInfo : insertList) {
-      long result = AitDBHelper.getInstance(mContext).insert(insertInfo);
-      ALog.d(ChatKitUIConstant.LIB_TAG, TAG, "updateAit,insert:" + result);
+    sessionAit.msgUidSet.addAll(msgUidList);
+    sessionAit.loaded = true;
+    if (sessionAit.msgUidSet.isEmpty()) {
+      aitIndex.remove(sessionId);
+      List<AitInfo> notifyDelete = new ArrayList<>();
+      notifyDelete.add(createAitInfo(sessionId));
+      sendAitEvent(notifyDelete, AitEvent.AitEventType.Clear);
     }
-    insertList.clear();
-    updateList.clear();
   }
 
-  private CoroutineUtils.CoroutineCallback<Void> updateCoroutine =
-      new CoroutineUtils.CoroutineCallback<Void>() {
-        @Override
-        public Void runIO() {
-          updateAit();
-          return null;
-        }
-
-        @Override
-        public void runMain(Void param) {}
-      };
-
-  private CoroutineUtils.CoroutineCallback<Void> deleteCoroutine =
-      new CoroutineUtils.CoroutineCallback<Void>() {
-        @Override
-        public Void runIO() {
-          deleteAit();
-          return null;
-        }
-
-        @Override
-        public void runMain(Void param) {}
-      };
+  private static AitInfo createAitInfo(String sessionId) {
+    AitInfo aitInfo = new AitInfo();
+    aitInfo.setSessionId(sessionId);
+    aitInfo.setAccountId(IMKitClient.account());
+    return aitInfo;
+  }
 }
@@ -0,0 +1,196 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.ait;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import com.netease.yunxin.kit.alog.ALog;
+import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
+import com.netease.yunxin.kit.chatkit.ui.common.AitDBHelper;
+import com.netease.yunxin.kit.corekit.im.custom.AitInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * write behind queue of @ message database
+ *
+ * <p>operations of the same message are merged, only the last one is written. Session clear drops
+ * all pending operations of the session before it. Queue is flushed in database writer thread
+ * after {@link #FLUSH_DELAY} or when {@link #MAX_BATCH} operations are pending.
+ */
+class AitWriteQueue {
+
+  private static final String TAG = "AitWriteQueue";
+
+  static final long FLUSH_DELAY = 300;
+
+  static final int MAX_BATCH = 200;
+
+  private final AitDBHelper dbHelper;
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // session/uuid -> last operation
+  private final Map<String, Operation> pendingOps = new LinkedHashMap<>();
+
+  private final Set<String> pendingClear = new LinkedHashSet<>();
+
+  private boolean scheduled = false;
+
+  private final Runnable flushTask =
+      () -> {
+        synchronized (this) {
+          scheduled = false;
+        }
+        flushAsync();
+      };
+
+  private static class Operation {
+    final String sessionId;
+    final String uuid;
+    final String accountId;
+    final boolean insert;
+
+    Operation(String sessionId, String uuid, String accountId, boolean insert) {
+      this.sessionId = sessionId;
+      this.uuid = uuid;
+      this.accountId = accountId;
+      this.insert = insert;
+    }
+  }
+
+  AitWriteQueue(AitDBHelper dbHelper) {
+    this.dbHelper = dbHelper;
+  }
+
+  void insert(String sessionId, String accountId, List<String> uuidList) {
+    enqueue(sessionId, accountId, uuidList, true);
+  }
+
+  void delete(String sessionId, String accountId, List<String> uuidList) {
+    enqueue(sessionId, accountId, uuidList, false);
+  }
+
+  /** delete all records of session */
+  void clearSession(String sessionId) {
+    synchronized (this) {
+      String prefix = sessionId + "/";
+      Iterator<String> iterator = pendingOps.keySet().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().startsWith(prefix)) {
+          iterator.remove();
+        }
+      }
+      pendingClear.add(sessionId);
+    }
+    schedule();
+  }
+
+  /** post a task to writer thread after pending operations are written */
+  void runAfterFlush(Runnable task) {
+    dbHelper.execute(
+        () -> {
+          flush();
+          task.run();
+        });
+  }
+
+  private void enqueue(
+      String sessionId, String accountId, List<String> uuidList, boolean insert) {
+    if (uuidList == null || uuidList.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (String uuid : uuidList) {
+        String key = sessionId + "/" + uuid;
+        // remove first to keep the order of the latest operation
+        pendingOps.remove(key);
+        pendingOps.put(key, new Operation(sessionId, uuid, accountId, insert));
+      }
+    }
+    schedule();
+  }
+
+  private void schedule() {
+    boolean flushNow;
+    synchronized (this) {
+      flushNow = pendingOps.size() + pendingClear.size() >= MAX_BATCH;
+      if (!flushNow && scheduled) {
+        return;
+      }
+      if (!flushNow) {
+        scheduled = true;
+      }
+    }
+    if (flushNow) {
+      flushAsync();
+    } else {
+      mainHandler.postDelayed(flushTask, FLUSH_DELAY);
+    }
+  }
+
+  private void flushAsync() {
+    dbHelper.execute(this::flush);
+  }
+
+  // run in database writer thread
+  private void flush() {
+    List<Operation> operations;
+    List<String> clearList;
+    synchronized (this) {
+      if (pendingOps.isEmpty() && pendingClear.isEmpty()) {
+        return;
+      }
+      operations = new ArrayList<>(pendingOps.values());
+      clearList = new ArrayList<>(pendingClear);
+      pendingOps.clear();
+      pendingClear.clear();
+    }
+    Map<String, AitInfo> insertMap = new LinkedHashMap<>();
+    Map<String, AitInfo> deleteMap = new HashMap<>();
+    for (Operation operation : operations) {
+      Map<String, AitInfo> target = operation.insert ? insertMap : deleteMap;
+      String key = operation.accountId + "/" + operation.sessionId;
+      AitInfo aitInfo = target.get(key);
+      if (aitInfo == null) {
+        aitInfo = new AitInfo();
+        aitInfo.setSessionId(operation.sessionId);
+        aitInfo.setAccountId(operation.accountId);
+        target.put(key, aitInfo);
+      }
+      aitInfo.getMsgUidList().add(operation.uuid);
+    }
+    SQLiteDatabase db = dbHelper.openWrite();
+    db.beginTransaction();
+    try {
+      if (!clearList.isEmpty()) {
+        dbHelper.deleteWithSessionId(clearList.toArray(new String[0]));
+      }
+      if (!insertMap.isEmpty()) {
+        dbHelper.insert(new ArrayList<>(insertMap.values()));
+      }
+      for (AitInfo aitInfo : deleteMap.values()) {
+        dbHelper.deleteMsgUid(
+            aitInfo.getSessionId(), aitInfo.getAccountId(), aitInfo.getMsgUidList());
+      }
+      db.setTransactionSuccessful();
+    } catch (Exception e) {
+      ALog.e(ChatKitUIConstant.LIB_TAG, TAG, "flush error:" + e.getMessage());
+    } finally {
+      db.endTransaction();
+    }
+    ALog.d(
+        ChatKitUIConstant.LIB_TAG,
+        TAG,
+        "flush,operations:" + operations.size() + ",clear:" + clearList.size());
+  }
+}
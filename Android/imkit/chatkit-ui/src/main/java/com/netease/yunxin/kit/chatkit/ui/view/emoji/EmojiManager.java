@@ -24,25 +24,45 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+/**
+ * emoji entries and bitmaps
+ *
+ * <p>emoji xml is parsed in background after init, and bitmaps of default emoji page are decoded
+ * at the same time. Bitmaps are kept in a LRU cache sized by bytes, and drawables returned share
+ * the same constant state, so a bitmap is decoded once and never recycled while views use it.
+ */
 public class EmojiManager {
 
   private static final String EMOJI_DIR = "emoji/";
 
-  // max cache size
-  private static final int CACHE_MAX_SIZE = 1024;
+  // max cache size in bytes
+  private static final int CACHE_MAX_BYTES =
+      (int) Math.min(4 * 1024 * 1024, Runtime.getRuntime().maxMemory() / 32);
 
-  private static Pattern pattern;
+  private static final Pattern pattern = makePattern();
 
   // default entries
   private static final List<Entry> defaultEntries = new ArrayList<>();
   // text to entry
   private static final Map<String, Entry> text2entry = new HashMap<>();
-  // asset bitmap cache, key: asset path
-  private static LruCache<String, Bitmap> drawableCache;
+  // asset drawable state cache, key: asset path
+  private static final LruCache<String, BitmapState> drawableCache =
+      new LruCache<String, BitmapState>(CACHE_MAX_BYTES) {
+        @Override
+        protected int sizeOf(@NonNull String key, @NonNull BitmapState value) {
+          return value.byteCount;
+        }
+      };
+
+  private static final Executor loadExecutor = Executors.newSingleThreadExecutor();
+
+  private static volatile boolean entriesLoaded = false;
 
   private static WeakReference<Context> sContext;
 
@@ -50,18 +70,12 @@ public class EmojiManager {
 
     sContext = new WeakReference<>(context);
 
-    load(context);
-
-    pattern = makePattern();
-
-    drawableCache =
-        new LruCache<String, Bitmap>(CACHE_MAX_SIZE) {
-          @Override
-          protected void entryRemoved(
-              boolean evicted, @NonNull String key, @NonNull Bitmap oldValue, Bitmap newValue) {
-            if (oldValue != newValue) oldValue.recycle();
-          }
-        };
+    Context appContext = context.getApplicationContext();
+    loadExecutor.execute(
+        () -> {
+          ensureEntries(appContext);
+          preloadDefault(appContext);
+        });
   }
 
   public static Context getContext() {
@@ -78,17 +92,28 @@ public class EmojiManager {
     }
   }
 
+  private static class BitmapState {
+    final Drawable.ConstantState state;
+    final int byteCount;
+
+    BitmapState(Drawable.ConstantState state, int byteCount) {
+      this.state = state;
+      this.byteCount = byteCount;
+    }
+  }
+
   public static int getDisplayCount() {
+    ensureEntries(getContext());
     return defaultEntries.size();
   }
 
   public static Drawable getDisplayDrawable(Context context, int index) {
-    String text =
-        (index >= 0 && index < defaultEntries.size() ? defaultEntries.get(index).text : null);
+    String text = getDisplayText(index);
     return text == null ? null : getDrawable(context, text);
   }
 
   public static String getDisplayText(int index) {
+    ensureEntries(getContext());
     return index >= 0 && index < defaultEntries.size() ? defaultEntries.get(index).text : null;
   }
 
@@ -97,16 +122,17 @@ public class EmojiManager {
   }
 
   public static Drawable getDrawable(Context context, String text) {
+    ensureEntries(context);
     Entry entry = text2entry.get(text);
     if (entry == null) {
       return null;
     }
 
-    Bitmap cache = drawableCache.get(entry.assetPath);
+    BitmapState cache = drawableCache.get(entry.assetPath);
     if (cache == null) {
       cache = loadAssetBitmap(context, entry.assetPath);
     }
-    return new BitmapDrawable(context.getResources(), cache);
+    return cache == null ? null : cache.state.newDrawable(context.getResources());
   }
 
   private static Pattern makePattern() {
@@ -117,7 +143,20 @@ public class EmojiManager {
     return "\\[[^\\[]{1,20}\\]";
   }
 
-  private static Bitmap loadAssetBitmap(Context context, String assetPath) {
+  // decode default page emoji until cache budget is used
+  private static void preloadDefault(Context context) {
+    int budget = CACHE_MAX_BYTES / 2;
+    for (Entry entry : defaultEntries) {
+      if (drawableCache.size() >= budget) {
+        break;
+      }
+      if (drawableCache.get(entry.assetPath) == null) {
+        loadAssetBitmap(context, entry.assetPath);
+      }
+    }
+  }
+
+  private static BitmapState loadAssetBitmap(Context context, String assetPath) {
     InputStream is = null;
     try {
       Resources resources = context.getResources();
@@ -128,9 +167,13 @@ public class EmojiManager {
       is = context.getAssets().open(assetPath);
       Bitmap bitmap = BitmapFactory.decodeStream(is, new Rect(), options);
       if (bitmap != null) {
-        drawableCache.put(assetPath, bitmap);
+        Drawable.ConstantState state = new BitmapDrawable(resources, bitmap).getConstantState();
+        if (state != null) {
+          BitmapState bitmapState = new BitmapState(state, bitmap.getAllocationByteCount());
+          drawableCache.put(assetPath, bitmapState);
+          return bitmapState;
+        }
       }
-      return bitmap;
     } catch (Exception e) {
       e.printStackTrace();
     } finally {
@@ -145,8 +188,16 @@ public class EmojiManager {
     return null;
   }
 
-  private static void load(Context context) {
-    new EntryLoader().load(context);
+  private static void ensureEntries(Context context) {
+    if (entriesLoaded || context == null) {
+      return;
+    }
+    synchronized (text2entry) {
+      if (!entriesLoaded) {
+        new EntryLoader().load(context);
+        entriesLoaded = true;
+      }
+    }
   }
 
   private static class EntryLoader {
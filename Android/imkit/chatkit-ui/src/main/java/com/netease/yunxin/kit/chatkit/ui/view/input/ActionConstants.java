@@ -58,5 +58,6 @@ public class ActionConstants {
   public static final String PAYLOAD_REVOKE_STATUS = "messageRevokeStatus";
   public static final String PAYLOAD_SIGNAL = "messageSignal";
   public static final String PAYLOAD_USERINFO = "userInfo";
+  public static final String PAYLOAD_THUMB = "messageThumb";
   public static final String PAYLOAD_REFRESH_AUDIO_ANIM = "refreshAudioAnim";
 }
@@ -21,6 +21,7 @@ import com.netease.nimlib.sdk.msg.model.MsgPinOption;
 import com.netease.nimlib.sdk.team.model.Team;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.ui.ChatKitClient;
+import com.netease.yunxin.kit.chatkit.ui.ChatMessageType;
 import com.netease.yunxin.kit.chatkit.ui.IChatFactory;
 import com.netease.yunxin.kit.chatkit.ui.factory.ChatPopActionFactory;
 import com.netease.yunxin.kit.chatkit.ui.interfaces.IMessageData;
@@ -41,10 +42,19 @@ import java.util.Map;
 public class ChatMessageListView extends RecyclerView implements IMessageData {
 
   private final String TAG = "ChatMessageListView";
+
+  // message page larger than this will be diffed in background thread
+  private static final int ASYNC_DIFF_THRESHOLD = 20;
+
+  // max recycled view holders for frequent message types, others use default size
+  private static final int RECYCLED_POOL_SIZE_TEXT = 15;
+  private static final int RECYCLED_POOL_SIZE_MEDIA = 8;
   private IMessageItemClickListener itemClickListener;
 
   private ChatMessageAdapter messageAdapter;
 
+  private ChatThumbPreloader thumbPreloader;
+
   private IMessageLoadHandler loadHandler;
 
   private IMessageReader messageReader;
@@ -112,8 +122,33 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     layoutManager.setStackFromEnd(true);
     setLayoutManager(layoutManager);
     setItemAnimator(null);
+    initRecycledViewPool();
     messageAdapter = new ChatMessageAdapter();
     setAdapter(messageAdapter);
+    thumbPreloader = new ChatThumbPreloader(messageAdapter);
+    addOnScrollListener(thumbPreloader);
+  }
+
+  /** text and media messages take most of a chat list, keep more of them for reuse */
+  private void initRecycledViewPool() {
+    RecycledViewPool pool = getRecycledViewPool();
+    pool.setMaxRecycledViews(ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_TEXT, RECYCLED_POOL_SIZE_TEXT);
+    pool.setMaxRecycledViews(
+        ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_IMAGE, RECYCLED_POOL_SIZE_MEDIA);
+    pool.setMaxRecycledViews(
+        ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_VIDEO, RECYCLED_POOL_SIZE_MEDIA);
+    pool.setMaxRecycledViews(
+        ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_AUDIO, RECYCLED_POOL_SIZE_MEDIA);
+  }
+
+  /**
+   * set max recycled view holders for message view type
+   *
+   * @param viewType message view type
+   * @param max max recycled count
+   */
+  public void setMaxRecycledViews(int viewType, int max) {
+    getRecycledViewPool().setMaxRecycledViews(viewType, max);
   }
 
   /**
@@ -167,6 +202,7 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   @Override
   public void clearMessageList() {
     messageAdapter.clearMessageList();
+    thumbPreloader.reset();
   }
 
   @Override
@@ -190,6 +226,16 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
   @Override
   public void appendMessageList(List<ChatMessageBean> messageList, boolean needToScrollEnd) {
     if (messageAdapter != null) {
+      if (messageList != null && messageList.size() > ASYNC_DIFF_THRESHOLD) {
+        messageAdapter.appendMessagesAsync(
+            messageList,
+            () -> {
+              if (needToScrollEnd) {
+                scrollToEnd();
+              }
+            });
+        return;
+      }
       messageAdapter.appendMessages(messageList);
       if (needToScrollEnd) {
         scrollToEnd();
@@ -212,6 +258,12 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     }
   }
 
+  public void updateMessagePayload(List<String> uuidList, Object payload) {
+    if (messageAdapter != null) {
+      messageAdapter.updateMessagePayload(uuidList, payload);
+    }
+  }
+
   @Override
   public void updateMessage(ChatMessageBean message, Object payload) {
     if (messageAdapter != null) {
@@ -289,6 +341,10 @@ public class ChatMessageListView extends RecyclerView implements IMessageData {
     messageAdapter.updateMessageProgress(progress);
   }
 
+  public void updateAttachmentProgress(List<AttachmentProgress> progressList) {
+    messageAdapter.updateMessageProgress(progressList);
+  }
+
   public void setLoadHandler(IMessageLoadHandler loadHandler) {
     this.loadHandler = loadHandler;
   }
@@ -0,0 +1,111 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message;
+
+import android.util.SparseArray;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import com.netease.yunxin.kit.chatkit.ui.view.message.adapter.ChatMessageAdapter;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+/**
+ * preload image/video thumbs ahead of scroll direction
+ *
+ * <p>request of a thumb is built by a {@link ThumbHolder} with the same view type, so the
+ * preloaded thumb has the same cache key as the one loaded when it is bound. Each position is
+ * preloaded once until the window moves away from it.
+ */
+public class ChatThumbPreloader extends RecyclerView.OnScrollListener {
+
+  // preload count ahead of the visible items
+  private static final int PRELOAD_COUNT = 6;
+
+  /** view holder which shows thumb and can preload it */
+  public interface ThumbHolder {
+    /** preload thumb of message, should not do disk io */
+    void preloadThumb(@NonNull ChatMessageBean message);
+  }
+
+  private final ChatMessageAdapter adapter;
+
+  // view type -> last seen holder, used when no holder of the type is visible
+  private final SparseArray<WeakReference<ThumbHolder>> holderCache = new SparseArray<>();
+
+  // preloaded range, [preloadStart, preloadEnd)
+  private int preloadStart = -1;
+  private int preloadEnd = -1;
+
+  public ChatThumbPreloader(@NonNull ChatMessageAdapter adapter) {
+    this.adapter = adapter;
+  }
+
+  /** messages are reset, preload again */
+  public void reset() {
+    preloadStart = -1;
+    preloadEnd = -1;
+  }
+
+  @Override
+  public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+    if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+      return;
+    }
+    LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+    int start;
+    int end;
+    if (dy < 0) {
+      // scroll to older messages
+      end = layoutManager.findFirstVisibleItemPosition();
+      start = Math.max(0, end - PRELOAD_COUNT);
+    } else {
+      start = layoutManager.findLastVisibleItemPosition() + 1;
+      end = Math.min(adapter.getItemCount(), start + PRELOAD_COUNT);
+    }
+    if (start < 0 || start >= end) {
+      return;
+    }
+    // skip positions preloaded last time
+    int from = start;
+    int to = end;
+    if (start < preloadEnd && end > preloadStart) {
+      if (dy < 0) {
+        to = Math.min(end, preloadStart);
+      } else {
+        from = Math.max(start, preloadEnd);
+      }
+    }
+    preloadStart = start;
+    preloadEnd = end;
+    preload(recyclerView, from, to);
+  }
+
+  private void preload(RecyclerView recyclerView, int from, int to) {
+    List<ChatMessageBean> messageList = adapter.getMessageList();
+    for (int position = from; position < to && position < messageList.size(); position++) {
+      ThumbHolder holder = findThumbHolder(recyclerView, adapter.getItemViewType(position));
+      if (holder != null) {
+        holder.preloadThumb(messageList.get(position));
+      }
+    }
+  }
+
+  @Nullable
+  private ThumbHolder findThumbHolder(RecyclerView recyclerView, int viewType) {
+    for (int index = 0; index < recyclerView.getChildCount(); index++) {
+      RecyclerView.ViewHolder holder =
+          recyclerView.getChildViewHolder(recyclerView.getChildAt(index));
+      if (holder instanceof ThumbHolder && holder.getItemViewType() == viewType) {
+        holderCache.put(viewType, new WeakReference<>((ThumbHolder) holder));
+        return (ThumbHolder) holder;
+      }
+    }
+    WeakReference<ThumbHolder> reference = holderCache.get(viewType);
+    return reference == null ? null : reference.get();
+  }
+}
@@ -9,11 +9,16 @@ import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLO
 import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_REVOKE;
 import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_SIGNAL;
 import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_STATUS;
+import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_THUMB;
 import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_USERINFO;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.netease.nimlib.sdk.msg.model.AttachmentProgress;
 import com.netease.nimlib.sdk.msg.model.MsgPinOption;
@@ -21,10 +26,14 @@ import com.netease.nimlib.sdk.team.model.Team;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.ui.ChatViewHolderDefaultFactory;
 import com.netease.yunxin.kit.chatkit.ui.IChatFactory;
+import com.netease.yunxin.kit.chatkit.ui.common.ReplyMessageCache;
+import com.netease.yunxin.kit.chatkit.ui.common.TeamNotificationTextCache;
+import com.netease.yunxin.kit.chatkit.ui.common.ThumbMetaCache;
 import com.netease.yunxin.kit.chatkit.ui.interfaces.IMessageItemClickListener;
 import com.netease.yunxin.kit.chatkit.ui.interfaces.IMessageReader;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.view.message.MessageProperties;
+import com.netease.yunxin.kit.chatkit.ui.view.message.audio.ChatMessageAudioControl;
 import com.netease.yunxin.kit.chatkit.ui.view.message.viewholder.CommonBaseMessageViewHolder;
 import com.netease.yunxin.kit.corekit.im.model.UserInfo;
 import java.util.ArrayList;
@@ -33,6 +42,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /** chat message adapter for message list */
 public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageViewHolder> {
@@ -53,7 +65,51 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     viewHolderFactory = ChatViewHolderDefaultFactory.getInstance();
   }
 
-  private final List<ChatMessageBean> messageList = new ArrayList<>();
+  private final ChatMessageStore messageList = new ChatMessageStore();
+
+  private static final DiffUtil.ItemCallback<ChatMessageBean> DIFF_CALLBACK =
+      new DiffUtil.ItemCallback<ChatMessageBean>() {
+        @Override
+        public boolean areItemsTheSame(
+            @NonNull ChatMessageBean oldItem, @NonNull ChatMessageBean newItem) {
+          return oldItem.isSameMessage(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(
+            @NonNull ChatMessageBean oldItem, @NonNull ChatMessageBean newItem) {
+          return oldItem == newItem;
+        }
+      };
+
+  // serial executor, so diff results are applied in the order they are submitted
+  private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  // increased when list is cleared, pending diff results of older generation are dropped
+  private int diffGeneration = 0;
+
+  // rebind reply quote of messages when the replied messages are loaded
+  private final ReplyMessageCache.ReplyCacheListener replyCacheListener =
+      uuidList -> {
+        for (String uuid : uuidList) {
+          for (int position : messageList.replyPositionsOf(uuid)) {
+            notifyItemChanged(position, PAYLOAD_REPLY);
+          }
+        }
+      };
+
+  // relayout image and video messages when their size is resolved
+  private final ThumbMetaCache.ThumbMetaListener thumbMetaListener =
+      uuidList -> {
+        for (String uuid : uuidList) {
+          int position = messageList.indexOf(uuid);
+          if (position >= 0) {
+            notifyItemChanged(position, PAYLOAD_THUMB);
+          }
+        }
+      };
 
   public void setItemClickListener(IMessageItemClickListener itemClickListener) {
     this.itemClickListener = itemClickListener;
@@ -120,6 +176,21 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     this.messageProperties = messageProperties;
   }
 
+  @Override
+  public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+    super.onAttachedToRecyclerView(recyclerView);
+    ReplyMessageCache.addListener(replyCacheListener);
+    ThumbMetaCache.addListener(thumbMetaListener);
+  }
+
+  @Override
+  public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+    ReplyMessageCache.removeListener(replyCacheListener);
+    ThumbMetaCache.removeListener(thumbMetaListener);
+    ChatMessageAudioControl.getInstance().onAdapterDetached(this);
+    super.onDetachedFromRecyclerView(recyclerView);
+  }
+
   @Override
   public void onViewAttachedToWindow(@NonNull CommonBaseMessageViewHolder holder) {
     holder.onAttachedToWindow();
@@ -143,38 +214,153 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     }
   }
 
+  /**
+   * add messages to the list ordered by message time, unlike {@link #appendMessages(List)} which
+   * always appends at the tail, so messages older than the tail are inserted in the middle. The
+   * diff with current list is calculated in background thread and applied on main thread in one
+   * batch. If the list is changed before the diff result arrives, e.g. by a received message, the
+   * diff is calculated again against the current list on main thread. The message after each
+   * inserted run is rebound so that its time divider is recomputed.
+   *
+   * @param message messages to append
+   * @param commitCallback run after messages are applied, can be null
+   */
+  public void appendMessagesAsync(
+      List<ChatMessageBean> message, @Nullable Runnable commitCallback) {
+    if (message == null || message.isEmpty() || messageList.isEmpty()) {
+      if (message != null && !message.isEmpty()) {
+        appendMessages(message);
+      }
+      if (commitCallback != null) {
+        commitCallback.run();
+      }
+      return;
+    }
+    final int generation = diffGeneration;
+    final int modCount = messageList.getModCount();
+    final List<ChatMessageBean> oldList = messageList.snapshot();
+    final List<ChatMessageBean> appendList = new ArrayList<>(message);
+    DIFF_EXECUTOR.execute(
+        () -> {
+          List<ChatMessageBean> newList = mergeByTime(oldList, appendList);
+          DiffUtil.DiffResult result =
+              DiffUtil.calculateDiff(new MessageDiffCallback(oldList, newList), false);
+          mainHandler.post(
+              () -> {
+                if (generation != diffGeneration) {
+                  return;
+                }
+                if (modCount == messageList.getModCount()) {
+                  applyDiff(newList, result, appendList);
+                } else {
+                  // list changed meanwhile, diff against the current list
+                  List<ChatMessageBean> currentList = messageList.snapshot();
+                  List<ChatMessageBean> mergedList = mergeByTime(currentList, appendList);
+                  applyDiff(
+                      mergedList,
+                      DiffUtil.calculateDiff(
+                          new MessageDiffCallback(currentList, mergedList), false),
+                      appendList);
+                }
+                if (commitCallback != null) {
+                  commitCallback.run();
+                }
+              });
+        });
+  }
+
+  private void applyDiff(
+      List<ChatMessageBean> newList,
+      DiffUtil.DiffResult result,
+      List<ChatMessageBean> appendList) {
+    messageList.replaceAll(newList);
+    result.dispatchUpdatesTo(this);
+    // the message after an inserted run is the same item for diff, but its previous message is
+    // changed, refresh it to recompute whether the time is shown
+    Set<Integer> appendPositions = new HashSet<>();
+    for (ChatMessageBean bean : appendList) {
+      int index = messageList.indexOf(bean);
+      if (index > -1) {
+        appendPositions.add(index);
+      }
+    }
+    for (int index : appendPositions) {
+      int next = index + 1;
+      if (next < messageList.size() && !appendPositions.contains(next)) {
+        notifyItemChanged(next);
+      }
+    }
+  }
+
+  /**
+   * messages of current list which are not in append list, merged with append list by message
+   * time. Messages with the same time keep current list first.
+   */
+  private static List<ChatMessageBean> mergeByTime(
+      List<ChatMessageBean> currentList, List<ChatMessageBean> appendList) {
+    Set<String> appendUuid = new HashSet<>();
+    for (ChatMessageBean bean : appendList) {
+      String uuid = ChatMessageStore.getUuid(bean);
+      if (uuid != null) {
+        appendUuid.add(uuid);
+      }
+    }
+    List<ChatMessageBean> newList = new ArrayList<>(currentList.size() + appendList.size());
+    int appendIndex = 0;
+    for (ChatMessageBean bean : currentList) {
+      if (appendUuid.contains(ChatMessageStore.getUuid(bean))) {
+        continue;
+      }
+      while (appendIndex < appendList.size()
+          && getTime(appendList.get(appendIndex)) < getTime(bean)) {
+        newList.add(appendList.get(appendIndex++));
+      }
+      newList.add(bean);
+    }
+    while (appendIndex < appendList.size()) {
+      newList.add(appendList.get(appendIndex++));
+    }
+    return newList;
+  }
+
+  private static long getTime(ChatMessageBean bean) {
+    return bean.getMessageData().getMessage().getTime();
+  }
+
+  // positions are found by index first and removed from tail to head, so a middle removal
+  // invalidates the index only once for the whole batch
   private void removeSameMessage(List<ChatMessageBean> message) {
     if (message == null || message.size() < 1) {
       return;
     }
+    TreeSet<Integer> positions = new TreeSet<>();
     for (ChatMessageBean bean : message) {
-      int index = -1;
-      for (int j = 0; j < messageList.size(); j++) {
-        if (bean.isSameMessage(messageList.get(j))) {
-          index = j;
-          break;
-        }
-      }
+      int index = messageList.indexOf(bean);
       if (index > -1) {
-        messageList.remove(index);
-        notifyItemRemoved(index);
+        positions.add(index);
       }
     }
+    for (int index : positions.descendingSet()) {
+      messageList.remove(index);
+      notifyItemRemoved(index);
+    }
   }
 
   public void appendMessage(ChatMessageBean message) {
     int pos = messageList.size();
     int deletePos = getMessageIndex(message);
-    messageList.add(message);
     if (deletePos >= 0) {
       messageList.remove(deletePos);
+      messageList.add(message);
       notifyItemRangeChanged(deletePos, pos - deletePos);
     } else {
+      messageList.add(message);
       notifyItemInserted(pos);
     }
   }
 
   public void clearMessageList() {
+    diffGeneration++;
     int size = messageList.size();
     messageList.clear();
     notifyItemRangeRemoved(0, size);
@@ -183,16 +369,47 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   public void updateMessageProgress(AttachmentProgress progress) {
     ChatMessageBean messageBean = searchMessage(progress.getUuid());
     if (messageBean != null) {
-      float pg = progress.getTransferred() * 100f / progress.getTotal();
-      if (progress.getTransferred() == progress.getTotal()) {
-        pg = 100;
-      }
-      messageBean.progress = progress.getTransferred();
-      messageBean.setLoadProgress(pg);
+      applyProgress(messageBean, progress);
       updateMessage(messageBean, PAYLOAD_PROGRESS);
     }
   }
 
+  /** update progress of several messages, each visible item is rebind once */
+  public void updateMessageProgress(List<AttachmentProgress> progressList) {
+    if (progressList == null) {
+      return;
+    }
+    for (AttachmentProgress progress : progressList) {
+      int pos = messageList.indexOf(progress.getUuid());
+      if (pos >= 0) {
+        applyProgress(messageList.get(pos), progress);
+        notifyItemChanged(pos, PAYLOAD_PROGRESS);
+      }
+    }
+  }
+
+  private void applyProgress(ChatMessageBean messageBean, AttachmentProgress progress) {
+    float pg = progress.getTransferred() * 100f / progress.getTotal();
+    if (progress.getTransferred() == progress.getTotal()) {
+      pg = 100;
+    }
+    messageBean.progress = progress.getTransferred();
+    messageBean.setLoadProgress(pg);
+  }
+
+  /** rebind messages of the uuid list with payload, messages not in list are ignored */
+  public void updateMessagePayload(List<String> uuidList, Object payload) {
+    if (uuidList == null) {
+      return;
+    }
+    for (String uuid : uuidList) {
+      int pos = messageList.indexOf(uuid);
+      if (pos >= 0) {
+        notifyItemChanged(pos, payload);
+      }
+    }
+  }
+
   public void updateMessageStatus(ChatMessageBean message) {
     int index = getMessageIndex(message);
     if (index >= 0 && index < messageList.size()) {
@@ -213,11 +430,8 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
     if (TextUtils.isEmpty(uuid)) {
       return;
     }
-    for (int i = 0; i < messageList.size(); i++) {
-      ChatMessageBean messageInfo = messageList.get(i);
-      if (messageInfo != null && TextUtils.equals(uuid, messageInfo.getReplyUUid())) {
-        notifyItemChanged(i, PAYLOAD_REPLY);
-      }
+    for (int position : messageList.replyPositionsOf(uuid)) {
+      notifyItemChanged(position, PAYLOAD_REPLY);
     }
   }
 
@@ -246,20 +460,19 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
 
     for (int i = 0; i < messageList.size(); i++) {
       IMMessageInfo messageInfo = messageList.get(i).getMessageData();
-      if (messageInfo != null && accountSet.contains(messageInfo.getMessage().getFromAccount())) {
+      if (messageInfo == null) {
+        continue;
+      }
+      // team notification naming the accounts is also rendered again
+      if (accountSet.contains(messageInfo.getMessage().getFromAccount())
+          || TeamNotificationTextCache.isNamed(messageInfo.getMessage().getUuid(), accountSet)) {
         notifyItemChanged(i, PAYLOAD_USERINFO);
       }
     }
   }
 
   public void pinMsg(String uuid, MsgPinOption pinOption) {
-    int index = -1;
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(messageList.get(i).getMessageData().getMessage().getUuid(), uuid)) {
-        index = i;
-        break;
-      }
-    }
+    int index = messageList.indexOf(uuid);
     if (index != -1) {
       messageList.get(index).setPinAccid(pinOption);
       updateMessage(messageList.get(index), PAYLOAD_SIGNAL);
@@ -282,13 +495,7 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   }
 
   public void removeMessagePin(String uuid) {
-    int index = -1;
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(messageList.get(i).getMessageData().getMessage().getUuid(), uuid)) {
-        index = i;
-        break;
-      }
-    }
+    int index = messageList.indexOf(uuid);
     if (index != -1) {
       messageList.get(index).setPinAccid(null);
       updateMessage(messageList.get(index), PAYLOAD_SIGNAL);
@@ -314,20 +521,12 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   }
 
   private int getMessageIndex(ChatMessageBean message) {
-    if (message == null) {
-      return -1;
-    }
-    for (int index = 0; index < messageList.size(); index++) {
-      if (message.isSameMessage(messageList.get(index))) {
-        return index;
-      }
-    }
-    return -1;
+    return messageList.indexOf(message);
   }
 
   public void forwardMessages(List<ChatMessageBean> message) {
     removeSameMessage(message);
-    messageList.addAll(0, message);
+    messageList.addAllToHead(message);
     notifyItemRangeInserted(0, message.size());
     if (messageList.size() > message.size()) {
       notifyItemChanged(message.size());
@@ -351,32 +550,60 @@ public class ChatMessageAdapter extends RecyclerView.Adapter<CommonBaseMessageVi
   public void removeMessage(ChatMessageBean message) {
     int pos = messageList.indexOf(message);
     if (pos >= 0) {
-      messageList.remove(message);
+      messageList.remove(pos);
       notifyItemRemoved(pos);
     }
     clearReply(message);
   }
 
   public ChatMessageBean searchMessage(String messageId) {
-    for (int i = messageList.size() - 1; i >= 0; i--) {
-      if (TextUtils.equals(messageId, messageList.get(i).getMessageData().getMessage().getUuid())) {
-        return messageList.get(i);
-      }
-    }
-    return null;
+    return messageList.find(messageId);
   }
 
   public int searchMessagePosition(String messageId) {
-    for (int i = 0; i < messageList.size(); i++) {
-      if (TextUtils.equals(messageId, messageList.get(i).getMessageData().getMessage().getUuid())) {
-        return i;
-      }
-    }
-    return -1;
+    return messageList.indexOf(messageId);
   }
 
   public List<ChatMessageBean> getMessageList() {
-    return messageList;
+    return messageList.getList();
+  }
+
+  /** unread received audio messages after the message with messageId, for continuous playback */
+  public List<ChatMessageBean> getNextUnreadAudio(String messageId, int count) {
+    return messageList.nextUnreadAudio(messageId, count);
+  }
+
+  private static class MessageDiffCallback extends DiffUtil.Callback {
+
+    private final List<ChatMessageBean> oldList;
+    private final List<ChatMessageBean> newList;
+
+    MessageDiffCallback(List<ChatMessageBean> oldList, List<ChatMessageBean> newList) {
+      this.oldList = oldList;
+      this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return DIFF_CALLBACK.areItemsTheSame(
+          oldList.get(oldItemPosition), newList.get(newItemPosition));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return DIFF_CALLBACK.areContentsTheSame(
+          oldList.get(oldItemPosition), newList.get(newItemPosition));
+    }
   }
 
   public interface EndItemBindingListener {
@@ -0,0 +1,327 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message.adapter;
+
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.nimlib.sdk.msg.constant.MsgDirectionEnum;
+import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * ordered message list with uuid index for chat message adapter
+ *
+ * <p>positions are stored relative to an offset, so insert at head and append at tail keep the
+ * index valid in O(1). Only remove or insert in the middle mark the index dirty, and it will be
+ * rebuilt on next lookup. A secondary index by reply target uuid is kept for reply refresh, and
+ * an ordered index of unread received audio messages is kept for continuous audio playback.
+ */
+public class ChatMessageStore {
+
+  private final List<ChatMessageBean> messageList = new ArrayList<>();
+
+  // uuid -> (position - offset)
+  private final Map<String, Integer> uuidIndex = new HashMap<>();
+
+  // reply target uuid -> uuid of messages which reply to it
+  private final Map<String, Set<String>> replyIndex = new HashMap<>();
+
+  // (position - offset) -> received audio message unread when added, read ones dropped on lookup
+  private final TreeMap<Integer, ChatMessageBean> unreadAudioIndex = new TreeMap<>();
+
+  private int offset = 0;
+
+  private boolean indexDirty = false;
+
+  // structural modification count, used to check whether a diff result is still valid
+  private int modCount = 0;
+
+  public int getModCount() {
+    return modCount;
+  }
+
+  public int size() {
+    return messageList.size();
+  }
+
+  public boolean isEmpty() {
+    return messageList.isEmpty();
+  }
+
+  public ChatMessageBean get(int position) {
+    return messageList.get(position);
+  }
+
+  /** read only view of message list */
+  public List<ChatMessageBean> getList() {
+    return Collections.unmodifiableList(messageList);
+  }
+
+  /** copy of message list, safe to use in background thread */
+  public List<ChatMessageBean> snapshot() {
+    return new ArrayList<>(messageList);
+  }
+
+  public void add(ChatMessageBean message) {
+    int pos = messageList.size();
+    messageList.add(message);
+    modCount++;
+    String uuid = getUuid(message);
+    if (!indexDirty && uuid != null) {
+      uuidIndex.put(uuid, pos - offset);
+    }
+    addReplyIndex(message);
+    addAudioIndex(pos - offset, message);
+  }
+
+  public void addAll(Collection<ChatMessageBean> messages) {
+    for (ChatMessageBean message : messages) {
+      add(message);
+    }
+  }
+
+  public void addAllToHead(List<ChatMessageBean> messages) {
+    messageList.addAll(0, messages);
+    modCount++;
+    offset += messages.size();
+    for (int i = 0; i < messages.size(); i++) {
+      ChatMessageBean message = messages.get(i);
+      String uuid = getUuid(message);
+      if (!indexDirty && uuid != null) {
+        uuidIndex.put(uuid, i - offset);
+      }
+      addReplyIndex(message);
+      addAudioIndex(i - offset, message);
+    }
+  }
+
+  public void set(int position, ChatMessageBean message) {
+    ChatMessageBean old = messageList.set(position, message);
+    if (old != message) {
+      modCount++;
+      removeIndex(old);
+      String uuid = getUuid(message);
+      if (!indexDirty && uuid != null) {
+        uuidIndex.put(uuid, position - offset);
+      }
+      addReplyIndex(message);
+      if (!indexDirty) {
+        unreadAudioIndex.remove(position - offset);
+      }
+      addAudioIndex(position - offset, message);
+    }
+  }
+
+  public ChatMessageBean remove(int position) {
+    ChatMessageBean message = messageList.remove(position);
+    removeIndex(message);
+    if (!indexDirty) {
+      unreadAudioIndex.remove(position - offset);
+    }
+    modCount++;
+    if (position == 0) {
+      offset--;
+    } else if (position != messageList.size()) {
+      indexDirty = true;
+    }
+    return message;
+  }
+
+  public void clear() {
+    messageList.clear();
+    modCount++;
+    uuidIndex.clear();
+    replyIndex.clear();
+    unreadAudioIndex.clear();
+    offset = 0;
+    indexDirty = false;
+  }
+
+  /** replace all messages, used after diff result is committed */
+  public void replaceAll(List<ChatMessageBean> messages) {
+    clear();
+    addAll(messages);
+  }
+
+  /**
+   * position of message with uuid
+   *
+   * @return -1 if not found
+   */
+  public int indexOf(String uuid) {
+    if (TextUtils.isEmpty(uuid)) {
+      return -1;
+    }
+    ensureIndex();
+    Integer pos = uuidIndex.get(uuid);
+    if (pos == null) {
+      return -1;
+    }
+    return pos + offset;
+  }
+
+  public int indexOf(ChatMessageBean message) {
+    if (message == null) {
+      return -1;
+    }
+    String uuid = getUuid(message);
+    if (uuid != null) {
+      return indexOf(uuid);
+    }
+    for (int index = 0; index < messageList.size(); index++) {
+      if (message.isSameMessage(messageList.get(index))) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  @Nullable
+  public ChatMessageBean find(String uuid) {
+    int pos = indexOf(uuid);
+    return pos >= 0 ? messageList.get(pos) : null;
+  }
+
+  public boolean contains(ChatMessageBean message) {
+    return indexOf(message) >= 0;
+  }
+
+  /** positions of messages which reply to the message with uuid, in ascending order */
+  @NonNull
+  public List<Integer> replyPositionsOf(String uuid) {
+    Set<String> replies = replyIndex.get(uuid);
+    if (replies == null || replies.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Integer> result = new ArrayList<>(replies.size());
+    for (String replyUuid : replies) {
+      int pos = indexOf(replyUuid);
+      if (pos >= 0) {
+        result.add(pos);
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * unread received audio messages after the message with uuid, in list order
+   *
+   * @param count max size of result
+   */
+  @NonNull
+  public List<ChatMessageBean> nextUnreadAudio(String uuid, int count) {
+    if (TextUtils.isEmpty(uuid) || count <= 0) {
+      return Collections.emptyList();
+    }
+    ensureIndex();
+    Integer key = uuidIndex.get(uuid);
+    if (key == null) {
+      return Collections.emptyList();
+    }
+    List<ChatMessageBean> result = new ArrayList<>(count);
+    Map.Entry<Integer, ChatMessageBean> entry;
+    while (result.size() < count && (entry = unreadAudioIndex.higherEntry(key)) != null) {
+      key = entry.getKey();
+      if (isUnreadAudio(entry.getValue())) {
+        result.add(entry.getValue());
+      } else {
+        unreadAudioIndex.remove(key);
+      }
+    }
+    return result;
+  }
+
+  /** received audio message not read yet, attachment may be not downloaded */
+  public static boolean isUnreadAudio(ChatMessageBean message) {
+    if (message == null || message.getMessageData() == null) {
+      return false;
+    }
+    IMMessage imMessage = message.getMessageData().getMessage();
+    return imMessage.getMsgType() == MsgTypeEnum.audio
+        && imMessage.getDirect() == MsgDirectionEnum.In
+        && imMessage.getStatus() != MsgStatusEnum.read;
+  }
+
+  private void ensureIndex() {
+    if (!indexDirty) {
+      return;
+    }
+    uuidIndex.clear();
+    unreadAudioIndex.clear();
+    offset = 0;
+    for (int index = 0; index < messageList.size(); index++) {
+      ChatMessageBean message = messageList.get(index);
+      String uuid = getUuid(message);
+      if (uuid != null) {
+        uuidIndex.put(uuid, index);
+      }
+      if (isUnreadAudio(message)) {
+        unreadAudioIndex.put(index, message);
+      }
+    }
+    indexDirty = false;
+  }
+
+  private void addAudioIndex(int key, ChatMessageBean message) {
+    if (!indexDirty && isUnreadAudio(message)) {
+      unreadAudioIndex.put(key, message);
+    }
+  }
+
+  private void addReplyIndex(ChatMessageBean message) {
+    String replyUuid = MessageHelper.getReplyUuid(message);
+    String uuid = getUuid(message);
+    if (TextUtils.isEmpty(replyUuid) || uuid == null) {
+      return;
+    }
+    Set<String> replies = replyIndex.get(replyUuid);
+    if (replies == null) {
+      replies = new HashSet<>();
+      replyIndex.put(replyUuid, replies);
+    }
+    replies.add(uuid);
+  }
+
+  private void removeIndex(ChatMessageBean message) {
+    String uuid = getUuid(message);
+    if (uuid == null) {
+      return;
+    }
+    uuidIndex.remove(uuid);
+    String replyUuid = MessageHelper.getReplyUuid(message);
+    if (!TextUtils.isEmpty(replyUuid)) {
+      Set<String> replies = replyIndex.get(replyUuid);
+      if (replies != null) {
+        replies.remove(uuid);
+        if (replies.isEmpty()) {
+          replyIndex.remove(replyUuid);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  static String getUuid(ChatMessageBean message) {
+    if (message == null || message.getMessageData() == null) {
+      return null;
+    }
+    String uuid = message.getMessageData().getMessage().getUuid();
+    return TextUtils.isEmpty(uuid) ? null : uuid;
+  }
+}
@@ -4,8 +4,13 @@
 
 package com.netease.yunxin.kit.chatkit.ui.view.message.audio;
 
+import static com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant.LIB_TAG;
+import static com.netease.yunxin.kit.chatkit.ui.view.input.ActionConstants.PAYLOAD_REFRESH_AUDIO_ANIM;
+
 import android.media.MediaPlayer;
+import android.text.TextUtils;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
 import com.netease.nimlib.sdk.NIMClient;
 import com.netease.nimlib.sdk.media.player.OnPlayListener;
 import com.netease.nimlib.sdk.msg.MsgService;
@@ -14,18 +19,28 @@ import com.netease.nimlib.sdk.msg.constant.AttachStatusEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgDirectionEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
 import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.yunxin.kit.alog.ALog;
 import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
 import com.netease.yunxin.kit.chatkit.repo.ChatRepo;
 import com.netease.yunxin.kit.chatkit.ui.common.ChatCallback;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
 import com.netease.yunxin.kit.chatkit.ui.view.message.adapter.ChatMessageAdapter;
+import com.netease.yunxin.kit.chatkit.ui.view.message.adapter.ChatMessageStore;
 import com.netease.yunxin.kit.common.utils.storage.StorageUtil;
 import com.netease.yunxin.kit.corekit.im.audioplayer.BaseAudioControl;
 import com.netease.yunxin.kit.corekit.im.audioplayer.Playable;
+import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
 import java.io.File;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
+  private static final String TAG = "ChatMessageAudioControl";
+
+  // unread audio downloaded ahead while playing continuously
+  private static final int PREFETCH_COUNT = 2;
+
   private static ChatMessageAudioControl mChatMessageAudioControl = null;
 
   private boolean mIsNeedPlayNext = false;
@@ -34,6 +49,12 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
 
   private IMMessageInfo mItem = null;
 
+  // uuid of audio in downloading
+  private final Set<String> downloadingUuids = new HashSet<>();
+
+  // startAudio stops the current audio itself, which must not cancel playing next
+  private boolean isStartingAudio = false;
+
   private ChatMessageAudioControl() {
     super(true);
   }
@@ -163,17 +184,23 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
       boolean resetOrigAudioStreamType,
       long delayMillis) {
     if (StorageUtil.isExternalStorageExist()) {
-      if (startAudio(
-          new ChatMessageAudioPlayable(message),
-          audioControlListener,
-          audioStreamType,
-          resetOrigAudioStreamType,
-          delayMillis)) {
-        // remove unread signal and update database
-        if (isUnreadAudioMessage(message)) {
-          message.getMessage().setStatus(MsgStatusEnum.read);
-          NIMClient.getService(MsgService.class).updateIMMessageStatus(message.getMessage());
-        }
+      boolean started;
+      isStartingAudio = true;
+      try {
+        started =
+            startAudio(
+                new ChatMessageAudioPlayable(message),
+                audioControlListener,
+                audioStreamType,
+                resetOrigAudioStreamType,
+                delayMillis);
+      } finally {
+        isStartingAudio = false;
+      }
+      // remove unread signal and update database
+      if (started && isUnreadAudioMessage(message)) {
+        message.getMessage().setStatus(MsgStatusEnum.read);
+        NIMClient.getService(MsgService.class).updateIMMessageStatus(message.getMessage());
       }
     } else {
       //todo show toast sdcard not exist
@@ -181,50 +208,104 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
   }
 
   private boolean playNextAudio(ChatMessageAdapter tAdapter, IMMessageInfo messageItem) {
-    final List<ChatMessageBean> list = tAdapter.getMessageList();
-    int index = 0;
-    int nextIndex = -1;
-    //find the one is playing
-    for (int i = 0; i < list.size(); ++i) {
-      IMMessageInfo item = list.get(i).getMessageData();
-      if (item.equals(messageItem)) {
-        index = i;
-        break;
-      }
+    String uuid = messageItem.getMessage().getUuid();
+    List<ChatMessageBean> nextList = tAdapter.getNextUnreadAudio(uuid, 1);
+    if (nextList.isEmpty()) {
+      cancelPlayNext();
+      return false;
+    }
+    IMMessageInfo message = nextList.get(0).getMessageData();
+    mItem = message;
+    if (!isAudioReady(message)) {
+      // look-ahead download not finished, play when downloaded
+      downloadAudio(message);
+      return false;
+    }
+    playContinuously(tAdapter, message);
+    int index = tAdapter.searchMessagePosition(uuid);
+    if (index >= 0) {
+      tAdapter.notifyItemChanged(index);
+    }
+    return true;
+  }
+
+  //continuous play 1.go on playingAudioStreamType 2.stop resetOrigAudioStreamType
+  private void playContinuously(ChatMessageAdapter tAdapter, IMMessageInfo message) {
+    if (message.getMessage().getStatus() != MsgStatusEnum.read) {
+      message.getMessage().setStatus(MsgStatusEnum.read);
+      NIMClient.getService(MsgService.class).updateIMMessageStatus(message.getMessage());
     }
-    //find next
-    for (int i = index; i < list.size(); ++i) {
-      IMMessageInfo message = list.get(i).getMessageData();
-      if (isUnreadAudioMessage(message)) {
-        nextIndex = i;
-        break;
+    startPlayAudio(message, null, getCurrentAudioStreamType(), false, 0);
+    mItem = message;
+    int index = tAdapter.searchMessagePosition(message.getMessage().getUuid());
+    if (index >= 0) {
+      tAdapter.notifyItemChanged(index, PAYLOAD_REFRESH_AUDIO_ANIM);
+    }
+    prefetchNext();
+  }
+
+  // download next unread audio while the current one is playing
+  private void prefetchNext() {
+    if (!mIsNeedPlayNext || mAdapter == null || mItem == null) {
+      return;
+    }
+    List<ChatMessageBean> nextList =
+        mAdapter.getNextUnreadAudio(mItem.getMessage().getUuid(), PREFETCH_COUNT);
+    for (ChatMessageBean bean : nextList) {
+      if (!isAudioReady(bean.getMessageData())) {
+        downloadAudio(bean.getMessageData());
       }
     }
+  }
+
+  private void downloadAudio(IMMessageInfo message) {
+    String uuid = message.getMessage().getUuid();
+    if (!downloadingUuids.add(uuid)) {
+      return;
+    }
+    ChatRepo.downloadAttachment(
+        message.getMessage(),
+        false,
+        new FetchCallback<Void>() {
+          @Override
+          public void onSuccess(@Nullable Void param) {
+            downloadingUuids.remove(uuid);
+            // waiting for this one after the previous finished
+            if (mIsNeedPlayNext && mItem == message && mAdapter != null && !isPlayingAudio()) {
+              playContinuously(mAdapter, message);
+            }
+          }
+
+          @Override
+          public void onFailed(int code) {
+            onDownloadFailed(message, "code:" + code);
+          }
+
+          @Override
+          public void onException(@Nullable Throwable exception) {
+            onDownloadFailed(message, "exception:" + exception);
+          }
+        });
+  }
 
-    if (nextIndex == -1) {
+  private void onDownloadFailed(IMMessageInfo message, String error) {
+    downloadingUuids.remove(message.getMessage().getUuid());
+    ALog.e(LIB_TAG, TAG, "download audio failed," + error);
+    if (mItem == message && !isPlayingAudio()) {
       cancelPlayNext();
-      return false;
     }
-    IMMessageInfo message = list.get(nextIndex).getMessageData();
+  }
+
+  private static boolean isAudioReady(IMMessageInfo message) {
     AudioAttachment attach = (AudioAttachment) message.getMessage().getAttachment();
-    if (mChatMessageAudioControl != null && attach != null) {
-      if (message.getMessage().getAttachStatus() != AttachStatusEnum.transferred) {
-        cancelPlayNext();
-        return false;
-      }
-      if (message.getMessage().getStatus() != MsgStatusEnum.read) {
-        message.getMessage().setStatus(MsgStatusEnum.read);
-        NIMClient.getService(MsgService.class).updateIMMessageStatus(message.getMessage());
-      }
-      //continuous play 1.go on playingAudioStreamType 2.stop
-      //  resetOrigAudioStreamType
-      mChatMessageAudioControl.startPlayAudio(message, null, getCurrentAudioStreamType(), false, 0);
-      mItem = list.get(nextIndex).getMessageData();
-      //todo need recheck
-      tAdapter.notifyItemChanged(index);
+    if (attach == null) {
+      return false;
+    }
+    if (message.getMessage().getAttachStatus() == AttachStatusEnum.transferred) {
       return true;
     }
-    return false;
+    String path = attach.getPathForSave();
+    return !TextUtils.isEmpty(path) && new File(path).exists();
   }
 
   private void cancelPlayNext() {
@@ -235,6 +316,21 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
     mIsNeedPlayNext = isPlayNext;
     mAdapter = adapter;
     mItem = item;
+    prefetchNext();
+  }
+
+  /**
+   * play following unread audio after the message if it is unread, call before starting to play
+   *
+   * @param adapter adapter of the message view holder
+   */
+  public void setPlayNextIfUnread(
+      @Nullable RecyclerView.Adapter<?> adapter, ChatMessageBean message) {
+    if (adapter instanceof ChatMessageAdapter && ChatMessageStore.isUnreadAudio(message)) {
+      setPlayNext(true, (ChatMessageAdapter) adapter, message.getMessageData());
+    } else {
+      cancelPlayNext();
+    }
   }
 
   @Override
@@ -243,8 +339,22 @@ public class ChatMessageAudioControl extends BaseAudioControl<IMMessageInfo> {
     return null;
   }
 
+  /** stop playing, and the unread audio waiting for download is not played either */
+  @Override
   public void stopAudio() {
     super.stopAudio();
+    if (!isStartingAudio) {
+      cancelPlayNext();
+      downloadingUuids.clear();
+    }
+  }
+
+  /** the adapter is not shown any more, do not play next audio of it or keep a reference to it */
+  public void onAdapterDetached(ChatMessageAdapter adapter) {
+    if (adapter != null && adapter == mAdapter) {
+      cancelPlayNext();
+      downloadingUuids.clear();
+    }
   }
 
   public boolean isUnreadAudioMessage(IMMessageInfo message) {
@@ -21,6 +21,7 @@ import com.netease.yunxin.kit.chatkit.ui.ChatKitUIConstant;
 import com.netease.yunxin.kit.chatkit.ui.ChatMessageType;
 import com.netease.yunxin.kit.chatkit.ui.R;
 import com.netease.yunxin.kit.chatkit.ui.common.MessageHelper;
+import com.netease.yunxin.kit.chatkit.ui.common.ReplyMessageCache;
 import com.netease.yunxin.kit.chatkit.ui.custom.ChatConfigManager;
 import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
 import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
@@ -37,6 +38,7 @@ import com.netease.yunxin.kit.common.utils.SizeUtils;
 import com.netease.yunxin.kit.corekit.im.IMKitClient;
 import com.netease.yunxin.kit.corekit.im.model.UserInfo;
 import com.netease.yunxin.kit.corekit.im.provider.FetchCallback;
+import java.util.Collections;
 import java.util.List;
 
 /** base message view holder for chat message item */
@@ -54,12 +56,15 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
   protected ChatMessageBean currentMessage;
   // 第一条回复消息
   protected IMMessageInfo replyMessage;
+
   // 基础 ui 的控件集合
   protected ChatBaseMessageViewHolderBinding baseViewBinding;
   // 基础 ui 控件集合的父容器
   protected ViewGroup parent;
   // ui 控制选项
   protected ChatMessageViewHolderUIOptions uiOptions;
+  // 已添加到消息容器中的内容布局，复用时直接重新绑定数据
+  private View reusableContentView;
 
   public ChatBaseMessageViewHolder(@NonNull ChatBaseMessageViewHolderBinding parent, int viewType) {
     super(parent.baseRoot);
@@ -115,6 +120,9 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
         } else if (TextUtils.equals(payloadItem, ActionConstants.PAYLOAD_REPLY)) {
           // 消息回复
           setReplyInfo(message);
+        } else if (TextUtils.equals(payloadItem, ActionConstants.PAYLOAD_THUMB)) {
+          // 图片视频尺寸信息解析完成
+          onThumbUpdate(message);
         }
         onCommonViewVisibleConfig(message);
         onMessageBackgroundConfig(message);
@@ -127,12 +135,9 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
   public void bindData(ChatMessageBean message, ChatMessageBean lastMessage) {
     uiOptions = getUIOptions(message);
     currentMessage = message;
-    // 清空消息内容，初始化
-    baseViewBinding.messageContainer.removeAllViews();
     baseViewBinding.messageBottomGroup.removeAllViews();
     baseViewBinding.messageTopGroup.removeAllViews();
-    // 用于子类添加消息布局
-    addViewToMessageContainer();
+    prepareMessageContent();
     // 若消息为通知/提示消息，则不进行后续内容设置，和 uikit 中默认逻辑有关
     if (type == ChatMessageType.NOTICE_MESSAGE_VIEW_TYPE
         || type == ChatMessageType.TIP_MESSAGE_VIEW_TYPE) {
@@ -177,6 +182,13 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
    * @param data 更新下载进度的消息体
    */
   protected void onProgressUpdate(ChatMessageBean data) {}
+
+  /**
+   * 图片视频消息的尺寸信息在后台解析完成时触发
+   *
+   * @param data 尺寸信息更新的消息体
+   */
+  protected void onThumbUpdate(ChatMessageBean data) {}
   //// 消息标记状态渲染，消息撤回时需要移除标记，添加标记也都会触发此方法，
   //// 是否存在标记内容需要根据 ChatMessageBean 中方法判断
   protected void onMessageSignal(ChatMessageBean data) {
@@ -453,6 +465,38 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
    */
   protected void setReplyInfo(ChatMessageBean messageBean) {}
 
+  /** 被回复消息未加载时的占位内容 */
+  protected String getReplyPlaceholder() {
+    return itemView.getContext().getString(R.string.chat_reply_message_loading);
+  }
+
+  /**
+   * 被回复消息查询失败，不展示回复内容，加载失败或完成后会以 PAYLOAD_REPLY 刷新
+   *
+   * @param replyUuid 被回复消息 uuid
+   */
+  protected boolean isReplyLoadFailed(String replyUuid) {
+    return ReplyMessageCache.isFailed(replyUuid);
+  }
+
+  /**
+   * 从缓存中读取被回复消息并设置到 replyMessage，未缓存时发起批量加载，加载完成后会以 PAYLOAD_REPLY 刷新
+   *
+   * @param replyUuid 被回复消息 uuid
+   * @return 是否命中缓存，未命中时应展示占位内容
+   */
+  protected boolean loadReplyMessage(String replyUuid) {
+    if (ReplyMessageCache.contains(replyUuid)) {
+      replyMessage = ReplyMessageCache.get(replyUuid);
+      return true;
+    }
+    replyMessage = null;
+    if (!TextUtils.isEmpty(replyUuid)) {
+      ReplyMessageCache.prefetch(Collections.singletonList(replyUuid));
+    }
+    return false;
+  }
+
   /**
    * 设置消息展示的时间以及展示时间的间隔控制
    *
@@ -789,6 +833,41 @@ public abstract class ChatBaseMessageViewHolder extends CommonBaseMessageViewHol
   /** 可在此方法中实现将具体的消息体内容添加到消息容器中 */
   protected void addViewToMessageContainer() {}
 
+  /**
+   * 是否复用已添加的消息内容布局，返回 true 时 {@link #addViewToMessageContainer()} 只在首次绑定或内容被替换（如撤回）后调用，
+   * 子类需在 bindData 中重置所有内容控件状态。默认不复用
+   */
+  protected boolean isMessageContentReusable() {
+    return false;
+  }
+
+  /**
+   * 添加消息内容布局，可复用时保留已添加的布局
+   *
+   * @return 是否重新创建了内容布局
+   */
+  boolean prepareMessageContent() {
+    if (canReuseMessageContent()) {
+      return false;
+    }
+    // 清空消息内容，初始化
+    baseViewBinding.messageContainer.removeAllViews();
+    // 用于子类添加消息布局
+    addViewToMessageContainer();
+    reusableContentView =
+        baseViewBinding.messageContainer.getChildCount() == 1
+            ? baseViewBinding.messageContainer.getChildAt(0)
+            : null;
+    return true;
+  }
+
+  private boolean canReuseMessageContent() {
+    return isMessageContentReusable()
+        && reusableContentView != null
+        && baseViewBinding.messageContainer.getChildCount() == 1
+        && baseViewBinding.messageContainer.getChildAt(0) == reusableContentView;
+  }
+
   /** 获取消息内容展示容器 */
   protected ViewGroup getMessageContainer() {
     return baseViewBinding.messageContainer;
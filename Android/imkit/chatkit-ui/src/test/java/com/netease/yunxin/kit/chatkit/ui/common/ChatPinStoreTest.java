@@ -0,0 +1,149 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.nimlib.sdk.msg.model.MessageKey;
+import com.netease.nimlib.sdk.msg.model.MsgPinOption;
+import com.netease.nimlib.sdk.msg.model.MsgPinSyncResponseOption;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Drives pin add, remove and sync for sessions and checks the pinned message list. */
+@RunWith(RobolectricTestRunner.class)
+public class ChatPinStoreTest {
+
+  private static final String SESSION = "team1";
+  private static final SessionTypeEnum TYPE = SessionTypeEnum.Team;
+
+  @Before
+  public void setUp() {
+    ChatPinStore.clear();
+  }
+
+  @Test
+  public void messagesAreNewestFirstAndEqualTimeKeepsOrder() {
+    ChatPinStore.setMessages(
+        SESSION, TYPE, Arrays.asList(message("a", 100), message("b", 200), message("c", 200)));
+    ChatPinStore.addPin(SESSION, TYPE, "d", pin("u1"), message("d", 200));
+    ChatPinStore.addPin(SESSION, TYPE, "e", pin("u1"), message("e", 300));
+    ChatPinStore.addPin(SESSION, TYPE, "f", pin("u1"), message("f", 50));
+
+    assertEquals(
+        Arrays.asList("e", "b", "c", "d", "a", "f"),
+        uuidsOf(ChatPinStore.getMessages(SESSION, TYPE)));
+  }
+
+  @Test
+  public void pinAddedWithoutMessageForcesReload() {
+    ChatPinStore.setMessages(SESSION, TYPE, Arrays.asList(message("a", 100)));
+    assertNull(ChatPinStore.addPin(SESSION, TYPE, "b", pin("u1"), null));
+    assertNull(ChatPinStore.getMessages(SESSION, TYPE));
+    assertNotNull(ChatPinStore.getPinOption(SESSION, TYPE, "b"));
+
+    // removed before reload, list is complete again
+    assertTrue(ChatPinStore.removePin(SESSION, TYPE, "b"));
+    assertEquals(Arrays.asList("a"), uuidsOf(ChatPinStore.getMessages(SESSION, TYPE)));
+
+    // synced pin list has a pin whose message is unknown
+    ChatPinStore.addPin(SESSION, TYPE, "c", pin("u1"), null);
+    ChatPinStore.setPinInfo(SESSION, TYPE, Arrays.asList(syncPin("a", "u1"), syncPin("c", "u1")));
+    assertNull(ChatPinStore.getMessages(SESSION, TYPE));
+
+    // synced pin list without it
+    ChatPinStore.setPinInfo(SESSION, TYPE, Arrays.asList(syncPin("a", "u1")));
+    assertEquals(Arrays.asList("a"), uuidsOf(ChatPinStore.getMessages(SESSION, TYPE)));
+
+    // loaded again with the message
+    ChatPinStore.addPin(SESSION, TYPE, "d", pin("u1"), null);
+    ChatPinStore.setMessages(SESSION, TYPE, Arrays.asList(message("a", 100), message("d", 200)));
+    assertEquals(Arrays.asList("d", "a"), uuidsOf(ChatPinStore.getMessages(SESSION, TYPE)));
+  }
+
+  @Test
+  public void setPinInfoReportsChanges() {
+    ChatPinStore.setMessages(SESSION, TYPE, Arrays.asList(message("a", 100), message("b", 200)));
+    assertTrue(
+        ChatPinStore.setPinInfo(
+            SESSION, TYPE, Arrays.asList(syncPin("a", "u1"), syncPin("b", "u1"))));
+    assertFalse(
+        ChatPinStore.setPinInfo(
+            SESSION, TYPE, Arrays.asList(syncPin("b", "u1"), syncPin("a", "u1"))));
+
+    // pinned by another account
+    assertTrue(
+        ChatPinStore.setPinInfo(
+            SESSION, TYPE, Arrays.asList(syncPin("a", "u1"), syncPin("b", "u2"))));
+    assertEquals("u2", ChatPinStore.getMessages(SESSION, TYPE).get(0).getPinAccid());
+
+    // unpinned elsewhere, message is removed
+    assertTrue(ChatPinStore.setPinInfo(SESSION, TYPE, Arrays.asList(syncPin("a", "u1"))));
+    assertEquals(Arrays.asList("a"), uuidsOf(ChatPinStore.getMessages(SESSION, TYPE)));
+    assertNull(ChatPinStore.getPinOption(SESSION, TYPE, "b"));
+  }
+
+  @Test
+  public void leastRecentSessionIsEvicted() {
+    for (int index = 0; index < 8; index++) {
+      ChatPinStore.addPin("team" + index, TYPE, "a", pin("u1"), null);
+    }
+    // team0 is used again, team1 becomes the least recent one
+    assertNotNull(ChatPinStore.getPinOption("team0", TYPE, "a"));
+    ChatPinStore.addPin("team8", TYPE, "a", pin("u1"), null);
+
+    assertNotNull(ChatPinStore.getPinOption("team0", TYPE, "a"));
+    assertTrue(ChatPinStore.getPinOptions("team1", TYPE).isEmpty());
+    assertNotNull(ChatPinStore.getPinOption("team8", TYPE, "a"));
+    // same id of another session type is another session
+    assertNull(ChatPinStore.getPinOption("team0", SessionTypeEnum.P2P, "a"));
+  }
+
+  private static List<String> uuidsOf(List<ChatMessageBean> messages) {
+    List<String> result = new ArrayList<>();
+    for (ChatMessageBean bean : messages) {
+      result.add(bean.getMessageData().getMessage().getUuid());
+    }
+    return result;
+  }
+
+  private static IMMessageInfo message(String uuid, long time) {
+    IMMessage message = mock(IMMessage.class);
+    when(message.getUuid()).thenReturn(uuid);
+    when(message.getTime()).thenReturn(time);
+    return new IMMessageInfo(message);
+  }
+
+  private static MsgPinOption pin(String account) {
+    MsgPinOption option = mock(MsgPinOption.class);
+    when(option.getAccount()).thenReturn(account);
+    return option;
+  }
+
+  private static MsgPinSyncResponseOption syncPin(String uuid, String account) {
+    MessageKey key = mock(MessageKey.class);
+    when(key.getUuid()).thenReturn(uuid);
+    MsgPinOption option = pin(account);
+    MsgPinSyncResponseOption syncOption = mock(MsgPinSyncResponseOption.class);
+    when(syncOption.getKey()).thenReturn(key);
+    when(syncOption.getPinOption()).thenReturn(option);
+    return syncOption;
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+/** Feeds many progress callbacks through a manual frame scheduler and counts the batches. */
+public class ProgressAggregatorTest {
+
+  private static final int TRANSFER_COUNT = 50;
+
+  @Test
+  public void keepsLatestProgressOfEachKey() {
+    ManualFrameScheduler scheduler = new ManualFrameScheduler();
+    List<List<Progress>> batches = new ArrayList<>();
+    ProgressAggregator<Progress> aggregator =
+        new ProgressAggregator<>(
+            progress -> progress.key,
+            scheduler,
+            progressList -> batches.add(new ArrayList<>(progressList)));
+
+    aggregator.offer(new Progress("a", 1));
+    aggregator.offer(new Progress("b", 1));
+    aggregator.offer(new Progress("a", 2));
+    assertEquals(1, scheduler.frames.size());
+    scheduler.runFrame();
+
+    assertEquals(1, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertEquals("a", batches.get(0).get(0).key);
+    assertEquals(2, batches.get(0).get(0).transferred);
+    assertEquals(1, batches.get(0).get(1).transferred);
+  }
+
+  @Test
+  public void batchIsKeptAfterDispatch() {
+    ManualFrameScheduler scheduler = new ManualFrameScheduler();
+    List<List<Progress>> batches = new ArrayList<>();
+    // keep the list itself, as LiveData keeps its value for later observers
+    ProgressAggregator<Progress> aggregator =
+        new ProgressAggregator<>(progress -> progress.key, scheduler, batches::add);
+
+    aggregator.offer(new Progress("a", 100));
+    aggregator.offer(new Progress("b", 100));
+    scheduler.runFrame();
+    aggregator.offer(new Progress("a", 200));
+    scheduler.runFrame();
+
+    assertEquals(2, batches.size());
+    assertEquals(2, batches.get(0).size());
+    assertEquals(100, batches.get(0).get(0).transferred);
+    assertEquals(1, batches.get(1).size());
+    assertEquals(200, batches.get(1).get(0).transferred);
+  }
+
+  @Test
+  public void dispatchesOncePerFrame() {
+    ManualFrameScheduler scheduler = new ManualFrameScheduler();
+    int[] itemCount = {0};
+    ProgressAggregator<Progress> aggregator =
+        new ProgressAggregator<>(
+            progress -> progress.key,
+            scheduler,
+            progressList -> itemCount[0] += progressList.size());
+
+    // 200k callbacks of 50 transfers, a frame every 3000 callbacks
+    int eventCount = 200000;
+    int eventsPerFrame = 3000;
+    for (int i = 0; i < eventCount; i++) {
+      aggregator.offer(new Progress("uuid" + (i % TRANSFER_COUNT), i));
+      if (i % eventsPerFrame == eventsPerFrame - 1) {
+        scheduler.runFrame();
+      }
+    }
+    scheduler.runFrame();
+
+    int frameCount = (eventCount + eventsPerFrame - 1) / eventsPerFrame;
+    assertEquals(eventCount, aggregator.getOfferCount());
+    assertEquals(frameCount, aggregator.getDispatchCount());
+    assertEquals(frameCount * TRANSFER_COUNT, itemCount[0]);
+  }
+
+  @Test
+  public void concurrentProducersLoseNoKey() throws InterruptedException {
+    ManualFrameScheduler scheduler = new ManualFrameScheduler();
+    Map<String, Long> latest = new HashMap<>();
+    ProgressAggregator<Progress> aggregator =
+        new ProgressAggregator<>(
+            progress -> progress.key,
+            scheduler,
+            progressList -> {
+              for (Progress progress : progressList) {
+                latest.put(progress.key, progress.transferred);
+              }
+            });
+
+    int perTransfer = 1000;
+    CountDownLatch done = new CountDownLatch(TRANSFER_COUNT);
+    for (int t = 0; t < TRANSFER_COUNT; t++) {
+      String key = "uuid" + t;
+      new Thread(
+              () -> {
+                for (int i = 1; i <= perTransfer; i++) {
+                  aggregator.offer(new Progress(key, i));
+                }
+                done.countDown();
+              })
+          .start();
+    }
+    while (done.getCount() > 0) {
+      scheduler.runFrame();
+    }
+    done.await();
+    scheduler.runFrame();
+
+    assertEquals(TRANSFER_COUNT, latest.size());
+    for (Long transferred : latest.values()) {
+      assertEquals(perTransfer, transferred.longValue());
+    }
+    assertTrue(aggregator.getDispatchCount() <= aggregator.getOfferCount());
+  }
+
+  @Test
+  public void releaseDropsPending() {
+    ManualFrameScheduler scheduler = new ManualFrameScheduler();
+    int[] batchCount = {0};
+    ProgressAggregator<Progress> aggregator =
+        new ProgressAggregator<>(
+            progress -> progress.key, scheduler, progressList -> batchCount[0]++);
+
+    aggregator.offer(new Progress("a", 1));
+    aggregator.release();
+    aggregator.offer(new Progress("a", 2));
+    scheduler.runFrame();
+    assertEquals(0, batchCount[0]);
+  }
+
+  private static class Progress {
+    final String key;
+    final long transferred;
+
+    Progress(String key, long transferred) {
+      this.key = key;
+      this.transferred = transferred;
+    }
+  }
+
+  private static class ManualFrameScheduler implements ProgressAggregator.FrameScheduler {
+    final List<Runnable> frames = new ArrayList<>();
+
+    @Override
+    public synchronized void schedule(Runnable runnable) {
+      frames.add(runnable);
+    }
+
+    void runFrame() {
+      List<Runnable> list;
+      synchronized (this) {
+        list = new ArrayList<>(frames);
+        frames.clear();
+      }
+      for (Runnable runnable : list) {
+        runnable.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Renders texts around name changes and checks which cached texts are still valid. */
+@RunWith(RobolectricTestRunner.class)
+public class TeamNotificationTextCacheTest {
+
+  @Before
+  public void setUp() {
+    TeamNotificationTextCache.clear();
+  }
+
+  @Test
+  public void nameChangeInvalidatesTextsNamingIt() {
+    long version = TeamNotificationTextCache.getVersion();
+    TeamNotificationTextCache.put("m1", Arrays.asList("a", "b"), "a invited b", version);
+    TeamNotificationTextCache.put("m2", Arrays.asList("c"), "c left", version);
+    assertEquals("a invited b", TeamNotificationTextCache.get("m1"));
+
+    TeamNotificationTextCache.onNameChanged(Collections.singletonList("b"));
+    assertNull(TeamNotificationTextCache.get("m1"));
+    assertEquals("c left", TeamNotificationTextCache.get("m2"));
+
+    // rendered again after the change
+    TeamNotificationTextCache.put(
+        "m1", Arrays.asList("a", "b"), "a invited B", TeamNotificationTextCache.getVersion());
+    assertEquals("a invited B", TeamNotificationTextCache.get("m1"));
+  }
+
+  @Test
+  public void textRenderedWhileNameChangedIsNotReused() {
+    long version = TeamNotificationTextCache.getVersion();
+    // name of a changes while the text is being rendered with the old name
+    TeamNotificationTextCache.onNameChanged(Collections.singletonList("a"));
+    TeamNotificationTextCache.put("m1", Collections.singletonList("a"), "old a left", version);
+    assertNull(TeamNotificationTextCache.get("m1"));
+  }
+
+  @Test
+  public void evictedChangeStillInvalidatesOlderTexts() {
+    long version = TeamNotificationTextCache.getVersion();
+    TeamNotificationTextCache.put("m1", Collections.singletonList("a"), "a left", version);
+    TeamNotificationTextCache.onNameChanged(Collections.singletonList("a"));
+    // push the change of a out of the changed versions
+    for (int index = 0; index < TeamNotificationTextCache.CHANGED_MAX_SIZE; index++) {
+      TeamNotificationTextCache.onNameChanged(Collections.singletonList("other" + index));
+    }
+    assertNull(TeamNotificationTextCache.get("m1"));
+
+    // rendered after the eviction is valid
+    TeamNotificationTextCache.put(
+        "m1", Collections.singletonList("a"), "A left", TeamNotificationTextCache.getVersion());
+    assertEquals("A left", TeamNotificationTextCache.get("m1"));
+  }
+
+  @Test
+  public void isNamedChecksRecordedAccounts() {
+    TeamNotificationTextCache.put(
+        "m1", Arrays.asList("a", "b"), "a invited b", TeamNotificationTextCache.getVersion());
+    assertTrue(TeamNotificationTextCache.isNamed("m1", new HashSet<>(Arrays.asList("b", "x"))));
+    assertFalse(TeamNotificationTextCache.isNamed("m1", new HashSet<>(Arrays.asList("x"))));
+    assertFalse(TeamNotificationTextCache.isNamed("m2", new HashSet<>(Arrays.asList("a"))));
+  }
+
+  @Test
+  public void clearDropsTextsAndVersions() {
+    TeamNotificationTextCache.put("m1", Collections.singletonList("a"), "a left", 0);
+    TeamNotificationTextCache.onNameChanged(Collections.singletonList("a"));
+    TeamNotificationTextCache.clear();
+
+    assertNull(TeamNotificationTextCache.get("m1"));
+    assertEquals(0, TeamNotificationTextCache.getVersion());
+    TeamNotificationTextCache.put("m1", Collections.singletonList("a"), "a left", 0);
+    assertEquals("a left", TeamNotificationTextCache.get("m1"));
+  }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Drives the engine with a fake clock and scheduler, and counts the payloads it sends. */
+public class TypingStateEngineTest {
+
+  private static final long SEND_WINDOW = 3000;
+  private static final long IDLE_TIMEOUT = 3000;
+  private static final long REMOTE_EXPIRE = 5000;
+
+  private FakeScheduler scheduler;
+  private List<Boolean> sent;
+  private List<Boolean> remoteChanges;
+  private TypingStateEngine engine;
+
+  @Before
+  public void setUp() {
+    scheduler = new FakeScheduler();
+    sent = new ArrayList<>();
+    remoteChanges = new ArrayList<>();
+    engine =
+        new TypingStateEngine(
+            SEND_WINDOW,
+            IDLE_TIMEOUT,
+            REMOTE_EXPIRE,
+            () -> scheduler.now,
+            scheduler,
+            (isTyping, payload) -> sent.add(isTyping),
+            remoteChanges::add);
+  }
+
+  @Test
+  public void hundredKeystrokesSendFewPayloads() {
+    // one keystroke every 100ms for 10 seconds
+    for (int i = 0; i < 100; i++) {
+      scheduler.advanceTo(i * 100L);
+      engine.onLocalInput(true);
+    }
+    assertTrue(engine.isLocalTyping());
+    // typing at 0, 3000, 6000 and 9000
+    assertEquals(4, sent.size());
+    assertTrue(sent.get(3));
+    // idle timer is not posted again on every keystroke
+    assertTrue(scheduler.postCount <= 4);
+
+    scheduler.advanceTo(9900 + IDLE_TIMEOUT - 1);
+    assertTrue(engine.isLocalTyping());
+    scheduler.advanceTo(9900 + IDLE_TIMEOUT);
+    assertFalse(engine.isLocalTyping());
+    assertEquals(5, sent.size());
+    assertFalse(sent.get(4));
+  }
+
+  @Test
+  public void clearInputSendsStoppedOnce() {
+    engine.onLocalInput(true);
+    engine.onLocalInput(false);
+    engine.onLocalInput(false);
+    assertEquals(2, sent.size());
+    assertTrue(sent.get(0));
+    assertFalse(sent.get(1));
+    assertEquals(0, scheduler.tasks.size());
+  }
+
+  @Test
+  public void remoteTypingExpiresWithoutRefresh() {
+    engine.onRemotePayload(TypingStateEngine.PAYLOAD_TYPING);
+    assertTrue(engine.isRemoteTyping());
+    scheduler.advanceTo(4000);
+    engine.onRemotePayload(TypingStateEngine.PAYLOAD_TYPING);
+    scheduler.advanceTo(4000 + REMOTE_EXPIRE - 1);
+    assertTrue(engine.isRemoteTyping());
+    scheduler.advanceTo(4000 + REMOTE_EXPIRE);
+    assertFalse(engine.isRemoteTyping());
+    assertEquals(2, remoteChanges.size());
+  }
+
+  @Test
+  public void remoteStoppedHidesIndicator() {
+    engine.onRemotePayload(TypingStateEngine.PAYLOAD_TYPING);
+    engine.onRemotePayload(TypingStateEngine.PAYLOAD_STOPPED);
+    assertFalse(engine.isRemoteTyping());
+    assertEquals(0, scheduler.tasks.size());
+  }
+
+  @Test
+  public void parsePayloadKeepsOldFormat() {
+    assertEquals(Boolean.TRUE, TypingStateEngine.parsePayload(TypingStateEngine.PAYLOAD_TYPING));
+    assertEquals(Boolean.FALSE, TypingStateEngine.parsePayload(TypingStateEngine.PAYLOAD_STOPPED));
+    assertEquals(Boolean.TRUE, TypingStateEngine.parsePayload("{ \"typing\": 1 }"));
+    assertEquals(null, TypingStateEngine.parsePayload("{\"other\":1}"));
+  }
+
+  private static class FakeScheduler implements TypingStateEngine.Scheduler {
+    final List<Task> tasks = new ArrayList<>();
+    long now = 0;
+    int postCount = 0;
+
+    @Override
+    public void postDelayed(Runnable runnable, long delay) {
+      tasks.add(new Task(runnable, now + delay));
+      postCount++;
+    }
+
+    @Override
+    public void remove(Runnable runnable) {
+      Iterator<Task> iterator = tasks.iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().runnable == runnable) {
+          iterator.remove();
+        }
+      }
+    }
+
+    void advanceTo(long time) {
+      while (true) {
+        Task next = null;
+        for (Task task : tasks) {
+          if (task.time <= time && (next == null || task.time < next.time)) {
+            next = task;
+          }
+        }
+        if (next == null) {
+          break;
+        }
+        tasks.remove(next);
+        now = next.time;
+        next.runnable.run();
+      }
+      now = time;
+    }
+  }
+
+  private static class Task {
+    final Runnable runnable;
+    final long time;
+
+    Task(Runnable runnable, long time) {
+      this.runnable = runnable;
+      this.time = time;
+    }
+  }
+}
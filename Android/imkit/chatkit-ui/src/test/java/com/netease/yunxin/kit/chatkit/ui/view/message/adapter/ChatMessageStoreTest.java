@@ -0,0 +1,149 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.netease.nimlib.sdk.msg.constant.MsgDirectionEnum;
+import com.netease.nimlib.sdk.msg.constant.MsgStatusEnum;
+import com.netease.nimlib.sdk.msg.constant.MsgTypeEnum;
+import com.netease.nimlib.sdk.msg.model.IMMessage;
+import com.netease.yunxin.kit.chatkit.model.IMMessageInfo;
+import com.netease.yunxin.kit.chatkit.ui.model.ChatMessageBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Checks the offset based uuid index and the unread audio index against the list itself. */
+@RunWith(RobolectricTestRunner.class)
+public class ChatMessageStoreTest {
+
+  @Test
+  public void addAllToHeadKeepsIndex() {
+    ChatMessageStore store = new ChatMessageStore();
+    store.addAll(Arrays.asList(text("c"), audio("d"), text("e")));
+    store.addAllToHead(Arrays.asList(audio("a"), text("b")));
+    store.addAllToHead(Arrays.asList(text("z")));
+    store.add(audio("f"));
+
+    assertIndex(store);
+    assertEquals(uuids("a", "d", "f"), uuidsOf(store.nextUnreadAudio("z", 10)));
+    assertEquals(uuids("d", "f"), uuidsOf(store.nextUnreadAudio("a", 10)));
+    assertEquals(uuids("d"), uuidsOf(store.nextUnreadAudio("b", 1)));
+    assertTrue(store.nextUnreadAudio("f", 10).isEmpty());
+  }
+
+  @Test
+  public void removeHeadAndTailKeepsIndex() {
+    ChatMessageStore store = new ChatMessageStore();
+    store.addAll(Arrays.asList(audio("a"), text("b"), audio("c"), text("d"), audio("e")));
+
+    store.remove(0);
+    assertIndex(store);
+    assertEquals(-1, store.indexOf("a"));
+    assertEquals(uuids("c", "e"), uuidsOf(store.nextUnreadAudio("b", 10)));
+
+    store.remove(store.size() - 1);
+    assertIndex(store);
+    assertEquals(-1, store.indexOf("e"));
+    assertEquals(uuids("c"), uuidsOf(store.nextUnreadAudio("b", 10)));
+
+    store.addAllToHead(Arrays.asList(audio("x")));
+    store.add(audio("y"));
+    assertIndex(store);
+    assertEquals(uuids("c", "y"), uuidsOf(store.nextUnreadAudio("x", 10)));
+  }
+
+  @Test
+  public void removeMiddleRebuildsIndex() {
+    ChatMessageStore store = new ChatMessageStore();
+    store.addAll(Arrays.asList(text("a"), audio("b"), audio("c"), text("d"), audio("e")));
+    store.addAllToHead(Arrays.asList(text("z")));
+
+    store.remove(2);
+    // added while index is dirty
+    store.add(audio("f"));
+    store.addAllToHead(Arrays.asList(audio("y")));
+    assertIndex(store);
+    assertEquals(-1, store.indexOf("b"));
+    assertEquals(uuids("c", "e", "f"), uuidsOf(store.nextUnreadAudio("y", 10)));
+    assertEquals(uuids("e", "f"), uuidsOf(store.nextUnreadAudio("c", 10)));
+  }
+
+  @Test
+  public void setReplacesIndex() {
+    ChatMessageStore store = new ChatMessageStore();
+    store.addAll(Arrays.asList(text("a"), audio("b"), text("c"), text("d")));
+
+    store.set(1, text("x"));
+    store.set(2, audio("y"));
+    assertIndex(store);
+    assertEquals(-1, store.indexOf("b"));
+    assertEquals(uuids("y"), uuidsOf(store.nextUnreadAudio("a", 10)));
+
+    store.addAllToHead(Arrays.asList(text("z")));
+    store.set(4, audio("w"));
+    assertIndex(store);
+    assertEquals(uuids("y", "w"), uuidsOf(store.nextUnreadAudio("z", 10)));
+  }
+
+  @Test
+  public void readAudioIsDroppedOnLookup() {
+    ChatMessageStore store = new ChatMessageStore();
+    ChatMessageBean first = audio("b");
+    store.addAll(Arrays.asList(text("a"), first, audio("c"), audio("d")));
+
+    when(first.getMessageData().getMessage().getStatus()).thenReturn(MsgStatusEnum.read);
+    assertEquals(uuids("c"), uuidsOf(store.nextUnreadAudio("a", 1)));
+    assertEquals(uuids("c", "d"), uuidsOf(store.nextUnreadAudio("a", 10)));
+    // marked unread again, but it was dropped from the index
+    when(first.getMessageData().getMessage().getStatus()).thenReturn(MsgStatusEnum.unread);
+    assertEquals(uuids("c", "d"), uuidsOf(store.nextUnreadAudio("a", 10)));
+  }
+
+  // every message is found at its list position
+  private static void assertIndex(ChatMessageStore store) {
+    for (int index = 0; index < store.size(); index++) {
+      String uuid = store.get(index).getMessageData().getMessage().getUuid();
+      assertEquals(uuid, index, store.indexOf(uuid));
+    }
+  }
+
+  private static List<String> uuids(String... uuids) {
+    return Arrays.asList(uuids);
+  }
+
+  private static List<String> uuidsOf(List<ChatMessageBean> messages) {
+    List<String> result = new ArrayList<>();
+    for (ChatMessageBean bean : messages) {
+      result.add(bean.getMessageData().getMessage().getUuid());
+    }
+    return result;
+  }
+
+  private static ChatMessageBean text(String uuid) {
+    return message(uuid, MsgTypeEnum.text);
+  }
+
+  // received audio, unread
+  private static ChatMessageBean audio(String uuid) {
+    return message(uuid, MsgTypeEnum.audio);
+  }
+
+  private static ChatMessageBean message(String uuid, MsgTypeEnum type) {
+    IMMessage message = mock(IMMessage.class);
+    when(message.getUuid()).thenReturn(uuid);
+    when(message.getMsgType()).thenReturn(type);
+    when(message.getDirect()).thenReturn(MsgDirectionEnum.In);
+    when(message.getStatus()).thenReturn(MsgStatusEnum.unread);
+    return new ChatMessageBean(new IMMessageInfo(message));
+  }
+}
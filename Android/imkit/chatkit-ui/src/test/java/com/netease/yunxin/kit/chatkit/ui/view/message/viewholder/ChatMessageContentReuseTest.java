@@ -0,0 +1,182 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.chatkit.ui.view.message.viewholder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+import com.netease.yunxin.kit.chatkit.ui.ChatMessageType;
+import com.netease.yunxin.kit.chatkit.ui.databinding.ChatBaseMessageViewHolderBinding;
+import com.netease.yunxin.kit.chatkit.ui.databinding.NormalChatMessageTextViewHolderBinding;
+import com.netease.yunxin.kit.chatkit.ui.normal.view.message.viewholder.ChatCallMessageViewHolder;
+import com.netease.yunxin.kit.chatkit.ui.normal.view.message.viewholder.ChatTextMessageViewHolder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Scrolls the real message layouts in a RecyclerView and counts content inflation and binds. */
+@RunWith(RobolectricTestRunner.class)
+public class ChatMessageContentReuseTest {
+
+  private static final int ITEM_COUNT = 300;
+  private static final int ITEM_HEIGHT = 100;
+  private static final int LIST_WIDTH = 1000;
+  private static final int LIST_HEIGHT = 1000;
+  private static final int CUSTOM_VIEW_TYPE = 1000;
+
+  private Context context;
+  private FrameLayout parent;
+
+  @Before
+  public void setUp() {
+    context =
+        new ContextThemeWrapper(
+            ApplicationProvider.getApplicationContext(),
+            androidx.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+    parent = new FrameLayout(context);
+  }
+
+  @Test
+  public void scrollReusesContentOfPooledHolders() {
+    CountingAdapter adapter = new CountingAdapter();
+    RecyclerView recyclerView = new RecyclerView(context);
+    recyclerView.setLayoutManager(new LinearLayoutManager(context));
+    recyclerView.setAdapter(adapter);
+    recyclerView.measure(
+        View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+    recyclerView.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+
+    // first pass fills the pool
+    scrollThrough(recyclerView);
+    int createCount = adapter.createCount;
+    int bindCount = adapter.bindCount;
+    assertTrue(createCount < ITEM_COUNT / 4);
+    assertEquals(adapter.reusableCreateCount, adapter.reusableInflateCount);
+
+    scrollThrough(recyclerView);
+    scrollThrough(recyclerView);
+    // no more holders, reusable content is not inflated again while binds grow
+    assertEquals(createCount, adapter.createCount);
+    assertEquals(adapter.reusableCreateCount, adapter.reusableInflateCount);
+    assertTrue(adapter.bindCount >= bindCount + 2 * ITEM_COUNT);
+    // custom holders do not opt in, so the content is inflated on every bind
+    assertEquals(adapter.customBindCount, adapter.customInflateCount);
+  }
+
+  @Test
+  public void replacedContentIsInflatedAgain() {
+    ChatBaseMessageViewHolderBinding binding = inflateBase(parent);
+    ChatBaseMessageViewHolder holder =
+        new ChatTextMessageViewHolder(binding, ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_TEXT);
+    holder.prepareMessageContent();
+
+    // revoked message replaces the content
+    binding.messageContainer.removeAllViews();
+    binding.messageContainer.addView(new View(context));
+    assertTrue(holder.prepareMessageContent());
+    assertFalse(holder.prepareMessageContent());
+  }
+
+  // down to the last item and back to the first one
+  private static void scrollThrough(RecyclerView recyclerView) {
+    int distance = ITEM_COUNT * ITEM_HEIGHT;
+    for (int scrolled = 0; scrolled < distance; scrolled += ITEM_HEIGHT / 2) {
+      recyclerView.scrollBy(0, ITEM_HEIGHT / 2);
+    }
+    for (int scrolled = 0; scrolled < distance; scrolled += ITEM_HEIGHT / 2) {
+      recyclerView.scrollBy(0, -ITEM_HEIGHT / 2);
+    }
+  }
+
+  private static ChatBaseMessageViewHolderBinding inflateBase(ViewGroup parent) {
+    return ChatBaseMessageViewHolderBinding.inflate(
+        LayoutInflater.from(parent.getContext()), parent, false);
+  }
+
+  // text, call and custom messages in turn, binding runs the same content step as bindData
+  private static class CountingAdapter extends RecyclerView.Adapter<ChatBaseMessageViewHolder> {
+    int createCount = 0;
+    int bindCount = 0;
+    int reusableCreateCount = 0;
+    int reusableInflateCount = 0;
+    int customBindCount = 0;
+    int customInflateCount = 0;
+
+    @Override
+    public int getItemViewType(int position) {
+      switch (position % 3) {
+        case 0:
+          return ChatMessageType.NORMAL_MESSAGE_VIEW_TYPE_TEXT;
+        case 1:
+          return ChatMessageType.CALL_MESSAGE_VIEW_TYPE;
+        default:
+          return CUSTOM_VIEW_TYPE;
+      }
+    }
+
+    @Override
+    public int getItemCount() {
+      return ITEM_COUNT;
+    }
+
+    @NonNull
+    @Override
+    public ChatBaseMessageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+      createCount++;
+      ChatBaseMessageViewHolderBinding binding = inflateBase(parent);
+      binding.baseRoot.setLayoutParams(
+          new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+      if (viewType == CUSTOM_VIEW_TYPE) {
+        return new ChatBaseMessageViewHolder(binding, viewType) {
+          @Override
+          protected void addViewToMessageContainer() {
+            customInflateCount++;
+            NormalChatMessageTextViewHolderBinding.inflate(
+                LayoutInflater.from(parent.getContext()), getMessageContainer(), true);
+          }
+        };
+      }
+      reusableCreateCount++;
+      if (viewType == ChatMessageType.CALL_MESSAGE_VIEW_TYPE) {
+        return new ChatCallMessageViewHolder(binding, viewType) {
+          @Override
+          public void addViewToMessageContainer() {
+            reusableInflateCount++;
+            super.addViewToMessageContainer();
+          }
+        };
+      }
+      return new ChatTextMessageViewHolder(binding, viewType) {
+        @Override
+        public void addViewToMessageContainer() {
+          reusableInflateCount++;
+          super.addViewToMessageContainer();
+        }
+      };
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ChatBaseMessageViewHolder holder, int position) {
+      bindCount++;
+      if (holder.getItemViewType() == CUSTOM_VIEW_TYPE) {
+        customBindCount++;
+      }
+      holder.prepareMessageContent();
+    }
+  }
+}
@@ -45,6 +45,7 @@ import com.netease.yunxin.kit.corekit.route.XKitRouter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 /** conversation list fragment show your recent conversation */
 public abstract class ConversationBaseFragment extends BaseFragment implements ILoadListener {
@@ -61,6 +62,7 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
   private Observer<FetchResult<MuteListChangedNotify>> muteObserver;
   private Observer<FetchResult<String>> addRemoveStickObserver;
   private Observer<FetchResult<List<String>>> aitObserver;
+  private Observer<FetchResult<Set<String>>> syncStickObserver;
   private Observer<FetchResult<Integer>> unreadCountObserver;
 
   protected IConversationFactory conversationFactory;
@@ -351,6 +353,14 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
           }
         };
 
+    syncStickObserver =
+        result -> {
+          if (result.getLoadStatus() == LoadStatus.Finish && conversationView != null) {
+            ALog.d(LIB_TAG, TAG, "SyncStickLiveData, Success");
+            conversationView.syncStickTop(result.getData());
+          }
+        };
+
     unreadCountObserver =
         result -> {
           if (result.getLoadStatus() == LoadStatus.Success) {
@@ -388,6 +398,7 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
     viewModel.getMuteInfoLiveData().observeForever(muteObserver);
     viewModel.getAddRemoveStickLiveData().observeForever(addRemoveStickObserver);
     viewModel.getAitLiveData().observeForever(aitObserver);
+    viewModel.getSyncStickLiveData().observeForever(syncStickObserver);
     viewModel.getUnreadCountLiveData().observeForever(unreadCountObserver);
   }
 
@@ -400,6 +411,7 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
     viewModel.getMuteInfoLiveData().removeObserver(muteObserver);
     viewModel.getAddRemoveStickLiveData().removeObserver(addRemoveStickObserver);
     viewModel.getAitLiveData().removeObserver(aitObserver);
+    viewModel.getSyncStickLiveData().removeObserver(syncStickObserver);
     viewModel.getUnreadCountLiveData().removeObserver(unreadCountObserver);
   }
 
@@ -450,7 +462,6 @@ public abstract class ConversationBaseFragment extends BaseFragment implements I
         } else {
           result = bean1.isStickTop() ? -1 : 1;
         }
-        ALog.d(LIB_TAG, TAG, "conversationComparator, result:" + result);
         return result;
       };
 
@@ -45,8 +45,13 @@ import com.netease.yunxin.kit.corekit.im.provider.UserInfoObserver;
 import com.netease.yunxin.kit.corekit.im.utils.RouterConstant;
 import com.netease.yunxin.kit.corekit.route.XKitRouter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /** conversation view model to fetch data or operate conversation */
 public class ConversationViewModel extends BaseViewModel {
@@ -71,12 +76,20 @@ public class ConversationViewModel extends BaseViewModel {
   private final MutableLiveData<FetchResult<MuteListChangedNotify>> muteInfoLiveData =
       new MutableLiveData<>();
   private final MutableLiveData<FetchResult<List<String>>> aitLiveData = new MutableLiveData<>();
+  private final MutableLiveData<FetchResult<Set<String>>> syncStickLiveData =
+      new MutableLiveData<>();
 
   private Comparator<ConversationInfo> comparator;
   private IConversationFactory conversationFactory = new DefaultViewHolderFactory();
   private static final int PAGE_LIMIT = 50;
   private boolean hasMore = true;
   private boolean hasStart = false;
+  // sorted session list of last query, pages are taken from it
+  private final List<ConversationInfo> sessionSnapshot = new ArrayList<>();
+  // contactId -> position in sessionSnapshot
+  private final Map<String, Integer> snapshotIndex = new HashMap<>();
+  // count of sessions in snapshot which have been sent to view
+  private int pageOffset = 0;
 
   public ConversationViewModel() {
     //register observer
@@ -180,6 +193,11 @@ public class ConversationViewModel extends BaseViewModel {
     return aitLiveData;
   }
 
+  /** all stick top session id after stick top sync */
+  public MutableLiveData<FetchResult<Set<String>>> getSyncStickLiveData() {
+    return syncStickLiveData;
+  }
+
   public void getUnreadCount() {
     ALog.d(LIB_TAG, TAG, "getUnreadCount");
     ConversationRepo.getMsgUnreadCountAsync(
@@ -213,7 +231,7 @@ public class ConversationViewModel extends BaseViewModel {
   public void loadMore(ConversationBean data) {
     if (data != null && data.infoData != null) {
       ALog.d(LIB_TAG, TAG, "loadMore:" + data.infoData.getContactId());
-      queryConversation(data.infoData);
+      loadNextPage();
     }
   }
 
@@ -225,26 +243,25 @@ public class ConversationViewModel extends BaseViewModel {
     }
     hasStart = true;
     ConversationRepo.getAllSessionList(
-        //        data,
-        //        PAGE_LIMIT,
-        //        comparator,
         new FetchCallback<List<ConversationInfo>>() {
           @Override
           public void onSuccess(@Nullable List<ConversationInfo> param) {
-            FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
-            if (data != null) {
-              result.setLoadStatus(LoadStatus.Finish);
-            }
             ALog.d(
                 LIB_TAG,
                 TAG,
                 "queryConversation:onSuccess,size=" + (param != null ? param.size() : 0));
-            List<ConversationBean> resultData = new ArrayList<>();
-            for (int index = 0; param != null && index < param.size(); index++) {
-              resultData.add(conversationFactory.CreateBean(param.get(index)));
+            sessionSnapshot.clear();
+            if (param != null) {
+              sessionSnapshot.addAll(param);
             }
-            hasMore = false; //param != null && param.size() == PAGE_LIMIT;
-            result.setData(resultData);
+            if (comparator != null) {
+              Collections.sort(sessionSnapshot, comparator);
+            }
+            snapshotIndex.clear();
+            reindexSnapshot(0);
+            pageOffset = 0;
+            FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
+            result.setData(nextPage());
             queryLiveData.setValue(result);
             hasStart = false;
           }
@@ -264,6 +281,98 @@ public class ConversationViewModel extends BaseViewModel {
         });
   }
 
+  // 从会话快照中取下一页，只为这一页创建ConversationBean
+  private void loadNextPage() {
+    if (hasStart || !hasMore) {
+      return;
+    }
+    FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Finish);
+    result.setData(nextPage());
+    queryLiveData.setValue(result);
+  }
+
+  private List<ConversationBean> nextPage() {
+    int end = Math.min(pageOffset + PAGE_LIMIT, sessionSnapshot.size());
+    List<ConversationBean> resultData = new ArrayList<>(end - pageOffset);
+    for (int index = pageOffset; index < end; index++) {
+      resultData.add(conversationFactory.CreateBean(sessionSnapshot.get(index)));
+    }
+    pageOffset = end;
+    hasMore = pageOffset < sessionSnapshot.size();
+    ALog.d(LIB_TAG, TAG, "nextPage,offset:" + pageOffset + ",hasMore:" + hasMore);
+    return resultData;
+  }
+
+  private int snapshotIndexOf(String contactId) {
+    Integer index = snapshotIndex.get(contactId);
+    return index == null ? -1 : index;
+  }
+
+  // 快照从from开始的位置发生了移动，更新这部分的索引，开销与列表本身的移动相同
+  private void reindexSnapshot(int from) {
+    for (int index = from; index < sessionSnapshot.size(); index++) {
+      snapshotIndex.put(sessionSnapshot.get(index).getContactId(), index);
+    }
+  }
+
+  private void removeFromSnapshot(String contactId) {
+    int index = snapshotIndexOf(contactId);
+    if (index > -1) {
+      removeFromSnapshot(index);
+    }
+  }
+
+  private void removeFromSnapshot(int index) {
+    ConversationInfo info = sessionSnapshot.remove(index);
+    snapshotIndex.remove(info.getContactId());
+    reindexSnapshot(index);
+    if (index < pageOffset) {
+      pageOffset--;
+    }
+    hasMore = pageOffset < sessionSnapshot.size();
+  }
+
+  /**
+   * update stick top of session not loaded yet, and move it to its new place in the remaining
+   * pages
+   *
+   * @return session need to show now, null if it is loaded or still in the remaining pages
+   */
+  @Nullable
+  private ConversationInfo applyStickToSnapshot(String contactId, boolean stickTop) {
+    int index = snapshotIndexOf(contactId);
+    // not in snapshot, or already loaded
+    if (index < 0 || index < pageOffset) {
+      return null;
+    }
+    ConversationInfo info = sessionSnapshot.get(index);
+    if (info.isStickTop() == stickTop) {
+      return null;
+    }
+    info.setStickTop(stickTop);
+    if (stickTop) {
+      // 新置顶的会话需要立即显示
+      removeFromSnapshot(index);
+      return info;
+    }
+    if (comparator == null) {
+      return null;
+    }
+    // 取消置顶的会话按排序规则重新放入快照，落在已显示范围内时直接显示
+    removeFromSnapshot(index);
+    int position = Collections.binarySearch(sessionSnapshot, info, comparator);
+    if (position < 0) {
+      position = -position - 1;
+    }
+    if (position < pageOffset) {
+      return info;
+    }
+    sessionSnapshot.add(position, info);
+    reindexSnapshot(position);
+    hasMore = true;
+    return null;
+  }
+
   public void deleteConversation(ConversationBean data) {
     ConversationRepo.deleteSession(
         data.infoData.getContactId(),
@@ -274,6 +383,7 @@ public class ConversationViewModel extends BaseViewModel {
           @Override
           public void onSuccess(@Nullable Void param) {
             ALog.d(LIB_TAG, TAG, "deleteConversation,onSuccess:" + data.infoData.getContactId());
+            removeFromSnapshot(data.infoData.getContactId());
             FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Finish);
             result.setFetchType(FetchResult.FetchType.Remove);
             List<ConversationBean> beanList = new ArrayList<>();
@@ -363,6 +473,8 @@ public class ConversationViewModel extends BaseViewModel {
   private final Observer<StickTopSessionInfo> addStickObserver =
       param -> {
         ALog.d(LIB_TAG, TAG, "addStickObserver，onSuccess:" + param.getSessionId());
+        showStickSessions(
+            Collections.singletonList(applyStickToSnapshot(param.getSessionId(), true)));
         FetchResult<String> result = new FetchResult<>(LoadStatus.Finish);
         result.setFetchType(FetchResult.FetchType.Add);
         result.setData(param.getSessionId());
@@ -372,12 +484,47 @@ public class ConversationViewModel extends BaseViewModel {
   private final Observer<List<StickTopSessionInfo>> syncStickObserver =
       param -> {
         ALog.d(LIB_TAG, TAG, "syncStickObserver,onSuccess:" + param.size());
-        queryConversation(null);
+        Set<String> stickIdSet = new HashSet<>();
+        for (StickTopSessionInfo info : param) {
+          stickIdSet.add(info.getSessionId());
+        }
+        // 只处理置顶状态变化的会话，不重新查询全部会话，先找出变化的会话再逐个移动
+        List<String> changedIdList = new ArrayList<>();
+        for (int index = pageOffset; index < sessionSnapshot.size(); index++) {
+          ConversationInfo info = sessionSnapshot.get(index);
+          if (info.isStickTop() != stickIdSet.contains(info.getContactId())) {
+            changedIdList.add(info.getContactId());
+          }
+        }
+        List<ConversationInfo> showList = new ArrayList<>();
+        for (String contactId : changedIdList) {
+          showList.add(applyStickToSnapshot(contactId, stickIdSet.contains(contactId)));
+        }
+        showStickSessions(showList);
+        FetchResult<Set<String>> result = new FetchResult<>(LoadStatus.Finish);
+        result.setData(stickIdSet);
+        syncStickLiveData.setValue(result);
       };
 
+  private void showStickSessions(List<ConversationInfo> infoList) {
+    List<ConversationBean> beanList = new ArrayList<>();
+    for (ConversationInfo info : infoList) {
+      if (info != null) {
+        beanList.add(conversationFactory.CreateBean(info));
+      }
+    }
+    if (beanList.size() > 0) {
+      FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Success);
+      result.setData(beanList);
+      changeLiveData.setValue(result);
+    }
+  }
+
   private final Observer<StickTopSessionInfo> removeStickObserver =
       param -> {
         ALog.d(LIB_TAG, TAG, "removeStickObserver,onSuccess:" + param.getSessionId());
+        showStickSessions(
+            Collections.singletonList(applyStickToSnapshot(param.getSessionId(), false)));
         FetchResult<String> result = new FetchResult<>(LoadStatus.Finish);
         result.setFetchType(FetchResult.FetchType.Remove);
         result.setData(param.getSessionId());
@@ -419,6 +566,14 @@ public class ConversationViewModel extends BaseViewModel {
         @Override
         public void onEvent(@Nullable ConversationInfo param) {
           ALog.d(LIB_TAG, TAG, "deleteObserver,onSuccess:" + (param == null));
+          if (param != null) {
+            removeFromSnapshot(param.getContactId());
+          } else {
+            sessionSnapshot.clear();
+            snapshotIndex.clear();
+            pageOffset = 0;
+            hasMore = false;
+          }
           FetchResult<List<ConversationBean>> result = new FetchResult<>(LoadStatus.Finish);
           result.setFetchType(FetchResult.FetchType.Remove);
           List<ConversationBean> beanList = new ArrayList<>();
@@ -6,9 +6,9 @@ package com.netease.yunxin.kit.conversationkit.ui.view;
 
 import static com.netease.yunxin.kit.conversationkit.ui.common.ConversationConstant.LIB_TAG;
 
-import android.text.TextUtils;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.netease.nimlib.sdk.friend.model.MuteListChangedNotify;
@@ -28,14 +28,14 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /** conversation adapter */
 public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
 
   private final String TAG = "ConversationAdapter";
   private IConversationFactory viewHolderFactory = new DefaultViewHolderFactory();
-  private final List<ConversationBean> conversationList = new ArrayList<>();
-  private Comparator<ConversationInfo> dataComparator;
+  private final ConversationIndex conversationList = new ConversationIndex();
   private ViewHolderClickListener clickListener;
   private boolean isShow = true;
   private final LinearLayoutManager layoutManager;
@@ -46,11 +46,24 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
 
   /** set data and clear conversationList */
   public void setData(List<ConversationBean> data) {
-    conversationList.clear();
-    if (data != null) {
-      conversationList.addAll(data);
-      notifyDataSetChanged();
+    if (conversationList.size() == 0) {
+      conversationList.setAll(data);
+      if (conversationList.size() > 0) {
+        notifyItemRangeInserted(0, conversationList.size());
+      }
+      return;
     }
+    List<ConversationBean> oldList = new ArrayList<>(conversationList.size());
+    for (int i = 0; i < conversationList.size(); i++) {
+      oldList.add(conversationList.get(i));
+    }
+    conversationList.setAll(data);
+    List<ConversationBean> newList = new ArrayList<>(conversationList.size());
+    for (int i = 0; i < conversationList.size(); i++) {
+      newList.add(conversationList.get(i));
+    }
+    DiffUtil.calculateDiff(new ConversationDiffCallback(oldList, newList), true)
+        .dispatchUpdatesTo(this);
   }
 
   public void setShowTag(boolean show) {
@@ -62,68 +75,80 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
 
   /** add data to list forward */
   public void addForwardData(List<ConversationBean> data) {
-    if (data != null) {
-      conversationList.addAll(0, data);
-    }
+    appendData(data);
   }
 
-  /** append data to list */
+  /** append data to list, conversation already in list is skipped */
   public void appendData(List<ConversationBean> data) {
-    if (data != null) {
-      int position = conversationList.size();
-      conversationList.addAll(data);
-      notifyItemInserted(position);
+    if (data == null) {
+      return;
+    }
+    for (ConversationBean bean : data) {
+      if (bean == null || bean.infoData == null || conversationList.contains(bean)) {
+        continue;
+      }
+      int insertIndex = conversationList.insert(bean);
+      if (isShow) {
+        notifyItemInserted(insertIndex);
+      }
     }
   }
 
   public void update(List<ConversationBean> data) {
-    for (int i = 0; data != null && i < data.size(); i++) {
-      update(data.get(i));
+    if (data == null || data.isEmpty()) {
+      return;
+    }
+    int position = layoutManager.findFirstVisibleItemPosition();
+    for (int i = 0; i < data.size(); i++) {
+      updateInternal(data.get(i));
     }
+    layoutManager.scrollToPosition(position);
   }
 
   public void update(ConversationBean data) {
-    ALog.d(LIB_TAG, TAG, "update" + data.infoData.getContactId());
     int position = layoutManager.findFirstVisibleItemPosition();
-    int removeIndex = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (data.equals(conversationList.get(j))) {
-        removeIndex = j;
-        break;
-      }
-    }
+    updateInternal(data);
+    layoutManager.scrollToPosition(position);
+  }
+
+  private void updateInternal(ConversationBean data) {
+    ALog.d(LIB_TAG, TAG, "update" + data.infoData.getContactId());
+    int removeIndex = conversationList.indexOf(data);
     ALog.d(LIB_TAG, TAG, "update, removeIndex:" + removeIndex);
     if (removeIndex > -1) {
       conversationList.remove(removeIndex);
-      int insertIndex = searchComparatorIndex(data);
+      int insertIndex = conversationList.insert(data);
       ALog.d(
           LIB_TAG,
           TAG,
           "update, insertIndex:" + insertIndex + "unread:" + data.infoData.getUnreadCount());
-      conversationList.add(insertIndex, data);
       if (isShow) {
-        notifyItemMoved(removeIndex, insertIndex);
+        if (removeIndex != insertIndex) {
+          notifyItemMoved(removeIndex, insertIndex);
+        }
         notifyItemChanged(insertIndex);
       }
     } else {
-      int insertIndex = searchComparatorIndex(data);
-      conversationList.add(insertIndex, data);
+      int insertIndex = conversationList.insert(data);
       if (isShow) {
         notifyItemInserted(insertIndex);
       }
     }
-    layoutManager.scrollToPosition(position);
   }
 
   public void updateUserInfo(List<UserInfo> data) {
     Map<String, UserInfo> accountMap = DataUtils.getUserInfoMap(data);
     if (accountMap != null) {
-      for (int i = 0; i < conversationList.size(); i++) {
-        UserInfo info = conversationList.get(i).infoData.getUserInfo();
-        if (info != null && accountMap.containsKey(info.getAccount())) {
-          conversationList.get(i).infoData.setUserInfo(accountMap.get(info.getAccount()));
+      for (String account : accountMap.keySet()) {
+        int index = conversationList.indexOf(account);
+        if (index < 0) {
+          continue;
+        }
+        ConversationInfo info = conversationList.get(index).infoData;
+        if (info.getUserInfo() != null) {
+          info.setUserInfo(accountMap.get(account));
           if (isShow) {
-            notifyItemChanged(i);
+            notifyItemChanged(index);
           }
         }
       }
@@ -133,12 +158,16 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   public void updateFriendInfo(List<FriendInfo> data) {
     Map<String, FriendInfo> accountMap = DataUtils.getFriendInfoMap(data);
     if (accountMap != null) {
-      for (int i = 0; i < conversationList.size(); i++) {
-        UserInfo info = conversationList.get(i).infoData.getUserInfo();
-        if (info != null && accountMap.containsKey(info.getAccount())) {
-          conversationList.get(i).infoData.setFriendInfo(accountMap.get(info.getAccount()));
+      for (String account : accountMap.keySet()) {
+        int index = conversationList.indexOf(account);
+        if (index < 0) {
+          continue;
+        }
+        ConversationInfo info = conversationList.get(index).infoData;
+        if (info.getUserInfo() != null) {
+          info.setFriendInfo(accountMap.get(account));
           if (isShow) {
-            notifyItemChanged(i);
+            notifyItemChanged(index);
           }
         }
       }
@@ -148,18 +177,20 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   public void updateTeamInfo(List<Team> data) {
     Map<String, Team> accountMap = DataUtils.getTeamInfoMap(data);
     if (accountMap != null) {
-      for (int i = 0; i < conversationList.size(); i++) {
-        ConversationInfo info = conversationList.get(i).infoData;
-        if (info != null
-            && info.getTeamInfo() != null
-            && accountMap.containsKey(info.getTeamInfo().getId())) {
-          Team team = accountMap.get(info.getTeamInfo().getId());
+      for (String teamId : accountMap.keySet()) {
+        int index = conversationList.indexOf(teamId);
+        if (index < 0) {
+          continue;
+        }
+        ConversationInfo info = conversationList.get(index).infoData;
+        if (info.getTeamInfo() != null) {
+          Team team = accountMap.get(teamId);
           info.setTeamInfo(team);
           if (team != null && team.getMessageNotifyType() != null) {
             info.setMute(team.getMessageNotifyType() == TeamMessageNotifyTypeEnum.Mute);
           }
           if (isShow) {
-            notifyItemChanged(i);
+            notifyItemChanged(index);
           }
         }
       }
@@ -168,47 +199,22 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
 
   public void updateMuteInfo(MuteListChangedNotify data) {
     if (data != null) {
-      for (int i = 0; i < conversationList.size(); i++) {
-        String contactId = conversationList.get(i).infoData.getContactId();
-        if (TextUtils.equals(contactId, data.getAccount())) {
-          conversationList.get(i).infoData.setMute(data.isMute());
-          if (isShow) {
-            notifyItemChanged(i);
-          }
+      int index = conversationList.indexOf(data.getAccount());
+      if (index > -1) {
+        conversationList.get(index).infoData.setMute(data.isMute());
+        if (isShow) {
+          notifyItemChanged(index);
         }
       }
     }
   }
 
-  private int searchComparatorIndex(ConversationBean data) {
-    int index = conversationList.size();
-    // add stick must be insert 0
-    if (data.infoData.isStickTop()) {
-      return 0;
-    }
-    for (int i = 0; i < conversationList.size(); i++) {
-      if (dataComparator != null
-          && dataComparator.compare(data.infoData, conversationList.get(i).infoData) < 1) {
-        index = i;
-        break;
-      }
-    }
-
-    return index;
-  }
-
   public void removeData(List<ConversationBean> dataList) {
     if (dataList == null || dataList.size() < 1) {
       return;
     }
     for (ConversationBean data : dataList) {
-      int index = -1;
-      for (int j = 0; j < conversationList.size(); j++) {
-        if (data.equals(conversationList.get(j))) {
-          index = j;
-          break;
-        }
-      }
+      int index = conversationList.indexOf(data);
       if (index > -1) {
         removeData(index);
       }
@@ -216,18 +222,13 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   }
 
   public void removeAll() {
+    int count = conversationList.size();
     conversationList.clear();
-    notifyDataSetChanged();
+    notifyItemRangeRemoved(0, count);
   }
 
   public void removeData(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).infoData.getContactId(), id)) {
-        index = j;
-        break;
-      }
-    }
+    int index = conversationList.indexOf(id);
     if (index > -1) {
       removeData(index);
     }
@@ -243,14 +244,8 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   }
 
   public void updateAit(List<String> idList) {
-    int index = -1;
     for (String id : idList) {
-      for (int j = 0; j < conversationList.size(); j++) {
-        if (TextUtils.equals(conversationList.get(j).infoData.getContactId(), id)) {
-          index = j;
-          break;
-        }
-      }
+      int index = conversationList.indexOf(id);
       if (index > -1) {
         notifyItemChanged(index);
       }
@@ -258,39 +253,40 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   }
 
   public void addStickTop(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).infoData.getContactId(), id)) {
-        index = j;
-        break;
-      }
-    }
-    if (index > -1) {
-      conversationList.get(index).infoData.setStickTop(true);
-      ConversationBean data = conversationList.remove(index);
-      conversationList.add(0, data);
-      if (isShow) {
-        notifyItemMoved(index, 0);
-        notifyItemChanged(0);
-      }
-    }
+    changeStickTop(id, true);
   }
 
   public void removeStickTop(String id) {
-    int index = -1;
-    for (int j = 0; j < conversationList.size(); j++) {
-      if (TextUtils.equals(conversationList.get(j).infoData.getContactId(), id)) {
-        index = j;
-        break;
+    changeStickTop(id, false);
+  }
+
+  /** apply full stick top list, only conversations whose state changed are moved */
+  public void syncStickTop(Set<String> stickIdSet) {
+    if (stickIdSet == null) {
+      return;
+    }
+    List<String> changedList = new ArrayList<>();
+    for (int i = 0; i < conversationList.size(); i++) {
+      ConversationInfo info = conversationList.get(i).infoData;
+      if (info.isStickTop() != stickIdSet.contains(info.getContactId())) {
+        changedList.add(info.getContactId());
       }
     }
+    for (String id : changedList) {
+      changeStickTop(id, stickIdSet.contains(id));
+    }
+  }
+
+  private void changeStickTop(String id, boolean stickTop) {
+    int index = conversationList.indexOf(id);
     if (index > -1) {
       ConversationBean data = conversationList.remove(index);
-      data.infoData.setStickTop(false);
-      int insertIndex = searchComparatorIndex(data);
-      conversationList.add(insertIndex, data);
+      data.infoData.setStickTop(stickTop);
+      int insertIndex = conversationList.insert(data);
       if (isShow) {
-        notifyItemMoved(index, insertIndex);
+        if (index != insertIndex) {
+          notifyItemMoved(index, insertIndex);
+        }
         notifyItemChanged(insertIndex);
       }
     }
@@ -305,7 +301,7 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
   }
 
   public void setComparator(Comparator<ConversationInfo> comparator) {
-    this.dataComparator = comparator;
+    conversationList.setComparator(comparator);
   }
 
   @NonNull
@@ -340,4 +336,41 @@ public class ConversationAdapter extends RecyclerView.Adapter<BaseViewHolder> {
     }
     return null;
   }
+
+  private static class ConversationDiffCallback extends DiffUtil.Callback {
+
+    private final List<ConversationBean> oldList;
+    private final List<ConversationBean> newList;
+
+    ConversationDiffCallback(List<ConversationBean> oldList, List<ConversationBean> newList) {
+      this.oldList = oldList;
+      this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      ConversationInfo oldInfo = oldList.get(oldItemPosition).infoData;
+      ConversationInfo newInfo = newList.get(newItemPosition).infoData;
+      return oldInfo == newInfo
+          || (oldInfo.getTime() == newInfo.getTime()
+              && oldInfo.getUnreadCount() == newInfo.getUnreadCount()
+              && oldInfo.isStickTop() == newInfo.isStickTop()
+              && oldInfo.getMute() == newInfo.getMute());
+    }
+  }
 }
@@ -0,0 +1,164 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.kit.conversationkit.ui.view;
+
+import androidx.annotation.Nullable;
+import com.netease.yunxin.kit.chatkit.model.ConversationInfo;
+import com.netease.yunxin.kit.conversationkit.ui.model.ConversationBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sorted conversation list with contact id index
+ *
+ * <p>list is kept in comparator order, so insert position and position of a stored conversation
+ * are found by binary search. Conversations should be removed before their sort fields (stick
+ * top, time) are changed, and inserted again after.
+ */
+public class ConversationIndex {
+
+  private final List<ConversationBean> conversationList = new ArrayList<>();
+
+  // contact id -> stored conversation
+  private final Map<String, ConversationBean> idIndex = new HashMap<>();
+
+  private Comparator<ConversationInfo> comparator;
+
+  public void setComparator(Comparator<ConversationInfo> comparator) {
+    this.comparator = comparator;
+  }
+
+  public int size() {
+    return conversationList.size();
+  }
+
+  public ConversationBean get(int position) {
+    return conversationList.get(position);
+  }
+
+  public void clear() {
+    conversationList.clear();
+    idIndex.clear();
+  }
+
+  /** replace all data, data will be sorted if comparator is set */
+  public void setAll(List<ConversationBean> data) {
+    clear();
+    if (data == null) {
+      return;
+    }
+    for (ConversationBean bean : data) {
+      if (bean != null && bean.infoData != null && !idIndex.containsKey(key(bean))) {
+        conversationList.add(bean);
+        idIndex.put(key(bean), bean);
+      }
+    }
+    if (comparator != null) {
+      Collections.sort(conversationList, (o1, o2) -> comparator.compare(o1.infoData, o2.infoData));
+    }
+  }
+
+  public boolean contains(ConversationBean bean) {
+    return bean != null && bean.infoData != null && idIndex.containsKey(key(bean));
+  }
+
+  @Nullable
+  public ConversationBean find(String contactId) {
+    return idIndex.get(contactId);
+  }
+
+  /** position of conversation with contact id, -1 if not found */
+  public int indexOf(String contactId) {
+    ConversationBean stored = idIndex.get(contactId);
+    return stored == null ? -1 : positionOf(stored);
+  }
+
+  /** position of conversation with same contact id and session type, -1 if not found */
+  public int indexOf(ConversationBean bean) {
+    if (bean == null || bean.infoData == null) {
+      return -1;
+    }
+    ConversationBean stored = idIndex.get(key(bean));
+    if (stored == null || !stored.equals(bean)) {
+      return -1;
+    }
+    return positionOf(stored);
+  }
+
+  /** insert conversation at sorted position, return the position */
+  public int insert(ConversationBean bean) {
+    int index = searchInsertIndex(bean);
+    conversationList.add(index, bean);
+    idIndex.put(key(bean), bean);
+    return index;
+  }
+
+  public ConversationBean remove(int position) {
+    ConversationBean bean = conversationList.remove(position);
+    if (bean != null && idIndex.get(key(bean)) == bean) {
+      idIndex.remove(key(bean));
+    }
+    return bean;
+  }
+
+  /** replace conversation at position without moving it, sort fields should not be changed */
+  public void set(int position, ConversationBean bean) {
+    ConversationBean old = conversationList.set(position, bean);
+    if (old != null) {
+      idIndex.remove(key(old));
+    }
+    idIndex.put(key(bean), bean);
+  }
+
+  private int searchInsertIndex(ConversationBean data) {
+    if (comparator == null) {
+      // add stick must be insert 0
+      return data.infoData.isStickTop() ? 0 : conversationList.size();
+    }
+    // first position which data is not after
+    int low = 0;
+    int high = conversationList.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compare(data.infoData, conversationList.get(mid).infoData) < 1) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  private int positionOf(ConversationBean stored) {
+    if (comparator != null) {
+      int index = searchInsertIndex(stored);
+      // items with equal order are adjacent, check them for the stored one
+      for (int i = index; i < conversationList.size(); i++) {
+        ConversationBean item = conversationList.get(i);
+        if (item == stored) {
+          return i;
+        }
+        if (comparator.compare(stored.infoData, item.infoData) != 0) {
+          break;
+        }
+      }
+    }
+    // order is broken by outside change, fall back to scan
+    for (int i = 0; i < conversationList.size(); i++) {
+      if (conversationList.get(i) == stored) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static String key(ConversationBean bean) {
+    return bean.infoData.getContactId();
+  }
+}
@@ -27,6 +27,7 @@ import com.netease.yunxin.kit.corekit.im.model.FriendInfo;
 import com.netease.yunxin.kit.corekit.im.model.UserInfo;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 /** conversation list view */
 public class ConversationView extends FrameLayout {
@@ -201,6 +202,12 @@ public class ConversationView extends FrameLayout {
     }
   }
 
+  public void syncStickTop(Set<String> stickIdSet) {
+    if (adapter != null) {
+      adapter.syncStickTop(stickIdSet);
+    }
+  }
+
   public void setShowTag(boolean show) {
     if (adapter != null) {
       adapter.setShowTag(show);
@@ -14,6 +14,9 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -56,4 +59,8 @@ dependencies {
     implementation("com.netease.nimlib:neliveplayer:3.2.2")
     implementation("com.netease:gslb:1.1.4")
 
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.9.3")
+    testImplementation("com.squareup.retrofit2:converter-gson:2.9.0")
+
 }
\ No newline at end of file
@@ -54,6 +54,7 @@ import com.netease.yunxin.kit.corekit.im.utils.RouterConstant;
 import com.netease.yunxin.kit.entertainment.common.activity.BasePartyActivity;
 import com.netease.yunxin.kit.entertainment.common.gift.GifAnimationView;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftCache;
+import com.netease.yunxin.kit.entertainment.common.gift.GiftComboView;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftDialog;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftRender;
 import com.netease.yunxin.kit.entertainment.common.utils.DialogUtil;
@@ -181,8 +182,11 @@ public class CustomChatP2PActivity extends BasePartyActivity {
               @Override
               public void onChanged(GiftAttachment giftAttachment) {
                 if (giftAttachment != null) {
+                  // 1v1 中接收者相同即发送者相同
                   giftRender.addGift(
-                      GiftCache.getGift(giftAttachment.getGiftId()).getDynamicIconResId());
+                      GiftCache.getGift(giftAttachment.getGiftId()),
+                      giftAttachment.getTargetUserUuid(),
+                      giftAttachment.getGiftCount());
                   if (TextUtils.equals(
                       UserInfoManager.getSelfImAccid(), giftAttachment.getTargetUserUuid())) {
                     ToastX.showShortToast(
@@ -435,8 +439,18 @@ public class CustomChatP2PActivity extends BasePartyActivity {
     FrameLayout contentParent = getWindow().getDecorView().findViewById(android.R.id.content);
     contentParent.addView(gifAnimationView, layoutParams);
     gifAnimationView.bringToFront();
+    // 连击数显示在动画下方
+    GiftComboView giftComboView = new GiftComboView(this);
+    FrameLayout.LayoutParams comboLayoutParams =
+        new FrameLayout.LayoutParams(
+            FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT);
+    comboLayoutParams.gravity = Gravity.CENTER;
+    giftComboView.setTranslationY(size / 2f);
+    contentParent.addView(giftComboView, comboLayoutParams);
+    giftComboView.bringToFront();
     giftRender = new GiftRender();
     giftRender.init(gifAnimationView);
+    giftRender.setComboListener(giftComboView);
   }
 
   @Override
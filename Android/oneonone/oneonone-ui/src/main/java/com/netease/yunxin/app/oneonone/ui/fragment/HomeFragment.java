@@ -32,10 +32,11 @@ import com.netease.yunxin.kit.entertainment.common.smartrefresh.listener.OnRefre
 
 /** home tab fragment */
 public class HomeFragment extends Fragment implements OnRefreshListener, OnLoadMoreListener {
+  // 距离底部多少条时预加载下一页
+  private static final int PREFETCH_DISTANCE = 6;
   private FragmentHomeBinding binding;
   private AppCompatActivity activity;
   private HomeViewModel homeViewModel;
-  private int pageNum = 0;
   private int pageSize = 20;
   private HomeAdapter homeAdapter;
   private boolean haveMore = false;
@@ -92,8 +93,20 @@ public class HomeFragment extends Fragment implements OnRefreshListener, OnLoadM
     GridLayoutManager gridLayoutManager = new GridLayoutManager(requireActivity(), 2);
     binding.recycleView.addItemDecoration(new MyItemDecoration());
     binding.recycleView.setLayoutManager(gridLayoutManager);
+    binding.recycleView.addOnScrollListener(
+        new RecyclerView.OnScrollListener() {
+          @Override
+          public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            // 接近底部时预加载下一页，上拉加载时直接使用缓存
+            if (dy > 0
+                && gridLayoutManager.findLastVisibleItemPosition()
+                    >= homeAdapter.getItemCount() - PREFETCH_DISTANCE) {
+              homeViewModel.prefetchNextPage();
+            }
+          }
+        });
     homeViewModel = new ViewModelProvider(requireActivity()).get(HomeViewModel.class);
-    homeViewModel.getUserList(pageNum, pageSize);
+    homeViewModel.getUserList(0, pageSize);
     homeAdapter = new HomeAdapter(activity);
     binding.recycleView.setAdapter(homeAdapter);
     if (!OneOnOneUI.getInstance().isChineseEnv()) {
@@ -116,8 +129,7 @@ public class HomeFragment extends Fragment implements OnRefreshListener, OnLoadM
     if (!haveMore) {
       binding.refreshLayout.finishLoadMoreWithNoMoreData();
     } else {
-      pageNum++;
-      homeViewModel.getUserList(pageNum, pageSize);
+      homeViewModel.loadNextPage(pageSize);
     }
   }
 
@@ -127,8 +139,7 @@ public class HomeFragment extends Fragment implements OnRefreshListener, OnLoadM
   }
 
   private void refresh() {
-    pageNum = 0;
-    homeViewModel.getUserList(pageNum, pageSize);
+    homeViewModel.getUserList(0, pageSize);
   }
 
   static class MyItemDecoration extends RecyclerView.ItemDecoration {
@@ -29,6 +29,7 @@ import com.netease.yunxin.kit.common.ui.utils.ToastX;
 import com.netease.yunxin.kit.common.utils.ScreenUtils;
 import com.netease.yunxin.kit.entertainment.common.gift.GifAnimationView;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftCache;
+import com.netease.yunxin.kit.entertainment.common.gift.GiftComboView;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftDialog;
 import com.netease.yunxin.kit.entertainment.common.gift.GiftRender;
 import com.netease.yunxin.kit.entertainment.common.utils.ReportUtils;
@@ -82,8 +83,11 @@ public abstract class InTheBaseCallFragment extends Fragment {
               @Override
               public void onChanged(GiftAttachment giftAttachment) {
                 if (giftAttachment != null) {
+                  // 1v1 中接收者相同即发送者相同
                   giftRender.addGift(
-                      GiftCache.getGift(giftAttachment.getGiftId()).getDynamicIconResId());
+                      GiftCache.getGift(giftAttachment.getGiftId()),
+                      giftAttachment.getTargetUserUuid(),
+                      giftAttachment.getGiftCount());
                   if (TextUtils.equals(
                       UserInfoManager.getSelfImAccid(), giftAttachment.getTargetUserUuid())) {
                     ToastX.showShortToast(
@@ -110,8 +114,21 @@ public abstract class InTheBaseCallFragment extends Fragment {
     ViewGroup root = (ViewGroup) baseView.findViewById(R.id.cl_root);
     root.addView(gifAnimationView, layoutParams);
     gifAnimationView.bringToFront();
+    // 连击数显示在动画下方
+    GiftComboView giftComboView = new GiftComboView(getContext());
+    ConstraintLayout.LayoutParams comboLayoutParams =
+        new ConstraintLayout.LayoutParams(
+            ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    comboLayoutParams.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
+    comboLayoutParams.bottomToBottom = ConstraintLayout.LayoutParams.PARENT_ID;
+    comboLayoutParams.startToStart = ConstraintLayout.LayoutParams.PARENT_ID;
+    comboLayoutParams.endToEnd = ConstraintLayout.LayoutParams.PARENT_ID;
+    giftComboView.setTranslationY(size / 2f);
+    root.addView(giftComboView, comboLayoutParams);
+    giftComboView.bringToFront();
     giftRender = new GiftRender();
     giftRender.init(gifAnimationView);
+    giftRender.setComboListener(giftComboView);
   }
 
   protected void showGiftDialog() {
@@ -244,6 +244,7 @@ public class InTheVideoCallFragment extends InTheBaseCallFragment implements Sen
 
   private void setupFaceUnity() {
     mFURendererManager = FURenderer.getInstance();
+    mFURendererManager.init(requireContext());
     mFURendererManager.setMarkFPSEnable(true);
     mFURendererManager.setInputTextureType(FUInputTextureEnum.FU_ADM_FLAG_EXTERNAL_OES_TEXTURE);
     mFURendererManager.setCameraFacing(CameraFacingEnum.CAMERA_FRONT);
@@ -6,11 +6,13 @@ package com.netease.yunxin.app.oneonone.ui.fragment.adapter;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.netease.nimlib.sdk.avsignalling.constant.ChannelType;
 import com.netease.nimlib.sdk.msg.constant.SessionTypeEnum;
@@ -52,10 +54,43 @@ public class HomeAdapter extends RecyclerView.Adapter {
     this.activity = activity;
   }
 
+  /** 按 userUuid 比较新旧列表，只刷新变化的条目 */
   public void bindData(List<HomeItemModel> list) {
-    this.list.clear();
-    this.list.addAll(list);
-    notifyDataSetChanged();
+    List<HomeItemModel> oldList = this.list;
+    List<HomeItemModel> newList = new ArrayList<>(list);
+    DiffUtil.DiffResult diffResult =
+        DiffUtil.calculateDiff(
+            new DiffUtil.Callback() {
+              @Override
+              public int getOldListSize() {
+                return oldList.size();
+              }
+
+              @Override
+              public int getNewListSize() {
+                return newList.size();
+              }
+
+              @Override
+              public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return TextUtils.equals(
+                    oldList.get(oldItemPosition).userUuid, newList.get(newItemPosition).userUuid);
+              }
+
+              @Override
+              public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                HomeItemModel oldItem = oldList.get(oldItemPosition);
+                HomeItemModel newItem = newList.get(newItemPosition);
+                return TextUtils.equals(oldItem.icon, newItem.icon)
+                    && TextUtils.equals(oldItem.userName, newItem.userName)
+                    && TextUtils.equals(oldItem.mobile, newItem.mobile)
+                    && TextUtils.equals(oldItem.audioUrl, newItem.audioUrl)
+                    && TextUtils.equals(oldItem.videoUrl, newItem.videoUrl)
+                    && oldItem.callType == newItem.callType;
+              }
+            });
+    this.list = newList;
+    diffResult.dispatchUpdatesTo(this);
   }
 
   @NonNull
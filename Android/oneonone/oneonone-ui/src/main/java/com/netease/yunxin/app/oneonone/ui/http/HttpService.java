@@ -61,6 +61,8 @@ public class HttpService {
     map.put("pageSize", pageSize);
     if (serverApi != null) {
       serverApi.getUserList(map).enqueue(callback);
+    } else {
+      callback.onFailure(null, new IllegalStateException("HttpService not initialized"));
     }
   }
 
@@ -0,0 +1,333 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.ui.http;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.netease.yunxin.app.oneonone.ui.model.HomeItemModel;
+import com.netease.yunxin.app.oneonone.ui.model.ModelResponse;
+import com.netease.yunxin.app.oneonone.ui.utils.AppGlobals;
+import com.netease.yunxin.app.oneonone.ui.utils.LogUtil;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 首页用户列表数据仓库
+ *
+ * <p>按页缓存用户列表，先返回内存或磁盘中的缓存，缓存过期时再请求网络更新（stale-while-revalidate）。
+ * 同一页的并发请求只发一次，结果回调给所有调用方。所有方法和回调都在主线程。
+ *
+ * <p>请求通过 {@link PageFetcher} 发出，测试时可替换为本地服务，主线程和时钟也可以替换。
+ */
+public class UserListRepository {
+  private static final String TAG = "UserListRepository";
+
+  /** 缓存有效期，超过后返回缓存的同时请求网络 */
+  private static final long CACHE_TTL_MS = 30 * 1000;
+  /** 保存到磁盘的页数，冷启动时首屏直接读取 */
+  private static final int DISK_CACHE_PAGE_COUNT = 2;
+
+  private static final String DISK_CACHE_DIR = "home_user_list";
+
+  private static volatile UserListRepository mInstance;
+
+  private final PageFetcher fetcher;
+  private final File cacheDir;
+  private final Executor diskExecutor;
+  private final Executor mainExecutor;
+  private final Clock clock;
+  private final Gson gson = new Gson();
+  private final Type pageType = new TypeToken<List<HomeItemModel>>() {}.getType();
+
+  private final Map<String, Page> memoryCache = new HashMap<>();
+  // 请求中的页，key -> 等待结果的回调
+  private final Map<String, List<PageCallback>> inFlight = new HashMap<>();
+
+  public interface Clock {
+    long now();
+  }
+
+  /** 请求一页数据 */
+  public interface PageFetcher {
+    void fetch(int pageNum, int pageSize, Callback<ModelResponse<List<HomeItemModel>>> callback);
+  }
+
+  /** 一页数据结果，缓存命中且未过期时只回调一次，否则网络返回后会再回调一次 */
+  public interface PageCallback {
+    /**
+     * @param page 页数据
+     * @param fromCache 是否来自缓存
+     */
+    void onPage(@NonNull Page page, boolean fromCache);
+
+    /** 无缓存且网络请求失败 */
+    void onError(@Nullable Throwable throwable);
+  }
+
+  public static class Page {
+    public final int pageNum;
+    public final int pageSize;
+    public final List<HomeItemModel> users;
+    /** 网络返回时间，{@link Clock#now()}，磁盘缓存为 0 表示需要更新 */
+    final long fetchTime;
+
+    Page(int pageNum, int pageSize, List<HomeItemModel> users, long fetchTime) {
+      this.pageNum = pageNum;
+      this.pageSize = pageSize;
+      this.users = users;
+      this.fetchTime = fetchTime;
+    }
+
+    public boolean hasMore() {
+      return users.size() == pageSize;
+    }
+
+    boolean isStale(long now) {
+      return fetchTime == 0 || now - fetchTime > CACHE_TTL_MS;
+    }
+  }
+
+  public static UserListRepository getInstance() {
+    if (null == mInstance) {
+      synchronized (UserListRepository.class) {
+        if (mInstance == null) {
+          mInstance =
+              new UserListRepository(
+                  (pageNum, pageSize, callback) ->
+                      HttpService.getInstance().getUserList(pageNum, pageSize, callback),
+                  new File(AppGlobals.getApplication().getCacheDir(), DISK_CACHE_DIR),
+                  Executors.newSingleThreadExecutor());
+        }
+      }
+    }
+    return mInstance;
+  }
+
+  public UserListRepository(PageFetcher fetcher, File cacheDir, Executor diskExecutor) {
+    this(
+        fetcher,
+        cacheDir,
+        diskExecutor,
+        new Handler(Looper.getMainLooper())::post,
+        SystemClock::elapsedRealtime);
+  }
+
+  /**
+   * @param mainExecutor 执行回调的线程，所有方法也需要在该线程调用
+   */
+  public UserListRepository(
+      PageFetcher fetcher,
+      File cacheDir,
+      Executor diskExecutor,
+      Executor mainExecutor,
+      Clock clock) {
+    this.fetcher = fetcher;
+    this.cacheDir = cacheDir;
+    this.diskExecutor = diskExecutor;
+    this.mainExecutor = mainExecutor;
+    this.clock = clock;
+  }
+
+  /**
+   * 加载一页，有缓存时先返回缓存，缓存过期时再请求网络
+   *
+   * @param forceRefresh 忽略缓存有效期，总是请求网络
+   */
+  public void load(int pageNum, int pageSize, boolean forceRefresh, PageCallback callback) {
+    Page cached = memoryCache.get(key(pageNum, pageSize));
+    if (cached != null) {
+      callback.onPage(cached, true);
+      if (forceRefresh || cached.isStale(clock.now())) {
+        fetch(pageNum, pageSize, callback, false);
+      }
+      return;
+    }
+    if (pageNum >= DISK_CACHE_PAGE_COUNT) {
+      fetch(pageNum, pageSize, callback, true);
+      return;
+    }
+    diskExecutor.execute(
+        () -> {
+          Page diskPage = readDisk(pageNum, pageSize);
+          mainExecutor.execute(
+              () -> {
+                // 读磁盘期间网络已返回时不再使用磁盘数据
+                Page memoryPage = memoryCache.get(key(pageNum, pageSize));
+                if (memoryPage != null) {
+                  callback.onPage(memoryPage, true);
+                  if (forceRefresh || memoryPage.isStale(clock.now())) {
+                    fetch(pageNum, pageSize, callback, false);
+                  }
+                  return;
+                }
+                if (diskPage != null) {
+                  memoryCache.put(key(pageNum, pageSize), diskPage);
+                  callback.onPage(diskPage, true);
+                }
+                fetch(pageNum, pageSize, callback, diskPage == null);
+              });
+        });
+  }
+
+  /** 预加载一页到缓存，已缓存且未过期或正在请求时忽略 */
+  public void prefetch(int pageNum, int pageSize) {
+    String key = key(pageNum, pageSize);
+    Page cached = memoryCache.get(key);
+    if ((cached != null && !cached.isStale(clock.now())) || inFlight.containsKey(key)) {
+      return;
+    }
+    fetch(pageNum, pageSize, null, false);
+  }
+
+  /** 是否有未过期的缓存 */
+  public boolean isCached(int pageNum, int pageSize) {
+    Page cached = memoryCache.get(key(pageNum, pageSize));
+    return cached != null && !cached.isStale(clock.now());
+  }
+
+  public void clearMemoryCache() {
+    memoryCache.clear();
+  }
+
+  // 同一页只有一个请求，回调在请求结束后统一通知
+  private void fetch(
+      int pageNum, int pageSize, @Nullable PageCallback callback, boolean reportError) {
+    String key = key(pageNum, pageSize);
+    List<PageCallback> waiting = inFlight.get(key);
+    boolean requesting = waiting != null;
+    if (!requesting) {
+      waiting = new ArrayList<>();
+      inFlight.put(key, waiting);
+    }
+    if (callback != null) {
+      waiting.add(reportError ? callback : new IgnoreErrorCallback(callback));
+    }
+    if (requesting) {
+      return;
+    }
+    long start = clock.now();
+    fetcher.fetch(
+        pageNum,
+        pageSize,
+        new Callback<ModelResponse<List<HomeItemModel>>>() {
+          @Override
+          public void onResponse(
+              Call<ModelResponse<List<HomeItemModel>>> call,
+              Response<ModelResponse<List<HomeItemModel>>> response) {
+            ModelResponse<List<HomeItemModel>> body = response.body();
+            if (body == null || body.code != 200 || body.data == null) {
+              onFailure(call, new IOException("code:" + (body == null ? -1 : body.code)));
+              return;
+            }
+            LogUtil.i(
+                TAG,
+                "fetch page:"
+                    + pageNum
+                    + ",size:"
+                    + body.data.size()
+                    + ",cost:"
+                    + (clock.now() - start));
+            Page page = new Page(pageNum, pageSize, new ArrayList<>(body.data), clock.now());
+            memoryCache.put(key, page);
+            if (pageNum < DISK_CACHE_PAGE_COUNT) {
+              diskExecutor.execute(() -> writeDisk(page));
+            }
+            List<PageCallback> callbacks = inFlight.remove(key);
+            if (callbacks != null) {
+              for (PageCallback pageCallback : callbacks) {
+                pageCallback.onPage(page, false);
+              }
+            }
+          }
+
+          @Override
+          public void onFailure(Call<ModelResponse<List<HomeItemModel>>> call, Throwable t) {
+            LogUtil.e(TAG, "fetch page:" + pageNum + " failed,t:" + t);
+            List<PageCallback> callbacks = inFlight.remove(key);
+            if (callbacks != null) {
+              for (PageCallback pageCallback : callbacks) {
+                pageCallback.onError(t);
+              }
+            }
+          }
+        });
+  }
+
+  @Nullable
+  private Page readDisk(int pageNum, int pageSize) {
+    File file = new File(cacheDir, key(pageNum, pageSize));
+    if (!file.exists()) {
+      return null;
+    }
+    try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+      List<HomeItemModel> users = gson.fromJson(reader, pageType);
+      return users == null ? null : new Page(pageNum, pageSize, users, 0);
+    } catch (Exception e) {
+      LogUtil.e(TAG, "readDisk failed,e:" + e);
+      return null;
+    }
+  }
+
+  private void writeDisk(Page page) {
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+      return;
+    }
+    File file = new File(cacheDir, key(page.pageNum, page.pageSize));
+    File tmp = new File(cacheDir, file.getName() + ".tmp");
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+      gson.toJson(page.users, pageType, writer);
+    } catch (Exception e) {
+      LogUtil.e(TAG, "writeDisk failed,e:" + e);
+      return;
+    }
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+    }
+  }
+
+  private static String key(int pageNum, int pageSize) {
+    return "page_" + pageSize + "_" + pageNum;
+  }
+
+  // 已返回缓存时，网络失败不再通知
+  private static class IgnoreErrorCallback implements PageCallback {
+    private final PageCallback callback;
+
+    IgnoreErrorCallback(PageCallback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void onPage(@NonNull Page page, boolean fromCache) {
+      callback.onPage(page, fromCache);
+    }
+
+    @Override
+    public void onError(@Nullable Throwable throwable) {}
+  }
+}
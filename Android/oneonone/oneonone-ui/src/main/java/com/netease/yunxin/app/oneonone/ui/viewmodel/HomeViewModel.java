@@ -4,57 +4,140 @@
 
 package com.netease.yunxin.app.oneonone.ui.viewmodel;
 
-import android.os.Build;
+import android.os.SystemClock;
 import android.util.Pair;
-import androidx.annotation.RequiresApi;
+import android.util.SparseArray;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
-import com.netease.yunxin.app.oneonone.ui.http.HttpService;
+import com.netease.yunxin.app.oneonone.ui.http.UserListRepository;
 import com.netease.yunxin.app.oneonone.ui.model.HomeItemModel;
-import com.netease.yunxin.app.oneonone.ui.model.ModelResponse;
+import com.netease.yunxin.app.oneonone.ui.utils.LogUtil;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.Set;
 
 public class HomeViewModel extends ViewModel {
+  private static final String TAG = "HomeViewModel";
   private final MutableLiveData<Pair<List<HomeItemModel>, Boolean>> userListData =
       new MutableLiveData<>();
-  private List<HomeItemModel> userList = new ArrayList<>();
+  private final UserListRepository repository = UserListRepository.getInstance();
+  // 已加载的页，pageNum -> 页数据
+  private final SparseArray<List<HomeItemModel>> pages = new SparseArray<>();
+  private int lastPageNum = -1;
+  private int pageSize = 20;
   private boolean haveMore = false;
+  // 首屏与翻页耗时统计，请求开始时间，0 表示已统计
+  private long firstFrameStart = 0;
+  private boolean firstFrameReported = false;
+  private long nextPageStart = 0;
+  private int nextPageNum = -1;
+  // 第一页请求次数，用于区分刷新和刷新后的后台更新
+  private int refreshCount = 0;
 
   public void getUserList(int pageNum, int pageSize) {
-    HttpService.getInstance()
-        .getUserList(
-            pageNum,
-            pageSize,
-            new Callback<ModelResponse<List<HomeItemModel>>>() {
-              @RequiresApi(api = Build.VERSION_CODES.ECLAIR)
-              @Override
-              public void onResponse(
-                  Call<ModelResponse<List<HomeItemModel>>> call,
-                  Response<ModelResponse<List<HomeItemModel>>> response) {
-                if (pageNum == 0) {
-                  userList.clear();
-                }
-                if (response.body() != null
-                    && response.body().code == 200
-                    && response.body().data != null) {
-                  userList.addAll(response.body().data);
-                  haveMore = response.body().data.size() == pageSize;
-                }
-                userListData.setValue(new Pair<>(userList, haveMore));
-              }
-
-              @Override
-              public void onFailure(Call<ModelResponse<List<HomeItemModel>>> call, Throwable t) {
-                userListData.setValue(new Pair<>(userList, haveMore));
-              }
-            });
+    this.pageSize = pageSize;
+    // 加载更多的请求不会重置列表
+    int refreshId = pageNum == 0 ? ++refreshCount : -1;
+    long now = SystemClock.elapsedRealtime();
+    if (pageNum == 0 && !firstFrameReported && firstFrameStart == 0) {
+      firstFrameStart = now;
+    } else if (pageNum > 0) {
+      nextPageStart = now;
+      nextPageNum = pageNum;
+    }
+    repository.load(
+        pageNum,
+        pageSize,
+        pageNum == 0 && firstFrameReported,
+        new UserListRepository.PageCallback() {
+          private boolean delivered = false;
+
+          @Override
+          public void onPage(@NonNull UserListRepository.Page page, boolean fromCache) {
+            reportLatency(page.pageNum, fromCache);
+            // 同一次刷新的第一次返回重置列表，之后的返回是后台更新，只替换第一页
+            boolean reset = !delivered && refreshId == refreshCount;
+            delivered = true;
+            onPageLoaded(page, reset);
+          }
+
+          @Override
+          public void onError(@Nullable Throwable throwable) {
+            userListData.setValue(new Pair<>(buildUserList(), haveMore));
+          }
+        });
+  }
+
+  /** 加载已展示的最后一页的下一页 */
+  public void loadNextPage(int pageSize) {
+    getUserList(lastPageNum + 1, pageSize);
+  }
+
+  /** 列表接近底部时预加载下一页 */
+  public void prefetchNextPage() {
+    if (haveMore && lastPageNum >= 0) {
+      repository.prefetch(lastPageNum + 1, pageSize);
+    }
   }
 
   public MutableLiveData<Pair<List<HomeItemModel>, Boolean>> getUserListData() {
     return userListData;
   }
+
+  /**
+   * 每次返回都通知列表，加载更多的状态由列表结果结束
+   *
+   * @param reset 刷新第一页，之后的页需要重新加载
+   */
+  private void onPageLoaded(UserListRepository.Page page, boolean reset) {
+    if (reset) {
+      pages.clear();
+      lastPageNum = -1;
+    }
+    // 中间页缺失时是刷新前发出的请求，不再拼接
+    if (page.pageNum == 0 || pages.get(page.pageNum - 1) != null) {
+      pages.put(page.pageNum, page.users);
+      if (page.pageNum >= lastPageNum) {
+        lastPageNum = page.pageNum;
+        haveMore = page.hasMore();
+      }
+    }
+    userListData.setValue(new Pair<>(buildUserList(), haveMore));
+  }
+
+  // 每次返回新列表，由 adapter 计算差异，后台更新后移到后一页的用户只保留一次
+  private List<HomeItemModel> buildUserList() {
+    List<HomeItemModel> userList = new ArrayList<>();
+    Set<String> userUuids = new HashSet<>();
+    for (int index = 0; index < pages.size(); index++) {
+      if (pages.keyAt(index) > lastPageNum) {
+        continue;
+      }
+      for (HomeItemModel user : pages.valueAt(index)) {
+        if (user.userUuid == null || userUuids.add(user.userUuid)) {
+          userList.add(user);
+        }
+      }
+    }
+    return userList;
+  }
+
+  private void reportLatency(int pageNum, boolean fromCache) {
+    long now = SystemClock.elapsedRealtime();
+    if (pageNum == 0 && !firstFrameReported && firstFrameStart > 0) {
+      firstFrameReported = true;
+      LogUtil.i(
+          TAG, "first frame cost:" + (now - firstFrameStart) + ",fromCache:" + fromCache);
+      firstFrameStart = 0;
+    } else if (pageNum == nextPageNum && nextPageStart > 0) {
+      LogUtil.i(
+          TAG,
+          "next page:" + pageNum + " cost:" + (now - nextPageStart) + ",fromCache:" + fromCache);
+      nextPageStart = 0;
+      nextPageNum = -1;
+    }
+  }
 }
@@ -0,0 +1,238 @@
+// Copyright (c) 2022 NetEase, Inc. All rights reserved.
+// Use of this source code is governed by a MIT license that can be
+// found in the LICENSE file.
+
+package com.netease.yunxin.app.oneonone.ui.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.netease.yunxin.app.oneonone.ui.model.HomeItemModel;
+import com.netease.yunxin.app.oneonone.ui.model.ModelResponse;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/** Checks cache hit, stale-while-revalidate and request merging against a local server. */
+public class UserListRepositoryTest {
+
+  private static final int PAGE_SIZE = 2;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private MockWebServer server;
+  private ServerApi serverApi;
+  private DeferredFetcher fetcher;
+  private long now = 1000;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    serverApi =
+        new Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(GsonConverterFactory.create())
+            .build()
+            .create(ServerApi.class);
+    fetcher = new DeferredFetcher();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void freshCacheDoesNotRequest() throws IOException {
+    UserListRepository repository = newRepository(folder.newFolder());
+    server.enqueue(page("u1", "u2"));
+    RecordingCallback first = new RecordingCallback();
+    repository.load(0, PAGE_SIZE, false, first);
+    fetcher.completeAll();
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, first.pages.size());
+    assertFalse(first.fromCache.get(0));
+
+    now += 10 * 1000;
+    RecordingCallback second = new RecordingCallback();
+    repository.load(0, PAGE_SIZE, false, second);
+    assertEquals(0, fetcher.pending.size());
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, second.pages.size());
+    assertTrue(second.fromCache.get(0));
+    assertEquals("u1", second.pages.get(0).users.get(0).userUuid);
+  }
+
+  @Test
+  public void staleCacheReturnsCacheThenRevalidates() throws IOException {
+    UserListRepository repository = newRepository(folder.newFolder());
+    server.enqueue(page("u1", "u2"));
+    repository.load(0, PAGE_SIZE, false, new RecordingCallback());
+    fetcher.completeAll();
+
+    now += 60 * 1000;
+    server.enqueue(page("u3", "u1"));
+    RecordingCallback callback = new RecordingCallback();
+    repository.load(0, PAGE_SIZE, false, callback);
+    assertEquals(1, callback.pages.size());
+    assertTrue(callback.fromCache.get(0));
+    assertEquals("u1", callback.pages.get(0).users.get(0).userUuid);
+
+    fetcher.completeAll();
+    assertEquals(2, server.getRequestCount());
+    assertEquals(2, callback.pages.size());
+    assertFalse(callback.fromCache.get(1));
+    assertEquals("u3", callback.pages.get(1).users.get(0).userUuid);
+  }
+
+  @Test
+  public void diskCacheIsUsedByNewInstance() throws IOException {
+    File cacheDir = folder.newFolder();
+    server.enqueue(page("u1", "u2"));
+    newRepository(cacheDir).load(0, PAGE_SIZE, false, new RecordingCallback());
+    fetcher.completeAll();
+
+    server.enqueue(page("u4", "u5"));
+    RecordingCallback callback = new RecordingCallback();
+    newRepository(cacheDir).load(0, PAGE_SIZE, false, callback);
+    assertEquals(1, callback.pages.size());
+    assertTrue(callback.fromCache.get(0));
+    assertEquals("u1", callback.pages.get(0).users.get(0).userUuid);
+
+    // disk cache is always revalidated
+    fetcher.completeAll();
+    assertEquals(2, callback.pages.size());
+    assertEquals("u4", callback.pages.get(1).users.get(0).userUuid);
+  }
+
+  @Test
+  public void concurrentLoadsShareOneRequest() throws IOException {
+    UserListRepository repository = newRepository(folder.newFolder());
+    server.enqueue(page("u1", "u2"));
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+    repository.load(2, PAGE_SIZE, false, first);
+    repository.prefetch(2, PAGE_SIZE);
+    repository.load(2, PAGE_SIZE, false, second);
+    assertEquals(1, fetcher.pending.size());
+
+    fetcher.completeAll();
+    assertEquals(1, server.getRequestCount());
+    assertEquals(1, first.pages.size());
+    assertEquals(1, second.pages.size());
+    assertTrue(first.pages.get(0) == second.pages.get(0));
+    assertTrue(repository.isCached(2, PAGE_SIZE));
+  }
+
+  @Test
+  public void errorWithoutCacheIsReported() throws IOException {
+    UserListRepository repository = newRepository(folder.newFolder());
+    server.enqueue(new MockResponse().setResponseCode(500));
+    RecordingCallback callback = new RecordingCallback();
+    repository.load(0, PAGE_SIZE, false, callback);
+    fetcher.completeAll();
+    assertEquals(0, callback.pages.size());
+    assertEquals(1, callback.errorCount);
+  }
+
+  @Test
+  public void errorAfterCacheIsIgnored() throws IOException {
+    UserListRepository repository = newRepository(folder.newFolder());
+    server.enqueue(page("u1", "u2"));
+    repository.load(0, PAGE_SIZE, false, new RecordingCallback());
+    fetcher.completeAll();
+
+    server.enqueue(new MockResponse().setResponseCode(500));
+    RecordingCallback callback = new RecordingCallback();
+    repository.load(0, PAGE_SIZE, true, callback);
+    fetcher.completeAll();
+    assertEquals(1, callback.pages.size());
+    assertEquals(0, callback.errorCount);
+  }
+
+  private UserListRepository newRepository(File cacheDir) {
+    return new UserListRepository(fetcher, cacheDir, Runnable::run, Runnable::run, () -> now);
+  }
+
+  private static MockResponse page(String... userUuids) {
+    StringBuilder data = new StringBuilder();
+    for (String userUuid : userUuids) {
+      if (data.length() > 0) {
+        data.append(',');
+      }
+      data.append("{\"userUuid\":\"").append(userUuid).append("\"}");
+    }
+    return new MockResponse()
+        .setHeader("Content-Type", "application/json")
+        .setBody("{\"code\":200,\"data\":[" + data + "]}");
+  }
+
+  // requests run only in completeAll, so loads can join a request in flight
+  private class DeferredFetcher implements UserListRepository.PageFetcher {
+    final List<Runnable> pending = new ArrayList<>();
+
+    @Override
+    public void fetch(
+        int pageNum, int pageSize, Callback<ModelResponse<List<HomeItemModel>>> callback) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("pageNum", pageNum);
+      body.put("pageSize", pageSize);
+      Call<ModelResponse<List<HomeItemModel>>> call = serverApi.getUserList(body);
+      pending.add(
+          () -> {
+            Response<ModelResponse<List<HomeItemModel>>> response;
+            try {
+              response = call.execute();
+            } catch (IOException e) {
+              callback.onFailure(call, e);
+              return;
+            }
+            callback.onResponse(call, response);
+          });
+    }
+
+    void completeAll() {
+      List<Runnable> list = new ArrayList<>(pending);
+      pending.clear();
+      for (Runnable runnable : list) {
+        runnable.run();
+      }
+    }
+  }
+
+  private static class RecordingCallback implements UserListRepository.PageCallback {
+    final List<UserListRepository.Page> pages = new ArrayList<>();
+    final List<Boolean> fromCache = new ArrayList<>();
+    int errorCount = 0;
+
+    @Override
+    public void onPage(@NonNull UserListRepository.Page page, boolean fromCache) {
+      pages.add(page);
+      this.fromCache.add(fromCache);
+    }
+
+    @Override
+    public void onError(@Nullable Throwable throwable) {
+      errorCount++;
+    }
+  }
+}